@@ -0,0 +1,179 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.geobricks.gdal.info.RasterInfo;
+import org.geobricks.geotiff.GeoTIFFImage;
+import org.geobricks.geotiff.GeoTIFFReader;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Extent, resolution, spatial reference and bands of a raster file,
+ *         with the modification time of the file they were read from.
+ * 
+ */
+public class Footprint {
+
+	private static final Pattern AUTHORITY = Pattern.compile("AUTHORITY\\[\"EPSG\",\\s*\"?(\\d+)\"?\\]\\s*\\]\\s*$");
+
+	private String filepath;
+
+	private double minX;
+
+	private double minY;
+
+	private double maxX;
+
+	private double maxY;
+
+	private double resolutionX;
+
+	private double resolutionY;
+
+	private int epsg;
+
+	private int bands;
+
+	private long lastModified;
+
+	public Footprint(String filepath, double minX, double minY, double maxX, double maxY, double resolutionX, double resolutionY, int epsg, int bands, long lastModified) {
+		this.filepath = filepath;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.resolutionX = resolutionX;
+		this.resolutionY = resolutionY;
+		this.epsg = epsg;
+		this.bands = bands;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * @param info
+	 *            Description of the raster by gdalinfo
+	 */
+	public static Footprint from(String filepath, RasterInfo info) throws Exception {
+		double[] e = info.getExtent();
+		if (e == null)
+			throw new Exception(filepath + " has no geotransform.");
+		return new Footprint(filepath, e[0], e[1], e[2], e[3], info.getPixelWidth(), info.getPixelHeight(), epsg(info.getSpatialReference()), info.getBandCount(), new File(filepath).lastModified());
+	}
+
+	/**
+	 * Read the footprint from the header of a GeoTIFF, without launching
+	 * gdalinfo.
+	 */
+	public static Footprint read(File f) throws IOException {
+		GeoTIFFReader r = new GeoTIFFReader(f);
+		try {
+			GeoTIFFImage image = r.getImage();
+			double[] gt = image.getGeoTransform();
+			if (gt == null)
+				throw new IOException(f + " has no geotransform.");
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < 4; i++) {
+				int p = (i & 1) == 0 ? 0 : image.getWidth();
+				int l = (i & 2) == 0 ? 0 : image.getHeight();
+				double x = gt[0] + p * gt[1] + l * gt[2];
+				double y = gt[3] + p * gt[4] + l * gt[5];
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+			return new Footprint(f.getPath(), minX, minY, maxX, maxY, Math.abs(gt[1]), Math.abs(gt[5]), image.getEPSG(), image.getSamplesPerPixel(), f.lastModified());
+		} finally {
+			r.close();
+		}
+	}
+
+	/**
+	 * @return EPSG code of the root of a WKT definition, 0 if it has none
+	 */
+	static int epsg(String wkt) {
+		if (wkt == null)
+			return 0;
+		Matcher m = AUTHORITY.matcher(wkt.trim());
+		return m.find() ? Integer.parseInt(m.group(1)) : 0;
+	}
+
+	public boolean intersects(double minX, double minY, double maxX, double maxY) {
+		return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+	}
+
+	public String getFilepath() {
+		return filepath;
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+
+	public double getResolutionX() {
+		return resolutionX;
+	}
+
+	public double getResolutionY() {
+		return resolutionY;
+	}
+
+	/**
+	 * @return EPSG code of the spatial reference, 0 if unknown
+	 */
+	public int getEPSG() {
+		return epsg;
+	}
+
+	public int getBands() {
+		return bands;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public String toString() {
+		return this.getFilepath() + " " + this.getMinX() + " " + this.getMinY() + " " + this.getMaxX() + " " + this.getMaxY();
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,493 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geobricks.gdal.buildvrt.GDALBuildVRT;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.gdal.info.GDALInfoCache;
+import org.geobricks.gdal.retile.GDALRetile;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Keeps the footprints of the rasters on disk, so that a restart
+ *         doesn't run gdalinfo over the whole layers folder again. The
+ *         catalog file holds a 32 bytes header and fixed width records of 80
+ *         bytes: path id, extent, resolution, EPSG code, bands, modification
+ *         time and flags, little endian; the paths are in a string table
+ *         next to it, <code>.strings</code>, where the id of a path is its
+ *         offset. Both are mapped and records are read in place, without
+ *         deserialization.
+ * 
+ *         The files are append only: a changed raster gets a new record that
+ *         supersedes the previous ones of the same path, a deleted raster a
+ *         record flagged as deleted. <code>compact()</code> drops the
+ *         superseded records. The record count in the header is updated after
+ *         the records are written, so an interrupted append is ignored.
+ * 
+ *         The header also holds the generation of the string table, bumped by
+ *         every compaction: generation 0 is <code>.strings</code>, the next
+ *         ones <code>.strings.1</code>, <code>.strings.2</code>... A
+ *         compaction writes the new table and the new records, as
+ *         <code>.tmp</code>, next to the current ones, and commits by
+ *         renaming the records over the catalog, so a crash leaves either the
+ *         old or the new pair of files; the leftovers are deleted on open.
+ * 
+ */
+public class FootprintCatalog implements Closeable {
+
+	static final int MAGIC = 0x43464247;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	static final int RECORD_SIZE = 80;
+
+	static final int DELETED = 1;
+
+	private File file;
+
+	private RandomAccessFile records;
+
+	private RandomAccessFile strings;
+
+	private MappedByteBuffer recordMap;
+
+	private MappedByteBuffer stringMap;
+
+	private int count;
+
+	private long generation;
+
+	private Map<String, Long> pathIds;
+
+	private Map<Long, String> paths = new HashMap<Long, String>();
+
+	private FootprintIndex index;
+
+	/**
+	 * Open the catalog, creating it if it doesn't exist.
+	 */
+	public FootprintCatalog(File file) throws IOException {
+		this.file = file;
+		this.open();
+	}
+
+	/**
+	 * Create an empty catalog, replacing the files if they exist.
+	 * 
+	 * @param base
+	 *            Catalog whose string table is named after
+	 */
+	private FootprintCatalog(File file, File base, long generation) throws IOException {
+		this.file = file;
+		this.generation = generation;
+		this.records = new RandomAccessFile(file, "rw");
+		this.strings = new RandomAccessFile(stringsFile(base, generation), "rw");
+		try {
+			this.records.setLength(0);
+			this.strings.setLength(0);
+			this.writeHeader(0);
+			this.map();
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	private void open() throws IOException {
+		File tmp = tmpFile(this.file);
+		if (!this.file.exists() && tmp.exists() && !tmp.renameTo(this.file))
+			throw new IOException("Can't restore " + this.file + " from " + tmp + ".");
+		this.records = new RandomAccessFile(this.file, "rw");
+		try {
+			boolean empty = this.records.length() < HEADER_SIZE;
+			if (empty) {
+				this.records.setLength(0);
+				this.generation = 0;
+				this.writeHeader(0);
+			}
+			ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			this.read(this.records.getChannel(), h, 0);
+			if (h.getInt(0) != MAGIC)
+				throw new IOException(this.file + " is not a footprint catalog.");
+			if (h.getInt(4) > VERSION)
+				throw new IOException("Unsupported footprint catalog version " + h.getInt(4) + ".");
+			long n = h.getLong(8);
+			if (n < 0 || HEADER_SIZE + n * RECORD_SIZE > Math.min(this.records.length(), Integer.MAX_VALUE))
+				throw new IOException("Invalid record count " + n + ".");
+			this.count = (int) n;
+			this.generation = h.getLong(16);
+			this.strings = new RandomAccessFile(stringsFile(this.file, this.generation), "rw");
+			if (empty)
+				this.strings.setLength(0);
+			this.map();
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+		this.deleteLeftovers();
+	}
+
+	/**
+	 * Delete the files of an interrupted or completed compaction: the new
+	 * records not committed and the string tables of other generations.
+	 */
+	private void deleteLeftovers() {
+		tmpFile(this.file).delete();
+		String prefix = this.file.getName() + ".strings";
+		String current = stringsFile(this.file, this.generation).getName();
+		File[] files = this.file.getAbsoluteFile().getParentFile().listFiles();
+		if (files != null)
+			for (File f : files)
+				if (f.getName().startsWith(prefix) && !f.getName().equals(current) && f.getName().substring(prefix.length()).matches("(\\.[0-9]+)?"))
+					f.delete();
+	}
+
+	private static File stringsFile(File f, long generation) {
+		return new File(f.getPath() + ".strings" + (generation == 0 ? "" : "." + generation));
+	}
+
+	private static File tmpFile(File f) {
+		return new File(f.getPath() + ".tmp");
+	}
+
+	private void map() throws IOException {
+		long size = HEADER_SIZE + (long) this.count * RECORD_SIZE;
+		this.recordMap = this.records.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+		this.recordMap.order(ByteOrder.LITTLE_ENDIAN);
+		long strings = this.strings.length();
+		if (strings > Integer.MAX_VALUE)
+			throw new IOException("The string table exceeds 2 GB.");
+		this.stringMap = this.strings.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, strings);
+		this.stringMap.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public synchronized int getRecordCount() {
+		return count;
+	}
+
+	private int position(int record) {
+		if (record < 0 || record >= this.count)
+			throw new IndexOutOfBoundsException("Record " + record + " doesn't exist.");
+		return HEADER_SIZE + record * RECORD_SIZE;
+	}
+
+	public synchronized long getPathId(int record) {
+		return this.recordMap.getLong(this.position(record));
+	}
+
+	public synchronized String getFilepath(int record) {
+		return this.getString(this.getPathId(record));
+	}
+
+	public synchronized double getMinX(int record) {
+		return this.recordMap.getDouble(this.position(record) + 8);
+	}
+
+	public synchronized double getMinY(int record) {
+		return this.recordMap.getDouble(this.position(record) + 16);
+	}
+
+	public synchronized double getMaxX(int record) {
+		return this.recordMap.getDouble(this.position(record) + 24);
+	}
+
+	public synchronized double getMaxY(int record) {
+		return this.recordMap.getDouble(this.position(record) + 32);
+	}
+
+	public synchronized double getResolutionX(int record) {
+		return this.recordMap.getDouble(this.position(record) + 40);
+	}
+
+	public synchronized double getResolutionY(int record) {
+		return this.recordMap.getDouble(this.position(record) + 48);
+	}
+
+	public synchronized int getEPSG(int record) {
+		return this.recordMap.getInt(this.position(record) + 56);
+	}
+
+	public synchronized int getBands(int record) {
+		return this.recordMap.getInt(this.position(record) + 60);
+	}
+
+	public synchronized long getLastModified(int record) {
+		return this.recordMap.getLong(this.position(record) + 64);
+	}
+
+	public synchronized boolean isDeleted(int record) {
+		return (this.recordMap.getInt(this.position(record) + 72) & DELETED) != 0;
+	}
+
+	public synchronized Footprint getFootprint(int record) {
+		return new Footprint(this.getFilepath(record), this.getMinX(record), this.getMinY(record), this.getMaxX(record), this.getMaxY(record), this.getResolutionX(record), this.getResolutionY(record), this.getEPSG(record), this.getBands(record), this.getLastModified(record));
+	}
+
+	/**
+	 * @return The path stored at the offset of the string table, decoded once
+	 */
+	private String getString(long id) {
+		String s = this.paths.get(id);
+		if (s != null)
+			return s;
+		int length = this.stringMap.getInt((int) id);
+		byte[] b = new byte[length];
+		ByteBuffer d = this.stringMap.duplicate();
+		d.position((int) id + 4);
+		d.get(b);
+		try {
+			s = new String(b, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		this.paths.put(id, s);
+		return s;
+	}
+
+	/**
+	 * @return Index of the latest footprint of every raster not deleted,
+	 *         built on the first call and kept up to date by the appends
+	 */
+	public synchronized FootprintIndex getIndex() {
+		if (this.index == null) {
+			Map<Long, Integer> latest = new LinkedHashMap<Long, Integer>();
+			for (int i = 0; i < this.count; i++)
+				latest.put(this.getPathId(i), i);
+			List<Footprint> l = new ArrayList<Footprint>(latest.size());
+			for (int i : latest.values())
+				if (!this.isDeleted(i))
+					l.add(this.getFootprint(i));
+			this.index = new FootprintIndex(l);
+		}
+		return this.index;
+	}
+
+	public void append(Footprint footprint) throws IOException {
+		List<Footprint> l = new ArrayList<Footprint>(1);
+		l.add(footprint);
+		this.append(l);
+	}
+
+	public synchronized void append(Collection<Footprint> footprints) throws IOException {
+		this.write(footprints, false);
+		if (this.index != null)
+			for (Footprint f : footprints)
+				this.index.add(f);
+	}
+
+	/**
+	 * Record the deletion of the rasters.
+	 */
+	public synchronized void delete(Collection<Footprint> footprints) throws IOException {
+		this.write(footprints, true);
+		if (this.index != null)
+			for (Footprint f : footprints)
+				this.index.remove(f.getFilepath());
+	}
+
+	private void write(Collection<Footprint> footprints, boolean deleted) throws IOException {
+		if (footprints.isEmpty())
+			return;
+		ByteBuffer b = ByteBuffer.allocate(footprints.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (Footprint f : footprints) {
+			b.putLong(this.pathId(f.getFilepath()));
+			b.putDouble(f.getMinX()).putDouble(f.getMinY()).putDouble(f.getMaxX()).putDouble(f.getMaxY());
+			b.putDouble(f.getResolutionX()).putDouble(f.getResolutionY());
+			b.putInt(f.getEPSG()).putInt(f.getBands()).putLong(f.getLastModified());
+			b.putInt(deleted ? DELETED : 0).putInt(0);
+		}
+		b.flip();
+		long position = HEADER_SIZE + (long) this.count * RECORD_SIZE;
+		if (position + b.remaining() > Integer.MAX_VALUE)
+			throw new IOException("The catalog exceeds 2 GB, compact it.");
+		this.write(this.records.getChannel(), b, position);
+		this.writeHeader(this.count + footprints.size());
+		this.count += footprints.size();
+		this.map();
+	}
+
+	/**
+	 * @return Id of the path, added to the string table if new
+	 */
+	private long pathId(String path) throws IOException {
+		if (this.pathIds == null) {
+			this.pathIds = new HashMap<String, Long>();
+			for (int i = 0; i < this.count; i++)
+				this.pathIds.put(this.getFilepath(i), this.getPathId(i));
+		}
+		Long id = this.pathIds.get(path);
+		if (id != null)
+			return id;
+		byte[] s = path.getBytes("UTF-8");
+		ByteBuffer b = ByteBuffer.allocate(4 + s.length).order(ByteOrder.LITTLE_ENDIAN);
+		b.putInt(s.length).put(s).flip();
+		long offset = this.strings.length();
+		this.write(this.strings.getChannel(), b, offset);
+		this.pathIds.put(path, offset);
+		this.paths.put(offset, path);
+		return offset;
+	}
+
+	/**
+	 * Synchronize the catalog with the rasters of a folder and its
+	 * subfolders, reading only the new and modified files.
+	 * 
+	 * @param cache
+	 *            Descriptions of the non GeoTIFF rasters, <code>null</code> to
+	 *            catalog GeoTIFFs only
+	 * @return Number of records appended
+	 */
+	public int update(File folder, GDALInfoCache cache) throws IOException {
+		FootprintIndex index = this.getIndex();
+		List<File> files = new ArrayList<File>();
+		FootprintIndex.list(folder, files);
+		Set<String> seen = new HashSet<String>();
+		List<Footprint> changed = new ArrayList<Footprint>();
+		List<Footprint> deleted = new ArrayList<Footprint>();
+		for (File file : files) {
+			String path = file.getPath();
+			seen.add(path);
+			Footprint old = index.get(path);
+			if (old != null && old.getLastModified() == file.lastModified())
+				continue;
+			Footprint f = FootprintIndex.read(file, cache);
+			if (f != null)
+				changed.add(f);
+			else if (old != null)
+				deleted.add(old);
+		}
+		for (Footprint f : index.getFootprints())
+			if (!seen.contains(f.getFilepath()) && f.getFilepath().startsWith(folder.getPath() + File.separator))
+				deleted.add(f);
+		this.append(changed);
+		this.delete(deleted);
+		return changed.size() + deleted.size();
+	}
+
+	/**
+	 * Rewrite the catalog with the latest record of every raster not deleted.
+	 */
+	public synchronized void compact() throws IOException {
+		List<Footprint> live = this.getIndex().getFootprints();
+		File tmp = tmpFile(this.file);
+		FootprintCatalog c = new FootprintCatalog(tmp, this.file, this.generation + 1);
+		try {
+			c.append(live);
+			c.strings.getChannel().force(true);
+			c.records.getChannel().force(true);
+		} finally {
+			c.close();
+		}
+		this.close();
+		// renameTo replaces the catalog atomically on POSIX; elsewhere the
+		// catalog is deleted first and open() restores it from tmp if needed
+		if (!tmp.renameTo(this.file) && !(this.file.delete() && tmp.renameTo(this.file)))
+			throw new IOException("Can't replace " + this.file + ".");
+		this.pathIds = null;
+		this.paths.clear();
+		this.open();
+	}
+
+	/**
+	 * Write the rasters intersecting the window in a file list for
+	 * <code>-input_file_list</code> of gdalbuildvrt, instead of the whole
+	 * folder on the command line.
+	 * 
+	 * @param epsg
+	 *            EPSG code of the window and of the rasters
+	 */
+	public void select(GDALBuildVRT vrt, GeoreferencedExtents extents, int epsg, File fileList) throws IOException {
+		Writer w = new OutputStreamWriter(new FileOutputStream(fileList), "UTF-8");
+		try {
+			for (String path : this.getIndex().getInputFilepaths(extents, epsg))
+				w.write(path + "\n");
+		} finally {
+			w.close();
+		}
+		vrt.setInputFileList(fileList.getPath());
+	}
+
+	/**
+	 * Set the rasters intersecting the window as inputs of gdal_retile.py.
+	 * 
+	 * @param epsg
+	 *            EPSG code of the window and of the rasters
+	 */
+	public void select(GDALRetile retile, GeoreferencedExtents extents, int epsg) {
+		retile.setInputFilepaths(this.getIndex().getInputFilepaths(extents, epsg));
+	}
+
+	private void writeHeader(long records) throws IOException {
+		ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		h.putInt(MAGIC).putInt(VERSION).putLong(records).putLong(this.generation).putLong(0).flip();
+		this.write(this.records.getChannel(), h, 0);
+	}
+
+	private void write(FileChannel c, ByteBuffer b, long position) throws IOException {
+		while (b.hasRemaining())
+			c.write(b, position + b.position());
+	}
+
+	private void read(FileChannel c, ByteBuffer b, long position) throws IOException {
+		while (b.hasRemaining())
+			if (c.read(b, position + b.position()) < 0)
+				throw new IOException("Truncated file " + this.file + ".");
+	}
+
+	/**
+	 * Release the files. The mappings are released by the garbage collector.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			if (this.records != null)
+				this.records.close();
+		} finally {
+			if (this.strings != null)
+				this.strings.close();
+		}
+	}
+
+}
\ No newline at end of file
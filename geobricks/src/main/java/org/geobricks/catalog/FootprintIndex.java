@@ -0,0 +1,354 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.gdal.info.GDALInfoCache;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Finds the rasters overlapping a window, so that gdal_merge.py and
+ *         gdalwarp receive only the files they need instead of a whole
+ *         folder. Footprints are packed in an R-tree by Sort-Tile-Recursive
+ *         bulk loading; footprints added afterwards go to a list scanned
+ *         linearly, and replaced or removed ones are skipped, until the tree
+ *         is packed again, automatically once the added and stale footprints
+ *         are more than an eighth of the total.
+ * 
+ *         Extents are compared as numbers, so a window only matches the
+ *         footprints in its own spatial reference, given as an EPSG code;
+ *         footprints of unknown spatial reference only match queries for any
+ *         spatial reference (code 0), meant for indexes known to hold a
+ *         single one.
+ * 
+ */
+public class FootprintIndex {
+
+	private static final int NODE_CAPACITY = 16;
+
+	private static final Set<String> RASTERS = new HashSet<String>(Arrays.asList("tif", "tiff", "vrt", "img", "jp2", "ecw", "sid", "nc", "hdf", "h5", "dem", "asc", "bil", "dt0", "dt1", "dt2", "png", "jpg", "gif", "ntf", "kea"));
+
+	private Node root;
+
+	private List<Footprint> delta = new ArrayList<Footprint>();
+
+	private Map<String, Footprint> live = new HashMap<String, Footprint>();
+
+	private int stale = 0;
+
+	public FootprintIndex() {
+	}
+
+	public FootprintIndex(Collection<Footprint> footprints) {
+		for (Footprint f : footprints)
+			this.live.put(f.getFilepath(), f);
+		this.pack();
+	}
+
+	/**
+	 * Add a footprint, replacing the one of the same file.
+	 */
+	public synchronized void add(Footprint footprint) {
+		if (this.live.put(footprint.getFilepath(), footprint) != null)
+			this.stale++;
+		this.delta.add(footprint);
+		this.packIfNeeded();
+	}
+
+	/**
+	 * @return The removed footprint, <code>null</code> if the file had none
+	 */
+	public synchronized Footprint remove(String filepath) {
+		Footprint f = this.live.remove(filepath);
+		if (f != null && !this.delta.remove(f)) {
+			this.stale++;
+			this.packIfNeeded();
+		}
+		return f;
+	}
+
+	private void packIfNeeded() {
+		if (this.delta.size() + this.stale > Math.max(NODE_CAPACITY * 4, this.live.size() / 8))
+			this.pack();
+	}
+
+	public synchronized Footprint get(String filepath) {
+		return this.live.get(filepath);
+	}
+
+	public synchronized int size() {
+		return this.live.size();
+	}
+
+	/**
+	 * @return All the footprints
+	 */
+	public synchronized List<Footprint> getFootprints() {
+		return new ArrayList<Footprint>(this.live.values());
+	}
+
+	/**
+	 * Rebuild the tree with all the footprints and empty the list of the
+	 * added ones.
+	 */
+	public synchronized void pack() {
+		this.delta.clear();
+		this.stale = 0;
+		List<Object> level = new ArrayList<Object>(this.live.values());
+		if (level.isEmpty()) {
+			this.root = null;
+			return;
+		}
+		do {
+			level = this.packLevel(level);
+		} while (level.size() > 1);
+		this.root = (Node) level.get(0);
+	}
+
+	/**
+	 * Pack footprints or nodes in parent nodes: sort by center X, cut in
+	 * vertical slices of about sqrt(P) nodes each, sort every slice by
+	 * center Y and fill the nodes.
+	 */
+	private List<Object> packLevel(List<Object> items) {
+		int nodes = (items.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		int slices = (int) Math.ceil(Math.sqrt(nodes));
+		int perSlice = slices * NODE_CAPACITY;
+		Collections.sort(items, new CenterComparator(true));
+		List<Object> parents = new ArrayList<Object>(nodes);
+		for (int s = 0; s < items.size(); s += perSlice) {
+			List<Object> slice = new ArrayList<Object>(items.subList(s, Math.min(items.size(), s + perSlice)));
+			Collections.sort(slice, new CenterComparator(false));
+			for (int n = 0; n < slice.size(); n += NODE_CAPACITY)
+				parents.add(new Node(slice.subList(n, Math.min(slice.size(), n + NODE_CAPACITY)).toArray()));
+		}
+		return parents;
+	}
+
+	/**
+	 * @param epsg
+	 *            EPSG code of the window, 0 to match any spatial reference
+	 * @return The footprints intersecting the window, in no particular order
+	 */
+	public synchronized List<Footprint> query(double minX, double minY, double maxX, double maxY, int epsg) {
+		List<Footprint> result = new ArrayList<Footprint>();
+		if (this.root != null) {
+			List<Node> stack = new ArrayList<Node>();
+			stack.add(this.root);
+			while (!stack.isEmpty()) {
+				Node n = stack.remove(stack.size() - 1);
+				if (!n.intersects(minX, minY, maxX, maxY))
+					continue;
+				for (Object c : n.children) {
+					if (c instanceof Node) {
+						stack.add((Node) c);
+					} else {
+						Footprint f = (Footprint) c;
+						if (f.intersects(minX, minY, maxX, maxY) && matches(f, epsg) && this.live.get(f.getFilepath()) == f)
+							result.add(f);
+					}
+				}
+			}
+		}
+		for (Footprint f : this.delta)
+			if (f.intersects(minX, minY, maxX, maxY) && matches(f, epsg) && this.live.get(f.getFilepath()) == f)
+				result.add(f);
+		return result;
+	}
+
+	/**
+	 * @param epsg
+	 *            EPSG code of the window, 0 to match any spatial reference
+	 */
+	public List<Footprint> query(GeoreferencedExtents extents, int epsg) {
+		return this.query(Double.parseDouble(extents.getxMin()), Double.parseDouble(extents.getyMin()), Double.parseDouble(extents.getxMax()), Double.parseDouble(extents.getyMax()), epsg);
+	}
+
+	/**
+	 * @param epsg
+	 *            EPSG code of the window, 0 to match any spatial reference
+	 * @return Sorted paths of the rasters intersecting the window, for
+	 *         <code>setInputFilepaths</code> of <code>GDALMerge</code> and
+	 *         <code>GDALWarp</code>. Rasters in other spatial references
+	 *         can overlap the window too: gdalwarp needs one query per
+	 *         spatial reference, with the window transformed into it.
+	 */
+	public List<String> getInputFilepaths(GeoreferencedExtents extents, int epsg) {
+		List<String> l = new ArrayList<String>();
+		for (Footprint f : this.query(extents, epsg))
+			l.add(f.getFilepath());
+		Collections.sort(l);
+		return l;
+	}
+
+	/**
+	 * Synchronize the index with the rasters of a folder and its
+	 * subfolders: new and modified files are read again, footprints of
+	 * deleted files are removed. GeoTIFFs are read directly, the other
+	 * formats through gdalinfo. Files that can't be read are skipped.
+	 * 
+	 * @param cache
+	 *            Descriptions of the non GeoTIFF rasters, <code>null</code> to
+	 *            index GeoTIFFs only
+	 * @return Number of footprints added, replaced or removed
+	 */
+	public int update(File folder, GDALInfoCache cache) {
+		List<File> files = new ArrayList<File>();
+		list(folder, files);
+		Set<String> seen = new HashSet<String>();
+		int changes = 0;
+		for (File file : files) {
+			String path = file.getPath();
+			seen.add(path);
+			Footprint old = this.get(path);
+			if (old != null && old.getLastModified() == file.lastModified())
+				continue;
+			Footprint f = read(file, cache);
+			if (f != null) {
+				this.add(f);
+				changes++;
+			} else if (old != null) {
+				this.remove(path);
+				changes++;
+			}
+		}
+		for (Footprint f : this.getFootprints()) {
+			if (!seen.contains(f.getFilepath()) && f.getFilepath().startsWith(folder.getPath() + File.separator)) {
+				this.remove(f.getFilepath());
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * @return <code>true</code> if the footprint is in the spatial reference
+	 *         of the EPSG code, or the code is 0
+	 */
+	static boolean matches(Footprint f, int epsg) {
+		return epsg == 0 || f.getEPSG() == epsg;
+	}
+
+	/**
+	 * @return The footprint of the file, <code>null</code> if it can't be read
+	 */
+	static Footprint read(File file, GDALInfoCache cache) {
+		String name = file.getName().toLowerCase(Locale.ENGLISH);
+		try {
+			if (name.endsWith(".tif") || name.endsWith(".tiff"))
+				return Footprint.read(file);
+		} catch (Exception e) {
+			// not georeferenced through GeoKeys, ask gdalinfo
+		}
+		if (cache == null)
+			return null;
+		try {
+			return Footprint.from(file.getPath(), cache.get(file.getPath()));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	static void list(File folder, List<File> files) {
+		File[] children = folder.listFiles(new FileFilter() {
+
+			public boolean accept(File f) {
+				if (f.isDirectory())
+					return true;
+				String name = f.getName();
+				int dot = name.lastIndexOf('.');
+				return dot > 0 && RASTERS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+			}
+
+		});
+		if (children == null)
+			return;
+		for (File c : children) {
+			if (c.isDirectory())
+				list(c, files);
+			else
+				files.add(c);
+		}
+	}
+
+	private static double[] box(Object o) {
+		if (o instanceof Node)
+			return ((Node) o).box;
+		Footprint f = (Footprint) o;
+		return new double[] { f.getMinX(), f.getMinY(), f.getMaxX(), f.getMaxY() };
+	}
+
+	private static class CenterComparator implements Comparator<Object> {
+
+		private int axis;
+
+		CenterComparator(boolean x) {
+			this.axis = x ? 0 : 1;
+		}
+
+		public int compare(Object a, Object b) {
+			double[] ba = box(a), bb = box(b);
+			return Double.compare(ba[this.axis] + ba[this.axis + 2], bb[this.axis] + bb[this.axis + 2]);
+		}
+
+	}
+
+	private static class Node {
+
+		private Object[] children;
+
+		private double[] box;
+
+		Node(Object[] children) {
+			this.children = children;
+			this.box = new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for (Object c : children) {
+				double[] b = box(c);
+				this.box[0] = Math.min(this.box[0], b[0]);
+				this.box[1] = Math.min(this.box[1], b[1]);
+				this.box[2] = Math.max(this.box[2], b[2]);
+				this.box[3] = Math.max(this.box[3], b[3]);
+			}
+		}
+
+		boolean intersects(double minX, double minY, double maxX, double maxY) {
+			return this.box[0] <= maxX && this.box[2] >= minX && this.box[1] <= maxY && this.box[3] >= minY;
+		}
+
+	}
+
+}
\ No newline at end of file
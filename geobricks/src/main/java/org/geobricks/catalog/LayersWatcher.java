@@ -0,0 +1,463 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.geobricks.configuration.Settings;
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.GDALCallback;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.addoverviews.GDALAddOverviews;
+import org.geobricks.gdal.buildvrt.GDALBuildVRT;
+import org.geobricks.gdal.gdal2tiles.GDAL2Tiles;
+import org.geobricks.gdal.gdal2tiles.GDAL2TilesIncremental;
+import org.geobricks.gdal.gdal2tiles.GDAL2TilesSharder;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.gdal.info.GDALInfoCache;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Keeps the products derived from the layers folder up to date as
+ *         scenes land in it: VRTs built by gdalbuildvrt, their overviews by
+ *         gdaladdo and their tiles by gdal2tiles.py. The folder is polled; a
+ *         new or modified raster is taken once its size and modification
+ *         time haven't changed for the quiet period, so files still being
+ *         copied are left alone, and deleted rasters are taken at once.
+ * 
+ *         The products of a batch of changes are updated in the order they
+ *         were added, and the changes are recorded in the catalog once all
+ *         the products are up to date, so a batch that fails is taken again
+ *         by the next polls. The products are only updated where the
+ *         changes reach them: a VRT whose window (-te) intersects a changed
+ *         footprint is built again from the catalog and the changes, the
+ *         overviews of a changed file are refreshed over the changed window,
+ *         and so are the tiles, with <code>GDAL2TilesSharder.refresh</code>,
+ *         or only the tiles whose sources changed with
+ *         <code>GDAL2TilesIncremental</code> when the pyramid has a
+ *         manifest. The changed window is the union of the old and new
+ *         footprints of the changed rasters.
+ * 
+ *         The files written by the products, VRTs and tiles, are never
+ *         taken as changes of the folder.
+ * 
+ *         The folder is polled rather than watched with a WatchService to
+ *         keep Java 6 compatibility; a poll only lists the folder and reads
+ *         the modification times.
+ * 
+ */
+public class LayersWatcher implements Closeable {
+
+	private File folder;
+
+	private FootprintCatalog catalog;
+
+	private GDALExecutor executor;
+
+	private GDALInfoCache cache;
+
+	private long pollInterval = 5000;
+
+	private long quietPeriod = 30000;
+
+	private int epsg = 0;
+
+	private List<GDAL> products = new ArrayList<GDAL>();
+
+	private GDALCallback<List<Footprint>> callback;
+
+	private Map<String, long[]> pending = new HashMap<String, long[]>();
+
+	private Map<String, Long> unreadable = new HashMap<String, Long>();
+
+	private ScheduledExecutorService timer;
+
+	public LayersWatcher(Settings settings, FootprintCatalog catalog, GDALExecutor executor) {
+		this(new File(settings.getLayersFolder()), catalog, executor);
+	}
+
+	/**
+	 * @param folder
+	 *            Folder of the rasters
+	 * @param catalog
+	 *            Footprints of the rasters processed so far
+	 * @param executor
+	 *            Runs the GDAL utilities updating the products
+	 */
+	public LayersWatcher(File folder, FootprintCatalog catalog, GDALExecutor executor) {
+		this.folder = folder.getAbsoluteFile();
+		this.catalog = catalog;
+		this.executor = executor;
+	}
+
+	/**
+	 * @param product
+	 *            <code>GDALBuildVRT</code>, <code>GDALAddOverviews</code> or
+	 *            <code>GDAL2Tiles</code> bean, updated after the products
+	 *            added before it
+	 */
+	public synchronized void addProduct(GDAL product) {
+		if (!(product instanceof GDALBuildVRT || product instanceof GDALAddOverviews || product instanceof GDAL2Tiles))
+			throw new IllegalArgumentException(product.getClass().getSimpleName() + " products can't be updated incrementally.");
+		this.products.add(product);
+	}
+
+	/**
+	 * Poll the folder every poll interval on a daemon thread, until
+	 * <code>close()</code>.
+	 */
+	public synchronized void start() {
+		if (this.timer != null)
+			return;
+		this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "layers-watcher");
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+		this.timer.scheduleWithFixedDelay(new Runnable() {
+
+			public void run() {
+				try {
+					List<Footprint> changed = poll();
+					if (!changed.isEmpty() && callback != null)
+						callback.completed(changed);
+				} catch (Exception e) {
+					if (callback != null)
+						callback.failed(e);
+				}
+			}
+
+		}, 0, this.pollInterval, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void close() {
+		if (this.timer != null) {
+			this.timer.shutdownNow();
+			this.timer = null;
+		}
+	}
+
+	/**
+	 * Look for changes once and process the ones past the quiet period.
+	 * 
+	 * @return Footprints of the new and modified rasters, and the last ones
+	 *         of the deleted rasters
+	 */
+	public synchronized List<Footprint> poll() throws Exception {
+		long now = System.currentTimeMillis();
+		FootprintIndex index = this.catalog.getIndex();
+		List<File> files = new ArrayList<File>();
+		FootprintIndex.list(this.folder, files);
+		Set<String> seen = new HashSet<String>();
+		List<File> ready = new ArrayList<File>();
+		for (File file : files) {
+			String path = file.getPath();
+			if (this.isProduct(path))
+				continue;
+			seen.add(path);
+			long modified = file.lastModified();
+			Footprint old = index.get(path);
+			Long skipped = this.unreadable.get(path);
+			if (old != null && old.getLastModified() == modified || skipped != null && skipped == modified) {
+				this.pending.remove(path);
+				continue;
+			}
+			long[] p = this.pending.get(path);
+			if (p == null || p[0] != file.length() || p[1] != modified) {
+				this.pending.put(path, new long[] { file.length(), modified, now });
+				if (this.quietPeriod > 0)
+					continue;
+				p = this.pending.get(path);
+			}
+			if (now - p[2] >= this.quietPeriod)
+				ready.add(file);
+		}
+		this.pending.keySet().retainAll(seen);
+		this.unreadable.keySet().retainAll(seen);
+		List<Footprint> changed = new ArrayList<Footprint>();
+		List<Footprint> previous = new ArrayList<Footprint>();
+		List<Footprint> deleted = new ArrayList<Footprint>();
+		for (File file : ready) {
+			this.pending.remove(file.getPath());
+			Footprint f = FootprintIndex.read(file, this.cache);
+			Footprint old = index.get(file.getPath());
+			if (f == null) {
+				this.unreadable.put(file.getPath(), file.lastModified());
+				if (old != null)
+					deleted.add(old);
+				continue;
+			}
+			changed.add(f);
+			if (old != null)
+				previous.add(old);
+		}
+		for (Footprint f : index.getFootprints())
+			if (!seen.contains(f.getFilepath()) && f.getFilepath().startsWith(this.folder.getPath() + File.separator))
+				deleted.add(f);
+		if (changed.isEmpty() && deleted.isEmpty())
+			return Collections.emptyList();
+		Set<String> touched = this.update(changed, previous, deleted);
+		List<Footprint> recorded = new ArrayList<Footprint>();
+		for (Footprint f : changed) {
+			long modified = new File(f.getFilepath()).lastModified();
+			if (touched.contains(f.getFilepath()) && modified != f.getLastModified())
+				f = new Footprint(f.getFilepath(), f.getMinX(), f.getMinY(), f.getMaxX(), f.getMaxY(), f.getResolutionX(), f.getResolutionY(), f.getEPSG(), f.getBands(), modified);
+			recorded.add(f);
+		}
+		this.catalog.append(recorded);
+		this.catalog.delete(deleted);
+		List<Footprint> result = new ArrayList<Footprint>(changed);
+		result.addAll(deleted);
+		return result;
+	}
+
+	/**
+	 * @return <code>true</code> if the file is written by a product: the
+	 *         output of a VRT or a file in the output directory of tiles.
+	 */
+	private boolean isProduct(String path) {
+		for (GDAL product : this.products) {
+			if (product instanceof GDALBuildVRT && path.equals(absolute(product.getOutputFilepath())))
+				return true;
+			if (product instanceof GDAL2Tiles) {
+				String output = absolute(((GDAL2Tiles) product).getOutputDirectory());
+				if (output != null && path.startsWith(output + File.separator))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Update the products reached by the changes. The catalog still holds
+	 * the footprints before the changes.
+	 * 
+	 * @param changed
+	 *            New footprints of the new and modified rasters
+	 * @param previous
+	 *            Old footprints of the modified rasters
+	 * @param deleted
+	 *            Old footprints of the deleted rasters
+	 * @return Paths of the rasters whose overviews have been refreshed in
+	 *         place
+	 */
+	private Set<String> update(List<Footprint> changed, List<Footprint> previous, List<Footprint> deleted) throws Exception {
+		Set<String> touched = new HashSet<String>();
+		changed = this.matching(changed);
+		previous = this.matching(previous);
+		deleted = this.matching(deleted);
+		if (changed.isEmpty() && previous.isEmpty() && deleted.isEmpty())
+			return touched;
+		List<Footprint> footprints = new ArrayList<Footprint>(changed);
+		footprints.addAll(previous);
+		footprints.addAll(deleted);
+		double[] e = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		Set<String> dirty = new HashSet<String>();
+		for (Footprint f : footprints) {
+			e[0] = Math.min(e[0], f.getMinX());
+			e[1] = Math.min(e[1], f.getMinY());
+			e[2] = Math.max(e[2], f.getMaxX());
+			e[3] = Math.max(e[3], f.getMaxY());
+			dirty.add(f.getFilepath());
+		}
+		GeoreferencedExtents window = new GeoreferencedExtents(String.valueOf(e[0]), String.valueOf(e[1]), String.valueOf(e[2]), String.valueOf(e[3]));
+		for (GDAL product : this.products) {
+			if (product instanceof GDALBuildVRT) {
+				GDALBuildVRT vrt = (GDALBuildVRT) product;
+				if (!this.reaches(vrt.getGeoreferencedExtents(), footprints))
+					continue;
+				this.rebuild(vrt, changed, dirty);
+				dirty.add(absolute(vrt.getOutputFilepath()));
+			} else if (product instanceof GDALAddOverviews) {
+				if (!dirty.contains(absolute(product.getInputFilepath())))
+					continue;
+				GDALAddOverviews o = (GDALAddOverviews) product.copy(product.getInputFilepath(), product.getOutputFilepath());
+				o.setPartialRefreshExtents(window);
+				GDALUtils.check(this.executor.execute(o));
+				touched.add(absolute(product.getInputFilepath()));
+			} else {
+				GDAL2Tiles g = (GDAL2Tiles) product;
+				if (!dirty.contains(absolute(g.getInputFilepath())))
+					continue;
+				if (GDAL2TilesIncremental.getManifestFile(g).exists()) {
+					List<String> paths = new ArrayList<String>();
+					for (Footprint f : deleted)
+						paths.add(f.getFilepath());
+					new GDAL2TilesIncremental(this.executor).update(g, changed, paths);
+				} else {
+					new GDAL2TilesSharder(this.executor).refresh(g, window);
+				}
+			}
+		}
+		return touched;
+	}
+
+	/**
+	 * @return The footprints in the spatial reference of the products
+	 */
+	private List<Footprint> matching(List<Footprint> footprints) {
+		List<Footprint> l = new ArrayList<Footprint>();
+		for (Footprint f : footprints)
+			if (FootprintIndex.matches(f, this.epsg))
+				l.add(f);
+		return l;
+	}
+
+	private boolean reaches(GeoreferencedExtents extents, List<Footprint> footprints) {
+		if (extents == null)
+			return true;
+		double minX = Double.parseDouble(extents.getxMin()), minY = Double.parseDouble(extents.getyMin());
+		double maxX = Double.parseDouble(extents.getxMax()), maxY = Double.parseDouble(extents.getyMax());
+		for (Footprint f : footprints)
+			if (f.intersects(minX, minY, maxX, maxY))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Build the VRT again from the rasters in its window, or all of them,
+	 * listed in a file next to it: the rasters of the catalog, but the
+	 * changed ones, plus the new footprints.
+	 * 
+	 * @param removed
+	 *            Paths of the changed and deleted rasters
+	 */
+	private void rebuild(GDALBuildVRT vrt, List<Footprint> changed, Set<String> removed) throws Exception {
+		GDALBuildVRT v = vrt.copy(vrt.getInputFilepath(), vrt.getOutputFilepath());
+		v.setInputFilepaths(null);
+		v.overwrite(true);
+		GeoreferencedExtents te = vrt.getGeoreferencedExtents();
+		List<Footprint> footprints = te != null ? this.catalog.getIndex().query(te, this.epsg) : this.matching(this.catalog.getIndex().getFootprints());
+		List<String> paths = new ArrayList<String>();
+		for (Footprint f : footprints)
+			if (!removed.contains(f.getFilepath()) && (te != null || f.getFilepath().startsWith(this.folder.getPath() + File.separator)))
+				paths.add(f.getFilepath());
+		for (Footprint f : changed)
+			if (te == null || this.reaches(te, Collections.singletonList(f)))
+				paths.add(f.getFilepath());
+		Collections.sort(paths);
+		File list = new File(vrt.getOutputFilepath() + ".inputs");
+		Writer w = new OutputStreamWriter(new FileOutputStream(list), "UTF-8");
+		try {
+			for (String path : paths)
+				w.write(path + "\n");
+		} finally {
+			w.close();
+		}
+		v.setInputFileList(list.getPath());
+		GDALUtils.check(this.executor.execute(v));
+	}
+
+	private static String absolute(String path) {
+		return path == null ? null : new File(path).getAbsolutePath();
+	}
+
+	public long getPollInterval() {
+		return pollInterval;
+	}
+
+	/**
+	 * @param pollInterval
+	 *            Milliseconds between two polls, 5 seconds by default
+	 */
+	public void setPollInterval(long pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	public long getQuietPeriod() {
+		return quietPeriod;
+	}
+
+	/**
+	 * @param quietPeriod
+	 *            Milliseconds a file must stay unchanged before being
+	 *            processed, 30 seconds by default
+	 */
+	public void setQuietPeriod(long quietPeriod) {
+		this.quietPeriod = quietPeriod;
+	}
+
+	public int getEPSG() {
+		return epsg;
+	}
+
+	/**
+	 * @param epsg
+	 *            EPSG code of the rasters the products are built from, and of
+	 *            the windows of the VRTs; rasters in other spatial references
+	 *            are recorded in the catalog but don't reach the products. 0,
+	 *            the default, takes every raster and suits folders with a
+	 *            single spatial reference.
+	 */
+	public void setEPSG(int epsg) {
+		this.epsg = epsg;
+	}
+
+	public GDALInfoCache getInfoCache() {
+		return cache;
+	}
+
+	/**
+	 * @param cache
+	 *            Reads the rasters that aren't GeoTIFFs, which are ignored
+	 *            without it
+	 */
+	public void setInfoCache(GDALInfoCache cache) {
+		this.cache = cache;
+	}
+
+	public GDALCallback<List<Footprint>> getCallback() {
+		return callback;
+	}
+
+	/**
+	 * @param callback
+	 *            Notified after every batch of changes processed by the
+	 *            polling thread, or of its failure
+	 */
+	public void setCallback(GDALCallback<List<Footprint>> callback) {
+		this.callback = callback;
+	}
+
+}
\ No newline at end of file
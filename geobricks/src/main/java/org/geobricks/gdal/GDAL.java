@@ -20,17 +20,31 @@
  */
 package org.geobricks.gdal;
 
-import java.util.HashMap;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.geobricks.gdal.constant.CONFIG;
+import org.geobricks.gdal.constant.FORMAT;
 
 /**
  * 
  * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
  * 
  */
-public abstract class GDAL {
+public abstract class GDAL implements Cloneable {
 
 	private String script;
 
@@ -41,11 +55,13 @@ public abstract class GDAL {
 	private boolean help = false;
 	
 	private Map<CONFIG, String> config;
-	
+
+	private long timeout = 0;
+
 	private StringBuilder sb;
 
 	public GDAL() {
-		sb = new StringBuilder();
+		super();
 	}
 
 	public GDAL(String script) {
@@ -58,10 +74,264 @@ public abstract class GDAL {
 	 * @return GDAL command
 	 * 
 	 *         This function convert the input Java bean into an executable GDAL
-	 *         command.
+	 *         command. Arguments containing spaces are quoted. The bean is not
+	 *         modified, so the function can be invoked any number of times.
 	 */
 	public String convert() throws Exception {
-		return this.getSB().toString();
+		return join(this.getArguments());
+	}
+
+	/**
+	 * 
+	 * @return GDAL command as a list of arguments
+	 * 
+	 *         This function convert the input Java bean into the arguments of
+	 *         an executable GDAL command, the first one being the name of the
+	 *         GDAL utility. Every value is a single argument, even if it
+	 *         contains spaces, and it's never quoted, so the list can be
+	 *         passed as it is to a <code>ProcessBuilder</code>. A new list is
+	 *         built on every call.
+	 * 
+	 *         Subclasses written for the former string API, which only
+	 *         override <code>convert()</code>, keep working: their command is
+	 *         built in a fresh buffer and tokenized, honouring quotes.
+	 */
+	public List<String> getArguments() throws Exception {
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+		if (!this.isLegacy())
+			throw new Exception(this.getClass().getName() + " must override getArguments().");
+		this.sb = new StringBuilder();
+		return tokenize(this.convert());
+	}
+
+	/**
+	 * @return <code>true</code> if the bean builds its command in
+	 *         <code>convert()</code> instead of <code>getArguments()</code>.
+	 */
+	private boolean isLegacy() {
+		try {
+			return this.getClass().getMethod("convert").getDeclaringClass() != GDAL.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 
+	 * @param inputFilepath
+	 *            Input of the copy
+	 * @param outputFilepath
+	 *            Output of the copy
+	 * @return A copy of this bean, reading and writing different files
+	 * 
+	 *         This function is meant to configure a template once and then
+	 *         run it against many files. Maps, lists and arrays of options are
+	 *         copied, so adding an option to a copy changes neither the
+	 *         template nor the other copies. Value beans such as extents are
+	 *         shared and should be replaced rather than modified.
+	 */
+	public GDAL copy(String inputFilepath, String outputFilepath) {
+		GDAL g = null;
+		try {
+			g = (GDAL) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		g.sb = null;
+		for (Class<?> c = this.getClass(); c != Object.class; c = c.getSuperclass()) {
+			for (Field f : c.getDeclaredFields()) {
+				if (Modifier.isStatic(f.getModifiers()))
+					continue;
+				f.setAccessible(true);
+				try {
+					Object value = f.get(this);
+					if (value instanceof Map || value instanceof Collection || value != null && value.getClass().isArray()) {
+						Object copy = copyOf(value);
+						if (f.getType().isInstance(copy))
+							f.set(g, copy);
+					}
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		g.setInputFilepath(inputFilepath);
+		g.setOutputFilepath(outputFilepath);
+		return g;
+	}
+
+	/**
+	 * @return A copy of the maps, lists, sets and arrays in the value, down to
+	 *         their elements; the value itself otherwise
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object copyOf(Object value) {
+		if (value instanceof Map) {
+			Map m;
+			if (value instanceof EnumMap)
+				m = new EnumMap((EnumMap) value);
+			else if (value instanceof SortedMap)
+				m = new TreeMap(((SortedMap) value).comparator());
+			else
+				m = new LinkedHashMap();
+			for (Map.Entry e : ((Map<?, ?>) value).entrySet())
+				m.put(e.getKey(), copyOf(e.getValue()));
+			return m;
+		} else if (value instanceof Collection) {
+			Collection l;
+			if (value instanceof SortedSet)
+				l = new TreeSet(((SortedSet) value).comparator());
+			else if (value instanceof Set)
+				l = new LinkedHashSet();
+			else
+				l = new ArrayList();
+			for (Object o : (Collection) value)
+				l.add(copyOf(o));
+			return l;
+		} else if (value != null && value.getClass().isArray()) {
+			int n = Array.getLength(value);
+			Object a = Array.newInstance(value.getClass().getComponentType(), n);
+			for (int i = 0; i < n; i++)
+				Array.set(a, i, copyOf(Array.get(value, i)));
+			return a;
+		}
+		return value;
+	}
+
+	/**
+	 * 
+	 * @return Raster format written by the command, <code>null</code> if the
+	 *         command doesn't write a raster or uses the default format of the
+	 *         tool. <code>GDALConnector</code> checks that the installed GDAL
+	 *         can write it before launching the command.
+	 */
+	protected FORMAT getRasterOutputFormat() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @return <code>true</code> if the output driver must support Create()
+	 *         (rw+), <code>false</code> if CreateCopy() (rw) is enough.
+	 */
+	protected boolean requiresCreate() {
+		return false;
+	}
+
+	/**
+	 * 
+	 * @return Arguments of the user-defined script or of the help command,
+	 *         <code>null</code> if the bean must be converted.
+	 */
+	protected List<String> getGenericArguments() {
+		if (this.getScript() != null && !this.getScript().isEmpty()) {
+			return tokenize(this.getScript());
+		} else if (this.showHelp()) {
+			List<String> a = new ArrayList<String>(2);
+			a.add("gdalinfo");
+			a.add("--help");
+			return a;
+		}
+		return null;
+	}
+
+	/**
+	 * Append the configuration options to the arguments.
+	 */
+	protected void addConfigArguments(List<String> a) {
+		if (this.getConfig() != null && !this.getConfig().isEmpty()) {
+			for (CONFIG key : this.getConfig().keySet()) {
+				a.add("--config");
+				a.add(key.name());
+				a.add(this.getConfig().get(key));
+			}
+		}
+	}
+
+	/**
+	 * Append a <code>KEY=VALUE</code> argument preceded by the flag for each
+	 * entry of the map, e.g. <code>-co TILED=YES</code>.
+	 */
+	protected static void addOptionArguments(List<String> a, String flag, Map<?, String> options) {
+		if (options != null && !options.isEmpty()) {
+			for (Map.Entry<?, String> e : options.entrySet()) {
+				a.add(flag);
+				a.add(e.getKey() + "=" + e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param arguments
+	 *            Arguments of the command
+	 * @return Command line
+	 * 
+	 *         Join the arguments with spaces. Arguments containing whitespaces
+	 *         or quotes, and empty ones, are enclosed in quotes so that
+	 *         <code>tokenize</code> gives them back unchanged.
+	 */
+	public static String join(List<String> arguments) {
+		StringBuilder sb = new StringBuilder();
+		for (String a : arguments) {
+			if (sb.length() > 0)
+				sb.append(' ');
+			boolean quote = a.isEmpty();
+			for (int i = 0; i < a.length() && !quote; i++) {
+				char c = a.charAt(i);
+				quote = Character.isWhitespace(c) || c == '"' || c == '\'';
+			}
+			if (!quote)
+				sb.append(a);
+			else if (a.indexOf('"') < 0)
+				sb.append('"').append(a).append('"');
+			else
+				sb.append('\'').append(a).append('\'');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 
+	 * @param command
+	 *            Command line
+	 * @return Arguments of the command line
+	 * 
+	 *         Split a command line on whitespaces. Text between single or
+	 *         double quotes belongs to the same argument and the quotes are
+	 *         removed.
+	 */
+	public static List<String> tokenize(String command) {
+		List<String> a = new ArrayList<String>();
+		StringBuilder token = new StringBuilder();
+		boolean inToken = false;
+		char quote = 0;
+		for (int i = 0; i < command.length(); i++) {
+			char c = command.charAt(i);
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+				else
+					token.append(c);
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+				inToken = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inToken) {
+					a.add(token.toString());
+					token.setLength(0);
+					inToken = false;
+				}
+			} else {
+				token.append(c);
+				inToken = true;
+			}
+		}
+		if (inToken)
+			a.add(token.toString());
+		return a;
 	}
 
 	public String getScript() {
@@ -96,6 +366,24 @@ public abstract class GDAL {
 		this.help = help;
 	}
 
+	/**
+	 * @return Maximum running time of the command in milliseconds, 0 if the
+	 *         command is never stopped
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @param timeout
+	 *            Maximum running time of the command in milliseconds. When it
+	 *            expires <code>GDALConnector</code> kills the process with its
+	 *            descendants and throws a <code>GDALTimeoutException</code>.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
 	public Map<CONFIG, String> getConfig() {
 		return config;
 	}
@@ -106,14 +394,35 @@ public abstract class GDAL {
 	
 	public void setConfig(CONFIG key, String value) {
 		if (this.config == null)
-			this.config = new HashMap<CONFIG, String>();
+			this.config = new LinkedHashMap<CONFIG, String>();
 		this.config.put(key, value);
 	}
 
+	/**
+	 * @deprecated Use <code>convert()</code>. The built-in beans no longer
+	 *             accumulate the command, for them the returned buffer holds
+	 *             a fresh conversion (empty if the bean is not valid).
+	 *             Subclasses overriding <code>convert()</code> get the buffer
+	 *             they build their command in.
+	 */
+	@Deprecated
 	public StringBuilder getSB() {
-		return sb;
+		if (this.isLegacy()) {
+			if (this.sb == null)
+				this.sb = new StringBuilder();
+			return this.sb;
+		}
+		try {
+			return new StringBuilder(this.convert());
+		} catch (Exception e) {
+			return new StringBuilder();
+		}
 	}
 
+	/**
+	 * @deprecated Only used by subclasses overriding <code>convert()</code>.
+	 */
+	@Deprecated
 	public void setSB(StringBuilder sb) {
 		this.sb = sb;
 	}
@@ -0,0 +1,51 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ *
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ *
+ *         Completion callback of a GDAL command submitted to a
+ *         <code>GDALExecutor</code>. Methods are invoked on the worker thread
+ *         that ran the command, so they should return quickly. The only
+ *         exception is cancellation: <code>failed()</code> then runs on the
+ *         thread calling <code>Future.cancel()</code>, before
+ *         <code>cancel()</code> returns.
+ *
+ */
+public interface GDALCallback<T> {
+
+	/**
+	 * @param result
+	 *            Result of the GDAL command
+	 */
+	void completed(T result);
+
+	/**
+	 * @param e
+	 *            Error raised by the GDAL command, or a
+	 *            <code>CancellationException</code> if the command has been
+	 *            cancelled
+	 */
+	void failed(Exception e);
+
+}
\ No newline at end of file
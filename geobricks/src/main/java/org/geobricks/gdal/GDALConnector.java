@@ -20,12 +20,13 @@
  */
 package org.geobricks.gdal;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.gdal.general.GDALDriverTable;
+
 /**
  * 
  * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
@@ -33,6 +34,10 @@ import java.util.List;
  */
 public class GDALConnector {
 
+	private long timeout = 0;
+
+	private boolean validate = true;
+
 	/**
 	 * @param g
 	 *            Java Bean
@@ -41,19 +46,203 @@ public class GDALConnector {
 	 * @throws Exception
 	 * 
 	 *             Convert an instance of <code>GDAL</code> and execute the GDAL
-	 *             command.
+	 *             command. The standard output is followed by the standard
+	 *             error in the returned list.
 	 */
 	public List<String> invoke(GDAL g) throws IOException, Exception {
-		List<String> l = new ArrayList<String>();
-		Process p = Runtime.getRuntime().exec(g.convert());
-		BufferedReader stdInput = new BufferedReader(new InputStreamReader(p.getInputStream()));
-		BufferedReader stdError = new BufferedReader(new InputStreamReader(p.getErrorStream()));
-		String s = null;
-		while ((s = stdInput.readLine()) != null)
-			l.add(s);
-		while ((s = stdError.readLine()) != null)
-			l.add(s);
-		return l;
+		return this.execute(g).getOutput();
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param listener
+	 *            Receiver of the output lines
+	 * @return Exit value of the GDAL command
+	 * @throws IOException
+	 * @throws Exception
+	 * 
+	 *             Convert an instance of <code>GDAL</code> into a list of
+	 *             arguments and execute the GDAL command, streaming its output
+	 *             to the listener.
+	 */
+	public int invoke(GDAL g, GDALListener listener) throws IOException, Exception {
+		return this.execute(g, listener).getExitValue();
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @return Outcome of the GDAL command, with the standard output followed
+	 *         by the standard error
+	 * @throws IOException
+	 * @throws Exception
+	 */
+	public GDALResult execute(GDAL g) throws IOException, Exception {
+		final List<String> output = new ArrayList<String>();
+		final List<String> error = new ArrayList<String>();
+		GDALResult result = this.execute(g, new GDALListener() {
+
+			public void output(String line) {
+				output.add(line);
+			}
+
+			public void error(String line) {
+				error.add(line);
+			}
+
+		});
+		output.addAll(error);
+		result.setOutput(output);
+		return result;
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param listener
+	 *            Receiver of the output lines
+	 * @return Outcome of the GDAL command
+	 * @throws GDALTimeoutException
+	 *             If the command runs longer than the timeout of the bean
+	 * @throws InterruptedException
+	 *             If the calling thread is interrupted, e.g. when the
+	 *             <code>Future</code> returned by <code>GDALExecutor</code> is
+	 *             cancelled
+	 * @throws IOException
+	 * @throws Exception
+	 * 
+	 *             Convert an instance of <code>GDAL</code> into a list of
+	 *             arguments and execute the GDAL command, streaming its output
+	 *             to the listener. Standard output and standard error are
+	 *             drained at the same time, so a verbose command can't fill
+	 *             one pipe while the other one is read, and no line is kept in
+	 *             memory. The method waits for the process to exit; a non-zero
+	 *             exit value is reported in the result, not thrown. On timeout
+	 *             or interruption the process is killed together with its
+	 *             descendants.
+	 */
+	public GDALResult execute(GDAL g, GDALListener listener) throws IOException, Exception {
+		GDALResult result = new GDALResult();
+		result.setArguments(g.getArguments());
+		if (this.validate())
+			this.checkOutputFormat(g, result.getTool());
+		result.setStartTime(System.currentTimeMillis());
+		long timeout = g.getTimeout() > 0 ? g.getTimeout() : this.getTimeout();
+		long deadline = timeout > 0 ? result.getStartTime() + timeout : 0;
+		Process p = new ProcessBuilder(result.getArguments()).start();
+		GDALProcessMonitor monitor = new GDALProcessMonitor(ProcessUtils.getPid(p));
+		monitor.start();
+		boolean completed = false;
+		try {
+			p.getOutputStream().close();
+			GDALStreamReader stdError = new GDALStreamReader(p.getErrorStream(), listener, true);
+			stdError.start();
+			GDALStreamReader stdInput = new GDALStreamReader(p.getInputStream(), listener, false);
+			stdInput.start();
+			if (!join(stdInput, deadline) || !join(stdError, deadline) || !waitFor(p, deadline)) {
+				monitor.stop();
+				result.setTimedOut(true);
+				ProcessUtils.destroyTree(p);
+				stdInput.join();
+				stdError.join();
+			}
+			monitor.stop();
+			result.setExitValue(p.waitFor());
+			result.setEndTime(System.currentTimeMillis());
+			completed = true;
+			result.setOutputBytes(stdInput.getBytes());
+			result.setErrorBytes(stdError.getBytes());
+			monitor.fill(result);
+			if (result.isTimedOut())
+				throw new GDALTimeoutException(result);
+			if (stdInput.getException() != null)
+				throw stdInput.getException();
+			if (stdError.getException() != null)
+				throw stdError.getException();
+			return result;
+		} finally {
+			monitor.stop();
+			if (!completed)
+				ProcessUtils.destroyTree(p);
+		}
+	}
+
+	/**
+	 * Check the output format of the bean against the drivers of the
+	 * installed GDAL, so that an unsupported format fails before the fork.
+	 * Scripts are not checked.
+	 */
+	private void checkOutputFormat(GDAL g, String tool) throws Exception {
+		FORMAT format = g.getRasterOutputFormat();
+		if (format == null || (g.getScript() != null && !g.getScript().isEmpty()) || g.showHelp())
+			return;
+		GDALDriverTable.getInstance(this).validate(format, g.requiresCreate(), tool);
+	}
+
+	/**
+	 * @return <code>true</code> if the thread ended before the deadline, 0
+	 *         meaning no deadline.
+	 */
+	private static boolean join(Thread t, long deadline) throws InterruptedException {
+		if (deadline <= 0) {
+			t.join();
+			return true;
+		}
+		long remaining = deadline - System.currentTimeMillis();
+		while (remaining > 0 && t.isAlive()) {
+			t.join(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return !t.isAlive();
+	}
+
+	/**
+	 * @return <code>true</code> if the process exited before the deadline, 0
+	 *         meaning no deadline. A process can close its streams and keep
+	 *         running, so its exit is polled as well.
+	 */
+	private static boolean waitFor(Process p, long deadline) throws InterruptedException {
+		if (deadline <= 0) {
+			p.waitFor();
+			return true;
+		}
+		while (true) {
+			try {
+				p.exitValue();
+				return true;
+			} catch (IllegalThreadStateException e) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0)
+					return false;
+				Thread.sleep(Math.min(remaining, 50));
+			}
+		}
+	}
+
+	/**
+	 * @return Timeout in milliseconds of the beans without their own timeout,
+	 *         0 if they run until they exit
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public boolean validate() {
+		return validate;
+	}
+
+	/**
+	 * @param validate
+	 *            <code>false</code> to launch the commands without checking
+	 *            their output format against <code>GDALDriverTable</code>
+	 */
+	public void validate(boolean validate) {
+		this.validate = validate;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Runs GDAL commands asynchronously. At most
+ *         <code>maxProcesses</code> GDAL processes run at the same time, the
+ *         other commands wait in a FIFO queue and are started in submission
+ *         order as soon as a running process exits. The default limit is the
+ *         number of available cores. Cancelling a returned
+ *         <code>Future</code> with <code>cancel(true)</code> kills the
+ *         running process and its descendants and frees the slot; a timeout
+ *         set on the bean or on the connector does the same automatically.
+ * 
+ */
+public class GDALExecutor {
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	private GDALConnector connector;
+
+	private ThreadPoolExecutor executor;
+
+	public GDALExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public GDALExecutor(int maxProcesses) {
+		this(new GDALConnector(), maxProcesses);
+	}
+
+	public GDALExecutor(GDALConnector connector, int maxProcesses) {
+		if (maxProcesses < 1)
+			throw new IllegalArgumentException("The maximum number of processes must be greater than 0.");
+		this.connector = connector;
+		final int pool = POOL_COUNTER.incrementAndGet();
+		this.executor = new ThreadPoolExecutor(maxProcesses, maxProcesses, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+			private AtomicInteger counter = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "gdal-executor-" + pool + "-" + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @return Future output of the GDAL command, as returned by
+	 *         <code>GDALConnector.invoke(GDAL)</code>
+	 */
+	public Future<List<String>> submit(GDAL g) {
+		return this.submit(g, (GDALCallback<List<String>>) null);
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param callback
+	 *            Notified when the command completes, may be <code>null</code>
+	 * @return Future output of the GDAL command, as returned by
+	 *         <code>GDALConnector.invoke(GDAL)</code>
+	 */
+	public Future<List<String>> submit(final GDAL g, GDALCallback<List<String>> callback) {
+		return this.schedule(new Callable<List<String>>() {
+
+			public List<String> call() throws Exception {
+				return connector.invoke(g);
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param listener
+	 *            Receiver of the output lines
+	 * @return Future outcome of the GDAL command
+	 */
+	public Future<GDALResult> submit(GDAL g, GDALListener listener) {
+		return this.submit(g, listener, null);
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param listener
+	 *            Receiver of the output lines
+	 * @param callback
+	 *            Notified when the command completes, may be <code>null</code>
+	 * @return Future outcome of the GDAL command
+	 */
+	public Future<GDALResult> submit(final GDAL g, final GDALListener listener, GDALCallback<GDALResult> callback) {
+		return this.schedule(new Callable<GDALResult>() {
+
+			public GDALResult call() throws Exception {
+				return connector.execute(g, listener);
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @return Future outcome of the GDAL command, as returned by
+	 *         <code>GDALConnector.execute(GDAL)</code>
+	 */
+	public Future<GDALResult> execute(GDAL g) {
+		return this.execute(g, null);
+	}
+
+	/**
+	 * @param g
+	 *            Java Bean
+	 * @param callback
+	 *            Notified when the command completes, may be <code>null</code>
+	 * @return Future outcome of the GDAL command, as returned by
+	 *         <code>GDALConnector.execute(GDAL)</code>
+	 */
+	public Future<GDALResult> execute(final GDAL g, GDALCallback<GDALResult> callback) {
+		return this.schedule(new Callable<GDALResult>() {
+
+			public GDALResult call() throws Exception {
+				return connector.execute(g);
+			}
+
+		}, callback);
+	}
+
+	private <T> Future<T> schedule(Callable<T> task, final GDALCallback<T> callback) {
+		FutureTask<T> f = new FutureTask<T>(task) {
+
+			@Override
+			protected void done() {
+				if (callback == null)
+					return;
+				T result = null;
+				try {
+					result = this.get();
+				} catch (CancellationException e) {
+					callback.failed(e);
+					return;
+				} catch (ExecutionException e) {
+					callback.failed(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+					return;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					callback.failed(e);
+					return;
+				}
+				callback.completed(result);
+			}
+
+		};
+		this.executor.execute(f);
+		return f;
+	}
+
+	/**
+	 * @return Number of commands waiting for a free process slot. Cancelled
+	 *         commands are purged from the queue first, so they aren't counted.
+	 */
+	public int getQueueDepth() {
+		this.executor.purge();
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * @return Number of GDAL processes running right now.
+	 */
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	public int getMaxProcesses() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Change the maximum number of concurrent GDAL processes. Running
+	 * processes are never interrupted, the new limit applies as they exit.
+	 */
+	public void setMaxProcesses(int maxProcesses) {
+		if (maxProcesses < 1)
+			throw new IllegalArgumentException("The maximum number of processes must be greater than 0.");
+		if (maxProcesses > this.executor.getMaximumPoolSize()) {
+			this.executor.setMaximumPoolSize(maxProcesses);
+			this.executor.setCorePoolSize(maxProcesses);
+		} else {
+			this.executor.setCorePoolSize(maxProcesses);
+			this.executor.setMaximumPoolSize(maxProcesses);
+		}
+	}
+
+	/**
+	 * Stop accepting new commands. Queued commands are still executed.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Stop accepting new commands and drop the queued ones.
+	 * 
+	 * @return Commands that never started
+	 */
+	public List<Runnable> shutdownNow() {
+		return this.executor.shutdownNow();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	public GDALConnector getConnector() {
+		return connector;
+	}
+
+}
\ No newline at end of file
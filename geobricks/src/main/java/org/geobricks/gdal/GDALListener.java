@@ -0,0 +1,47 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ *
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ *
+ *         Receives the output of a GDAL command line by line, while the
+ *         command is still running. Standard output and standard error are
+ *         drained by two different threads, so the two methods may be invoked
+ *         concurrently.
+ *
+ */
+public interface GDALListener {
+
+	/**
+	 * @param line
+	 *            A line written by the GDAL command on the standard output.
+	 */
+	void output(String line);
+
+	/**
+	 * @param line
+	 *            A line written by the GDAL command on the standard error.
+	 */
+	void error(String line);
+
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Samples the peak memory and the CPU time of a running GDAL process.
+ *         The kernel drops these figures as soon as the process is reaped, and
+ *         the JVM reaps its children on its own thread, so they are read
+ *         periodically while the process runs and one last time when its
+ *         output is closed. The last successful sample is kept.
+ * 
+ */
+public class GDALProcessMonitor implements Runnable {
+
+	/**
+	 * Sampling period in milliseconds.
+	 */
+	public static final long PERIOD = 100;
+
+	private static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+	private long pid;
+
+	private volatile long peakResidentSetSize = -1;
+
+	private volatile long userTime = -1;
+
+	private volatile long systemTime = -1;
+
+	private ScheduledFuture<?> future;
+
+	/**
+	 * @param pid
+	 *            Identifier of the GDAL process
+	 */
+	public GDALProcessMonitor(long pid) {
+		this.pid = pid;
+	}
+
+	/**
+	 * Start sampling. Nothing happens if <code>/proc</code> is not available
+	 * or the process identifier is unknown.
+	 */
+	public synchronized void start() {
+		if (ProcessUtils.isProcAvailable() && this.pid >= 0 && this.future == null)
+			this.future = SCHEDULER.scheduleAtFixedRate(this, 0, PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Take a last sample and stop sampling.
+	 */
+	public synchronized void stop() {
+		if (this.future == null)
+			return;
+		this.future.cancel(false);
+		this.future = null;
+		this.run();
+	}
+
+	public void run() {
+		long rss = ProcessUtils.getPeakResidentSetSize(this.pid);
+		if (rss > this.peakResidentSetSize)
+			this.peakResidentSetSize = rss;
+		long[] cpu = ProcessUtils.getCpuTime(this.pid);
+		if (cpu != null && cpu[0] + cpu[1] >= this.userTime + this.systemTime) {
+			this.userTime = cpu[0];
+			this.systemTime = cpu[1];
+		}
+	}
+
+	/**
+	 * Copy the sampled figures in the result.
+	 */
+	public void fill(GDALResult result) {
+		result.setPid(this.pid);
+		result.setPeakResidentSetSize(this.peakResidentSetSize);
+		result.setUserTime(this.userTime);
+		result.setSystemTime(this.systemTime);
+	}
+
+	public long getPid() {
+		return pid;
+	}
+
+	public long getPeakResidentSetSize() {
+		return peakResidentSetSize;
+	}
+
+	public long getUserTime() {
+		return userTime;
+	}
+
+	public long getSystemTime() {
+		return systemTime;
+	}
+
+	private static ScheduledExecutorService createScheduler() {
+		return new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "gdal-monitor");
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Progress of a GDAL command. Some commands print more than one meter,
+ *         e.g. gdalwarp prints one for each input file: every meter is a pass
+ *         and rate and ETA refer to the current pass only.
+ * 
+ */
+public class GDALProgress {
+
+	private double percent;
+
+	private int pass;
+
+	private long passStartTime;
+
+	private long time;
+
+	public GDALProgress(double percent, int pass, long passStartTime, long time) {
+		this.percent = percent;
+		this.pass = pass;
+		this.passStartTime = passStartTime;
+		this.time = time;
+	}
+
+	/**
+	 * @return Completed percentage of the current pass, between 0 and 100
+	 */
+	public double getPercent() {
+		return percent;
+	}
+
+	/**
+	 * @return Number of the current pass, starting from 1
+	 */
+	public int getPass() {
+		return pass;
+	}
+
+	/**
+	 * @return Time when the meter of the current pass started, as returned by
+	 *         <code>System.currentTimeMillis()</code>
+	 */
+	public long getPassStartTime() {
+		return passStartTime;
+	}
+
+	/**
+	 * @return Time of this notification, as returned by
+	 *         <code>System.currentTimeMillis()</code>
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return Milliseconds elapsed since the start of the current pass
+	 */
+	public long getElapsedTime() {
+		return this.time - this.passStartTime;
+	}
+
+	/**
+	 * @return Throughput of the current pass in percent per second, 0 if it
+	 *         can't be computed yet
+	 */
+	public double getRate() {
+		long elapsed = this.getElapsedTime();
+		if (elapsed <= 0)
+			return 0;
+		return this.percent * 1000 / elapsed;
+	}
+
+	/**
+	 * @return Estimated milliseconds to the end of the current pass,
+	 *         <code>-1</code> if unknown
+	 */
+	public long getEstimatedTimeRemaining() {
+		if (this.percent >= 100)
+			return 0;
+		double rate = this.getRate();
+		if (rate <= 0)
+			return -1;
+		return (long) ((100 - this.percent) * 1000 / rate);
+	}
+
+	/**
+	 * @return <code>true</code> if the current pass is complete
+	 */
+	public boolean isDone() {
+		return this.percent >= 100;
+	}
+
+	@Override
+	public String toString() {
+		return "pass " + this.pass + ": " + this.percent + "%, " + this.getRate() + "%/s, ETA " + this.getEstimatedTimeRemaining() + "ms";
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Receives the output of a GDAL command together with the progress
+ *         parsed from the "0...10...20...30" meter printed on the standard
+ *         output by gdalwarp, gdal_translate, gdaldem, gdaladdo and the Python
+ *         utilities, unless the quiet flag is set.
+ * 
+ */
+public interface GDALProgressListener extends GDALListener {
+
+	/**
+	 * @param progress
+	 *            Progress of the command, notified every 2.5%.
+	 */
+	void progress(GDALProgress progress);
+
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Incremental parser of the GDAL progress meter. GDAL prints the
+ *         percentage every 10% and a dot every 2.5% in between, without line
+ *         breaks, so the standard output is fed one character at a time. A
+ *         meter must start at the beginning of a line with "0" and follow the
+ *         exact sequence "0...10...20 ... 100 - done.": any other character
+ *         marks the line as plain text. The start of a pass is notified
+ *         with the first dot, so a line that merely begins with a zero is not
+ *         taken for a meter.
+ * 
+ */
+public class GDALProgressParser {
+
+	private GDALProgressListener listener;
+
+	private int last = -1;
+
+	private int number = -1;
+
+	private int digits;
+
+	private int dots;
+
+	private boolean text;
+
+	private int pass;
+
+	private long passStartTime;
+
+	public GDALProgressParser(GDALProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param c
+	 *            Next character of the standard output
+	 */
+	public void feed(char c) {
+		if (c == '\n' || c == '\r') {
+			this.last = -1;
+			this.number = -1;
+			this.dots = 0;
+			this.text = false;
+			return;
+		}
+		if (this.text || this.last == 100)
+			return;
+		if (c >= '0' && c <= '9') {
+			int expected = this.last < 0 ? 0 : this.last + 10;
+			if (this.number < 0) {
+				if (this.last >= 0 && this.dots != 3) {
+					this.text = true;
+					return;
+				}
+				this.number = 0;
+				this.digits = 0;
+			}
+			this.number = this.number * 10 + (c - '0');
+			this.digits++;
+			int length = expected < 10 ? 1 : expected < 100 ? 2 : 3;
+			if (this.digits < length)
+				return;
+			if (this.digits > length || this.number != expected) {
+				this.text = true;
+				return;
+			}
+			this.number = -1;
+			this.dots = 0;
+			this.last = expected;
+			if (expected == 0)
+				this.passStartTime = System.currentTimeMillis();
+			else
+				this.publish(expected);
+		} else if (c == '.' && this.last >= 0 && this.number < 0 && this.dots < 3) {
+			this.dots++;
+			if (this.last == 0 && this.dots == 1) {
+				this.pass++;
+				this.publish(0);
+			}
+			this.publish(this.last + 2.5 * this.dots);
+		} else {
+			this.text = true;
+		}
+	}
+
+	/**
+	 * @param cbuf
+	 *            Characters of the standard output
+	 */
+	public void feed(char[] cbuf, int off, int len) {
+		for (int i = off; i < off + len; i++)
+			this.feed(cbuf[i]);
+	}
+
+	private void publish(double percent) {
+		this.listener.progress(new GDALProgress(percent, this.pass, this.passStartTime, System.currentTimeMillis()));
+	}
+
+}
\ No newline at end of file
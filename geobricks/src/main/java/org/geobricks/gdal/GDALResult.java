@@ -0,0 +1,229 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.util.List;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Outcome of a GDAL command: exit value, timing, amount of output and,
+ *         on Linux, the peak memory and the CPU time of the process. The
+ *         figures that can't be measured are set to <code>-1</code>.
+ * 
+ */
+public class GDALResult {
+
+	private List<String> arguments;
+
+	private List<String> output;
+
+	private long pid = -1;
+
+	private int exitValue = -1;
+
+	private long startTime = -1;
+
+	private long endTime = -1;
+
+	private long outputBytes;
+
+	private long errorBytes;
+
+	private long peakResidentSetSize = -1;
+
+	private long userTime = -1;
+
+	private long systemTime = -1;
+
+	private boolean timedOut = false;
+
+	/**
+	 * @return <code>true</code> if the command exited with status 0.
+	 */
+	public boolean isSuccessful() {
+		return this.exitValue == 0 && !this.timedOut;
+	}
+
+	/**
+	 * @return Name of the GDAL tool, e.g. <code>gdalwarp</code>
+	 */
+	public String getTool() {
+		if (this.arguments == null || this.arguments.isEmpty())
+			return null;
+		return this.arguments.get(0);
+	}
+
+	/**
+	 * @return Elapsed time between the launch and the end of the process, in
+	 *         milliseconds.
+	 */
+	public long getWallTime() {
+		if (this.startTime < 0 || this.endTime < 0)
+			return -1;
+		return this.endTime - this.startTime;
+	}
+
+	/**
+	 * @return User plus system CPU time in milliseconds.
+	 */
+	public long getCpuTime() {
+		if (this.userTime < 0 || this.systemTime < 0)
+			return -1;
+		return this.userTime + this.systemTime;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(this.getTool()).append(" exit=").append(this.exitValue);
+		if (this.timedOut)
+			sb.append(" (timed out)");
+		sb.append(" wall=").append(this.getWallTime()).append("ms");
+		sb.append(" cpu=").append(this.getCpuTime()).append("ms");
+		sb.append(" rss=").append(this.peakResidentSetSize < 0 ? -1 : this.peakResidentSetSize / 1024).append("kB");
+		sb.append(" stdout=").append(this.outputBytes).append("B");
+		sb.append(" stderr=").append(this.errorBytes).append("B");
+		return sb.toString();
+	}
+
+	public List<String> getArguments() {
+		return arguments;
+	}
+
+	public void setArguments(List<String> arguments) {
+		this.arguments = arguments;
+	}
+
+	/**
+	 * @return Standard output followed by standard error, <code>null</code>
+	 *         if the lines were streamed to a listener
+	 */
+	public List<String> getOutput() {
+		return output;
+	}
+
+	public void setOutput(List<String> output) {
+		this.output = output;
+	}
+
+	public long getPid() {
+		return pid;
+	}
+
+	public void setPid(long pid) {
+		this.pid = pid;
+	}
+
+	public int getExitValue() {
+		return exitValue;
+	}
+
+	public void setExitValue(int exitValue) {
+		this.exitValue = exitValue;
+	}
+
+	/**
+	 * @return Launch time, as returned by
+	 *         <code>System.currentTimeMillis()</code>
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	/**
+	 * @return Exit time, as returned by <code>System.currentTimeMillis()</code>
+	 */
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public void setEndTime(long endTime) {
+		this.endTime = endTime;
+	}
+
+	public long getOutputBytes() {
+		return outputBytes;
+	}
+
+	public void setOutputBytes(long outputBytes) {
+		this.outputBytes = outputBytes;
+	}
+
+	public long getErrorBytes() {
+		return errorBytes;
+	}
+
+	public void setErrorBytes(long errorBytes) {
+		this.errorBytes = errorBytes;
+	}
+
+	/**
+	 * @return Peak resident set size in bytes
+	 */
+	public long getPeakResidentSetSize() {
+		return peakResidentSetSize;
+	}
+
+	public void setPeakResidentSetSize(long peakResidentSetSize) {
+		this.peakResidentSetSize = peakResidentSetSize;
+	}
+
+	/**
+	 * @return User CPU time in milliseconds
+	 */
+	public long getUserTime() {
+		return userTime;
+	}
+
+	public void setUserTime(long userTime) {
+		this.userTime = userTime;
+	}
+
+	/**
+	 * @return System CPU time in milliseconds
+	 */
+	public long getSystemTime() {
+		return systemTime;
+	}
+
+	public void setSystemTime(long systemTime) {
+		this.systemTime = systemTime;
+	}
+
+	/**
+	 * @return <code>true</code> if the process was killed because it ran
+	 *         longer than the timeout of the bean.
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	public void setTimedOut(boolean timedOut) {
+		this.timedOut = timedOut;
+	}
+
+}
\ No newline at end of file
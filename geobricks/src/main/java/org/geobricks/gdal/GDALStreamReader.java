@@ -0,0 +1,164 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ *
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ *
+ *         Drains one of the streams of a GDAL process and forwards every line
+ *         to a <code>GDALListener</code>. Nothing is kept in memory: if the
+ *         listener fails the stream is still read until the end, so the
+ *         process never blocks on a full pipe. The stream is scanned one
+ *         character at a time, so that the progress meter of the standard
+ *         output reaches a <code>GDALProgressListener</code> while the line
+ *         is still being written.
+ *
+ */
+public class GDALStreamReader extends Thread {
+
+	private InputStream inputStream;
+
+	private GDALListener listener;
+
+	private boolean error;
+
+	private Exception exception;
+
+	private volatile long bytes;
+
+	/**
+	 * @param inputStream
+	 *            Standard output or standard error of the GDAL process
+	 * @param listener
+	 *            Receiver of the lines
+	 * @param error
+	 *            <code>true</code> if the stream is the standard error
+	 */
+	public GDALStreamReader(InputStream inputStream, GDALListener listener, boolean error) {
+		super(error ? "gdal-stderr" : "gdal-stdout");
+		this.setDaemon(true);
+		this.inputStream = new FilterInputStream(inputStream) {
+
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0)
+					bytes++;
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n > 0)
+					bytes += n;
+				return n;
+			}
+
+		};
+		this.listener = listener;
+		this.error = error;
+	}
+
+	@Override
+	public void run() {
+		Reader reader = new InputStreamReader(this.inputStream);
+		GDALProgressParser parser = null;
+		if (!this.error && this.listener instanceof GDALProgressListener)
+			parser = new GDALProgressParser((GDALProgressListener) this.listener);
+		try {
+			char[] cbuf = new char[8192];
+			StringBuilder line = new StringBuilder();
+			boolean cr = false;
+			int n = 0;
+			while ((n = reader.read(cbuf)) >= 0) {
+				if (parser != null && this.exception == null) {
+					try {
+						parser.feed(cbuf, 0, n);
+					} catch (RuntimeException e) {
+						this.exception = e;
+					}
+				}
+				for (int i = 0; i < n; i++) {
+					char c = cbuf[i];
+					if (c == '\n' && cr) {
+						cr = false;
+					} else if (c == '\n' || c == '\r') {
+						cr = c == '\r';
+						this.forward(line.toString());
+						line.setLength(0);
+					} else {
+						cr = false;
+						line.append(c);
+					}
+				}
+			}
+			if (line.length() > 0)
+				this.forward(line.toString());
+		} catch (IOException e) {
+			if (this.exception == null)
+				this.exception = e;
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// the stream is gone anyway
+			}
+		}
+	}
+
+	private void forward(String s) {
+		if (this.exception != null)
+			return;
+		try {
+			if (this.error)
+				this.listener.error(s);
+			else
+				this.listener.output(s);
+		} catch (RuntimeException e) {
+			this.exception = e;
+		}
+	}
+
+	/**
+	 * @return The first error raised while reading the stream or while
+	 *         notifying the listener, <code>null</code> if everything went
+	 *         fine.
+	 */
+	public Exception getException() {
+		return exception;
+	}
+
+	/**
+	 * @return Number of bytes read so far.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+}
\ No newline at end of file
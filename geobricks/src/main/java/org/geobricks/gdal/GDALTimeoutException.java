@@ -0,0 +1,47 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Thrown when a GDAL command runs longer than its timeout. The process
+ *         and its descendants have already been killed, the result describes
+ *         what happened until then.
+ * 
+ */
+public class GDALTimeoutException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private GDALResult result;
+
+	public GDALTimeoutException(GDALResult result) {
+		super(result.getTool() + " killed after " + result.getWallTime() + "ms.");
+		this.result = result;
+	}
+
+	public GDALResult getResult() {
+		return result;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Helpers shared by the classes that split a GDAL job into many
+ *         commands: number formatting for the arguments, checks of the
+ *         results, clean up of the working files, and the key of a tile of a
+ *         pyramid.
+ * 
+ */
+public class GDALUtils {
+
+	/**
+	 * @return The number without exponent and trailing zeros, as the GDAL
+	 *         tools expect it
+	 */
+	public static String format(double d) {
+		return BigDecimal.valueOf(d).stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * @return The result of the command, once it's done
+	 * @throws Exception
+	 *             If the command can't be run or exits with an error
+	 */
+	public static GDALResult check(Future<GDALResult> f) throws Exception {
+		GDALResult r;
+		try {
+			r = f.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+		if (!r.isSuccessful())
+			throw new Exception(r.getTool() + " failed: " + r.getOutput());
+		return r;
+	}
+
+	/**
+	 * Delete a file, or a directory with all its content.
+	 */
+	public static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null)
+			for (File c : children)
+				delete(c);
+		f.delete();
+	}
+
+	/**
+	 * @return Key of a tile: zoom, column and row packed in a long
+	 */
+	public static long tileKey(int zoom, int x, int y) {
+		if (zoom < 0 || zoom > 63 || x < 0 || y < 0 || x >= 1 << 29 || y >= 1 << 29)
+			throw new IllegalArgumentException("Invalid tile " + zoom + "/" + x + "/" + y + ".");
+		return (long) zoom << 58 | (long) x << 29 | y;
+	}
+
+	public static int tileZoom(long key) {
+		return (int) (key >>> 58);
+	}
+
+	public static int tileColumn(long key) {
+		return (int) (key >>> 29 & 0x1fffffff);
+	}
+
+	public static int tileRow(long key) {
+		return (int) (key & 0x1fffffff);
+	}
+
+}
\ No newline at end of file
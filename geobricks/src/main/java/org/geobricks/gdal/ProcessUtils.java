@@ -0,0 +1,255 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Helpers to inspect the operating system processes launched for the
+ *         GDAL commands. The information is read from the <code>/proc</code>
+ *         file system, so it is available on Linux only: on the other systems
+ *         the methods return <code>-1</code> or <code>null</code>.
+ * 
+ */
+public class ProcessUtils {
+
+	/**
+	 * Length of a clock tick in milliseconds. The kernel always reports the
+	 * CPU times in <code>/proc</code> with USER_HZ = 100.
+	 */
+	private static final long TICK = 10;
+
+	private static final boolean PROC = new File("/proc/self/stat").exists();
+
+	/**
+	 * @return <code>true</code> if the <code>/proc</code> file system is
+	 *         available.
+	 */
+	public static boolean isProcAvailable() {
+		return PROC;
+	}
+
+	/**
+	 * @param p
+	 *            Operating system process
+	 * @return Identifier of the process, <code>-1</code> if it can't be found
+	 * 
+	 *         <code>Process.pid()</code> is used on Java 9 and later, the
+	 *         private <code>pid</code> field of the UNIX implementation
+	 *         otherwise.
+	 */
+	public static long getPid(Process p) {
+		try {
+			Method m = Process.class.getMethod("pid");
+			return ((Number) m.invoke(p)).longValue();
+		} catch (NoSuchMethodException e) {
+			// Java 8 and earlier
+		} catch (Exception e) {
+			return -1;
+		}
+		try {
+			Field f = p.getClass().getDeclaredField("pid");
+			f.setAccessible(true);
+			return f.getInt(p);
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @param pid
+	 *            Process identifier
+	 * @return Fields of <code>/proc/[pid]/stat</code> following the command
+	 *         name, so that the first element is the state of the process,
+	 *         <code>null</code> if the process doesn't exist
+	 */
+	public static String[] readStat(long pid) {
+		if (!PROC || pid < 0)
+			return null;
+		String s = readLine(new File("/proc/" + pid + "/stat"), null);
+		if (s == null)
+			return null;
+		int idx = s.lastIndexOf(')');
+		if (idx < 0)
+			return null;
+		return s.substring(idx + 1).trim().split(" ");
+	}
+
+	/**
+	 * @param pid
+	 *            Process identifier
+	 * @return User and system CPU time of the process and of its reaped
+	 *         children, in milliseconds: <code>{ user, system }</code>.
+	 *         <code>null</code> if the process doesn't exist.
+	 */
+	public static long[] getCpuTime(long pid) {
+		String[] stat = readStat(pid);
+		if (stat == null || stat.length < 15)
+			return null;
+		try {
+			long user = Long.parseLong(stat[11]) + Long.parseLong(stat[13]);
+			long system = Long.parseLong(stat[12]) + Long.parseLong(stat[14]);
+			return new long[] { user * TICK, system * TICK };
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param pid
+	 *            Process identifier
+	 * @return Peak resident set size of the process in bytes (VmHWM),
+	 *         <code>-1</code> if the process doesn't exist or has already
+	 *         released its memory
+	 */
+	public static long getPeakResidentSetSize(long pid) {
+		if (!PROC || pid < 0)
+			return -1;
+		String s = readLine(new File("/proc/" + pid + "/status"), "VmHWM:");
+		if (s == null)
+			return -1;
+		s = s.substring("VmHWM:".length()).trim();
+		int idx = s.indexOf(' ');
+		try {
+			return Long.parseLong(idx < 0 ? s : s.substring(0, idx)) * 1024;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @param pid
+	 *            Process identifier
+	 * @return Identifiers of the children, grand-children etc. of the process
+	 */
+	public static Set<Long> getDescendants(long pid) {
+		Set<Long> descendants = new LinkedHashSet<Long>();
+		if (!PROC || pid < 0)
+			return descendants;
+		List<long[]> parents = new ArrayList<long[]>();
+		String[] names = new File("/proc").list();
+		if (names == null)
+			return descendants;
+		for (String name : names) {
+			if (name.isEmpty() || !Character.isDigit(name.charAt(0)))
+				continue;
+			try {
+				long child = Long.parseLong(name);
+				String[] stat = readStat(child);
+				if (stat != null && stat.length > 1)
+					parents.add(new long[] { child, Long.parseLong(stat[1]) });
+			} catch (NumberFormatException e) {
+				// not a process
+			}
+		}
+		descendants.add(pid);
+		boolean found = true;
+		while (found) {
+			found = false;
+			for (long[] p : parents) {
+				if (descendants.contains(p[1]) && descendants.add(p[0]))
+					found = true;
+			}
+		}
+		descendants.remove(pid);
+		return descendants;
+	}
+
+	/**
+	 * @param p
+	 *            Operating system process
+	 * 
+	 *            Kill the process together with its descendants, e.g. the
+	 *            Python interpreter running <code>gdal_merge.py</code> and
+	 *            the commands it launched. The tree is stopped before being
+	 *            killed, so that no process can fork in the meantime or be
+	 *            re-parented and escape. Without <code>/proc</code> only the
+	 *            process itself is destroyed.
+	 */
+	public static void destroyTree(Process p) {
+		long pid = getPid(p);
+		if (PROC && pid >= 0) {
+			Set<Long> tree = getDescendants(pid);
+			tree.add(pid);
+			signal("STOP", tree);
+			tree.addAll(getDescendants(pid));
+			signal("KILL", tree);
+		}
+		p.destroy();
+	}
+
+	private static void signal(String signal, Set<Long> pids) {
+		List<String> a = new ArrayList<String>();
+		a.add("kill");
+		a.add("-" + signal);
+		for (Long pid : pids)
+			a.add(pid.toString());
+		try {
+			Process kill = new ProcessBuilder(a).redirectErrorStream(true).start();
+			kill.getOutputStream().close();
+			InputStream in = kill.getInputStream();
+			while (in.read() >= 0)
+				;
+			in.close();
+			kill.waitFor();
+		} catch (IOException e) {
+			// some processes may be gone, the others are destroyed by the JVM
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String readLine(File f, String prefix) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(f));
+			String s = null;
+			while ((s = reader.readLine()) != null)
+				if (prefix == null || s.startsWith(prefix))
+					return s;
+			return null;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// nothing left to read
+				}
+			}
+		}
+	}
+
+}
\ No newline at end of file
@@ -24,8 +24,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.RESAMPLING;
+import org.geobricks.gdal.general.GeoreferencedExtents;
 
 /**
  * 
@@ -59,6 +59,12 @@ public class GDALAddOverviews extends GDAL {
 	 */
 	private List<Integer> levels;
 
+	/**
+	 * (available from GDAL 3.8) only refresh the existing overviews over this
+	 * window, in georeferenced coordinates.
+	 */
+	private GeoreferencedExtents partialRefreshExtents;
+
 	public GDALAddOverviews(String inputFilepath, RESAMPLING resampling) {
 		this.setInputFilepath(inputFilepath);
 		this.resampling(resampling);
@@ -135,36 +141,59 @@ public class GDALAddOverviews extends GDAL {
 		this.levels.add(level);
 	}
 
+	public GeoreferencedExtents getPartialRefreshExtents() {
+		return partialRefreshExtents;
+	}
+
+	/**
+	 * @param partialRefreshExtents
+	 * 
+	 *            (available from GDAL 3.8) only refresh the existing overviews
+	 *            over this window, in georeferenced coordinates.
+	 */
+	public void setPartialRefreshExtents(GeoreferencedExtents partialRefreshExtents) {
+		this.partialRefreshExtents = partialRefreshExtents;
+	}
+
 	@Override
-	public String convert() throws Exception {
-		this.getSB().append("gdaladdo ");
+	public List<String> getArguments() throws Exception {
+
+		// generic section
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdaladdo");
 		if (this.getResampling() != null) {
-			this.getSB().append("-r ").append(this.getResampling().name()).append(" ");
+			a.add("-r");
+			a.add(this.getResampling().name());
 		} else {
 			throw new Exception("Resampling algorithm is null or empty.");
 		}
 		if (this.clean())
-			this.getSB().append("-clean ");
+			a.add("-clean");
 		if (this.isReadOnly())
-			this.getSB().append("-ro ");
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+			a.add("-ro");
+		if (this.getPartialRefreshExtents() != null) {
+			GeoreferencedExtents e = this.getPartialRefreshExtents();
+			a.add("--partial-refresh-from-projwin");
+			a.add(e.getxMin());
+			a.add(e.getyMax());
+			a.add(e.getxMax());
+			a.add(e.getyMin());
+		}
+		this.addConfigArguments(a);
 		if (this.getInputFilepath() != null) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add(this.getInputFilepath());
 		} else {
 			throw new Exception("Input filepath is null or empty.");
 		}
-		if (!this.getLevels().isEmpty()) 
+		if (this.getLevels() != null && !this.getLevels().isEmpty())
 			for (Integer i : this.getLevels())
-				this.getSB().append(i).append(" ");
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
-		return this.getSB().toString();
+				a.add(String.valueOf(i));
+
+		return a;
 	}
 
 }
\ No newline at end of file
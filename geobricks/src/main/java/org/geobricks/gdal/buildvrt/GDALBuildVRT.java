@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.RESOLUTION;
 import org.geobricks.gdal.general.GeoreferencedExtents;
 
@@ -477,74 +476,111 @@ public class GDALBuildVRT extends GDAL {
 		this.inputFilepaths.add(inputFilepath);
 	}
 
+	/**
+	 * A copy of this bean reading a single input file. Options are copied
+	 * from this bean.
+	 */
 	@Override
-	public String convert() throws Exception {
+	public GDALBuildVRT copy(String inputFilepath, String outputFilepath) {
+		GDALBuildVRT g = (GDALBuildVRT) super.copy(inputFilepath, outputFilepath);
+		g.setInputFilepaths(null);
+		return g;
+	}
+
+	/**
+	 * A copy of this bean reading different input files. Options are copied
+	 * from this bean.
+	 */
+	public GDALBuildVRT copy(List<String> inputFilepaths, String outputFilepath) {
+		GDALBuildVRT g = (GDALBuildVRT) super.copy(null, outputFilepath);
+		g.setInputFilepaths(inputFilepaths);
+		return g;
+	}
+
+	@Override
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdalbuildvrt");
+		if (this.getTileIndex() != null && !this.getTileIndex().isEmpty()) {
+			a.add("-tileindex");
+			a.add(this.getTileIndex());
+		}
+		if (this.getResolution() != null) {
+			a.add("-resolution");
+			a.add(this.getResolution().name());
+		}
+		if (this.getTargetResolution() != null) {
+			a.add("-tr");
+			a.add(String.valueOf(this.getTargetResolution().getxResolution()));
+			a.add(String.valueOf(this.getTargetResolution().getyResolution()));
 		}
-
-		this.getSB().append("gdalbuildvrt ");
-		if (this.getTileIndex() != null && !this.getTileIndex().isEmpty())
-			this.getSB().append("-tileindex ").append(this.getTileIndex()).append(" ");
-		if (this.getResolution() != null)
-			this.getSB().append("-resolution ").append(this.getResolution().name()).append(" ");
-		if (this.getTargetResolution() != null)
-			this.getSB().append("-tr ").append(this.getTargetResolution()).append(" ");
 		if (this.targetAlignedPoints())
-			this.getSB().append("-tap ");
+			a.add("-tap");
 		if (this.separate())
-			this.getSB().append("-separate ");
+			a.add("-separate");
 		if (this.allowProjectionDifference())
-			this.getSB().append("-allow_projection_difference ");
+			a.add("-allow_projection_difference");
 		if (this.quiet())
-			this.getSB().append("-q ");
-		if (this.getGeoreferencedExtents() != null)
-			this.getSB().append("-te ").append(this.getGeoreferencedExtents()).append(" ");
+			a.add("-q");
+		if (this.getGeoreferencedExtents() != null) {
+			a.add("-te");
+			a.add(this.getGeoreferencedExtents().getxMin());
+			a.add(this.getGeoreferencedExtents().getyMin());
+			a.add(this.getGeoreferencedExtents().getxMax());
+			a.add(this.getGeoreferencedExtents().getyMax());
+		}
 		if (this.addAlpha())
-			this.getSB().append("-addalpha ");
+			a.add("-addalpha");
 		if (this.hideNoData())
-			this.getSB().append("-hidenodata ");
-		if (this.getInputNoDataValues() != null && !this.getInputNoDataValues().isEmpty()) {
-			this.getSB().append("-srcnodata \"");
-			for (Integer i : this.getInputNoDataValues())
-				this.getSB().append(i).append(" ");
-			this.getSB().append("\" ");
-		}
-		if (this.getOutputNoDataValues() != null && !this.getOutputNoDataValues().isEmpty()) {
-			this.getSB().append("-vrtnodata \"");
-			for (Integer i : this.getOutputNoDataValues())
-				this.getSB().append(i).append(" ");
-			this.getSB().append("\" ");
+			a.add("-hidenodata");
+		addNoDataArguments(a, "-srcnodata", this.getInputNoDataValues());
+		addNoDataArguments(a, "-vrtnodata", this.getOutputNoDataValues());
+		if (this.getInputFileList() != null && !this.getInputFileList().isEmpty()) {
+			a.add("-input_file_list");
+			a.add(this.getInputFileList());
 		}
-		if (this.getInputFileList() != null && !this.getInputFileList().isEmpty())
-			this.getSB().append("-input_file_list ").append(this.getInputFileList()).append(" ");
 		if (this.overwrite())
-			this.getSB().append("-overwrite ");
+			a.add("-overwrite");
 		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
+			a.add(this.getOutputFilepath());
 		} else {
 			throw new Exception("Output file has not been specified.");
 		}
-		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) { 
-			this.getSB().append(this.getInputFilepath()).append(" ");
+		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
+			a.add(this.getInputFilepath());
 		} else if (this.getInputFilepaths() != null && !this.getInputFilepaths().isEmpty()) {
-			for (String i : this.getInputFilepaths())
-				this.getSB().append(i).append(" ");
-		} else {
+			a.addAll(this.getInputFilepaths());
+		} else if (this.getInputFileList() == null || this.getInputFileList().isEmpty()) {
 			throw new Exception("Input files have not been specified.");
 		}
-		
+
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
+	}
+
+	/**
+	 * Multiple nodata values are joined in a single argument, as gdalbuildvrt
+	 * expects them.
+	 */
+	private static void addNoDataArguments(List<String> a, String flag, List<Integer> noData) {
+		if (noData != null && !noData.isEmpty()) {
+			StringBuilder sb = new StringBuilder();
+			for (Integer i : noData) {
+				if (sb.length() > 0)
+					sb.append(" ");
+				sb.append(i);
+			}
+			a.add(flag);
+			a.add(sb.toString());
+		}
 	}
 
 }
\ No newline at end of file
@@ -20,7 +20,8 @@
  */
 package org.geobricks.gdal.dem;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
@@ -143,7 +144,7 @@ public abstract class GDALDEM extends GDAL {
 	 */
 	public void addCreationOption(String option, String value) {
 		if (this.creationOption == null)
-			this.creationOption = new HashMap<String, String>();
+			this.creationOption = new LinkedHashMap<String, String>();
 		this.creationOption.put(option, value);
 	}
 
@@ -158,4 +159,43 @@ public abstract class GDALDEM extends GDAL {
 		this.suppressProgressMonitor = suppress;
 	}
 	
+	@Override
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
+	/**
+	 * Append the arguments which are common to all GDALDEM modes: input and
+	 * output rasters followed by the generic gdaldem options.
+	 */
+	protected void addDEMArguments(List<String> a) throws Exception {
+		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
+			a.add(this.getInputFilepath());
+		} else {
+			throw new Exception("Input raster has not been defined.");
+		}
+		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
+			a.add(this.getOutputFilepath());
+		} else {
+			throw new Exception("Output raster has not been defined.");
+		}
+		if (this.getAlgorithm() != null && !this.getAlgorithm().isEmpty()) {
+			a.add("-alg");
+			a.add(this.getAlgorithm());
+		}
+		if (this.computeEdges())
+			a.add("-compute_edges");
+		if (this.getBand() != null) {
+			a.add("-b");
+			a.add(String.valueOf(this.getBand()));
+		}
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		addOptionArguments(a, "-co", this.getCreationOption());
+		if (this.suppressProgressMonitor())
+			a.add("-q");
+	}
+
 }
\ No newline at end of file
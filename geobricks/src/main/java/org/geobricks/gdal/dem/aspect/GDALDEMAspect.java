@@ -20,7 +20,9 @@
  */
 package org.geobricks.gdal.dem.aspect;
 
-import org.geobricks.gdal.constant.CONFIG;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geobricks.gdal.dem.GDALDEM;
 
 /**
@@ -77,54 +79,29 @@ public class GDALDEMAspect extends GDALDEM {
 	}
 	
 	@Override
-	public String convert() throws Exception {
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
 
 		// GDALDEMAspect specific
-		this.getSB().append("gdaldem aspect ");
+		a = new ArrayList<String>();
+		a.add("gdaldem");
+		a.add("aspect");
 		if (this.trigonometric())
-			this.getSB().append("-trigonometric ");
+			a.add("-trigonometric");
 		if (this.zeroForFlat())
-			this.getSB().append("-zero_for_flat ");
+			a.add("-zero_for_flat");
 
 		// this section is common to all GDALDEM classes
-		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
-		} else {
-			throw new Exception("Input raster has not been defined.");
-		}
-		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
-		} else {
-			throw new Exception("Output raster has not been defined.");
-		}
-		if (this.getAlgorithm() != null && !this.getAlgorithm().isEmpty())
-			this.getSB().append("-alg ").append(this.getAlgorithm()).append(" ");
-		if (this.computeEdges())
-			this.getSB().append("-compute_edges ");
-		if (this.getBand() != null)
-			this.getSB().append("-b ").append(this.getBand()).append(" ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getCreationOption() != null && !this.getCreationOption().isEmpty())
-			for (String key : this.getCreationOption().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOption().get(key)).append("\" ");
-		if (this.suppressProgressMonitor())
-			this.getSB().append("-q ");
+		this.addDEMArguments(a);
 
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
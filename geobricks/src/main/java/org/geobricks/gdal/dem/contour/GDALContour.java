@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.FORMAT;
 
 /**
@@ -220,57 +219,66 @@ public class GDALContour extends GDAL {
 	}	
 	
 	@Override
-	public String convert() throws Exception {
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdal_contour");
+		if (this.getBand() != null) {
+			a.add("-b");
+			a.add(String.valueOf(this.getBand()));
+		}
+		if (this.getAttribute() != null && !this.getAttribute().isEmpty()) {
+			a.add("-a");
+			a.add(this.getAttribute());
 		}
-
-		this.getSB().append("gdal_contour ");
-		if (this.getBand() != null)
-			this.getSB().append("-b ").append(this.getBand()).append(" ");
-		if (this.getAttribute() != null && !this.getAttribute().isEmpty())
-			this.getSB().append("-a ").append(this.getAttribute()).append(" ");
 		if (this.force3D())
-			this.getSB().append("-3d ");
+			a.add("-3d");
 		if (this.ignoreNoData())
-			this.getSB().append("-inodata ");
-		if (this.getNoData() != null && !this.getNoData().isEmpty())
-			this.getSB().append("-snodata ").append(this.getNoData()).append(" ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-f ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getInterval() != null)
-			this.getSB().append("-i ").append(this.getInterval()).append(" ");
-		if (this.getOffset() != null)
-			this.getSB().append("-off ").append(this.getOffset()).append(" ");
+			a.add("-inodata");
+		if (this.getNoData() != null && !this.getNoData().isEmpty()) {
+			a.add("-snodata");
+			a.add(this.getNoData());
+		}
+		if (this.getOutputFormat() != null) {
+			a.add("-f");
+			a.add(this.getOutputFormat().name());
+		}
+		if (this.getInterval() != null) {
+			a.add("-i");
+			a.add(String.valueOf(this.getInterval()));
+		}
+		if (this.getOffset() != null) {
+			a.add("-off");
+			a.add(String.valueOf(this.getOffset()));
+		}
 		if (this.getFixedLevels() != null && !this.getFixedLevels().isEmpty()) {
-			this.getSB().append("-fl ");
-			for (String fl : this.getFixedLevels())
-				this.getSB().append(fl).append(" ");
+			a.add("-fl");
+			a.addAll(this.getFixedLevels());
+		}
+		if (this.getOutputLayerName() != null) {
+			a.add("-nln");
+			a.add(this.getOutputLayerName());
 		}
-		if (this.getOutputLayerName() != null)
-			this.getSB().append("-nln ").append(this.getOutputLayerName()).append(" ");
 		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add(this.getInputFilepath());
 		} else {
 			throw new Exception("Input raster has not been defined.");
 		}
 		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
+			a.add(this.getOutputFilepath());
 		} else {
 			throw new Exception("Output raster has not been defined.");
-		}		
+		}
 
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
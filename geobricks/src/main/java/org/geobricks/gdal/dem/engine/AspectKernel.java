@@ -0,0 +1,94 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.aspect.GDALDEMAspect;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Aspect, as <code>gdaldem aspect</code>: azimuth in degrees, 0 for
+ *         north and 90 for east, or trigonometric angle. Flat areas are no
+ *         data (-9999) unless <code>zeroForFlat</code> is set.
+ * 
+ */
+public class AspectKernel extends DEMKernel {
+
+	private boolean zevenbergenThorne;
+
+	private boolean trigonometric;
+
+	private boolean zeroForFlat;
+
+	public AspectKernel() {
+		this(false, false, false);
+	}
+
+	public AspectKernel(GDALDEMAspect g) {
+		this(g.trigonometric(), g.zeroForFlat(), DEMKernels.isZevenbergenThorne(g));
+		this.computeEdges(g.computeEdges());
+	}
+
+	/**
+	 * @param trigonometric
+	 *            <code>true</code> for the trigonometric angle instead of the
+	 *            azimuth
+	 * @param zeroForFlat
+	 *            <code>true</code> to return 0 for flat areas
+	 * @param zevenbergenThorne
+	 *            <code>true</code> for Zevenbergen &amp; Thorne's formula,
+	 *            <code>false</code> for Horn's
+	 */
+	public AspectKernel(boolean trigonometric, boolean zeroForFlat, boolean zevenbergenThorne) {
+		super(-9999);
+		this.trigonometric = trigonometric;
+		this.zeroForFlat = zeroForFlat;
+		this.zevenbergenThorne = zevenbergenThorne;
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		double dx, dy;
+		if (this.zevenbergenThorne) {
+			dx = w[5] - w[3];
+			dy = w[7] - w[1];
+		} else {
+			dx = (w[2] + w[5] + w[5] + w[8]) - (w[0] + w[3] + w[3] + w[6]);
+			dy = (w[6] + w[7] + w[7] + w[8]) - (w[0] + w[1] + w[1] + w[2]);
+		}
+		if (dx == 0 && dy == 0)
+			return this.zeroForFlat ? 0 : this.getNoData();
+		float aspect = (float) Math.toDegrees(Math.atan2(dy, -dx));
+		if (!this.trigonometric) {
+			if (aspect > 90.0f)
+				aspect = 450.0f - aspect;
+			else
+				aspect = 90.0f - aspect;
+		} else if (aspect < 0) {
+			aspect += 360.0f;
+		}
+		if (aspect == 360.0f)
+			aspect = 0;
+		return aspect;
+	}
+
+}
@@ -0,0 +1,282 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Color configuration file of gdaldem color-relief. Each line holds an
+ *         elevation, or a percentage of the range of the raster, or
+ *         <code>nv</code> for the no data value, followed by the red, green,
+ *         blue and optional alpha components or by a color name. Values may be
+ *         separated by spaces, tabs, commas or colons; lines starting with
+ *         <code>#</code> are comments.
+ * 
+ *         Palettes read by <code>get(String)</code> are kept in memory and
+ *         shared, so that a file is parsed once as long as its size and last
+ *         modification time don't change. Palettes are immutable.
+ * 
+ */
+public class ColorPalette {
+
+	private static final Map<String, ColorPalette> CACHE = new ConcurrentHashMap<String, ColorPalette>();
+
+	private static final Map<String, int[]> NAMES = new HashMap<String, int[]>();
+
+	static {
+		NAMES.put("white", new int[] { 255, 255, 255 });
+		NAMES.put("black", new int[] { 0, 0, 0 });
+		NAMES.put("red", new int[] { 255, 0, 0 });
+		NAMES.put("green", new int[] { 0, 255, 0 });
+		NAMES.put("blue", new int[] { 0, 0, 255 });
+		NAMES.put("yellow", new int[] { 255, 255, 0 });
+		NAMES.put("magenta", new int[] { 255, 0, 255 });
+		NAMES.put("cyan", new int[] { 0, 255, 255 });
+		NAMES.put("aqua", new int[] { 0, 192, 192 });
+		NAMES.put("grey", new int[] { 190, 190, 190 });
+		NAMES.put("gray", new int[] { 190, 190, 190 });
+		NAMES.put("orange", new int[] { 255, 127, 0 });
+		NAMES.put("brown", new int[] { 165, 42, 42 });
+		NAMES.put("purple", new int[] { 160, 32, 240 });
+		NAMES.put("violet", new int[] { 238, 130, 238 });
+		NAMES.put("indigo", new int[] { 75, 0, 130 });
+	}
+
+	private double[] values;
+
+	private boolean[] percentages;
+
+	private int[] colors;
+
+	private boolean noDataSet = false;
+
+	private int noDataColor = 0;
+
+	private long length;
+
+	private long lastModified;
+
+	private ColorPalette() {
+	}
+
+	/**
+	 * @param filepath
+	 *            Color configuration file
+	 * @return Shared palette of the file, parsed again only if the file has
+	 *         changed since the last call
+	 */
+	public static ColorPalette get(String filepath) throws Exception {
+		File f = new File(filepath);
+		if (!f.isFile())
+			throw new Exception("Color configuration file " + filepath + " doesn't exist.");
+		String key = f.getCanonicalPath();
+		long length = f.length();
+		long lastModified = f.lastModified();
+		ColorPalette p = CACHE.get(key);
+		if (p != null && p.length == length && p.lastModified == lastModified)
+			return p;
+		Reader r = new FileReader(f);
+		try {
+			p = parse(r);
+		} finally {
+			r.close();
+		}
+		p.length = length;
+		p.lastModified = lastModified;
+		CACHE.put(key, p);
+		return p;
+	}
+
+	/**
+	 * Forget the palettes read so far.
+	 */
+	public static void clearCache() {
+		CACHE.clear();
+	}
+
+	/**
+	 * @param text
+	 *            Content of a color configuration file
+	 */
+	public static ColorPalette parse(String text) throws Exception {
+		return parse(new StringReader(text));
+	}
+
+	/**
+	 * @param reader
+	 *            Content of a color configuration file, not closed
+	 */
+	public static ColorPalette parse(Reader reader) throws Exception {
+		final List<Object[]> entries = new ArrayList<Object[]>();
+		ColorPalette p = new ColorPalette();
+		BufferedReader in = new BufferedReader(reader);
+		String line = null;
+		int n = 0;
+		try {
+			while ((line = in.readLine()) != null) {
+				n++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+				String[] t = line.split("[\\s,:]+");
+				int color = color(t, line, n);
+				String v = t[0];
+				if (v.equalsIgnoreCase("nv")) {
+					p.noDataSet = true;
+					p.noDataColor = color;
+				} else if (v.endsWith("%")) {
+					entries.add(new Object[] { number(v.substring(0, v.length() - 1), line, n), Boolean.TRUE, color });
+				} else {
+					entries.add(new Object[] { number(v, line, n), Boolean.FALSE, color });
+				}
+			}
+		} catch (IOException e) {
+			throw new Exception("Color configuration can't be read: " + e.getMessage());
+		}
+		if (entries.isEmpty())
+			throw new Exception("Color configuration doesn't contain any entry.");
+		p.values = new double[entries.size()];
+		p.percentages = new boolean[entries.size()];
+		p.colors = new int[entries.size()];
+		for (int i = 0; i < entries.size(); i++) {
+			p.values[i] = (Double) entries.get(i)[0];
+			p.percentages[i] = (Boolean) entries.get(i)[1];
+			p.colors[i] = (Integer) entries.get(i)[2];
+		}
+		return p;
+	}
+
+	private static double number(String s, String line, int n) throws Exception {
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			throw new Exception("Invalid value at line " + n + " of the color configuration: " + line);
+		}
+	}
+
+	private static int color(String[] t, String line, int n) throws Exception {
+		int[] c = new int[] { 0, 0, 0, 255 };
+		if (t.length == 2 && NAMES.containsKey(t[1].toLowerCase())) {
+			System.arraycopy(NAMES.get(t[1].toLowerCase()), 0, c, 0, 3);
+		} else if (t.length == 4 || t.length == 5) {
+			for (int i = 1; i < t.length; i++) {
+				try {
+					c[i - 1] = Math.max(0, Math.min(255, Integer.parseInt(t[i])));
+				} catch (NumberFormatException e) {
+					throw new Exception("Invalid color at line " + n + " of the color configuration: " + line);
+				}
+			}
+		} else {
+			throw new Exception("Invalid color at line " + n + " of the color configuration: " + line);
+		}
+		return rgba(c[0], c[1], c[2], c[3]);
+	}
+
+	/**
+	 * @return The components packed in an integer, red in the highest byte
+	 */
+	public static int rgba(int r, int g, int b, int a) {
+		return (r << 24) | (g << 16) | (b << 8) | a;
+	}
+
+	/**
+	 * @param min
+	 *            Minimum of the raster, used by the percentage entries
+	 * @param max
+	 *            Maximum of the raster, used by the percentage entries
+	 * @param exact
+	 *            <code>-exact_color_entry</code>
+	 * @param nearest
+	 *            <code>-nearest_color_entry</code>
+	 * @return Entries sorted by elevation, ready for the lookups
+	 */
+	public ColorRamp resolve(double min, double max, boolean exact, boolean nearest) {
+		Integer[] order = new Integer[this.values.length];
+		final double[] v = new double[this.values.length];
+		for (int i = 0; i < v.length; i++) {
+			order[i] = i;
+			v[i] = this.percentages[i] ? min + this.values[i] / 100 * (max - min) : this.values[i];
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			public int compare(Integer a, Integer b) {
+				return Double.compare(v[a], v[b]);
+			}
+
+		});
+		double[] values = new double[v.length];
+		int[] colors = new int[v.length];
+		for (int i = 0; i < v.length; i++) {
+			values[i] = v[order[i]];
+			colors[i] = this.colors[order[i]];
+		}
+		return new ColorRamp(values, colors, this.noDataColor, exact, nearest);
+	}
+
+	/**
+	 * @return <code>true</code> if some entry is a percentage of the range of
+	 *         the raster
+	 */
+	public boolean hasPercentages() {
+		for (boolean b : this.percentages)
+			if (b)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return Number of entries, the no data entry excluded
+	 */
+	public int size() {
+		return this.values.length;
+	}
+
+	/**
+	 * @return <code>true</code> if the palette has a <code>nv</code> entry
+	 */
+	public boolean isNoDataSet() {
+		return noDataSet;
+	}
+
+	/**
+	 * @return Packed color of the no data value, transparent black if the
+	 *         palette has no <code>nv</code> entry
+	 */
+	public int getNoDataColor() {
+		return noDataColor;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Color palette resolved for a raster: percentages are converted to
+ *         elevations and the entries are sorted, so that a color is found by
+ *         binary search. Between two entries the color is interpolated
+ *         linearly, unless <code>-exact_color_entry</code> (transparent black
+ *         when the elevation is not an entry) or
+ *         <code>-nearest_color_entry</code> is selected. Below the first and
+ *         above the last entry the color of that entry is used.
+ * 
+ *         For integer rasters, such as 8 and 16 bit DEMs, the colors of the
+ *         whole range can be computed once with <code>lookup</code>.
+ * 
+ */
+public class ColorRamp {
+
+	/**
+	 * Largest lookup table built by <code>lookup</code>.
+	 */
+	public static final int MAX_LOOKUP = 1 << 16;
+
+	private double[] values;
+
+	private int[] colors;
+
+	private int noDataColor;
+
+	private boolean exact;
+
+	private boolean nearest;
+
+	ColorRamp(double[] values, int[] colors, int noDataColor, boolean exact, boolean nearest) {
+		this.values = values;
+		this.colors = colors;
+		this.noDataColor = noDataColor;
+		this.exact = exact;
+		this.nearest = nearest;
+	}
+
+	/**
+	 * @param value
+	 *            Elevation, not the no data value
+	 * @return Packed RGBA color
+	 */
+	public int color(double value) {
+		double[] v = this.values;
+		int n = v.length;
+		// first entry not lower than the value
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (v[mid] < value)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		if (lo < n && v[lo] == value)
+			return this.colors[lo];
+		if (this.exact)
+			return 0;
+		if (lo == 0)
+			return this.colors[0];
+		if (lo == n)
+			return this.colors[n - 1];
+		double ratio = (value - v[lo - 1]) / (v[lo] - v[lo - 1]);
+		if (this.nearest)
+			return ratio <= 0.5 ? this.colors[lo - 1] : this.colors[lo];
+		int a = this.colors[lo - 1];
+		int b = this.colors[lo];
+		return ColorPalette.rgba(blend(a >>> 24, b >>> 24, ratio), blend((a >>> 16) & 0xff, (b >>> 16) & 0xff, ratio), blend((a >>> 8) & 0xff, (b >>> 8) & 0xff, ratio), blend(a & 0xff, b & 0xff, ratio));
+	}
+
+	private static int blend(int a, int b, double ratio) {
+		int c = (int) (0.45 + a + ratio * (b - a));
+		return c < 0 ? 0 : c > 255 ? 255 : c;
+	}
+
+	/**
+	 * @param min
+	 *            First integer elevation
+	 * @param max
+	 *            Last integer elevation
+	 * @return The color of every integer elevation between <code>min</code>
+	 *         and <code>max</code>
+	 */
+	public int[] lookup(int min, int max) throws Exception {
+		if ((long) max - min + 1 > MAX_LOOKUP)
+			throw new Exception("The range " + min + " - " + max + " exceeds the lookup table.");
+		int[] lut = new int[max - min + 1];
+		for (int i = 0; i < lut.length; i++)
+			lut[i] = this.color(min + i);
+		return lut;
+	}
+
+	/**
+	 * @return Packed RGBA color of the no data value
+	 */
+	public int getNoDataColor() {
+		return noDataColor;
+	}
+
+}
\ No newline at end of file
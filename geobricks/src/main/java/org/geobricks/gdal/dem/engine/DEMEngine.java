@@ -0,0 +1,481 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geobricks.gdal.dem.GDALDEM;
+import org.geobricks.gdal.dem.colorrelief.GDALDEMColorRelief;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Computes the gdaldem products in memory, without launching gdaldem.
+ *         The output is split in bands of rows computed in parallel; small
+ *         windows, such as the tiles of a tile server, are computed by the
+ *         calling thread. Several products can be computed in the same pass,
+ *         reading the elevations once. Color relief is computed from a
+ *         <code>ColorPalette</code> parsed once and shared.
+ * 
+ *         Edges and no data follow gdaldem: without
+ *         <code>computeEdges</code> the pixels on the border of the raster or
+ *         next to a no data value are no data. With <code>computeEdges</code>
+ *         the missing rows and columns outside the raster are extrapolated
+ *         linearly from the two nearest ones, and no data neighbours are
+ *         replaced by the central value.
+ * 
+ */
+public class DEMEngine {
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	/**
+	 * Minimum number of rows computed by a task.
+	 */
+	private static final int MIN_ROWS = 64;
+
+	private ExecutorService executor;
+
+	private int parallelism;
+
+	private boolean shared;
+
+	public DEMEngine() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads
+	 *            Number of threads of the engine
+	 */
+	public DEMEngine(int threads) {
+		final int pool = POOL_COUNTER.incrementAndGet();
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+			private AtomicInteger counter = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "dem-engine-" + pool + "-" + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+		this.parallelism = threads;
+	}
+
+	/**
+	 * @param executor
+	 *            Pool shared with other components, not shut down by the
+	 *            engine
+	 * @param parallelism
+	 *            Number of tasks a computation is split into
+	 */
+	public DEMEngine(ExecutorService executor, int parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.shared = true;
+	}
+
+	/**
+	 * @param src
+	 *            Elevations
+	 * @param g
+	 *            gdaldem bean, its files are ignored
+	 * @return Output of the whole raster
+	 */
+	public float[] compute(DEMRaster src, GDALDEM g) throws Exception {
+		return this.compute(src, DEMKernels.create(g));
+	}
+
+	/**
+	 * @param src
+	 *            Elevations
+	 * @param kernel
+	 *            Product to compute
+	 * @return Output of the whole raster
+	 */
+	public float[] compute(DEMRaster src, DEMKernel kernel) throws Exception {
+		return this.compute(src, 0, 0, src.getWidth(), src.getHeight(), kernel);
+	}
+
+	/**
+	 * @param src
+	 *            Elevations, covering the window and, where available, one
+	 *            pixel around it. The borders of <code>src</code> are taken
+	 *            for the borders of the raster.
+	 * @param x
+	 *            First column of the window
+	 * @param y
+	 *            First row of the window
+	 * @param width
+	 *            Columns of the window
+	 * @param height
+	 *            Rows of the window
+	 * @param kernel
+	 *            Product to compute
+	 * @return Output of the window, <code>width * height</code> values
+	 */
+	public float[] compute(DEMRaster src, int x, int y, int width, int height, DEMKernel kernel) throws Exception {
+		return this.compute(src, x, y, width, height, new DEMKernel[] { kernel })[0];
+	}
+
+	/**
+	 * @param src
+	 *            Elevations
+	 * @param beans
+	 *            gdaldem beans, their files are ignored
+	 * @return Output of the whole raster for each bean, in the same order
+	 */
+	public float[][] compute(DEMRaster src, GDALDEM... beans) throws Exception {
+		return this.compute(src, 0, 0, src.getWidth(), src.getHeight(), DEMKernels.createAll(beans));
+	}
+
+	/**
+	 * @param src
+	 *            Elevations
+	 * @param kernels
+	 *            Products to compute
+	 * @return Output of the whole raster for each kernel, in the same order
+	 */
+	public float[][] compute(DEMRaster src, DEMKernel... kernels) throws Exception {
+		return this.compute(src, 0, 0, src.getWidth(), src.getHeight(), kernels);
+	}
+
+	/**
+	 * Compute several products in a single pass: the window of each pixel is
+	 * read and checked for no data once, then handed to every kernel.
+	 * 
+	 * @param src
+	 *            Elevations, covering the window and, where available, one
+	 *            pixel around it. The borders of <code>src</code> are taken
+	 *            for the borders of the raster.
+	 * @param x
+	 *            First column of the window
+	 * @param y
+	 *            First row of the window
+	 * @param width
+	 *            Columns of the window
+	 * @param height
+	 *            Rows of the window
+	 * @param kernels
+	 *            Products to compute
+	 * @return Output of the window for each kernel, <code>width * height</code>
+	 *         values each
+	 */
+	public float[][] compute(final DEMRaster src, final int x, final int y, final int width, final int height, final DEMKernel[] kernels) throws Exception {
+		if (x < 0 || y < 0 || x + width > src.getWidth() || y + height > src.getHeight())
+			throw new Exception("The window exceeds the raster.");
+		final float[][] out = new float[kernels.length][width * height];
+		this.split(height, new Rows() {
+
+			public void compute(int task, int from, int to) {
+				computeRows(src, x, y, width, from, to, kernels, out);
+			}
+
+		});
+		return out;
+	}
+
+	/**
+	 * @param src
+	 *            Elevations
+	 * @param g
+	 *            gdaldem color-relief bean, its input and output files are
+	 *            ignored
+	 * @return Pixel interleaved RGB, or RGBA with <code>-alpha</code>, values
+	 */
+	public byte[] colorRelief(DEMRaster src, GDALDEMColorRelief g) throws Exception {
+		if (g.getColorConfigurationFile() == null || g.getColorConfigurationFile().isEmpty())
+			throw new Exception("Color configuration file has not been defined.");
+		ColorPalette palette = ColorPalette.get(g.getColorConfigurationFile());
+		return this.colorRelief(src, palette, g.extractColorEntry(), g.useNearestColorEntry(), g.addAlphaChannel());
+	}
+
+	/**
+	 * Color the raster as gdaldem color-relief. When the elevations are
+	 * integers in a range of at most <code>ColorRamp.MAX_LOOKUP</code> values
+	 * the color of each elevation is computed once and then looked up.
+	 * 
+	 * @param src
+	 *            Elevations
+	 * @param palette
+	 *            Color configuration
+	 * @param exact
+	 *            <code>-exact_color_entry</code>
+	 * @param nearest
+	 *            <code>-nearest_color_entry</code>
+	 * @param alpha
+	 *            <code>-alpha</code>
+	 * @return Pixel interleaved RGB, or RGBA with <code>alpha</code>, values
+	 */
+	public byte[] colorRelief(final DEMRaster src, ColorPalette palette, boolean exact, boolean nearest, final boolean alpha) throws Exception {
+		final int width = src.getWidth();
+		final float[] data = src.getData();
+		int height = src.getHeight();
+
+		// range of the elevations and whether they are all integers
+		final double[][] ranges = new double[this.tasks(height)][];
+		this.split(height, new Rows() {
+
+			public void compute(int task, int from, int to) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				boolean integers = true;
+				for (int i = from * width; i < to * width; i++) {
+					float v = data[i];
+					if (v != v || src.isNoData(v))
+						continue;
+					if (v < min)
+						min = v;
+					if (v > max)
+						max = v;
+					integers &= v == (int) v;
+				}
+				ranges[task] = new double[] { min, max, integers ? 1 : 0 };
+			}
+
+		});
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		boolean integers = true;
+		for (double[] r : ranges) {
+			min = Math.min(min, r[0]);
+			max = Math.max(max, r[1]);
+			integers &= r[2] == 1;
+		}
+
+		final ColorRamp ramp = palette.resolve(min, max, exact, nearest);
+		final int offset = (int) min;
+		final int[] lut = integers && min <= max && max - min < ColorRamp.MAX_LOOKUP ? ramp.lookup(offset, (int) max) : null;
+		final int bands = alpha ? 4 : 3;
+		final byte[] out = new byte[width * height * bands];
+		this.split(height, new Rows() {
+
+			public void compute(int task, int from, int to) {
+				int noData = ramp.getNoDataColor();
+				int o = from * width * bands;
+				for (int i = from * width; i < to * width; i++) {
+					float v = data[i];
+					int c = src.isNoData(v) ? noData : lut != null && v == v ? lut[(int) v - offset] : ramp.color(v);
+					out[o++] = (byte) (c >>> 24);
+					out[o++] = (byte) (c >>> 16);
+					out[o++] = (byte) (c >>> 8);
+					if (alpha)
+						out[o++] = (byte) c;
+				}
+			}
+
+		});
+		return out;
+	}
+
+	/**
+	 * @return Number of tasks computing <code>height</code> rows
+	 */
+	private int tasks(int height) {
+		return Math.max(1, Math.min(this.parallelism, height / MIN_ROWS));
+	}
+
+	/**
+	 * Split the rows in bands computed in parallel, or by the calling thread
+	 * if there is only one band.
+	 */
+	private void split(int height, final Rows rows) throws Exception {
+		int tasks = this.tasks(height);
+		if (tasks == 1) {
+			rows.compute(0, 0, height);
+			return;
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+		int size = (height + tasks - 1) / tasks;
+		for (int i = 0; i < tasks; i++) {
+			final int task = i;
+			final int from = Math.min(height, i * size);
+			final int to = Math.min(height, from + size);
+			futures.add(this.executor.submit(new Callable<Object>() {
+
+				public Object call() {
+					rows.compute(task, from, to);
+					return null;
+				}
+
+			}));
+		}
+		wait(futures);
+	}
+
+	/**
+	 * Computation of a band of rows.
+	 */
+	private interface Rows {
+
+		void compute(int task, int from, int to);
+
+	}
+
+	/**
+	 * Shut down the threads of the engine, unless the pool is shared.
+	 */
+	public void shutdown() {
+		if (!this.shared)
+			this.executor.shutdown();
+	}
+
+	static void wait(List<Future<?>> futures) throws Exception {
+		try {
+			for (Future<?> f : futures)
+				f.get();
+		} catch (ExecutionException e) {
+			for (Future<?> f : futures)
+				f.cancel(true);
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		} catch (InterruptedException e) {
+			for (Future<?> f : futures)
+				f.cancel(true);
+			throw e;
+		}
+	}
+
+	private static void computeRows(DEMRaster src, int x0, int y0, int width, int rowFrom, int rowTo, DEMKernel[] kernels, float[][] out) {
+		float[] w = new float[9];
+		float[] filled = new float[9];
+		int W = src.getWidth();
+		int H = src.getHeight();
+		boolean edges = false;
+		for (DEMKernel k : kernels)
+			edges |= k.computeEdges();
+		edges &= W >= 2 && H >= 2;
+		boolean noDataSet = src.isNoDataSet();
+		for (int r = rowFrom; r < rowTo; r++) {
+			int y = y0 + r;
+			int o = r * width;
+			for (int c = 0; c < width; c++) {
+				int x = x0 + c;
+				boolean inner = y > 0 && y < H - 1 && x > 0 && x < W - 1;
+				if (inner) {
+					window(src, x, y, w);
+				} else if (edges) {
+					edgeWindow(src, x, y, w);
+				} else {
+					for (int i = 0; i < kernels.length; i++)
+						out[i][o + c] = kernels[i].getNoData();
+					continue;
+				}
+				boolean center = noDataSet && src.isNoData(w[4]);
+				boolean neighbours = false;
+				if (noDataSet && !center) {
+					for (int i = 0; i < 9; i++) {
+						if (src.isNoData(w[i])) {
+							if (!neighbours)
+								System.arraycopy(w, 0, filled, 0, 9);
+							neighbours = true;
+							filled[i] = w[4];
+						}
+					}
+				}
+				for (int i = 0; i < kernels.length; i++) {
+					DEMKernel k = kernels[i];
+					if (center || (!inner && !k.computeEdges()) || (neighbours && !k.computeEdges()))
+						out[i][o + c] = k.getNoData();
+					else
+						out[i][o + c] = k.compute(neighbours ? filled : w, src.getEwres(), src.getNsres());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fill the window of an inner pixel.
+	 */
+	static void window(DEMRaster src, int x, int y, float[] w) {
+		float[] d = src.getData();
+		int W = src.getWidth();
+		int i = (y - 1) * W + x - 1;
+		w[0] = d[i];
+		w[1] = d[i + 1];
+		w[2] = d[i + 2];
+		i += W;
+		w[3] = d[i];
+		w[4] = d[i + 1];
+		w[5] = d[i + 2];
+		i += W;
+		w[6] = d[i];
+		w[7] = d[i + 1];
+		w[8] = d[i + 2];
+	}
+
+	/**
+	 * Fill the window of a pixel on the border of the raster, as gdaldem does
+	 * with <code>-compute_edges</code>: on the first and last rows the columns
+	 * are clamped and the missing row is extrapolated, on the first and last
+	 * columns the missing column is extrapolated.
+	 */
+	static void edgeWindow(DEMRaster src, int x, int y, float[] w) {
+		int W = src.getWidth();
+		int H = src.getHeight();
+		if (y == 0 || y == H - 1) {
+			int[] cols = { x == 0 ? x : x - 1, x, x == W - 1 ? x : x + 1 };
+			for (int k = 0; k < 3; k++) {
+				if (y == 0) {
+					w[k] = interpolate(src, src.get(cols[k], 0), src.get(cols[k], 1));
+					w[3 + k] = src.get(cols[k], 0);
+					w[6 + k] = src.get(cols[k], 1);
+				} else {
+					w[k] = src.get(cols[k], y - 1);
+					w[3 + k] = src.get(cols[k], y);
+					w[6 + k] = interpolate(src, src.get(cols[k], y), src.get(cols[k], y - 1));
+				}
+			}
+		} else {
+			for (int k = 0; k < 3; k++) {
+				int row = y - 1 + k;
+				if (x == 0) {
+					w[3 * k] = interpolate(src, src.get(0, row), src.get(1, row));
+					w[3 * k + 1] = src.get(0, row);
+					w[3 * k + 2] = src.get(1, row);
+				} else {
+					w[3 * k] = src.get(x - 1, row);
+					w[3 * k + 1] = src.get(x, row);
+					w[3 * k + 2] = interpolate(src, src.get(x, row), src.get(x - 1, row));
+				}
+			}
+		}
+	}
+
+	private static float interpolate(DEMRaster src, float a, float b) {
+		if (src.isNoData(a) || src.isNoData(b))
+			return src.getNoData();
+		return 2 * a - b;
+	}
+
+}
\ No newline at end of file
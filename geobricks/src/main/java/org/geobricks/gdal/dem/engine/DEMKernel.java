@@ -0,0 +1,85 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Computes one output pixel from the 3x3 window of elevations around
+ *         it, stored row by row:
+ * 
+ *         <pre>
+ * 0 1 2
+ * 3 4 5
+ * 6 7 8
+ * </pre>
+ * 
+ *         The window never contains no data values: the engine handles them
+ *         before calling the kernel, as gdaldem does. Kernels are stateless
+ *         and can be shared by concurrent computations.
+ * 
+ */
+public abstract class DEMKernel {
+
+	private boolean computeEdges = false;
+
+	private float noData;
+
+	public DEMKernel(float noData) {
+		this.noData = noData;
+	}
+
+	/**
+	 * @param w
+	 *            3x3 window of elevations
+	 * @param ewres
+	 *            Pixel width
+	 * @param nsres
+	 *            Pixel height, negative for north-up rasters
+	 * @return Output value
+	 */
+	public abstract float compute(float[] w, double ewres, double nsres);
+
+	/**
+	 * @return <code>true</code> to compute the pixels on the edges of the
+	 *         raster and next to no data values, as <code>-compute_edges</code>
+	 */
+	public boolean computeEdges() {
+		return computeEdges;
+	}
+
+	public void computeEdges(boolean compute) {
+		this.computeEdges = compute;
+	}
+
+	/**
+	 * @return Output value of the pixels that can't be computed
+	 */
+	public float getNoData() {
+		return noData;
+	}
+
+	public void setNoData(float noData) {
+		this.noData = noData;
+	}
+
+}
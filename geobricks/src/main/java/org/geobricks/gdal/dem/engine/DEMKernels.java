@@ -0,0 +1,84 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.GDALDEM;
+import org.geobricks.gdal.dem.aspect.GDALDEMAspect;
+import org.geobricks.gdal.dem.hillshade.GDALDEMHillshade;
+import org.geobricks.gdal.dem.roughness.GDALDEMRoughness;
+import org.geobricks.gdal.dem.slope.GDALDEMSlope;
+import org.geobricks.gdal.dem.tpi.GDALDEMTPI;
+import org.geobricks.gdal.dem.tri.GDALDEMTRI;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Builds the kernel matching a gdaldem bean, so that the same bean can
+ *         be executed by gdaldem or by the <code>DEMEngine</code>.
+ * 
+ */
+public class DEMKernels {
+
+	/**
+	 * @param g
+	 *            gdaldem bean
+	 * @return Kernel with the options of the bean
+	 * @throws Exception
+	 *             If the mode is not available in process
+	 */
+	public static DEMKernel create(GDALDEM g) throws Exception {
+		if (g instanceof GDALDEMHillshade)
+			return new HillshadeKernel((GDALDEMHillshade) g);
+		if (g instanceof GDALDEMSlope)
+			return new SlopeKernel((GDALDEMSlope) g);
+		if (g instanceof GDALDEMAspect)
+			return new AspectKernel((GDALDEMAspect) g);
+		if (g instanceof GDALDEMTRI)
+			return new TRIKernel((GDALDEMTRI) g);
+		if (g instanceof GDALDEMTPI)
+			return new TPIKernel((GDALDEMTPI) g);
+		if (g instanceof GDALDEMRoughness)
+			return new RoughnessKernel((GDALDEMRoughness) g);
+		throw new Exception(g.getClass().getSimpleName() + " can't be computed in process.");
+	}
+
+	/**
+	 * @param beans
+	 *            gdaldem beans
+	 * @return One kernel per bean, in the same order
+	 */
+	public static DEMKernel[] createAll(GDALDEM... beans) throws Exception {
+		DEMKernel[] kernels = new DEMKernel[beans.length];
+		for (int i = 0; i < beans.length; i++)
+			kernels[i] = create(beans[i]);
+		return kernels;
+	}
+
+	/**
+	 * @return <code>true</code> if the bean selects Zevenbergen &amp; Thorne's
+	 *         formula instead of Horn's
+	 */
+	public static boolean isZevenbergenThorne(GDALDEM g) {
+		return g.getAlgorithm() != null && g.getAlgorithm().equalsIgnoreCase("ZevenbergenThorne");
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Elevation grid processed in memory by the <code>DEMEngine</code>.
+ *         The values are stored row by row, from the top left corner. The
+ *         resolutions follow the GDAL geotransform convention: the
+ *         north-south resolution of a north-up raster is negative.
+ * 
+ */
+public class DEMRaster {
+
+	private float[] data;
+
+	private int width;
+
+	private int height;
+
+	private double ewres;
+
+	private double nsres;
+
+	private boolean noDataSet = false;
+
+	private float noData = Float.NaN;
+
+	/**
+	 * @param data
+	 *            Elevations, <code>width * height</code> values
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param ewres
+	 *            Pixel width, geotransform[1]
+	 * @param nsres
+	 *            Pixel height, geotransform[5]
+	 */
+	public DEMRaster(float[] data, int width, int height, double ewres, double nsres) {
+		if (data.length < width * height)
+			throw new IllegalArgumentException("The grid has " + data.length + " values instead of " + (width * height) + ".");
+		this.data = data;
+		this.width = width;
+		this.height = height;
+		this.ewres = ewres;
+		this.nsres = nsres;
+	}
+
+	/**
+	 * @return <code>true</code> if the value is the no data value of the grid
+	 */
+	public boolean isNoData(float value) {
+		if (!this.noDataSet)
+			return false;
+		return value == this.noData || (value != value && this.noData != this.noData);
+	}
+
+	public float get(int x, int y) {
+		return this.data[y * this.width + x];
+	}
+
+	public float[] getData() {
+		return data;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public double getEwres() {
+		return ewres;
+	}
+
+	public double getNsres() {
+		return nsres;
+	}
+
+	public boolean isNoDataSet() {
+		return noDataSet;
+	}
+
+	public float getNoData() {
+		return noData;
+	}
+
+	public void setNoData(float noData) {
+		this.noData = noData;
+		this.noDataSet = true;
+	}
+
+}
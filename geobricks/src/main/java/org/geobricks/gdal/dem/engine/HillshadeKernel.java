@@ -0,0 +1,103 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.hillshade.GDALDEMHillshade;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Shaded relief, as <code>gdaldem hillshade</code>: values from 1 to
+ *         255, 0 for no data. The light direction is folded into two
+ *         constants, so each pixel costs a single square root.
+ * 
+ */
+public class HillshadeKernel extends DEMKernel {
+
+	private boolean zevenbergenThorne;
+
+	private double sinAltitude;
+
+	private double cosAltitudeZ;
+
+	private double sinAzimuth;
+
+	private double cosAzimuth;
+
+	private double squareZ;
+
+	/**
+	 * Same defaults as gdaldem: z = 1, scale = 1, azimuth = 315, altitude =
+	 * 45, Horn's formula.
+	 */
+	public HillshadeKernel() {
+		this(1, 1, 315, 45, false);
+	}
+
+	public HillshadeKernel(GDALDEMHillshade g) {
+		this(g.getzFactor() == null ? 1 : g.getzFactor(), g.getScale() == null ? 1 : g.getScale(), g.getAzimuth() == null ? 315 : g.getAzimuth(), g.getAltitude() == null ? 45 : g.getAltitude(), DEMKernels.isZevenbergenThorne(g));
+		this.computeEdges(g.computeEdges());
+	}
+
+	/**
+	 * @param z
+	 *            Vertical exaggeration
+	 * @param scale
+	 *            Ratio of vertical units to horizontal
+	 * @param azimuth
+	 *            Azimuth of the light in degrees
+	 * @param altitude
+	 *            Altitude of the light in degrees
+	 * @param zevenbergenThorne
+	 *            <code>true</code> for Zevenbergen &amp; Thorne's formula,
+	 *            <code>false</code> for Horn's
+	 */
+	public HillshadeKernel(double z, double scale, double azimuth, double altitude, boolean zevenbergenThorne) {
+		super(0);
+		this.zevenbergenThorne = zevenbergenThorne;
+		double zScale = z / ((zevenbergenThorne ? 2 : 8) * scale);
+		double alt = Math.toRadians(altitude);
+		double az = Math.toRadians(azimuth);
+		this.sinAltitude = Math.sin(alt);
+		this.cosAltitudeZ = Math.cos(alt) * zScale;
+		this.sinAzimuth = Math.sin(az);
+		this.cosAzimuth = Math.cos(az);
+		this.squareZ = zScale * zScale;
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		double x, y;
+		if (this.zevenbergenThorne) {
+			x = (w[3] - w[5]) / ewres;
+			y = (w[7] - w[1]) / nsres;
+		} else {
+			x = ((w[0] + w[3] + w[3] + w[6]) - (w[2] + w[5] + w[5] + w[8])) / ewres;
+			y = ((w[6] + w[7] + w[7] + w[8]) - (w[0] + w[1] + w[1] + w[2])) / nsres;
+		}
+		// sqrt(x^2 + y^2) * sin(aspect - azimuth), with aspect = atan2(y, x)
+		double s = y * this.cosAzimuth - x * this.sinAzimuth;
+		double cang = (this.sinAltitude - this.cosAltitudeZ * s) / Math.sqrt(1 + this.squareZ * (x * x + y * y));
+		return cang <= 0 ? 1 : (float) (1 + 254 * cang);
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.roughness.GDALDEMRoughness;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Roughness, as <code>gdaldem roughness</code>: largest difference
+ *         between the pixels of the window. -9999 for no data.
+ * 
+ */
+public class RoughnessKernel extends DEMKernel {
+
+	public RoughnessKernel() {
+		super(-9999);
+	}
+
+	public RoughnessKernel(GDALDEMRoughness g) {
+		this();
+		this.computeEdges(g.computeEdges());
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		float min = w[0];
+		float max = w[0];
+		for (int i = 1; i < 9; i++) {
+			if (w[i] < min)
+				min = w[i];
+			else if (w[i] > max)
+				max = w[i];
+		}
+		return max - min;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.slope.GDALDEMSlope;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Slope, as <code>gdaldem slope</code>: degrees or percentage, -9999
+ *         for no data.
+ * 
+ */
+public class SlopeKernel extends DEMKernel {
+
+	private boolean zevenbergenThorne;
+
+	private boolean percentage;
+
+	private double scale;
+
+	public SlopeKernel() {
+		this(1, false, false);
+	}
+
+	public SlopeKernel(GDALDEMSlope g) {
+		this(g.getScale() == null ? 1 : g.getScale(), g.percentage(), DEMKernels.isZevenbergenThorne(g));
+		this.computeEdges(g.computeEdges());
+	}
+
+	/**
+	 * @param scale
+	 *            Ratio of vertical units to horizontal
+	 * @param percentage
+	 *            <code>true</code> for percent slope, <code>false</code> for
+	 *            degrees
+	 * @param zevenbergenThorne
+	 *            <code>true</code> for Zevenbergen &amp; Thorne's formula,
+	 *            <code>false</code> for Horn's
+	 */
+	public SlopeKernel(double scale, boolean percentage, boolean zevenbergenThorne) {
+		super(-9999);
+		this.percentage = percentage;
+		this.zevenbergenThorne = zevenbergenThorne;
+		this.scale = (zevenbergenThorne ? 2 : 8) * scale;
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		double dx, dy;
+		if (this.zevenbergenThorne) {
+			dx = (w[3] - w[5]) / ewres;
+			dy = (w[7] - w[1]) / nsres;
+		} else {
+			dx = ((w[0] + w[3] + w[3] + w[6]) - (w[2] + w[5] + w[5] + w[8])) / ewres;
+			dy = ((w[6] + w[7] + w[7] + w[8]) - (w[0] + w[1] + w[1] + w[2])) / nsres;
+		}
+		double gradient = Math.sqrt(dx * dx + dy * dy) / this.scale;
+		if (this.percentage)
+			return (float) (100 * gradient);
+		return (float) Math.toDegrees(Math.atan(gradient));
+	}
+
+}
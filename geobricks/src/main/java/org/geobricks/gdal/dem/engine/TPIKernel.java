@@ -0,0 +1,51 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.tpi.GDALDEMTPI;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Topographic Position Index, as <code>gdaldem TPI</code>: difference
+ *         between the central pixel and the mean of its neighbours. -9999 for
+ *         no data.
+ * 
+ */
+public class TPIKernel extends DEMKernel {
+
+	public TPIKernel() {
+		super(-9999);
+	}
+
+	public TPIKernel(GDALDEMTPI g) {
+		this();
+		this.computeEdges(g.computeEdges());
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		float sum = w[0] + w[1] + w[2] + w[3] + w[5] + w[6] + w[7] + w[8];
+		return w[4] - sum / 8;
+	}
+
+}
\ No newline at end of file
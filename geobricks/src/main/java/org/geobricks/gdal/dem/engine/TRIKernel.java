@@ -0,0 +1,75 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import org.geobricks.gdal.dem.tri.GDALDEMTRI;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Terrain Ruggedness Index, as <code>gdaldem TRI</code>: mean absolute
+ *         difference between the central pixel and its neighbours (Wilson et
+ *         al. 2007), or with the Riley algorithm the square root of the sum of
+ *         the squared differences. -9999 for no data.
+ * 
+ */
+public class TRIKernel extends DEMKernel {
+
+	private boolean riley;
+
+	public TRIKernel() {
+		this(false);
+	}
+
+	public TRIKernel(GDALDEMTRI g) {
+		this(g.getAlgorithm() != null && g.getAlgorithm().equalsIgnoreCase("Riley"));
+		this.computeEdges(g.computeEdges());
+	}
+
+	/**
+	 * @param riley
+	 *            <code>true</code> for the Riley algorithm, <code>false</code>
+	 *            for Wilson's
+	 */
+	public TRIKernel(boolean riley) {
+		super(-9999);
+		this.riley = riley;
+	}
+
+	@Override
+	public float compute(float[] w, double ewres, double nsres) {
+		float c = w[4];
+		if (this.riley) {
+			double sum = 0;
+			for (int i = 0; i < 9; i++) {
+				double d = w[i] - c;
+				sum += d * d;
+			}
+			return (float) Math.sqrt(sum);
+		}
+		float sum = 0;
+		for (int i = 0; i < 9; i++)
+			sum += Math.abs(w[i] - c);
+		return sum / 8;
+	}
+
+}
\ No newline at end of file
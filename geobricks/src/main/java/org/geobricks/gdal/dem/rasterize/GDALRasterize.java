@@ -21,12 +21,11 @@
 package org.geobricks.gdal.dem.rasterize;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.FORMAT;
 import org.geobricks.gdal.general.FileResolution;
 import org.geobricks.gdal.general.FileSize;
@@ -457,7 +456,7 @@ public class GDALRasterize extends GDAL {
 	 */
 	public void addCreationOption(String option, String value) {
 		if (this.creationOptions == null)
-			this.creationOptions = new HashMap<String, String>();
+			this.creationOptions = new LinkedHashMap<String, String>();
 		this.creationOptions.put(option, value);
 	}
 
@@ -549,79 +548,120 @@ public class GDALRasterize extends GDAL {
 	}
 	
 	@Override
-	public String convert() throws Exception {
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
+	@Override
+	protected boolean requiresCreate() {
+		return true;
+	}
+
+	@Override
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdal_rasterize");
+		if (this.getBands() != null && !this.getBands().isEmpty()) {
+			for (Integer b : this.getBands()) {
+				a.add("-b");
+				a.add(String.valueOf(b));
+			}
 		}
-
-		this.getSB().append("gdal_rasterize ");
-		if (this.getBands() != null && !this.getBands().isEmpty())
-			for (Integer b : this.getBands())
-				this.getSB().append("-b ").append(b).append(" ");
 		if (this.invertRasterizaion())
-			this.getSB().append("-i ");
+			a.add("-i");
 		if (this.enableAllTouchedRasterization())
-			this.getSB().append("-at ");
-		if (this.getBurnValues() != null && !this.getBurnValues().isEmpty())
-			for (String b : this.getBurnValues())
-				this.getSB().append("-burn ").append(b).append(" ");
-		if (this.getAttributeName() != null && !this.getAttributeName().isEmpty())
-			this.getSB().append("-a ").append(this.getAttributeName()).append(" ");
+			a.add("-at");
+		if (this.getBurnValues() != null && !this.getBurnValues().isEmpty()) {
+			for (String b : this.getBurnValues()) {
+				a.add("-burn");
+				a.add(b);
+			}
+		}
+		if (this.getAttributeName() != null && !this.getAttributeName().isEmpty()) {
+			a.add("-a");
+			a.add(this.getAttributeName());
+		}
 		if (this.force3D())
-			this.getSB().append("-3d ");
-		if (this.getLayerNames() != null && !this.getLayerNames().isEmpty())
-			for (String b : this.getLayerNames())
-				this.getSB().append("-l ").append(b).append(" ");
-		if (this.getWhereExpression() != null && !this.getWhereExpression().isEmpty())
-			this.getSB().append("-where ").append(this.getWhereExpression()).append(" ");
-		if (this.getSqlExpression() != null && !this.getSqlExpression().isEmpty())
-			this.getSB().append("-sql ").append(this.getSqlExpression()).append(" ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getOutputProjection() != null && !this.getOutputProjection().isEmpty())
-			this.getSB().append("-a_srs ").append(this.getOutputProjection()).append(" ");
-		if (this.getCreationOptions() != null && !this.getCreationOptions().isEmpty())
-			for (String key : this.getCreationOptions().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOptions().get(key)).append("\" ");
-		if (this.getNoData() != null && !this.getNoData().isEmpty())
-			this.getSB().append("-a_nodata ").append(this.getNoData()).append(" ");
-		if (this.getInitValues() != null && !this.getInitValues().isEmpty())
-			for (String b : this.getInitValues())
-				this.getSB().append("-init ").append(b).append(" ");
-		if (this.getGeoreferencedExtents() != null)
-			this.getSB().append("-te ").append(this.getGeoreferencedExtents()).append(" ");
-		if (this.getOutputResolution() != null)
-			this.getSB().append("-tr ").append(this.getOutputResolution()).append(" ");
+			a.add("-3d");
+		if (this.getLayerNames() != null && !this.getLayerNames().isEmpty()) {
+			for (String b : this.getLayerNames()) {
+				a.add("-l");
+				a.add(b);
+			}
+		}
+		if (this.getWhereExpression() != null && !this.getWhereExpression().isEmpty()) {
+			a.add("-where");
+			a.add(this.getWhereExpression());
+		}
+		if (this.getSqlExpression() != null && !this.getSqlExpression().isEmpty()) {
+			a.add("-sql");
+			a.add(this.getSqlExpression());
+		}
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		if (this.getOutputProjection() != null && !this.getOutputProjection().isEmpty()) {
+			a.add("-a_srs");
+			a.add(this.getOutputProjection());
+		}
+		addOptionArguments(a, "-co", this.getCreationOptions());
+		if (this.getNoData() != null && !this.getNoData().isEmpty()) {
+			a.add("-a_nodata");
+			a.add(this.getNoData());
+		}
+		if (this.getInitValues() != null && !this.getInitValues().isEmpty()) {
+			for (String b : this.getInitValues()) {
+				a.add("-init");
+				a.add(b);
+			}
+		}
+		if (this.getGeoreferencedExtents() != null) {
+			a.add("-te");
+			a.add(this.getGeoreferencedExtents().getxMin());
+			a.add(this.getGeoreferencedExtents().getyMin());
+			a.add(this.getGeoreferencedExtents().getxMax());
+			a.add(this.getGeoreferencedExtents().getyMax());
+		}
+		if (this.getOutputResolution() != null) {
+			a.add("-tr");
+			a.add(this.getOutputResolution().getxResolution());
+			a.add(this.getOutputResolution().getyResolution());
+		}
 		if (this.targetAlignedPixels())
-			this.getSB().append("-tap ");
-		if (this.getOutputFileSize() != null)
-			this.getSB().append("-ts ").append(this.getOutputFileSize()).append(" ");
-		if (this.getOutputBandsType() != null && !this.getOutputBandsType().isEmpty())
-			this.getSB().append("-ot ").append(this.getOutputBandsType()).append(" ");
+			a.add("-tap");
+		if (this.getOutputFileSize() != null) {
+			a.add("-ts");
+			a.add(this.getOutputFileSize().getWidth());
+			a.add(this.getOutputFileSize().getHeight());
+		}
+		if (this.getOutputBandsType() != null && !this.getOutputBandsType().isEmpty()) {
+			a.add("-ot");
+			a.add(this.getOutputBandsType());
+		}
 		if (this.quiet())
-			this.getSB().append("-q ");
+			a.add("-q");
 		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add(this.getInputFilepath());
 		} else {
 			throw new Exception("Input file has not been defined.");
 		}
 		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
+			a.add(this.getOutputFilepath());
 		} else {
 			throw new Exception("Output file has not been defined.");
 		}
-		
+
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
@@ -21,12 +21,11 @@
 package org.geobricks.gdal.dem.transform;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.general.GroundControlPoint;
 
 /**
@@ -142,7 +141,7 @@ public class GDALTransform extends GDAL {
 
 	public void addTransformerOption(String option, String value) {
 		if (this.transformerOptions == null)
-			this.transformerOptions = new HashMap<String, String>();
+			this.transformerOptions = new LinkedHashMap<String, String>();
 		this.transformerOptions.put(option, value);
 	}
 
@@ -240,54 +239,60 @@ public class GDALTransform extends GDAL {
 	}
 	
 	@Override
-	public String convert() throws Exception {
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
 
-		// GDALDEMSlope specific
-		this.getSB().append("gdaltransform ");
+		a = new ArrayList<String>();
+		a.add("gdaltransform");
 		if (this.inverse())
-			this.getSB().append("-i ");
-		if (this.getInputSpatialReferenceSet() != null && !this.getInputSpatialReferenceSet().isEmpty())
-			this.getSB().append("-s_srs ").append(this.getInputSpatialReferenceSet()).append(" ");
-		if (this.getOutputSpatialReferenceSet() != null && !this.getOutputSpatialReferenceSet().isEmpty())
-			this.getSB().append("-t_srs ").append(this.getOutputSpatialReferenceSet()).append(" ");
-		if (this.getTransformerOptions() != null && !this.getTransformerOptions().isEmpty()) 
-			for (String key : this.getTransformerOptions().keySet())
-				this.getSB().append("-to \"").append(key).append("=").append(this.getTransformerOptions().get(key)).append("\" ");
+			a.add("-i");
+		if (this.getInputSpatialReferenceSet() != null && !this.getInputSpatialReferenceSet().isEmpty()) {
+			a.add("-s_srs");
+			a.add(this.getInputSpatialReferenceSet());
+		}
+		if (this.getOutputSpatialReferenceSet() != null && !this.getOutputSpatialReferenceSet().isEmpty()) {
+			a.add("-t_srs");
+			a.add(this.getOutputSpatialReferenceSet());
+		}
+		addOptionArguments(a, "-to", this.getTransformerOptions());
 		if (this.getOrder() != null) {
 			if (this.getOrder() > 0 && this.getOrder() < 4) {
-				this.getSB().append("-order ").append(this.getOrder()).append(" ");
+				a.add("-order");
+				a.add(String.valueOf(this.getOrder()));
 			} else {
 				throw new Exception("Order must be between 1 and 3.");
 			}
 		}
 		if (this.forceThinSplineTransformer())
-			this.getSB().append("-tps ");
+			a.add("-tps");
 		if (this.forceRPCs())
-			this.getSB().append("-rpc ");
+			a.add("-rpc");
 		if (this.forceGeolocationArrays())
-			this.getSB().append("-geoloc ");
-		if (this.getGroundControlPoints() != null && !this.getGroundControlPoints().isEmpty())
-			for (GroundControlPoint p : this.getGroundControlPoints())
-				this.getSB().append("-gcp ").append(p).append(" ");
-		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) 
-			this.getSB().append(this.getInputFilepath()).append(" ");
-		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) 
-			this.getSB().append(this.getOutputFilepath()).append(" ");
-		
+			a.add("-geoloc");
+		if (this.getGroundControlPoints() != null && !this.getGroundControlPoints().isEmpty()) {
+			for (GroundControlPoint p : this.getGroundControlPoints()) {
+				a.add("-gcp");
+				a.add(p.getPixel());
+				a.add(p.getLine());
+				a.add(p.getEasting());
+				a.add(p.getNorthing());
+				if (p.getElevation() != null && !p.getElevation().isEmpty())
+					a.add(p.getElevation());
+			}
+		}
+		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty())
+			a.add(this.getInputFilepath());
+		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty())
+			a.add(this.getOutputFilepath());
+
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
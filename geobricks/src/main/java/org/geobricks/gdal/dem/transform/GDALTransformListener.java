@@ -0,0 +1,40 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.transform;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Receives the points transformed by a
+ *         <code>GDALTransformSession</code>, in the order they were
+ *         submitted. Failed transformations are reported as <code>NaN</code>.
+ * 
+ */
+public interface GDALTransformListener {
+
+	/**
+	 * @param index
+	 *            Position of the point in the submitted stream
+	 */
+	void point(long index, double x, double y, double z);
+
+}
\ No newline at end of file
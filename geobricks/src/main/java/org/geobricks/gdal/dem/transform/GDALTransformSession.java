@@ -0,0 +1,370 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.transform;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.geobricks.gdal.GDALListener;
+import org.geobricks.gdal.GDALStreamReader;
+import org.geobricks.gdal.ProcessUtils;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Keeps a gdaltransform process alive and pipes coordinates through
+ *         it. The source and target SRS, the GCPs and the other options are
+ *         taken from a <code>GDALTransform</code> bean. The points are written
+ *         to the standard input by a dedicated thread while the calling
+ *         thread reads the results, so a batch of any size flows through the
+ *         pipes without deadlock.
+ * 
+ *         gdaltransform doesn't flush its output after each point, so the
+ *         process is launched through <code>stdbuf -oL</code> when available.
+ *         Otherwise each batch closes the standard input to get its results
+ *         and the next batch launches a new process.
+ * 
+ */
+public class GDALTransformSession implements Closeable {
+
+	private static final String STDBUF = findStdbuf();
+
+	private GDALTransform transform;
+
+	private boolean lineBuffered;
+
+	private Process process;
+
+	private Writer stdin;
+
+	private BufferedReader stdout;
+
+	private volatile String lastError;
+
+	private ExecutorService writer;
+
+	/**
+	 * @param transform
+	 *            Options of gdaltransform. Input and output files are ignored.
+	 */
+	public GDALTransformSession(GDALTransform transform) {
+		this.transform = transform;
+		this.lineBuffered = STDBUF != null;
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "gdaltransform-stdin");
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+	}
+
+	/**
+	 * @param x
+	 *            Source X coordinates
+	 * @param y
+	 *            Source Y coordinates
+	 * @return Target coordinates: <code>{ x, y, z }</code>
+	 */
+	public double[][] transform(double[] x, double[] y) throws Exception {
+		return this.transform(x, y, null);
+	}
+
+	/**
+	 * @param x
+	 *            Source X coordinates
+	 * @param y
+	 *            Source Y coordinates
+	 * @param z
+	 *            Source Z coordinates, may be <code>null</code>
+	 * @return Target coordinates: <code>{ x, y, z }</code>
+	 */
+	public double[][] transform(double[] x, double[] y, double[] z) throws Exception {
+		double[][] out = new double[3][x.length];
+		this.transform(x, y, z, out[0], out[1], out[2]);
+		return out;
+	}
+
+	/**
+	 * Transform the points into arrays provided by the caller, which may be
+	 * the source arrays themselves.
+	 */
+	public synchronized void transform(final double[] x, final double[] y, final double[] z, final double[] outX, final double[] outY, final double[] outZ) throws Exception {
+		if (y.length != x.length || (z != null && z.length != x.length))
+			throw new Exception("Coordinate arrays must have the same length.");
+		final int n = x.length;
+		this.run(new Iterator<double[]>() {
+
+			private int i = 0;
+
+			private double[] p = new double[3];
+
+			public boolean hasNext() {
+				return this.i < n;
+			}
+
+			public double[] next() {
+				this.p[0] = x[this.i];
+				this.p[1] = y[this.i];
+				this.p[2] = z == null ? 0 : z[this.i];
+				this.i++;
+				return this.p;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+		}, new GDALTransformListener() {
+
+			public void point(long index, double px, double py, double pz) {
+				int i = (int) index;
+				outX[i] = px;
+				outY[i] = py;
+				if (outZ != null)
+					outZ[i] = pz;
+			}
+
+		});
+	}
+
+	/**
+	 * @param points
+	 *            Source points as <code>{ x, y }</code> or
+	 *            <code>{ x, y, z }</code>. The iterator is consumed by the
+	 *            writer thread; the returned array is read before the next
+	 *            call, so it can be reused.
+	 * @param listener
+	 *            Receiver of the target points
+	 * @return Number of points transformed
+	 */
+	public synchronized long transform(Iterator<double[]> points, GDALTransformListener listener) throws Exception {
+		return this.run(points, listener);
+	}
+
+	private long run(final Iterator<double[]> points, GDALTransformListener listener) throws Exception {
+		this.start();
+		final long[] written = { 0 };
+		final Object lock = new Object();
+		final boolean[] finished = { false };
+		final Writer in = this.stdin;
+		final boolean closeAfter = !this.lineBuffered;
+		Future<?> f = this.writer.submit(new Runnable() {
+
+			public void run() {
+				StringBuilder sb = new StringBuilder(64);
+				try {
+					while (points.hasNext()) {
+						double[] p = points.next();
+						sb.setLength(0);
+						sb.append(p[0]).append(' ').append(p[1]);
+						if (p.length > 2)
+							sb.append(' ').append(p[2]);
+						sb.append('\n');
+						in.write(sb.toString());
+						synchronized (lock) {
+							written[0]++;
+							lock.notifyAll();
+						}
+					}
+					if (closeAfter)
+						in.close();
+					else
+						in.flush();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				} finally {
+					synchronized (lock) {
+						finished[0] = true;
+						lock.notifyAll();
+					}
+				}
+			}
+
+		});
+		long read = 0;
+		try {
+			while (true) {
+				synchronized (lock) {
+					while (!finished[0] && read >= written[0])
+						lock.wait();
+					if (finished[0] && read >= written[0])
+						break;
+				}
+				String s = this.stdout.readLine();
+				if (s == null) {
+					synchronized (lock) {
+						if (finished[0] && read >= written[0])
+							break;
+					}
+					throw new Exception("gdaltransform exited unexpectedly" + (this.lastError == null ? "." : ": " + this.lastError));
+				}
+				this.parse(read++, s, listener);
+			}
+			f.get();
+		} catch (ExecutionException e) {
+			this.kill();
+			throw new Exception("Can't write to gdaltransform.", e.getCause());
+		} catch (Exception e) {
+			f.cancel(true);
+			this.kill();
+			throw e;
+		}
+		if (closeAfter)
+			this.stop();
+		return read;
+	}
+
+	private void parse(long index, String s, GDALTransformListener listener) {
+		double[] p = { Double.NaN, Double.NaN, Double.NaN };
+		int from = 0;
+		for (int i = 0; i < 3 && from < s.length(); i++) {
+			int to = s.indexOf(' ', from);
+			if (to < 0)
+				to = s.length();
+			try {
+				p[i] = Double.parseDouble(s.substring(from, to));
+			} catch (NumberFormatException e) {
+				// "transformation failed."
+				p[0] = p[1] = p[2] = Double.NaN;
+				break;
+			}
+			from = to + 1;
+		}
+		listener.point(index, p[0], p[1], p[2]);
+	}
+
+	/**
+	 * Launch gdaltransform, if it's not running yet.
+	 */
+	public synchronized void start() throws Exception {
+		if (this.process != null)
+			return;
+		List<String> a = new ArrayList<String>();
+		if (this.lineBuffered) {
+			a.add(STDBUF);
+			a.add("-oL");
+		}
+		a.addAll(this.transform.copy(null, null).getArguments());
+		this.process = new ProcessBuilder(a).start();
+		this.stdin = new BufferedWriter(new OutputStreamWriter(this.process.getOutputStream()), 65536);
+		this.stdout = new BufferedReader(new InputStreamReader(this.process.getInputStream()), 65536);
+		new GDALStreamReader(this.process.getErrorStream(), new GDALListener() {
+
+			public void output(String line) {
+			}
+
+			public void error(String line) {
+				lastError = line;
+			}
+
+		}, true).start();
+	}
+
+	/**
+	 * Close the standard input and wait for gdaltransform to exit.
+	 */
+	private void stop() throws Exception {
+		if (this.process == null)
+			return;
+		try {
+			this.stdin.close();
+			this.process.waitFor();
+		} finally {
+			this.stdout.close();
+			this.process = null;
+		}
+	}
+
+	private void kill() {
+		if (this.process == null)
+			return;
+		ProcessUtils.destroyTree(this.process);
+		this.process = null;
+	}
+
+	/**
+	 * Stop gdaltransform and the writer thread.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			this.stop();
+		} catch (IOException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			this.kill();
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			this.kill();
+		} finally {
+			this.writer.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if gdaltransform runs through
+	 *         <code>stdbuf -oL</code> and is kept alive between batches
+	 */
+	public boolean isLineBuffered() {
+		return lineBuffered;
+	}
+
+	/**
+	 * @param lineBuffered
+	 *            <code>false</code> to launch a new process for each batch
+	 *            even if <code>stdbuf</code> is available
+	 */
+	public synchronized void lineBuffered(boolean lineBuffered) {
+		if (this.process != null)
+			throw new IllegalStateException("The session is already running.");
+		this.lineBuffered = lineBuffered && STDBUF != null;
+	}
+
+	private static String findStdbuf() {
+		String path = System.getenv("PATH");
+		if (path == null)
+			return null;
+		for (String dir : path.split(File.pathSeparator)) {
+			File f = new File(dir, "stdbuf");
+			if (f.isFile())
+				return f.getPath();
+		}
+		return null;
+	}
+
+}
\ No newline at end of file
@@ -20,8 +20,10 @@
  */
 package org.geobricks.gdal.gdal2tiles;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.PROFILE;
 import org.geobricks.gdal.constant.RESAMPLING;
 import org.geobricks.gdal.constant.WEBVIEWER;
@@ -313,68 +315,104 @@ public class GDAL2Tiles extends GDAL {
 		this.skipOpenLayers = skipOpenLayers;
 	}
 
+	/**
+	 * A copy of this bean tiling a different file into a different directory.
+	 * Options are copied from this bean.
+	 */
 	@Override
-	public String convert() throws Exception {
+	public GDAL2Tiles copy(String inputFilepath, String outputDirectory) {
+		GDAL2Tiles g = (GDAL2Tiles) super.copy(inputFilepath, this.getOutputFilepath());
+		g.setOutputDirectory(outputDirectory);
+		return g;
+	}
+
+	@Override
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdal2tiles.py");
+		if (this.getTitle() != null && !this.getTitle().isEmpty()) {
+			a.add("--title");
+			a.add(this.getTitle());
+		}
+		if (this.getPublishURL() != null && !this.getPublishURL().isEmpty()) {
+			a.add("--url");
+			a.add(this.getPublishURL());
 		}
-
-		// GDALDEMSlope specific
-		this.getSB().append("gdal2tiles.py ");
-		if (this.getTitle() != null && this.getTitle().isEmpty())
-			this.getSB().append("-title ").append(this.getTitle()).append(" ");
-		if (this.getPublishURL() != null && this.getPublishURL().isEmpty())
-			this.getSB().append("-publishurl ").append(this.getPublishURL()).append(" ");
-		if (this.skipGoogleMaps())
-			this.getSB().append("-nogooglemaps ");
-		if (this.skipOpenLayers())
-			this.getSB().append("-noopenlayers ");
 		if (this.skipKML())
-			this.getSB().append("-nokml ");
-		if (this.getGoogleKey() != null && this.getGoogleKey().isEmpty())
-			this.getSB().append("-googlemapskey ").append(this.getGoogleKey()).append(" ");
+			a.add("--no-kml");
+		if (this.getGoogleKey() != null && !this.getGoogleKey().isEmpty()) {
+			a.add("--googlekey");
+			a.add(this.getGoogleKey());
+		}
+		if (this.getYahooKey() != null && !this.getYahooKey().isEmpty()) {
+			a.add("--yahookey");
+			a.add(this.getYahooKey());
+		}
 		if (this.forceKML())
-			this.getSB().append("-forcekml ");
+			a.add("--force-kml");
 		if (this.verbose())
-			this.getSB().append("-v ");
-		if (this.getProfile() != null)
-			this.getSB().append("-p ").append(this.getProfile().name()).append(" ");
-		if (this.getResampling() != null)
-			this.getSB().append("-r ").append(this.getResampling().name()).append(" ");
-		if (this.getSpatialReferenceSystem() != null && this.getSpatialReferenceSystem().isEmpty())
-			this.getSB().append("-s ").append(this.getSpatialReferenceSystem()).append(" ");
-		if (this.getZoom() != null && this.getZoom().isEmpty())
-			this.getSB().append("-z ").append(this.getZoom()).append(" ");
+			a.add("--verbose");
+		if (this.getProfile() != null) {
+			a.add("--profile");
+			a.add(this.getProfile().name());
+		}
+		if (this.getResampling() != null) {
+			a.add("--resampling");
+			a.add(this.getResampling().name());
+		}
+		if (this.getSpatialReferenceSystem() != null && !this.getSpatialReferenceSystem().isEmpty()) {
+			a.add("--s_srs");
+			a.add(this.getSpatialReferenceSystem());
+		}
+		if (this.getZoom() != null && !this.getZoom().isEmpty()) {
+			a.add("--zoom");
+			a.add(this.getZoom());
+		}
 		if (this.resume())
-			this.getSB().append("-e ");
+			a.add("--resume");
+		if (this.getNoData() != null && !this.getNoData().isEmpty()) {
+			a.add("--srcnodata");
+			a.add(this.getNoData());
+		}
 		if (this.help())
-			this.getSB().append("-h ");
+			a.add("--help");
 		if (this.version())
-			this.getSB().append("--version ");
-		if (this.getWebViewer() != null)
-			this.getSB().append("-w ").append(this.getWebViewer().name()).append(" ");
-		if (this.getCopyright() != null && this.getCopyright().isEmpty())
-			this.getSB().append("-c ").append(this.getCopyright()).append(" ");
-		
-		if (this.getInputFilepath() != null && this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add("--version");
+		if (this.getWebViewer() != null) {
+			a.add("--webviewer");
+			a.add(this.getWebViewer().name());
+		} else if (this.skipGoogleMaps() && this.skipOpenLayers()) {
+			a.add("--webviewer");
+			a.add("none");
+		} else if (this.skipGoogleMaps()) {
+			a.add("--webviewer");
+			a.add("openlayers");
+		} else if (this.skipOpenLayers()) {
+			a.add("--webviewer");
+			a.add("google");
+		}
+		if (this.getCopyright() != null && !this.getCopyright().isEmpty()) {
+			a.add("--copyright");
+			a.add(this.getCopyright());
+		}
+		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
+			a.add(this.getInputFilepath());
 		} else {
-			throw new Exception("No inout file has been defined.");
+			throw new Exception("No input file has been defined.");
 		}
-		if (this.getOutputDirectory() != null && this.getOutputDirectory().isEmpty()) 
-			this.getSB().append(this.getOutputDirectory()).append(" ");		
+		if (this.getOutputDirectory() != null && !this.getOutputDirectory().isEmpty())
+			a.add(this.getOutputDirectory());
 
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.gdal2tiles;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geobricks.catalog.Footprint;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALResult;
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.info.GDALInfo;
+import org.geobricks.gdal.info.GDALInfoParser;
+import org.geobricks.gdal.info.RasterInfo;
+import org.geobricks.gdal.warp.GDALWarp;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Keeps a gdal2tiles.py pyramid of a mosaic up to date by rendering
+ *         again only the tiles whose sources changed. The pyramid has a
+ *         <code>TileManifest</code> in its output directory: after a full run,
+ *         <code>index</code> records the fingerprints of the sources and of
+ *         the tiles they cover, at every level; <code>update</code> then takes
+ *         the changed and deleted sources, computes the tiles whose
+ *         fingerprint changes, ancestors included since a source covers them
+ *         too, and renders those tiles only, grouped per level in ranges cut
+ *         from the input.
+ * 
+ *         Source extents are converted to the spatial reference of the
+ *         profile in closed form between EPSG:4326 and EPSG:3857, through
+ *         gdalwarp and gdalinfo otherwise. The raster profile is not
+ *         supported.
+ * 
+ */
+public class GDAL2TilesIncremental {
+
+	public static final String MANIFEST = "tiles.manifest";
+
+	private static final double RADIUS = 6378137;
+
+	private static final double MAX_LATITUDE = 85.0511287798;
+
+	private GDALExecutor executor;
+
+	private GDAL2TilesSharder sharder;
+
+	public GDAL2TilesIncremental(GDALExecutor executor) {
+		this.executor = executor;
+		this.sharder = new GDAL2TilesSharder(executor);
+	}
+
+	/**
+	 * @return The manifest of the pyramid of the bean
+	 */
+	public static File getManifestFile(GDAL2Tiles g) {
+		return new File(g.getOutputDirectory(), MANIFEST);
+	}
+
+	/**
+	 * Record the fingerprints of a pyramid just built from the sources,
+	 * replacing the previous manifest.
+	 */
+	public void index(GDAL2Tiles g, Collection<Footprint> sources) throws Exception {
+		int[] zoom = GDAL2TilesSharder.parseZoom(g.getZoom());
+		PROFILE profile = checkProfile(g);
+		File manifest = getManifestFile(g);
+		manifest.delete();
+		TileManifest m = TileManifest.load(manifest);
+		File work = this.sharder.createWorkingDirectory(new File(GDAL2TilesSharder.checkOutput(g)));
+		try {
+			int i = 0;
+			for (Footprint f : sources) {
+				long fp = fingerprint(f);
+				double[] e = this.toProfile(f, profile, new File(work, "source" + i++ + ".vrt").getPath());
+				m.putSource(f.getFilepath(), fp, e);
+				for (int z = zoom[0]; z <= zoom[1]; z++)
+					for (long key : tiles(profile, e, z))
+						m.add(key, fp);
+			}
+		} finally {
+			GDALUtils.delete(work);
+		}
+		m.save();
+	}
+
+	/**
+	 * Render again the tiles of the changed and deleted sources and update
+	 * the manifest.
+	 * 
+	 * @param changed
+	 *            New and modified sources
+	 * @param deleted
+	 *            Paths of the deleted sources
+	 * @return Outcome of every process
+	 */
+	public List<GDALResult> update(GDAL2Tiles g, Collection<Footprint> changed, Collection<String> deleted) throws Exception {
+		int[] zoom = GDAL2TilesSharder.parseZoom(g.getZoom());
+		PROFILE profile = checkProfile(g);
+		File output = new File(GDAL2TilesSharder.checkOutput(g));
+		TileManifest m = TileManifest.load(getManifestFile(g));
+		File work = this.sharder.createWorkingDirectory(output);
+		List<GDALResult> results = new ArrayList<GDALResult>();
+		try {
+			List<double[]> extents = new ArrayList<double[]>();
+			Set<Long> dirty = this.plan(m, profile, zoom, changed, deleted, extents, work);
+			if (!dirty.isEmpty()) {
+				String warped = new File(work, "warped.vrt").getPath();
+				RasterInfo info = this.sharder.warp(g, profile, null, null, warped, results);
+				List<GDAL2TilesSharder.Shard> shards = new ArrayList<GDAL2TilesSharder.Shard>();
+				for (int z = zoom[0]; z <= zoom[1]; z++) {
+					int n = 0;
+					for (int[] r : merge(profile, extents, z)) {
+						GDAL2TilesSharder.Shard s = this.sharder.levelShard(g, z, r, info, warped, work.getPath(), "level" + z + "_" + n++);
+						s.setOnly(dirty);
+						shards.add(s);
+					}
+				}
+				this.sharder.run(shards, output, results);
+			}
+			m.save();
+		} finally {
+			GDALUtils.delete(work);
+		}
+		return results;
+	}
+
+	/**
+	 * Apply the changed and deleted sources to the manifest in memory. The
+	 * fingerprint of a tile is the sum of the fingerprints of its sources,
+	 * so the tiles to render are the ones whose sum changes.
+	 * 
+	 * @param extents
+	 *            Receives the old and new extents of the sources, in the
+	 *            spatial reference of the profile
+	 * @return Keys of the tiles whose fingerprint changed
+	 */
+	Set<Long> plan(TileManifest m, PROFILE profile, int[] zoom, Collection<Footprint> changed, Collection<String> deleted, List<double[]> extents, File work) throws Exception {
+		Map<Long, Long> deltas = new HashMap<Long, Long>();
+		for (String path : deleted) {
+			double[] e = m.getSourceExtent(path);
+			if (e == null)
+				continue;
+			contribute(deltas, profile, zoom, e, -m.getSourceFingerprint(path));
+			extents.add(e);
+			m.removeSource(path);
+		}
+		int i = 0;
+		for (Footprint f : changed) {
+			long fp = fingerprint(f);
+			if (fp == m.getSourceFingerprint(f.getFilepath()))
+				continue;
+			double[] old = m.getSourceExtent(f.getFilepath());
+			if (old != null) {
+				contribute(deltas, profile, zoom, old, -m.getSourceFingerprint(f.getFilepath()));
+				extents.add(old);
+			}
+			double[] e = this.toProfile(f, profile, new File(work, "source" + i++ + ".vrt").getPath());
+			contribute(deltas, profile, zoom, e, fp);
+			extents.add(e);
+			m.putSource(f.getFilepath(), fp, e);
+		}
+		Set<Long> dirty = new HashSet<Long>();
+		for (Map.Entry<Long, Long> d : deltas.entrySet()) {
+			if (d.getValue() != 0)
+				dirty.add(d.getKey());
+			m.add(d.getKey(), d.getValue());
+		}
+		return dirty;
+	}
+
+	private static PROFILE checkProfile(GDAL2Tiles g) throws Exception {
+		PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+		if (profile == PROFILE.raster)
+			throw new Exception("Tiles of the raster profile can't be updated incrementally.");
+		return profile;
+	}
+
+	private static void contribute(Map<Long, Long> deltas, PROFILE profile, int[] zoom, double[] extent, long fingerprint) {
+		for (int z = zoom[0]; z <= zoom[1]; z++) {
+			for (long key : tiles(profile, extent, z)) {
+				Long d = deltas.get(key);
+				deltas.put(key, d == null ? fingerprint : d + fingerprint);
+			}
+		}
+	}
+
+	/**
+	 * @return Keys of the tiles of the level covering the extent
+	 */
+	static long[] tiles(PROFILE profile, double[] extent, int z) {
+		int[] r = clamp(profile, GDAL2TilesSharder.tileRange(profile, extent, z), z);
+		if (r == null)
+			return new long[0];
+		long[] keys = new long[(r[2] - r[0] + 1) * (r[3] - r[1] + 1)];
+		int i = 0;
+		for (int x = r[0]; x <= r[2]; x++)
+			for (int y = r[1]; y <= r[3]; y++)
+				keys[i++] = GDALUtils.tileKey(z, x, y);
+		return keys;
+	}
+
+	private static int[] clamp(PROFILE profile, int[] r, int z) {
+		int columns = profile == PROFILE.geodetic ? 2 << z : 1 << z;
+		int[] c = { Math.max(0, r[0]), Math.max(0, r[1]), Math.min(columns - 1, r[2]), Math.min((1 << z) - 1, r[3]) };
+		return c[0] > c[2] || c[1] > c[3] ? null : c;
+	}
+
+	/**
+	 * @return Tile ranges of the level covering the extents, overlapping or
+	 *         adjacent ranges merged
+	 */
+	static List<int[]> merge(PROFILE profile, List<double[]> extents, int z) {
+		List<int[]> ranges = new ArrayList<int[]>();
+		for (double[] e : extents) {
+			int[] r = clamp(profile, GDAL2TilesSharder.tileRange(profile, e, z), z);
+			if (r != null)
+				ranges.add(r);
+		}
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			for (int i = 0; i < ranges.size() && !merged; i++) {
+				for (int j = i + 1; j < ranges.size() && !merged; j++) {
+					int[] a = ranges.get(i), b = ranges.get(j);
+					if (a[0] <= b[2] + 1 && b[0] <= a[2] + 1 && a[1] <= b[3] + 1 && b[1] <= a[3] + 1) {
+						ranges.set(i, new int[] { Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3]) });
+						ranges.remove(j);
+						merged = true;
+					}
+				}
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * @return Fingerprint of a source, of its path, modification time and
+	 *         extent
+	 */
+	static long fingerprint(Footprint f) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(f.getFilepath().getBytes("UTF-8"));
+			ByteBuffer b = ByteBuffer.allocate(40);
+			b.putLong(f.getLastModified()).putDouble(f.getMinX()).putDouble(f.getMinY()).putDouble(f.getMaxX()).putDouble(f.getMaxY());
+			md.update(b.array());
+			long fp = ByteBuffer.wrap(md.digest()).getLong();
+			return fp == 0 ? 1 : fp;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return Extent of the source in the spatial reference of the profile
+	 */
+	double[] toProfile(Footprint f, PROFILE profile, String vrt) throws Exception {
+		boolean mercator = isMercator(f.getEPSG());
+		double[] e = { f.getMinX(), f.getMinY(), f.getMaxX(), f.getMaxY() };
+		if (profile == PROFILE.mercator && mercator || profile == PROFILE.geodetic && f.getEPSG() == 4326)
+			return e;
+		if (profile == PROFILE.mercator && f.getEPSG() == 4326) {
+			return new double[] { Math.toRadians(e[0]) * RADIUS, latitudeToY(e[1]), Math.toRadians(e[2]) * RADIUS, latitudeToY(e[3]) };
+		}
+		if (profile == PROFILE.geodetic && mercator) {
+			return new double[] { Math.toDegrees(e[0] / RADIUS), yToLatitude(e[1]), Math.toDegrees(e[2] / RADIUS), yToLatitude(e[3]) };
+		}
+		GDALWarp w = new GDALWarp(f.getFilepath(), vrt);
+		w.setOutputSpatialReference(profile == PROFILE.mercator ? "EPSG:3857" : "EPSG:4326");
+		w.setOutputFormat(FORMAT.VRT);
+		w.overwrite(true);
+		GDALUtils.check(this.executor.execute(w));
+		GDALInfo gi = new GDALInfo();
+		gi.setInputFilepath(vrt);
+		GDALInfoParser parser = new GDALInfoParser();
+		GDALUtils.check(this.executor.submit(gi, parser));
+		double[] extent = parser.getInfo().getExtent();
+		if (extent == null)
+			throw new Exception("Can't compute the extent of " + f.getFilepath() + " in the profile.");
+		return extent;
+	}
+
+	private static boolean isMercator(int epsg) {
+		return epsg == 3857 || epsg == 900913 || epsg == 3785 || epsg == 102100 || epsg == 102113;
+	}
+
+	private static double latitudeToY(double latitude) {
+		double l = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+		return RADIUS * Math.log(Math.tan(Math.PI / 4 + Math.toRadians(l) / 2));
+	}
+
+	private static double yToLatitude(double y) {
+		return Math.toDegrees(2 * Math.atan(Math.exp(y / RADIUS)) - Math.PI / 2);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,637 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.gdal2tiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALResult;
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.constant.WEBVIEWER;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.gdal.info.GDALInfo;
+import org.geobricks.gdal.info.GDALInfoParser;
+import org.geobricks.gdal.info.RasterInfo;
+import org.geobricks.gdal.translate.GDALTranslate;
+import org.geobricks.gdal.translate.SubWindowCorners;
+import org.geobricks.gdal.warp.GDALWarp;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Runs gdal2tiles.py as several concurrent processes, called shards.
+ *         The deepest zoom levels, where most of the tiles are, are split in
+ *         regions aligned to the tiles of the split level, the first level
+ *         with at least as many tiles as regions; each region is cut from a
+ *         VRT of the input warped to the profile and tiled from the split
+ *         level down. The levels above the split level are tiled one per
+ *         shard from the input.
+ * 
+ *         Every shard writes in its own directory, with a margin around its
+ *         region, and only the tiles of its region are moved to the output,
+ *         so tiles on the borders of the regions are complete. Shards write
+ *         no viewer; a last gdal2tiles run with <code>--resume</code> over
+ *         the output skips the existing tiles and writes the viewer, the KML
+ *         and tilemapresource.xml once.
+ * 
+ *         With the raster profile the tiles depend on the size of the input,
+ *         so only the zoom levels are sharded.
+ * 
+ *         <code>refresh</code> renders again only the tiles over a changed
+ *         window of the input, with a shard per level.
+ * 
+ */
+public class GDAL2TilesSharder {
+
+	private static final double ORIGIN_SHIFT = Math.PI * 6378137;
+
+	/**
+	 * Files written by gdal2tiles.py for each tile
+	 */
+	private static final String[] TILE_EXTENSIONS = { ".png", ".kml" };
+
+	private GDALExecutor executor;
+
+	private int regions;
+
+	private String workingDirectory;
+
+	/**
+	 * @param executor
+	 *            Executor of the processes, the deepest levels are split in as
+	 *            many regions as the processes it runs concurrently
+	 */
+	public GDAL2TilesSharder(GDALExecutor executor) {
+		this.executor = executor;
+		this.regions = executor.getMaxProcesses();
+	}
+
+	/**
+	 * @param g
+	 *            gdal2tiles bean, with an output directory and a zoom range
+	 * @return Outcome of every process
+	 * @throws Exception
+	 *             If a process fails
+	 */
+	public List<GDALResult> execute(GDAL2Tiles g) throws Exception {
+		int[] zoom = parseZoom(g.getZoom());
+		File output = new File(checkOutput(g));
+		File work = this.createWorkingDirectory(output);
+		List<GDALResult> results = new ArrayList<GDALResult>();
+		try {
+			PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+			RasterInfo info = null;
+			String warped = null;
+			if (profile != PROFILE.raster) {
+				warped = new File(work, "warped.vrt").getPath();
+				info = this.warp(g, profile, null, null, warped, results);
+			}
+			this.run(this.plan(g, zoom[0], zoom[1], info, warped, work.getPath()), output, results);
+			GDAL2Tiles last = g.copy(g.getInputFilepath(), g.getOutputDirectory());
+			last.resume(true);
+			results.add(GDALUtils.check(this.executor.execute(last)));
+		} finally {
+			GDALUtils.delete(work);
+		}
+		return results;
+	}
+
+	/**
+	 * Render again, at every level, the tiles of an existing output over a
+	 * window of the input, for instance where a scene of a mosaic changed.
+	 * Every level is a shard cut around the tiles covering the window, so
+	 * the ancestors of the changed tiles are rendered from the input too.
+	 * Tiles of the window that are not rendered any more, because the input
+	 * has no data there now, are deleted.
+	 * 
+	 * @param g
+	 *            gdal2tiles bean that made the output, with its zoom range
+	 * @param extents
+	 *            Changed window, in the spatial reference of the input
+	 * @return Outcome of every process
+	 * @throws Exception
+	 *             If a process fails
+	 */
+	public List<GDALResult> refresh(GDAL2Tiles g, GeoreferencedExtents extents) throws Exception {
+		int[] zoom = parseZoom(g.getZoom());
+		File output = new File(checkOutput(g));
+		PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+		if (profile == PROFILE.raster)
+			throw new Exception("Tiles of the raster profile can't be refreshed by window.");
+		File work = this.createWorkingDirectory(output);
+		List<GDALResult> results = new ArrayList<GDALResult>();
+		try {
+			String srs = g.getSpatialReferenceSystem();
+			if (srs == null) {
+				GDALInfo gi = new GDALInfo();
+				gi.setInputFilepath(g.getInputFilepath());
+				GDALInfoParser parser = new GDALInfoParser();
+				results.add(GDALUtils.check(this.executor.submit(gi, parser)));
+				srs = parser.getInfo().getSpatialReference();
+			}
+			String warped = new File(work, "warped.vrt").getPath();
+			RasterInfo info = this.warp(g, profile, null, null, warped, results);
+			RasterInfo changed = this.warp(g, profile, extents, srs, new File(work, "changed.vrt").getPath(), results);
+			this.run(this.planRefresh(g, zoom[0], zoom[1], info, changed.getExtent(), warped, work.getPath()), output, results);
+		} finally {
+			GDALUtils.delete(work);
+		}
+		return results;
+	}
+
+	static String checkOutput(GDAL2Tiles g) throws Exception {
+		if (g.getOutputDirectory() == null || g.getOutputDirectory().isEmpty())
+			throw new Exception("Sharded tiling needs an output directory.");
+		return g.getOutputDirectory();
+	}
+
+	/**
+	 * @return A new directory, unique to this run, inside the working
+	 *         directory or, by default, inside the output directory. It is
+	 *         the only directory deleted when the run ends.
+	 */
+	File createWorkingDirectory(File output) throws IOException {
+		File parent = this.getWorkingDirectory() != null ? new File(this.getWorkingDirectory()) : output;
+		if (!parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Can't create " + parent + ".");
+		File work = File.createTempFile(".shards", "", parent);
+		if (!work.delete() || !work.mkdir())
+			throw new IOException("Can't create " + work + ".");
+		return work;
+	}
+
+	/**
+	 * Warp the input to the spatial reference of the profile in a VRT.
+	 * 
+	 * @param extents
+	 *            Window of the VRT, <code>null</code> for the whole input
+	 * @param extentsSRS
+	 *            Spatial reference of the window
+	 * @return Description of the VRT
+	 */
+	RasterInfo warp(GDAL2Tiles g, PROFILE profile, GeoreferencedExtents extents, String extentsSRS, String vrt, List<GDALResult> results) throws Exception {
+		GDALWarp w = new GDALWarp(g.getInputFilepath(), vrt);
+		w.setInputSpatialReference(g.getSpatialReferenceSystem());
+		w.setOutputSpatialReference(profile == PROFILE.mercator ? "EPSG:3857" : "EPSG:4326");
+		w.setGeoreferencedExtents(extents);
+		if (extents != null)
+			w.setGeoreferencedExtentsSpatialReference(extentsSRS);
+		w.setOutputFormat(FORMAT.VRT);
+		w.overwrite(true);
+		results.add(GDALUtils.check(this.executor.execute(w)));
+		GDALInfo gi = new GDALInfo();
+		gi.setInputFilepath(vrt);
+		GDALInfoParser parser = new GDALInfoParser();
+		results.add(GDALUtils.check(this.executor.submit(gi, parser)));
+		return parser.getInfo();
+	}
+
+	/**
+	 * Run the shards concurrently and move their tiles to the output.
+	 */
+	void run(List<Shard> shards, File output, List<GDALResult> results) throws Exception {
+		List<Future<GDALResult>> futures = new ArrayList<Future<GDALResult>>();
+		try {
+			for (Shard s : shards) {
+				if (s.getCut() != null)
+					results.add(GDALUtils.check(this.executor.execute(s.getCut())));
+				futures.add(this.executor.execute(s.getTiles()));
+			}
+			for (Future<GDALResult> f : futures)
+				results.add(GDALUtils.check(f));
+		} finally {
+			for (Future<GDALResult> f : futures)
+				f.cancel(true);
+		}
+		for (Shard s : shards)
+			s.move(output);
+	}
+
+	/**
+	 * Split the job in shards, without running anything.
+	 * 
+	 * @param g
+	 *            gdal2tiles bean
+	 * @param minZoom
+	 *            First level
+	 * @param maxZoom
+	 *            Last level
+	 * @param info
+	 *            Description of <code>warped</code>, <code>null</code> to
+	 *            shard the zoom levels only
+	 * @param warped
+	 *            Input warped to the SRS of the profile
+	 * @param directory
+	 *            Directory of the shards
+	 */
+	public List<Shard> plan(GDAL2Tiles g, int minZoom, int maxZoom, RasterInfo info, String warped, String directory) throws Exception {
+		PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+		double[] extent = info == null ? null : info.getExtent();
+		int split = maxZoom + 1;
+		if (extent != null && profile != PROFILE.raster) {
+			split = maxZoom;
+			for (int z = minZoom; z <= maxZoom; z++) {
+				int[] r = tileRange(profile, extent, z);
+				if ((long) (r[2] - r[0] + 1) * (r[3] - r[1] + 1) >= this.regions) {
+					split = z;
+					break;
+				}
+			}
+		}
+		List<Shard> shards = new ArrayList<Shard>();
+		for (int z = minZoom; z < split; z++) {
+			GDAL2Tiles t = this.shard(g, g.getInputFilepath(), new File(directory, "z" + z).getPath(), z, z);
+			shards.add(new Shard(t, null, z, z, null));
+		}
+		if (split > maxZoom)
+			return shards;
+		int[] range = tileRange(profile, extent, split);
+		List<int[]> parts = partition(range, this.regions);
+		double margin = 2 * Math.max(Math.abs(info.getPixelWidth()), Math.abs(info.getPixelHeight()));
+		for (int i = 0; i < parts.size(); i++) {
+			int[] p = parts.get(i);
+			double[] b = tileBounds(profile, split, p);
+			double minX = p[0] == range[0] ? extent[0] : Math.max(extent[0], b[0] - margin);
+			double minY = p[1] == range[1] ? extent[1] : Math.max(extent[1], b[1] - margin);
+			double maxX = p[2] == range[2] ? extent[2] : Math.min(extent[2], b[2] + margin);
+			double maxY = p[3] == range[3] ? extent[3] : Math.min(extent[3], b[3] + margin);
+			String cut = new File(directory, "region" + i + ".vrt").getPath();
+			GDALTranslate t = new GDALTranslate(warped, cut);
+			t.setOutputFormat(FORMAT.VRT);
+			t.setSubWindowCorners(new SubWindowCorners(GDALUtils.format(minX), GDALUtils.format(maxY), GDALUtils.format(maxX), GDALUtils.format(minY)));
+			GDAL2Tiles tiles = this.shard(g, cut, new File(directory, "region" + i).getPath(), split, maxZoom);
+			tiles.setSpatialReferenceSystem(null);
+			// the regions on the border of the raster also own the tiles outside the split grid
+			int[] owned = new int[] { p[0] == range[0] ? Integer.MIN_VALUE : p[0], p[1] == range[1] ? Integer.MIN_VALUE : p[1], p[2] == range[2] ? Integer.MAX_VALUE : p[2], p[3] == range[3] ? Integer.MAX_VALUE : p[3] };
+			shards.add(new Shard(tiles, t, split, maxZoom, owned));
+		}
+		return shards;
+	}
+
+	/**
+	 * Split the refresh of a window in one shard per level, without running
+	 * anything.
+	 * 
+	 * @param info
+	 *            Description of <code>warped</code>
+	 * @param changed
+	 *            Changed window, in the spatial reference of the profile
+	 * @param warped
+	 *            Input warped to the SRS of the profile
+	 * @param directory
+	 *            Directory of the shards
+	 */
+	public List<Shard> planRefresh(GDAL2Tiles g, int minZoom, int maxZoom, RasterInfo info, double[] changed, String warped, String directory) throws Exception {
+		PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+		double[] extent = info.getExtent();
+		List<Shard> shards = new ArrayList<Shard>();
+		for (int z = minZoom; z <= maxZoom; z++) {
+			int[] all = tileRange(profile, extent, z);
+			int[] r = tileRange(profile, changed, z);
+			r = new int[] { Math.max(r[0], all[0]), Math.max(r[1], all[1]), Math.min(r[2], all[2]), Math.min(r[3], all[3]) };
+			if (r[0] > r[2] || r[1] > r[3])
+				continue;
+			shards.add(this.levelShard(g, z, r, info, warped, directory, "level" + z));
+		}
+		return shards;
+	}
+
+	/**
+	 * @return Shard rendering again a range of tiles of a level, cut with a
+	 *         margin from the warped input, and replacing them in the output
+	 */
+	Shard levelShard(GDAL2Tiles g, int z, int[] range, RasterInfo info, String warped, String directory, String name) {
+		PROFILE profile = g.getProfile() == null ? PROFILE.mercator : g.getProfile();
+		double[] extent = info.getExtent();
+		double margin = 2 * Math.max(Math.abs(info.getPixelWidth()), Math.abs(info.getPixelHeight()));
+		double[] b = tileBounds(profile, z, range);
+		String cut = new File(directory, name + ".vrt").getPath();
+		GDALTranslate t = new GDALTranslate(warped, cut);
+		t.setOutputFormat(FORMAT.VRT);
+		t.setSubWindowCorners(new SubWindowCorners(GDALUtils.format(Math.max(extent[0], b[0] - margin)), GDALUtils.format(Math.min(extent[3], b[3] + margin)), GDALUtils.format(Math.min(extent[2], b[2] + margin)), GDALUtils.format(Math.max(extent[1], b[1] - margin))));
+		GDAL2Tiles tiles = this.shard(g, cut, new File(directory, name).getPath(), z, z);
+		tiles.setSpatialReferenceSystem(null);
+		Shard s = new Shard(tiles, t, z, z, range);
+		s.replace = true;
+		return s;
+	}
+
+	private GDAL2Tiles shard(GDAL2Tiles g, String input, String directory, int minZoom, int maxZoom) {
+		GDAL2Tiles t = g.copy(input, directory);
+		t.setZoom(minZoom + "-" + maxZoom);
+		t.setWebViewer(WEBVIEWER.none);
+		t.resume(false);
+		return t;
+	}
+
+	/**
+	 * @return First and last level of a zoom string such as "2-5" or "10"
+	 */
+	static int[] parseZoom(String zoom) throws Exception {
+		if (zoom == null || zoom.trim().isEmpty())
+			throw new Exception("Sharded tiling needs the zoom levels.");
+		try {
+			String[] s = zoom.trim().split("-");
+			int min = Integer.parseInt(s[0].trim());
+			int max = s.length > 1 ? Integer.parseInt(s[1].trim()) : min;
+			if (min < 0 || max < min)
+				throw new Exception("Invalid zoom levels " + zoom + ".");
+			return new int[] { min, max };
+		} catch (NumberFormatException e) {
+			throw new Exception("Invalid zoom levels " + zoom + ".");
+		}
+	}
+
+	/**
+	 * @return Size of a tile of the level, in the units of the profile
+	 */
+	static double tileSize(PROFILE profile, int z) {
+		return profile == PROFILE.mercator ? 2 * ORIGIN_SHIFT / (1L << z) : 180.0 / (1L << z);
+	}
+
+	/**
+	 * @return First column, first row, last column and last row of the TMS
+	 *         tiles of the level covering the extent
+	 */
+	static int[] tileRange(PROFILE profile, double[] extent, int z) {
+		double size = tileSize(profile, z);
+		double ox = profile == PROFILE.mercator ? ORIGIN_SHIFT : 180;
+		double oy = profile == PROFILE.mercator ? ORIGIN_SHIFT : 90;
+		int x0 = (int) Math.floor((extent[0] + ox) / size);
+		int y0 = (int) Math.floor((extent[1] + oy) / size);
+		int x1 = Math.max(x0, (int) Math.ceil((extent[2] + ox) / size) - 1);
+		int y1 = Math.max(y0, (int) Math.ceil((extent[3] + oy) / size) - 1);
+		return new int[] { x0, y0, x1, y1 };
+	}
+
+	/**
+	 * @return Extent of a range of tiles of the level
+	 */
+	static double[] tileBounds(PROFILE profile, int z, int[] range) {
+		double size = tileSize(profile, z);
+		double ox = profile == PROFILE.mercator ? ORIGIN_SHIFT : 180;
+		double oy = profile == PROFILE.mercator ? ORIGIN_SHIFT : 90;
+		return new double[] { range[0] * size - ox, range[1] * size - oy, (range[2] + 1) * size - ox, (range[3] + 1) * size - oy };
+	}
+
+	/**
+	 * @return The range split in about <code>regions</code> rectangles of
+	 *         tiles, as square as possible
+	 */
+	static List<int[]> partition(int[] range, int regions) {
+		int nx = range[2] - range[0] + 1;
+		int ny = range[3] - range[1] + 1;
+		int cols = Math.max(1, Math.min(nx, (int) Math.ceil(Math.sqrt((double) regions * nx / ny))));
+		int rows = Math.max(1, Math.min(ny, (regions + cols - 1) / cols));
+		List<int[]> l = new ArrayList<int[]>();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				l.add(new int[] { range[0] + c * nx / cols, range[1] + r * ny / rows, range[0] + (c + 1) * nx / cols - 1, range[1] + (r + 1) * ny / rows - 1 });
+			}
+		}
+		return l;
+	}
+
+	private static void move(File from, File to) throws IOException {
+		if (to.exists())
+			to.delete();
+		if (from.renameTo(to))
+			return;
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] b = new byte[65536];
+				int n;
+				while ((n = in.read(b)) > 0)
+					out.write(b, 0, n);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		from.delete();
+	}
+
+	public int getRegions() {
+		return regions;
+	}
+
+	/**
+	 * @param regions
+	 *            Number of regions the deepest levels are split in
+	 */
+	public void setRegions(int regions) {
+		this.regions = Math.max(1, regions);
+	}
+
+	public String getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	/**
+	 * @param workingDirectory
+	 *            Directory where every run creates, and then deletes, its
+	 *            own subdirectory for the shards; the output directory by
+	 *            default
+	 */
+	public void setWorkingDirectory(String workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	/**
+	 * One gdal2tiles process of a sharded job.
+	 */
+	public static class Shard {
+
+		private GDAL2Tiles tiles;
+
+		private GDALTranslate cut;
+
+		private int minZoom;
+
+		private int maxZoom;
+
+		private int[] range;
+
+		private boolean replace = false;
+
+		private Set<Long> only;
+
+		private Shard(GDAL2Tiles tiles, GDALTranslate cut, int minZoom, int maxZoom, int[] range) {
+			this.tiles = tiles;
+			this.cut = cut;
+			this.minZoom = minZoom;
+			this.maxZoom = maxZoom;
+			this.range = range;
+		}
+
+		/**
+		 * @return gdal2tiles run of the shard
+		 */
+		public GDAL2Tiles getTiles() {
+			return tiles;
+		}
+
+		/**
+		 * @return gdal_translate cutting the region from the warped input,
+		 *         <code>null</code> for the shards of a single level
+		 */
+		public GDALTranslate getCut() {
+			return cut;
+		}
+
+		public int getMinZoom() {
+			return minZoom;
+		}
+
+		public int getMaxZoom() {
+			return maxZoom;
+		}
+
+		/**
+		 * @return Tiles owned by the shard at its first level: first column,
+		 *         first row, last column and last row, <code>null</code> if it
+		 *         owns all the tiles of its levels
+		 */
+		public int[] getRange() {
+			return range;
+		}
+
+		/**
+		 * @return <code>true</code> if the tile of the level belongs to the
+		 *         shard
+		 */
+		public boolean owns(int z, int x, int y) {
+			if (z < this.minZoom || z > this.maxZoom)
+				return false;
+			if (this.only != null && !this.only.contains(GDALUtils.tileKey(z, x, y)))
+				return false;
+			if (this.range == null)
+				return true;
+			int shift = z - this.minZoom;
+			return inside(x, this.range[0], this.range[2], shift) && inside(y, this.range[1], this.range[3], shift);
+		}
+
+		/**
+		 * @param only
+		 *            Keys of the tiles, among the ones of its range, the shard
+		 *            is limited to
+		 */
+		void setOnly(Set<Long> only) {
+			this.only = only;
+		}
+
+		private static boolean inside(int v, int min, int max, int shift) {
+			long lo = min == Integer.MIN_VALUE ? Long.MIN_VALUE : (long) min << shift;
+			long hi = max == Integer.MAX_VALUE ? Long.MAX_VALUE : (((long) max + 1) << shift) - 1;
+			return v >= lo && v <= hi;
+		}
+
+		/**
+		 * Move the tiles of the shard to the output directory, after deleting
+		 * the ones it owns there if it replaces them.
+		 */
+		private void move(File output) throws IOException {
+			if (this.replace)
+				this.clear(output);
+			File root = new File(this.tiles.getOutputDirectory());
+			for (int z = this.minZoom; z <= this.maxZoom; z++) {
+				File[] columns = new File(root, String.valueOf(z)).listFiles();
+				if (columns == null)
+					continue;
+				for (File column : columns) {
+					int x;
+					try {
+						x = Integer.parseInt(column.getName());
+					} catch (NumberFormatException e) {
+						continue;
+					}
+					File[] files = column.listFiles();
+					if (files == null)
+						continue;
+					File target = new File(output, z + File.separator + x);
+					for (File f : files) {
+						String name = f.getName();
+						int dot = name.indexOf('.');
+						int y;
+						try {
+							y = Integer.parseInt(dot < 0 ? name : name.substring(0, dot));
+						} catch (NumberFormatException e) {
+							continue;
+						}
+						if (!this.owns(z, x, y))
+							continue;
+						if (!target.isDirectory() && !target.mkdirs())
+							throw new IOException("Can't create " + target + ".");
+						GDAL2TilesSharder.move(f, new File(target, name));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Delete the tiles the shard owns in the output directory. The
+		 * files are addressed by their path, either from the keys the
+		 * shard is limited to or from its range, so only the tiles being
+		 * replaced are looked at, not the whole level.
+		 */
+		void clear(File output) {
+			if (this.only != null) {
+				for (long key : this.only) {
+					int z = GDALUtils.tileZoom(key), x = GDALUtils.tileColumn(key), y = GDALUtils.tileRow(key);
+					if (this.owns(z, x, y))
+						deleteTile(output, z, x, y);
+				}
+				return;
+			}
+			if (this.range == null)
+				throw new IllegalStateException("A shard replacing tiles must have a range.");
+			for (int z = this.minZoom; z <= this.maxZoom; z++) {
+				int shift = z - this.minZoom;
+				for (long x = (long) this.range[0] << shift; x < (long) this.range[2] + 1 << shift; x++)
+					for (long y = (long) this.range[1] << shift; y < (long) this.range[3] + 1 << shift; y++)
+						deleteTile(output, z, (int) x, (int) y);
+			}
+		}
+
+		private static void deleteTile(File output, int z, int x, int y) {
+			File column = new File(output, z + File.separator + x);
+			for (String extension : TILE_EXTENSIONS)
+				new File(column, y + extension).delete();
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.gdal2tiles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Fingerprints of the sources of a pyramid and of its tiles, saved
+ *         next to the tiles. Every source has a fingerprint, of its path and
+ *         modification time, and its extent in the spatial reference of the
+ *         profile; the fingerprint of a tile is the sum of the fingerprints
+ *         of the sources over it, so a tile changes exactly when one of its
+ *         sources does, and the sum is updated without knowing the other
+ *         sources. Tiles are kept in an open addressing table of primitive
+ *         longs.
+ * 
+ */
+public class TileManifest {
+
+	private static final int MAGIC = 0x4d544247;
+
+	private static final int VERSION = 1;
+
+	private File file;
+
+	private Map<String, Source> sources = new HashMap<String, Source>();
+
+	private long[] keys = new long[1024];
+
+	private long[] values = new long[1024];
+
+	private int size = 0;
+
+	private TileManifest(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return The manifest saved in the file, empty if it doesn't exist
+	 */
+	public static TileManifest load(File file) throws IOException {
+		TileManifest m = new TileManifest(file);
+		if (!file.exists())
+			return m;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a tile manifest.");
+			if (in.readInt() > VERSION)
+				throw new IOException("Unsupported tile manifest version.");
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				String path = in.readUTF();
+				m.sources.put(path, new Source(in.readLong(), new double[] { in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble() }));
+			}
+			long tiles = in.readLong();
+			for (long i = 0; i < tiles; i++)
+				m.add(in.readLong(), in.readLong());
+		} finally {
+			in.close();
+		}
+		return m;
+	}
+
+	/**
+	 * Write the manifest to a temporary file renamed over the previous one.
+	 */
+	public void save() throws IOException {
+		File tmp = new File(this.file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.sources.size());
+			for (Map.Entry<String, Source> e : this.sources.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeLong(e.getValue().fingerprint);
+				for (double d : e.getValue().extent)
+					out.writeDouble(d);
+			}
+			out.writeLong(this.size);
+			for (int i = 0; i < this.keys.length; i++) {
+				if (this.keys[i] != 0) {
+					out.writeLong(this.keys[i] - 1);
+					out.writeLong(this.values[i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (this.file.exists() && !this.file.delete() || !tmp.renameTo(this.file))
+			throw new IOException("Can't replace " + this.file + ".");
+	}
+
+	/**
+	 * @return Fingerprint of the tile, 0 if no source covers it
+	 */
+	public long getTile(long key) {
+		int i = this.slot(key);
+		return this.keys[i] == 0 ? 0 : this.values[i];
+	}
+
+	/**
+	 * Add to the fingerprint of a tile, removing the tile when it goes back
+	 * to 0.
+	 */
+	public void add(long key, long delta) {
+		if (delta == 0)
+			return;
+		int i = this.slot(key);
+		if (this.keys[i] != 0) {
+			this.values[i] += delta;
+			if (this.values[i] == 0)
+				this.removeSlot(i);
+			return;
+		}
+		this.keys[i] = key + 1;
+		this.values[i] = delta;
+		if (++this.size * 2 > this.keys.length)
+			this.grow();
+	}
+
+	public int getTileCount() {
+		return size;
+	}
+
+	/**
+	 * @return Fingerprint of the source, 0 if the manifest doesn't have it
+	 */
+	public long getSourceFingerprint(String path) {
+		Source s = this.sources.get(path);
+		return s == null ? 0 : s.fingerprint;
+	}
+
+	/**
+	 * @return Extent of the source in the spatial reference of the profile,
+	 *         <code>null</code> if the manifest doesn't have it
+	 */
+	public double[] getSourceExtent(String path) {
+		Source s = this.sources.get(path);
+		return s == null ? null : s.extent.clone();
+	}
+
+	public void putSource(String path, long fingerprint, double[] extent) {
+		this.sources.put(path, new Source(fingerprint, extent.clone()));
+	}
+
+	public void removeSource(String path) {
+		this.sources.remove(path);
+	}
+
+	public int getSourceCount() {
+		return this.sources.size();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return Slot of the key, or the empty slot where it goes. Keys are
+	 *         stored plus one, so that 0 marks empty slots.
+	 */
+	private int slot(long key) {
+		int mask = this.keys.length - 1;
+		long h = (key + 1) * 0x9e3779b97f4a7c15L;
+		int i = (int) (h ^ h >>> 32) & mask;
+		while (this.keys[i] != 0 && this.keys[i] != key + 1)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/**
+	 * Empty a slot, moving back the following keys of its cluster.
+	 */
+	private void removeSlot(int i) {
+		int mask = this.keys.length - 1;
+		this.keys[i] = 0;
+		this.size--;
+		for (int j = (i + 1) & mask; this.keys[j] != 0; j = (j + 1) & mask) {
+			long k = this.keys[j] - 1, v = this.values[j];
+			this.keys[j] = 0;
+			int s = this.slot(k);
+			this.keys[s] = k + 1;
+			this.values[s] = v;
+		}
+	}
+
+	private void grow() {
+		long[] k = this.keys, v = this.values;
+		this.keys = new long[k.length * 2];
+		this.values = new long[k.length * 2];
+		for (int i = 0; i < k.length; i++) {
+			if (k[i] != 0) {
+				int s = this.slot(k[i] - 1);
+				this.keys[s] = k[i];
+				this.values[s] = v[i];
+			}
+		}
+	}
+
+	private static class Source {
+
+		private long fingerprint;
+
+		private double[] extent;
+
+		Source(long fingerprint, double[] extent) {
+			this.fingerprint = fingerprint;
+			this.extent = extent;
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.general;
+
+import org.geobricks.gdal.constant.FORMAT;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Capabilities of a GDAL raster driver, as listed by
+ *         <code>gdalinfo --formats</code>: 'ro' is read-only, 'rw' supports
+ *         CreateCopy, 'rw+' supports Create, 'v' supports virtual IO and 's'
+ *         supports subdatasets.
+ * 
+ */
+public class GDALDriver {
+
+	private String name;
+
+	private String longName;
+
+	private FORMAT format;
+
+	private boolean read = false;
+
+	private boolean createCopy = false;
+
+	private boolean create = false;
+
+	private boolean virtualIO = false;
+
+	private boolean subdatasets = false;
+
+	public GDALDriver() {
+		super();
+	}
+
+	public GDALDriver(String name) {
+		super();
+		this.setName(name);
+	}
+
+	/**
+	 * @return Short name of the driver, e.g. <code>GTiff</code>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return Description of the driver, e.g. <code>GeoTIFF</code>
+	 */
+	public String getLongName() {
+		return longName;
+	}
+
+	public void setLongName(String longName) {
+		this.longName = longName;
+	}
+
+	/**
+	 * @return Matching constant, <code>null</code> if the driver is not
+	 *         listed in <code>FORMAT</code>
+	 */
+	public FORMAT getFormat() {
+		return format;
+	}
+
+	public void setFormat(FORMAT format) {
+		this.format = format;
+	}
+
+	public boolean canRead() {
+		return read;
+	}
+
+	public void read(boolean read) {
+		this.read = read;
+	}
+
+	/**
+	 * @return <code>true</code> for 'rw' and 'rw+' drivers, usable by
+	 *         gdal_translate
+	 */
+	public boolean canCreateCopy() {
+		return createCopy;
+	}
+
+	public void createCopy(boolean createCopy) {
+		this.createCopy = createCopy;
+	}
+
+	/**
+	 * @return <code>true</code> for 'rw+' drivers, usable by gdalwarp
+	 */
+	public boolean canCreate() {
+		return create;
+	}
+
+	public void create(boolean create) {
+		this.create = create;
+	}
+
+	public boolean supportsVirtualIO() {
+		return virtualIO;
+	}
+
+	public void virtualIO(boolean virtualIO) {
+		this.virtualIO = virtualIO;
+	}
+
+	public boolean supportsSubdatasets() {
+		return subdatasets;
+	}
+
+	public void subdatasets(boolean subdatasets) {
+		this.subdatasets = subdatasets;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.general;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALListener;
+import org.geobricks.gdal.constant.FORMAT;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Capabilities of the drivers of the installed GDAL, parsed from the
+ *         output of <code>gdalinfo --formats</code>. The table is built once
+ *         and kept for the life of the process, so checking an output format
+ *         costs a map lookup instead of a fork.
+ * 
+ */
+public class GDALDriverTable implements GDALListener {
+
+	private static volatile GDALDriverTable instance;
+
+	private Map<String, GDALDriver> drivers = new LinkedHashMap<String, GDALDriver>();
+
+	private Map<FORMAT, GDALDriver> formats = new EnumMap<FORMAT, GDALDriver>(FORMAT.class);
+
+	/**
+	 * @param connector
+	 *            Launches <code>gdalinfo --formats</code> the first time
+	 * @return The table of the installed GDAL
+	 * @throws Exception
+	 *             If GDAL can't be launched
+	 */
+	public static GDALDriverTable getInstance(GDALConnector connector) throws Exception {
+		GDALDriverTable t = instance;
+		if (t == null) {
+			synchronized (GDALDriverTable.class) {
+				t = instance;
+				if (t == null) {
+					t = new GDALDriverTable();
+					int exitValue = connector.invoke(new GDALFormats(), t);
+					if (exitValue != 0)
+						throw new Exception("gdalinfo --formats failed with exit value " + exitValue);
+					instance = t;
+				}
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Forget the table, e.g. after GDAL has been upgraded.
+	 */
+	public static void reset() {
+		instance = null;
+	}
+
+	/**
+	 * @param lines
+	 *            Output of <code>GDALFormats</code>
+	 */
+	public static GDALDriverTable parse(List<String> lines) {
+		GDALDriverTable t = new GDALDriverTable();
+		for (String line : lines)
+			t.output(line);
+		return t;
+	}
+
+	/**
+	 * Parse a line such as <code>  GTiff -raster- (rw+vs): GeoTIFF</code>.
+	 */
+	public void output(String line) {
+		if (!line.startsWith("  "))
+			return;
+		int open = line.indexOf('(');
+		int close = line.indexOf("):", open);
+		if (open < 0 || close < 0)
+			return;
+		int end = line.indexOf(' ', 2);
+		if (end < 0 || end > open)
+			end = open;
+		String name = line.substring(2, end).trim();
+		if (name.length() == 0)
+			return;
+		GDALDriver d = new GDALDriver(name);
+		d.setLongName(line.substring(close + 2).trim());
+		for (int i = open + 1; i < close; i++) {
+			switch (line.charAt(i)) {
+			case 'r':
+				d.read(true);
+				break;
+			case 'w':
+				d.createCopy(true);
+				break;
+			case '+':
+				d.create(true);
+				break;
+			case 'v':
+				d.virtualIO(true);
+				break;
+			case 's':
+				d.subdatasets(true);
+				break;
+			}
+		}
+		try {
+			d.setFormat(FORMAT.valueOf(name));
+			this.formats.put(d.getFormat(), d);
+		} catch (IllegalArgumentException e) {
+			// driver not listed in FORMAT
+		}
+		this.drivers.put(name, d);
+	}
+
+	public void error(String line) {
+		// warnings are not part of the table
+	}
+
+	/**
+	 * @return The driver, <code>null</code> if it's not available in the
+	 *         installed GDAL
+	 */
+	public GDALDriver get(FORMAT format) {
+		return this.formats.get(format);
+	}
+
+	/**
+	 * @return The driver, <code>null</code> if it's not available in the
+	 *         installed GDAL
+	 */
+	public GDALDriver get(String name) {
+		return this.drivers.get(name);
+	}
+
+	public Collection<GDALDriver> getDrivers() {
+		return Collections.unmodifiableCollection(this.drivers.values());
+	}
+
+	/**
+	 * @param format
+	 *            Output format of a command
+	 * @param create
+	 *            <code>true</code> if the command needs Create() (rw+),
+	 *            <code>false</code> if CreateCopy() (rw) is enough
+	 * @param tool
+	 *            Name of the command, for the error message
+	 * @throws Exception
+	 *             If the driver is missing or can't write
+	 */
+	public void validate(FORMAT format, boolean create, String tool) throws Exception {
+		GDALDriver d = this.get(format);
+		if (d == null)
+			throw new Exception("The " + format.name() + " driver is not available in this GDAL build.");
+		if (create && !d.canCreate())
+			throw new Exception("The " + format.name() + " driver doesn't support Create() (rw+), required by " + tool + ".");
+		if (!d.canCreateCopy())
+			throw new Exception("The " + format.name() + " driver is read-only.");
+	}
+
+}
\ No newline at end of file
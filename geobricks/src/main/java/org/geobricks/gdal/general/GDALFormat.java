@@ -20,8 +20,10 @@
  */
 package org.geobricks.gdal.general;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.FORMAT;
 
 /**
@@ -50,25 +52,6 @@ public class GDALFormat extends GDAL {
 		this.setFormat(format);
 	}
 
-	@Override
-	public String convert() {
-		
-		this.getSB().append("gdalinfo --format ").append(this.getFormat().name());
-
-		// generic section
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
-
-		return this.getSB().toString();
-	}
-
 	public FORMAT getFormat() {
 		return format;
 	}
@@ -77,4 +60,21 @@ public class GDALFormat extends GDAL {
 		this.format = format;
 	}
 
+	@Override
+	public List<String> getArguments() {
+
+		// generic section
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdalinfo");
+		a.add("--format");
+		a.add(this.getFormat().name());
+		this.addConfigArguments(a);
+
+		return a;
+	}
+
 }
\ No newline at end of file
@@ -20,8 +20,10 @@
  */
 package org.geobricks.gdal.general;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 
 /**
  * 
@@ -48,22 +50,19 @@ public class GDALFormats extends GDAL {
 	}
 
 	@Override
-	public String convert() {
-		
-		this.getSB().append("gdalinfo --formats");
-		
+	public List<String> getArguments() {
+
 		// generic section
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdalinfo");
+		a.add("--formats");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Description of a band of a raster dataset, as reported by gdalinfo.
+ *         Values that were not reported are <code>NaN</code>.
+ * 
+ */
+public class BandInfo {
+
+	private int index;
+
+	private int blockWidth = -1;
+
+	private int blockHeight = -1;
+
+	private String type;
+
+	private String colorInterpretation;
+
+	private String description;
+
+	private boolean noDataSet = false;
+
+	private double noData = Double.NaN;
+
+	private double computedMin = Double.NaN;
+
+	private double computedMax = Double.NaN;
+
+	private double minimum = Double.NaN;
+
+	private double maximum = Double.NaN;
+
+	private double mean = Double.NaN;
+
+	private double standardDeviation = Double.NaN;
+
+	private double histogramMin = Double.NaN;
+
+	private double histogramMax = Double.NaN;
+
+	private long[] histogram;
+
+	private int[] overviewWidths;
+
+	private int[] overviewHeights;
+
+	private long checksum = -1;
+
+	public BandInfo() {
+		super();
+	}
+
+	public BandInfo(int index) {
+		super();
+		this.index = index;
+	}
+
+	/**
+	 * @return Number of overviews
+	 */
+	public int getOverviewCount() {
+		return this.overviewWidths == null ? 0 : this.overviewWidths.length;
+	}
+
+	/**
+	 * @return Band number, starting from 1
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public int getBlockWidth() {
+		return blockWidth;
+	}
+
+	public void setBlockWidth(int blockWidth) {
+		this.blockWidth = blockWidth;
+	}
+
+	public int getBlockHeight() {
+		return blockHeight;
+	}
+
+	public void setBlockHeight(int blockHeight) {
+		this.blockHeight = blockHeight;
+	}
+
+	/**
+	 * @return GDAL data type, e.g. <code>Byte</code> or <code>Float32</code>
+	 */
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * @return Color interpretation, e.g. <code>Gray</code> or
+	 *         <code>Red</code>
+	 */
+	public String getColorInterpretation() {
+		return colorInterpretation;
+	}
+
+	public void setColorInterpretation(String colorInterpretation) {
+		this.colorInterpretation = colorInterpretation;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	/**
+	 * @return <code>true</code> if the band has a no data value
+	 */
+	public boolean isNoDataSet() {
+		return noDataSet;
+	}
+
+	public double getNoData() {
+		return noData;
+	}
+
+	public void setNoData(double noData) {
+		this.noData = noData;
+		this.noDataSet = true;
+	}
+
+	/**
+	 * @return Minimum computed with the <code>-mm</code> option
+	 */
+	public double getComputedMin() {
+		return computedMin;
+	}
+
+	public void setComputedMin(double computedMin) {
+		this.computedMin = computedMin;
+	}
+
+	/**
+	 * @return Maximum computed with the <code>-mm</code> option
+	 */
+	public double getComputedMax() {
+		return computedMax;
+	}
+
+	public void setComputedMax(double computedMax) {
+		this.computedMax = computedMax;
+	}
+
+	public double getMinimum() {
+		return minimum;
+	}
+
+	public void setMinimum(double minimum) {
+		this.minimum = minimum;
+	}
+
+	public double getMaximum() {
+		return maximum;
+	}
+
+	public void setMaximum(double maximum) {
+		this.maximum = maximum;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public void setMean(double mean) {
+		this.mean = mean;
+	}
+
+	public double getStandardDeviation() {
+		return standardDeviation;
+	}
+
+	public void setStandardDeviation(double standardDeviation) {
+		this.standardDeviation = standardDeviation;
+	}
+
+	/**
+	 * @return Lower bound of the first histogram bucket
+	 */
+	public double getHistogramMin() {
+		return histogramMin;
+	}
+
+	public void setHistogramMin(double histogramMin) {
+		this.histogramMin = histogramMin;
+	}
+
+	/**
+	 * @return Upper bound of the last histogram bucket
+	 */
+	public double getHistogramMax() {
+		return histogramMax;
+	}
+
+	public void setHistogramMax(double histogramMax) {
+		this.histogramMax = histogramMax;
+	}
+
+	/**
+	 * @return Pixel count of each histogram bucket, <code>null</code> if the
+	 *         histogram was not requested
+	 */
+	public long[] getHistogram() {
+		return histogram;
+	}
+
+	public void setHistogram(long[] histogram) {
+		this.histogram = histogram;
+	}
+
+	public int[] getOverviewWidths() {
+		return overviewWidths;
+	}
+
+	public void setOverviewWidths(int[] overviewWidths) {
+		this.overviewWidths = overviewWidths;
+	}
+
+	public int[] getOverviewHeights() {
+		return overviewHeights;
+	}
+
+	public void setOverviewHeights(int[] overviewHeights) {
+		this.overviewHeights = overviewHeights;
+	}
+
+	/**
+	 * @return Checksum computed with the <code>-checksum</code> option,
+	 *         <code>-1</code> if not reported
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(long checksum) {
+		this.checksum = checksum;
+	}
+
+}
\ No newline at end of file
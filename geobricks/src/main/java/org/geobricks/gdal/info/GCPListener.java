@@ -0,0 +1,50 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Receives the ground control points parsed from the output of
+ *         gdalinfo one at a time, so that datasets with thousands of GCPs
+ *         don't need to be held in memory.
+ * 
+ */
+public interface GCPListener {
+
+	/**
+	 * @param index
+	 *            Position of the GCP in the list
+	 * @param pixel
+	 *            Pixel (column) of the GCP in the raster
+	 * @param line
+	 *            Line (row) of the GCP in the raster
+	 * @param x
+	 *            Easting of the GCP
+	 * @param y
+	 *            Northing of the GCP
+	 * @param z
+	 *            Elevation of the GCP
+	 */
+	void gcp(int index, double pixel, double line, double x, double y, double z);
+
+}
\ No newline at end of file
@@ -20,8 +20,10 @@
  */
 package org.geobricks.gdal.info;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 
 /**
  * 
@@ -86,43 +88,6 @@ public class GDALInfo extends GDAL {
 		super(script);
 	}
 
-	@Override
-	public String convert() throws Exception {
-
-		this.getSB().append("gdalinfo ");
-		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty())
-			this.getSB().append(this.getInputFilepath()).append(" ");
-		if (this.showChecksum())
-			this.getSB().append("-checksum ");
-		if (this.suppressGroundControlPoints())
-			this.getSB().append("-nogcp ");
-		if (this.showHistogram())
-			this.getSB().append("-hist ");
-		if (this.suppressMetadata())
-			this.getSB().append("-nomd ");
-		if (this.suppressColorTable())
-			this.getSB().append("-noct ");
-		if (this.forceMinMax())
-			this.getSB().append("-mm ");
-		if (this.showStatistics())
-			this.getSB().append("-stats ");
-		if (this.getDomain() != null && !this.getDomain().isEmpty())
-			this.getSB().append("-mdd " + this.getDomain());
-
-		// generic section
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
-
-		return this.getSB().toString();
-	}
-
 	private boolean forceMinMax() {
 		return minMax;
 	}
@@ -216,4 +181,39 @@ public class GDALInfo extends GDAL {
 		this.domain = domain;
 	}
 
+	@Override
+	public List<String> getArguments() throws Exception {
+
+		// generic section
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdalinfo");
+		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty())
+			a.add(this.getInputFilepath());
+		if (this.showChecksum())
+			a.add("-checksum");
+		if (this.suppressGroundControlPoints())
+			a.add("-nogcp");
+		if (this.showHistogram())
+			a.add("-hist");
+		if (this.suppressMetadata())
+			a.add("-nomd");
+		if (this.suppressColorTable())
+			a.add("-noct");
+		if (this.forceMinMax())
+			a.add("-mm");
+		if (this.showStatistics())
+			a.add("-stats");
+		if (this.getDomain() != null && !this.getDomain().isEmpty()) {
+			a.add("-mdd");
+			a.add(this.getDomain());
+		}
+		this.addConfigArguments(a);
+
+		return a;
+	}
+
 }
\ No newline at end of file
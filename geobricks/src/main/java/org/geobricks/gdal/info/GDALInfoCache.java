@@ -0,0 +1,408 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geobricks.gdal.GDALConnector;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Keeps the description of the rasters in memory, so that gdalinfo is
+ *         launched only once per file. An entry is valid as long as size and
+ *         last modification time of the file don't change. The cache is
+ *         bounded by number of entries and by estimated memory, the least
+ *         recently used entries are evicted first. It can be saved to a file
+ *         and loaded again, so that a restart doesn't start cold.
+ * 
+ *         The returned <code>RasterInfo</code> instances are shared and must
+ *         not be modified.
+ * 
+ */
+public class GDALInfoCache {
+
+	private static final int MAGIC = 0x47494331;
+
+	private GDALConnector connector;
+
+	private GDALInfo template;
+
+	private int maxEntries;
+
+	private long maxBytes;
+
+	private long bytes = 0;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	private LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	public GDALInfoCache() {
+		this(new GDALConnector(), 100000, 0);
+	}
+
+	/**
+	 * @param connector
+	 *            Launches gdalinfo on cache misses
+	 * @param maxEntries
+	 *            Maximum number of rasters, 0 for no limit
+	 * @param maxBytes
+	 *            Maximum estimated memory in bytes, 0 for no limit
+	 */
+	public GDALInfoCache(GDALConnector connector, int maxEntries, long maxBytes) {
+		this.connector = connector;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.template = new GDALInfo();
+		this.template.groundControlPoints(true);
+		this.template.metadata(true);
+	}
+
+	/**
+	 * @param filepath
+	 *            Raster file
+	 * @return Description of the raster, from the cache if the file didn't
+	 *         change, from gdalinfo otherwise
+	 * @throws Exception
+	 *             If gdalinfo fails
+	 */
+	public RasterInfo get(String filepath) throws Exception {
+		File f = new File(filepath).getAbsoluteFile();
+		String key = f.getPath();
+		long size = f.length();
+		long modified = f.lastModified();
+		synchronized (this) {
+			Entry e = this.entries.get(key);
+			if (e != null && e.size == size && e.modified == modified) {
+				this.hits++;
+				return e.info;
+			}
+			this.misses++;
+		}
+		GDALInfo g = (GDALInfo) this.template.copy(filepath, null);
+		GDALInfoParser parser = new GDALInfoParser();
+		int exitValue = this.connector.invoke(g, parser);
+		if (exitValue != 0)
+			throw new Exception("gdalinfo failed on " + filepath + " with exit value " + exitValue);
+		RasterInfo info = parser.getInfo();
+		this.put(key, new Entry(size, modified, info));
+		return info;
+	}
+
+	/**
+	 * Remove the description of a raster.
+	 */
+	public synchronized void invalidate(String filepath) {
+		Entry e = this.entries.remove(new File(filepath).getAbsolutePath());
+		if (e != null)
+			this.bytes -= e.bytes;
+	}
+
+	public synchronized void clear() {
+		this.entries.clear();
+		this.bytes = 0;
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return Estimated memory used by the descriptions, in bytes
+	 */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * @param template
+	 *            Options of the gdalinfo command launched on cache misses, by
+	 *            default GCPs and metadata are suppressed
+	 */
+	public void setTemplate(GDALInfo template) {
+		this.template = template;
+	}
+
+	public GDALInfo getTemplate() {
+		return template;
+	}
+
+	private synchronized void put(String key, Entry e) {
+		Entry old = this.entries.put(key, e);
+		if (old != null)
+			this.bytes -= old.bytes;
+		this.bytes += e.bytes;
+		Iterator<Entry> i = this.entries.values().iterator();
+		while (i.hasNext() && this.entries.size() > 1 && ((this.maxEntries > 0 && this.entries.size() > this.maxEntries) || (this.maxBytes > 0 && this.bytes > this.maxBytes))) {
+			this.bytes -= i.next().bytes;
+			i.remove();
+		}
+	}
+
+	/**
+	 * Write the cache to a file, from the least to the most recently used
+	 * entry. The file is replaced atomically. Strings such as the spatial
+	 * reference, usually shared by many rasters, are written once.
+	 */
+	public synchronized void save(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536));
+		try {
+			Map<String, Integer> strings = new HashMap<String, Integer>();
+			out.writeInt(MAGIC);
+			out.writeInt(this.entries.size());
+			for (Map.Entry<String, Entry> me : this.entries.entrySet()) {
+				Entry e = me.getValue();
+				writeString(out, me.getKey(), null);
+				out.writeLong(e.size);
+				out.writeLong(e.modified);
+				write(out, e.info, strings);
+			}
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file))
+				throw new IOException("Can't replace " + file.getPath());
+		}
+	}
+
+	/**
+	 * Add the entries saved in a file. Their validity is checked when they
+	 * are requested.
+	 */
+	public synchronized void load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file.getPath() + " is not a gdalinfo cache.");
+			int count = in.readInt();
+			List<String> strings = new ArrayList<String>();
+			for (int i = 0; i < count; i++) {
+				String key = readString(in, null);
+				long size = in.readLong();
+				long modified = in.readLong();
+				this.put(key, new Entry(size, modified, read(in, strings)));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void write(DataOutputStream out, RasterInfo info, Map<String, Integer> strings) throws IOException {
+		writeString(out, info.getDriver(), strings);
+		out.writeInt(info.getWidth());
+		out.writeInt(info.getHeight());
+		double[] g = info.getGeoTransform();
+		out.writeBoolean(g != null);
+		if (g != null)
+			for (double d : g)
+				out.writeDouble(d);
+		writeString(out, info.getSpatialReference(), strings);
+		writeString(out, info.getGcpSpatialReference(), strings);
+		out.writeInt(info.getGcpCount());
+		out.writeInt(info.getBandCount());
+		for (int i = 1; i <= info.getBandCount(); i++) {
+			BandInfo b = info.getBand(i);
+			out.writeInt(b.getIndex());
+			out.writeInt(b.getBlockWidth());
+			out.writeInt(b.getBlockHeight());
+			writeString(out, b.getType(), strings);
+			writeString(out, b.getColorInterpretation(), strings);
+			writeString(out, b.getDescription(), strings);
+			out.writeBoolean(b.isNoDataSet());
+			out.writeDouble(b.getNoData());
+			out.writeDouble(b.getComputedMin());
+			out.writeDouble(b.getComputedMax());
+			out.writeDouble(b.getMinimum());
+			out.writeDouble(b.getMaximum());
+			out.writeDouble(b.getMean());
+			out.writeDouble(b.getStandardDeviation());
+			out.writeDouble(b.getHistogramMin());
+			out.writeDouble(b.getHistogramMax());
+			out.writeLong(b.getChecksum());
+			long[] h = b.getHistogram();
+			out.writeInt(h == null ? -1 : h.length);
+			if (h != null)
+				for (long l : h)
+					out.writeLong(l);
+			out.writeInt(b.getOverviewCount());
+			for (int j = 0; j < b.getOverviewCount(); j++) {
+				out.writeInt(b.getOverviewWidths()[j]);
+				out.writeInt(b.getOverviewHeights()[j]);
+			}
+		}
+	}
+
+	private static RasterInfo read(DataInputStream in, List<String> strings) throws IOException {
+		RasterInfo info = new RasterInfo();
+		info.setDriver(readString(in, strings));
+		info.setWidth(in.readInt());
+		info.setHeight(in.readInt());
+		if (in.readBoolean()) {
+			double[] g = new double[6];
+			for (int i = 0; i < g.length; i++)
+				g[i] = in.readDouble();
+			info.setGeoTransform(g);
+		}
+		info.setSpatialReference(readString(in, strings));
+		info.setGcpSpatialReference(readString(in, strings));
+		info.setGcpCount(in.readInt());
+		int bands = in.readInt();
+		for (int i = 0; i < bands; i++) {
+			BandInfo b = new BandInfo(in.readInt());
+			b.setBlockWidth(in.readInt());
+			b.setBlockHeight(in.readInt());
+			b.setType(readString(in, strings));
+			b.setColorInterpretation(readString(in, strings));
+			b.setDescription(readString(in, strings));
+			boolean noDataSet = in.readBoolean();
+			double noData = in.readDouble();
+			if (noDataSet)
+				b.setNoData(noData);
+			b.setComputedMin(in.readDouble());
+			b.setComputedMax(in.readDouble());
+			b.setMinimum(in.readDouble());
+			b.setMaximum(in.readDouble());
+			b.setMean(in.readDouble());
+			b.setStandardDeviation(in.readDouble());
+			b.setHistogramMin(in.readDouble());
+			b.setHistogramMax(in.readDouble());
+			b.setChecksum(in.readLong());
+			int length = in.readInt();
+			if (length >= 0) {
+				long[] h = new long[length];
+				for (int j = 0; j < length; j++)
+					h[j] = in.readLong();
+				b.setHistogram(h);
+			}
+			int overviews = in.readInt();
+			if (overviews > 0) {
+				int[] w = new int[overviews];
+				int[] h = new int[overviews];
+				for (int j = 0; j < overviews; j++) {
+					w[j] = in.readInt();
+					h[j] = in.readInt();
+				}
+				b.setOverviewWidths(w);
+				b.setOverviewHeights(h);
+			}
+			info.addBand(b);
+		}
+		return info;
+	}
+
+	/**
+	 * Strings are written as <code>-1</code> for <code>null</code>, the index
+	 * of a string already written, or <code>-2</code> followed by the string.
+	 */
+	private static void writeString(DataOutputStream out, String s, Map<String, Integer> strings) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		Integer idx = strings == null ? null : strings.get(s);
+		if (idx != null) {
+			out.writeInt(idx.intValue());
+			return;
+		}
+		out.writeInt(-2);
+		out.writeUTF(s);
+		if (strings != null)
+			strings.put(s, strings.size());
+	}
+
+	private static String readString(DataInputStream in, List<String> strings) throws IOException {
+		int idx = in.readInt();
+		if (idx == -1)
+			return null;
+		if (idx >= 0)
+			return strings.get(idx);
+		String s = in.readUTF();
+		if (strings != null)
+			strings.add(s);
+		return s;
+	}
+
+	/**
+	 * @return Rough estimate of the memory held by a description
+	 */
+	private static long estimate(RasterInfo info) {
+		long bytes = 128;
+		if (info.getSpatialReference() != null)
+			bytes += 2 * info.getSpatialReference().length();
+		for (int i = 1; i <= info.getBandCount(); i++) {
+			BandInfo b = info.getBand(i);
+			bytes += 160 + 16 * b.getOverviewCount();
+			if (b.getHistogram() != null)
+				bytes += 8 * b.getHistogram().length;
+			if (b.getDescription() != null)
+				bytes += 2 * b.getDescription().length();
+		}
+		return bytes;
+	}
+
+	private static class Entry {
+
+		private long size;
+
+		private long modified;
+
+		private RasterInfo info;
+
+		private long bytes;
+
+		private Entry(long size, long modified, RasterInfo info) {
+			this.size = size;
+			this.modified = modified;
+			this.info = info;
+			this.bytes = estimate(info);
+		}
+
+	}
+
+}
\ No newline at end of file
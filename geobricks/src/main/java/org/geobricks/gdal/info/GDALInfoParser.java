@@ -0,0 +1,460 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+import java.util.List;
+
+import org.geobricks.gdal.GDALListener;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Builds a <code>RasterInfo</code> from the output of gdalinfo while
+ *         the command is running. Each line is scanned once and the numbers
+ *         are decoded in place, without splitting the line into tokens. The
+ *         GCPs are not kept: they are forwarded to a <code>GCPListener</code>,
+ *         if any.
+ * 
+ *         <pre>
+ * GDALInfoParser parser = new GDALInfoParser();
+ * new GDALConnector().execute(gdalinfo, parser);
+ * RasterInfo info = parser.getInfo();
+ * </pre>
+ * 
+ */
+public class GDALInfoParser implements GDALListener {
+
+	private static final String[] TYPES = { "Byte", "Int8", "UInt16", "Int16", "UInt32", "Int32", "UInt64", "Int64", "Float32", "Float64", "CInt16", "CInt32", "CFloat32", "CFloat64", "Unknown" };
+
+	private static final String[] COLOR_INTERPRETATIONS = { "Undefined", "Gray", "Palette", "Red", "Green", "Blue", "Alpha", "Hue", "Saturation", "Lightness", "Cyan", "Magenta", "Yellow", "Black", "YCbCr_Y", "YCbCr_Cb", "YCbCr_Cr" };
+
+	private static final double[] POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final int NONE = 0;
+
+	private static final int SRS = 1;
+
+	private static final int GCP_SRS = 2;
+
+	private static final int GEOTRANSFORM = 3;
+
+	private static final int HISTOGRAM = 4;
+
+	private static final int GCP = 5;
+
+	private RasterInfo info = new RasterInfo();
+
+	private GCPListener gcpListener;
+
+	private BandInfo band;
+
+	private int state = NONE;
+
+	private StringBuilder wkt = new StringBuilder();
+
+	private int row;
+
+	private int gcp;
+
+	private int pos;
+
+	public GDALInfoParser() {
+		super();
+	}
+
+	/**
+	 * @param gcpListener
+	 *            Receiver of the GCPs
+	 */
+	public GDALInfoParser(GCPListener gcpListener) {
+		super();
+		this.gcpListener = gcpListener;
+	}
+
+	/**
+	 * @param lines
+	 *            Output of gdalinfo, as returned by
+	 *            <code>GDALConnector.invoke(GDAL)</code>
+	 * @return Description of the dataset
+	 */
+	public static RasterInfo parse(List<String> lines) {
+		GDALInfoParser parser = new GDALInfoParser();
+		for (String line : lines)
+			parser.output(line);
+		return parser.getInfo();
+	}
+
+	/**
+	 * @return Description of the dataset parsed so far
+	 */
+	public RasterInfo getInfo() {
+		this.endWKT();
+		return info;
+	}
+
+	public void error(String line) {
+		// warnings are not part of the description
+	}
+
+	public void output(String s) {
+		switch (this.state) {
+		case SRS:
+		case GCP_SRS:
+			if (s.length() > 0 && (this.wkt.length() == 0 || Character.isWhitespace(s.charAt(0)))) {
+				this.appendWKT(s);
+				return;
+			}
+			this.endWKT();
+			break;
+		case GEOTRANSFORM:
+			this.pos = 0;
+			double[] g = this.info.getGeoTransform();
+			for (int i = 0; i < 3; i++) {
+				this.skip(s);
+				g[this.row * 3 + i] = this.number(s);
+			}
+			if (++this.row == 2)
+				this.state = NONE;
+			return;
+		case HISTOGRAM:
+			this.pos = 0;
+			long[] h = this.band.getHistogram();
+			for (int i = 0; i < h.length; i++)
+				h[i] = this.integer(s);
+			this.state = NONE;
+			return;
+		case GCP:
+			this.state = NONE;
+			if (this.gcpListener != null && this.skipTo(s, '(')) {
+				double pixel = this.number(s);
+				this.skipTo(s, ',');
+				double line = this.number(s);
+				this.skipTo(s, '(');
+				double x = this.number(s);
+				this.skipTo(s, ',');
+				double y = this.number(s);
+				this.skipTo(s, ',');
+				double z = this.number(s);
+				this.gcpListener.gcp(this.gcp, pixel, line, x, y, z);
+			}
+			return;
+		}
+		if (s.startsWith("  ") && this.band != null)
+			this.parseBand(s);
+		else
+			this.parseDataset(s);
+	}
+
+	private void parseDataset(String s) {
+		if (s.startsWith("Band ")) {
+			this.pos = 5;
+			this.band = new BandInfo((int) this.integer(s));
+			this.info.addBand(this.band);
+			if (this.find(s, "Block=")) {
+				this.band.setBlockWidth((int) this.integer(s));
+				this.pos++;
+				this.band.setBlockHeight((int) this.integer(s));
+			}
+			if (this.find(s, "Type="))
+				this.band.setType(this.constant(s, ',', TYPES));
+			if (this.find(s, "ColorInterp="))
+				this.band.setColorInterpretation(this.constant(s, ' ', COLOR_INTERPRETATIONS));
+		} else if (s.startsWith("Size is ")) {
+			this.pos = 8;
+			this.info.setWidth((int) this.integer(s));
+			this.skip(s);
+			this.info.setHeight((int) this.integer(s));
+		} else if (s.startsWith("Origin = (")) {
+			this.pos = 10;
+			double[] g = new double[6];
+			g[0] = this.number(s);
+			this.skip(s);
+			g[3] = this.number(s);
+			this.info.setGeoTransform(g);
+		} else if (s.startsWith("Pixel Size = (")) {
+			this.pos = 14;
+			double[] g = this.info.getGeoTransform();
+			if (g == null)
+				return;
+			g[1] = this.number(s);
+			this.skip(s);
+			g[5] = this.number(s);
+		} else if (s.startsWith("GeoTransform =")) {
+			this.info.setGeoTransform(new double[6]);
+			this.row = 0;
+			this.state = GEOTRANSFORM;
+		} else if (s.startsWith("Driver: ")) {
+			int idx = s.indexOf('/', 8);
+			this.info.setDriver(s.substring(8, idx < 0 ? s.length() : idx));
+		} else if (s.startsWith("Coordinate System is:")) {
+			this.wkt.setLength(0);
+			this.state = SRS;
+		} else if (s.startsWith("GCP Projection =")) {
+			this.wkt.setLength(0);
+			this.state = GCP_SRS;
+			if (s.length() > 16)
+				this.appendWKT(s.substring(16));
+		} else if (s.startsWith("GCP[")) {
+			this.pos = 4;
+			this.gcp = (int) this.integer(s);
+			this.info.setGcpCount(this.info.getGcpCount() + 1);
+			this.state = GCP;
+		} else if (!s.startsWith(" ")) {
+			this.band = null;
+		}
+	}
+
+	private void parseBand(String s) {
+		if (s.startsWith("  Min=")) {
+			this.pos = 6;
+			this.band.setComputedMin(this.number(s));
+			if (this.find(s, "Max="))
+				this.band.setComputedMax(this.number(s));
+		} else if (s.startsWith("  Computed Min/Max=")) {
+			this.pos = 19;
+			this.band.setComputedMin(this.number(s));
+			this.skip(s);
+			this.band.setComputedMax(this.number(s));
+		} else if (s.startsWith("  Minimum=")) {
+			this.pos = 10;
+			this.band.setMinimum(this.number(s));
+			if (this.find(s, "Maximum="))
+				this.band.setMaximum(this.number(s));
+			if (this.find(s, "Mean="))
+				this.band.setMean(this.number(s));
+			if (this.find(s, "StdDev="))
+				this.band.setStandardDeviation(this.number(s));
+		} else if (s.startsWith("  NoData Value=")) {
+			this.pos = 15;
+			this.band.setNoData(this.number(s));
+		} else if (s.startsWith("  Overviews: ")) {
+			int count = 0;
+			for (int i = 13; i < s.length(); i++)
+				if (s.charAt(i) == 'x')
+					count++;
+			int[] w = new int[count];
+			int[] h = new int[count];
+			this.pos = 13;
+			for (int i = 0; i < count; i++) {
+				this.skip(s);
+				w[i] = (int) this.integer(s);
+				this.pos++;
+				h[i] = (int) this.integer(s);
+			}
+			this.band.setOverviewWidths(w);
+			this.band.setOverviewHeights(h);
+		} else if (s.startsWith("  Checksum=")) {
+			this.pos = 11;
+			this.band.setChecksum(this.integer(s));
+		} else if (s.startsWith("  Description = ")) {
+			this.band.setDescription(s.substring(16));
+		} else if (s.indexOf(" buckets from ") > 0 && s.endsWith(":")) {
+			this.pos = 0;
+			this.band.setHistogram(new long[(int) this.integer(s)]);
+			this.find(s, "from ");
+			this.band.setHistogramMin(this.number(s));
+			this.find(s, "to ");
+			this.band.setHistogramMax(this.number(s));
+			this.state = HISTOGRAM;
+		}
+	}
+
+	private void appendWKT(String s) {
+		int i = 0;
+		while (i < s.length() && Character.isWhitespace(s.charAt(i)))
+			i++;
+		this.wkt.append(s, i, s.length());
+	}
+
+	private void endWKT() {
+		if (this.state == SRS || this.state == GCP_SRS) {
+			String s = this.wkt.length() == 0 ? null : this.wkt.toString();
+			if (this.state == SRS)
+				this.info.setSpatialReference(s);
+			else
+				this.info.setGcpSpatialReference(s);
+			this.wkt.setLength(0);
+			this.state = NONE;
+		}
+	}
+
+	/**
+	 * Move the cursor after the next occurrence of the key.
+	 */
+	private boolean find(String s, String key) {
+		int idx = s.indexOf(key, this.pos);
+		if (idx < 0)
+			return false;
+		this.pos = idx + key.length();
+		return true;
+	}
+
+	/**
+	 * Move the cursor after the next occurrence of the character.
+	 */
+	private boolean skipTo(String s, char c) {
+		int idx = s.indexOf(c, this.pos);
+		if (idx < 0)
+			return false;
+		this.pos = idx + 1;
+		return true;
+	}
+
+	/**
+	 * Move the cursor over spaces and separators.
+	 */
+	private void skip(String s) {
+		while (this.pos < s.length()) {
+			char c = s.charAt(this.pos);
+			if (c != ' ' && c != ',' && c != '(' && c != ')' && c != '\t')
+				return;
+			this.pos++;
+		}
+	}
+
+	/**
+	 * @return The token at the cursor, shared with the table when it's a known
+	 *         value.
+	 */
+	private String constant(String s, char end, String[] table) {
+		int to = s.indexOf(end, this.pos);
+		if (to < 0)
+			to = s.length();
+		int length = to - this.pos;
+		for (String t : table)
+			if (t.length() == length && s.regionMatches(this.pos, t, 0, length)) {
+				this.pos = to;
+				return t;
+			}
+		String t = s.substring(this.pos, to);
+		this.pos = to;
+		return t;
+	}
+
+	private long integer(String s) {
+		this.skip(s);
+		boolean negative = false;
+		if (this.pos < s.length() && s.charAt(this.pos) == '-') {
+			negative = true;
+			this.pos++;
+		}
+		long n = 0;
+		while (this.pos < s.length()) {
+			char c = s.charAt(this.pos);
+			if (c < '0' || c > '9')
+				break;
+			n = n * 10 + (c - '0');
+			this.pos++;
+		}
+		return negative ? -n : n;
+	}
+
+	/**
+	 * Decode the number at the cursor. Up to 15 significant digits and
+	 * exponents within 22 are decoded exactly with a single floating point
+	 * operation, the other numbers are handed over to
+	 * <code>Double.parseDouble</code>.
+	 */
+	private double number(String s) {
+		int n = s.length();
+		while (this.pos < n && s.charAt(this.pos) == ' ')
+			this.pos++;
+		int start = this.pos;
+		boolean negative = false;
+		if (this.pos < n && (s.charAt(this.pos) == '-' || s.charAt(this.pos) == '+')) {
+			negative = s.charAt(this.pos) == '-';
+			this.pos++;
+		}
+		if (s.regionMatches(true, this.pos, "nan", 0, 3)) {
+			this.pos += 3;
+			return Double.NaN;
+		}
+		if (s.regionMatches(true, this.pos, "inf", 0, 3)) {
+			while (this.pos < n && Character.isLetter(s.charAt(this.pos)))
+				this.pos++;
+			return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		long mantissa = 0;
+		int fraction = 0;
+		int zeros = 0;
+		boolean point = false;
+		boolean exact = true;
+		for (; this.pos < n; this.pos++) {
+			char c = s.charAt(this.pos);
+			if (c >= '0' && c <= '9') {
+				if (!exact) {
+					continue;
+				} else if (!point) {
+					mantissa = mantissa * 10 + (c - '0');
+				} else if (c == '0') {
+					zeros++;
+				} else {
+					for (int i = 0; i <= zeros && exact; i++) {
+						if (mantissa > 99999999999999L)
+							exact = false;
+						mantissa *= 10;
+					}
+					mantissa += c - '0';
+					fraction += zeros + 1;
+					zeros = 0;
+				}
+				if (mantissa > 999999999999999L)
+					exact = false;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		int exponent = 0;
+		if (this.pos < n && (s.charAt(this.pos) == 'e' || s.charAt(this.pos) == 'E')) {
+			int mark = this.pos++;
+			boolean negativeExponent = false;
+			if (this.pos < n && (s.charAt(this.pos) == '-' || s.charAt(this.pos) == '+')) {
+				negativeExponent = s.charAt(this.pos) == '-';
+				this.pos++;
+			}
+			int digits = this.pos;
+			while (this.pos < n && s.charAt(this.pos) >= '0' && s.charAt(this.pos) <= '9') {
+				exponent = exponent * 10 + (s.charAt(this.pos) - '0');
+				this.pos++;
+				if (exponent > 1000)
+					exact = false;
+			}
+			if (this.pos == digits)
+				this.pos = mark;
+			if (negativeExponent)
+				exponent = -exponent;
+		}
+		exponent -= fraction;
+		if (!exact || exponent > 22 || exponent < -22) {
+			try {
+				return Double.parseDouble(s.substring(start, this.pos));
+			} catch (NumberFormatException e) {
+				return Double.NaN;
+			}
+		}
+		double d = exponent >= 0 ? mantissa * POWERS[exponent] : mantissa / POWERS[-exponent];
+		return negative ? -d : d;
+	}
+
+}
\ No newline at end of file
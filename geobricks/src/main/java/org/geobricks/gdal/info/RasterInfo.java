@@ -0,0 +1,188 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Description of a raster dataset, as reported by gdalinfo.
+ * 
+ */
+public class RasterInfo {
+
+	private String driver;
+
+	private int width = -1;
+
+	private int height = -1;
+
+	/**
+	 * Affine transformation from pixel/line to georeferenced coordinates:
+	 * origin X, pixel width, row rotation, origin Y, column rotation, pixel
+	 * height.
+	 */
+	private double[] geoTransform;
+
+	private String spatialReference;
+
+	private String gcpSpatialReference;
+
+	private int gcpCount = 0;
+
+	private List<BandInfo> bands;
+
+	/**
+	 * @return Georeferenced extent as <code>{ minX, minY, maxX, maxY }</code>,
+	 *         <code>null</code> if the dataset has no geotransform
+	 */
+	public double[] getExtent() {
+		if (this.geoTransform == null || this.width < 0 || this.height < 0)
+			return null;
+		double[] g = this.geoTransform;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < 4; i++) {
+			int p = (i & 1) == 0 ? 0 : this.width;
+			int l = (i & 2) == 0 ? 0 : this.height;
+			double x = g[0] + p * g[1] + l * g[2];
+			double y = g[3] + p * g[4] + l * g[5];
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		return new double[] { minX, minY, maxX, maxY };
+	}
+
+	/**
+	 * @return Size of a pixel along X, <code>NaN</code> without geotransform
+	 */
+	public double getPixelWidth() {
+		return this.geoTransform == null ? Double.NaN : Math.abs(this.geoTransform[1]);
+	}
+
+	/**
+	 * @return Size of a pixel along Y, <code>NaN</code> without geotransform
+	 */
+	public double getPixelHeight() {
+		return this.geoTransform == null ? Double.NaN : Math.abs(this.geoTransform[5]);
+	}
+
+	public int getBandCount() {
+		return this.bands == null ? 0 : this.bands.size();
+	}
+
+	/**
+	 * @param index
+	 *            Band number, starting from 1 as in gdalinfo
+	 */
+	public BandInfo getBand(int index) {
+		return this.bands.get(index - 1);
+	}
+
+	public void addBand(BandInfo band) {
+		if (this.bands == null)
+			this.bands = new ArrayList<BandInfo>();
+		this.bands.add(band);
+	}
+
+	public List<BandInfo> getBands() {
+		return bands;
+	}
+
+	public void setBands(List<BandInfo> bands) {
+		this.bands = bands;
+	}
+
+	/**
+	 * @return Short name of the GDAL driver, e.g. <code>GTiff</code>
+	 */
+	public String getDriver() {
+		return driver;
+	}
+
+	public void setDriver(String driver) {
+		this.driver = driver;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public void setWidth(int width) {
+		this.width = width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setHeight(int height) {
+		this.height = height;
+	}
+
+	public double[] getGeoTransform() {
+		return geoTransform;
+	}
+
+	public void setGeoTransform(double[] geoTransform) {
+		this.geoTransform = geoTransform;
+	}
+
+	/**
+	 * @return Coordinate system in WKT, <code>null</code> if not defined
+	 */
+	public String getSpatialReference() {
+		return spatialReference;
+	}
+
+	public void setSpatialReference(String spatialReference) {
+		this.spatialReference = spatialReference;
+	}
+
+	/**
+	 * @return Coordinate system of the GCPs in WKT
+	 */
+	public String getGcpSpatialReference() {
+		return gcpSpatialReference;
+	}
+
+	public void setGcpSpatialReference(String gcpSpatialReference) {
+		this.gcpSpatialReference = gcpSpatialReference;
+	}
+
+	/**
+	 * @return Number of GCPs reported, the points themselves are streamed to
+	 *         a <code>GCPListener</code>
+	 */
+	public int getGcpCount() {
+		return gcpCount;
+	}
+
+	public void setGcpCount(int gcpCount) {
+		this.gcpCount = gcpCount;
+	}
+
+}
\ No newline at end of file
@@ -21,12 +21,11 @@
 package org.geobricks.gdal.merge;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.FORMAT;
 import org.geobricks.gdal.general.OutputBounds;
 import org.geobricks.gdal.general.PixelSize;
@@ -173,7 +172,7 @@ public class GDALMerge extends GDAL {
 	 */
 	public void addCreationOption(String option, String value) {
 		if (this.creationOption == null)
-			this.creationOption = new HashMap<String, String>();
+			this.creationOption = new LinkedHashMap<String, String>();
 		this.creationOption.put(option, value);
 	}
 
@@ -271,62 +270,111 @@ public class GDALMerge extends GDAL {
 		this.createOnly = createOnly;
 	}
 
+	/**
+	 * A copy of this bean reading a single input file. Options are copied
+	 * from this bean.
+	 */
 	@Override
-	public String convert() throws Exception {
+	public GDALMerge copy(String inputFilepath, String outputFilepath) {
+		GDALMerge g = (GDALMerge) super.copy(null, outputFilepath);
+		g.setInputFilepaths(null);
+		g.addInputFilepath(inputFilepath);
+		return g;
+	}
+
+	/**
+	 * A copy of this bean reading different input files. Options are copied
+	 * from this bean.
+	 */
+	public GDALMerge copy(List<String> inputFilepaths, String outputFilepath) {
+		GDALMerge g = (GDALMerge) super.copy(null, outputFilepath);
+		g.setInputFilepaths(inputFilepaths);
+		return g;
+	}
+
+	@Override
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
+	@Override
+	protected boolean requiresCreate() {
+		return true;
+	}
+
+	@Override
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdal_merge.py");
+		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
+			a.add("-o");
+			a.add(this.getOutputFilepath());
+		}
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		addOptionArguments(a, "-co", this.getCreationOption());
+		if (this.getOutputBandsType() != null && !this.getOutputBandsType().isEmpty()) {
+			a.add("-ot");
+			a.add(this.getOutputBandsType());
+		}
+		if (this.getOutputPixelSize() != null) {
+			a.add("-ps");
+			a.add(this.getOutputPixelSize().getxPixelSize());
+			a.add(this.getOutputPixelSize().getyPixelSize());
 		}
-		
-		this.getSB().append("gdal_merge.py ");
-		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty())
-			this.getSB().append("-o ").append(this.getOutputFilepath()).append(" ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getCreationOption() != null && !this.getCreationOption().isEmpty())
-			for (String key : this.getCreationOption().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOption().get(key)).append("\" ");
-		if (this.getOutputPixelSize() != null)
-			this.getSB().append("-ps ").append(this.getOutputPixelSize()).append(" ");
 		if (this.targetAlignedPixels())
-			this.getSB().append("-tap ");
-		if (this.getOutputExtents() != null)
-			this.getSB().append("-ul_lr ").append(this.getOutputExtents()).append(" ");
+			a.add("-tap");
+		if (this.getOutputExtents() != null) {
+			a.add("-ul_lr");
+			a.add(this.getOutputExtents().getUpperLeftX());
+			a.add(this.getOutputExtents().getUpperLeftY());
+			a.add(this.getOutputExtents().getLowerRightX());
+			a.add(this.getOutputExtents().getLowerRightY());
+		}
 		if (this.verbose())
-			this.getSB().append("-v ");
+			a.add("-v");
 		if (this.separate())
-			this.getSB().append("-separate ");
+			a.add("-separate");
 		if (this.pseudoColorTable())
-			this.getSB().append("-pct ");
-		if (this.getNoDataValue() != null && !this.getNoDataValue().isEmpty())
-			this.getSB().append("-n ").append(this.getNoDataValue()).append(" ");
-		if (this.getOutputBandsNoDataValue() != null && !this.getOutputBandsNoDataValue().isEmpty())
-			this.getSB().append("-a_nodata ").append(this.getOutputBandsNoDataValue()).append(" ");
+			a.add("-pct");
+		if (this.getNoDataValue() != null && !this.getNoDataValue().isEmpty()) {
+			a.add("-n");
+			a.add(this.getNoDataValue());
+		}
+		if (this.getOutputBandsNoDataValue() != null && !this.getOutputBandsNoDataValue().isEmpty()) {
+			a.add("-a_nodata");
+			a.add(this.getOutputBandsNoDataValue());
+		}
 		if (this.getOutputBandsInitValues() != null && !this.getOutputBandsInitValues().isEmpty()) {
-			this.getSB().append("-init ");
-			for (Integer v : this.getOutputBandsInitValues())
-				this.getSB().append(v).append(" ");
+			a.add("-init");
+			StringBuilder sb = new StringBuilder();
+			for (Integer v : this.getOutputBandsInitValues()) {
+				if (sb.length() > 0)
+					sb.append(" ");
+				sb.append(v);
+			}
+			a.add(sb.toString());
 		}
 		if (this.createOnly())
-			this.getSB().append("-createonly ");
+			a.add("-createonly");
 		if (this.getInputFilepaths() != null && !this.getInputFilepaths().isEmpty()) {
-			for (String i : this.getInputFilepaths())
-				this.getSB().append(i).append(" ");
+			a.addAll(this.getInputFilepaths());
 		} else {
 			throw new Exception("No input files have been defined.");
 		}
-		
 
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
-}
+}
\ No newline at end of file
@@ -21,13 +21,12 @@
 package org.geobricks.gdal.retile;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
 import org.geobricks.gdal.constant.BANDSTYPE;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.FORMAT;
 import org.geobricks.gdal.constant.RESAMPLING;
 import org.geobricks.gdal.general.PixelSize;
@@ -209,7 +208,7 @@ public class GDALRetile extends GDAL {
 	 */
 	public void addOption(String option, String value) {
 		if (this.creationOption == null)
-			this.creationOption = new HashMap<String, String>();
+			this.creationOption = new LinkedHashMap<String, String>();
 		this.creationOption.put(option, value);
 	}
 
@@ -424,67 +423,110 @@ public class GDALRetile extends GDAL {
 		this.inputFilepaths.add(inputFilepath);
 	}
 	
+	/**
+	 * A copy of this bean reading a single input file. Options are copied
+	 * from this bean.
+	 */
+	@Override
+	public GDALRetile copy(String inputFilepath, String targetDirectory) {
+		GDALRetile g = (GDALRetile) super.copy(inputFilepath, this.getOutputFilepath());
+		g.setInputFilepaths(null);
+		g.setTargetDirectory(targetDirectory);
+		return g;
+	}
+
+	/**
+	 * A copy of this bean reading different input files. Options are copied
+	 * from this bean.
+	 */
+	public GDALRetile copy(List<String> inputFilepaths, String targetDirectory) {
+		GDALRetile g = (GDALRetile) super.copy(null, this.getOutputFilepath());
+		g.setInputFilepaths(inputFilepaths);
+		g.setTargetDirectory(targetDirectory);
+		return g;
+	}
+
+	@Override
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
 	@Override
-	public String convert() throws Exception {
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
 
-		this.getSB().append("gdal_retile.py ");
+		a = new ArrayList<String>();
+		a.add("gdal_retile.py");
 		if (this.verbose())
-			this.getSB().append("-v ");
-		if (this.getCreationOption() != null && !this.getCreationOption().isEmpty())
-			for (String key : this.getCreationOption().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOption().get(key)).append("\" ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getPixelSize() != null)
-			this.getSB().append("-ps ").append(this.getPixelSize()).append(" ");
-		if (this.getOutputBandsType() != null)
-			this.getSB().append("-ot ").append(this.getOutputBandsType().name()).append(" ");
-		if (this.getTileIndexName() != null && !this.getTileIndexName().isEmpty())
-			this.getSB().append("-tileIndex ").append(this.getTileIndexName()).append(" ");
-		if (this.getTileIndexField() != null && !this.getTileIndexField().isEmpty())
-			this.getSB().append("-tileIndexField ").append(this.getTileIndexField()).append(" ");
-		if (this.getCsvFilename() != null && !this.getCsvFilename().isEmpty())
-			this.getSB().append("-csv ").append(this.getCsvFilename()).append(" ");
-		if (this.getCsvDelimiter() != null && !this.getCsvDelimiter().isEmpty())
-			this.getSB().append("-csvDelim ").append(this.getCsvDelimiter()).append(" ");
-		if (this.getInputSpatialReference() != null && !this.getInputSpatialReference().isEmpty())
-			this.getSB().append("-s_srs ").append(this.getInputSpatialReference()).append(" ");
+			a.add("-v");
+		addOptionArguments(a, "-co", this.getCreationOption());
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		if (this.getPixelSize() != null) {
+			a.add("-ps");
+			a.add(this.getPixelSize().getxPixelSize());
+			a.add(this.getPixelSize().getyPixelSize());
+		}
+		if (this.getOutputBandsType() != null) {
+			a.add("-ot");
+			a.add(this.getOutputBandsType().name());
+		}
+		if (this.getTileIndexName() != null && !this.getTileIndexName().isEmpty()) {
+			a.add("-tileIndex");
+			a.add(this.getTileIndexName());
+		}
+		if (this.getTileIndexField() != null && !this.getTileIndexField().isEmpty()) {
+			a.add("-tileIndexField");
+			a.add(this.getTileIndexField());
+		}
+		if (this.getCsvFilename() != null && !this.getCsvFilename().isEmpty()) {
+			a.add("-csv");
+			a.add(this.getCsvFilename());
+		}
+		if (this.getCsvDelimiter() != null && !this.getCsvDelimiter().isEmpty()) {
+			a.add("-csvDelim");
+			a.add(this.getCsvDelimiter());
+		}
+		if (this.getInputSpatialReference() != null && !this.getInputSpatialReference().isEmpty()) {
+			a.add("-s_srs");
+			a.add(this.getInputSpatialReference());
+		}
 		if (this.pyramidsOnly())
-			this.getSB().append("-pyramidOnly ");
-		if (this.getResamplingAlgorithm() != null)
-			this.getSB().append("-r ").append(this.getResamplingAlgorithm().name()).append(" ");
-		if (this.getLevels() != null)
-			this.getSB().append("-levels ").append(this.getLevels()).append(" ");
+			a.add("-pyramidOnly");
+		if (this.getResamplingAlgorithm() != null) {
+			a.add("-r");
+			a.add(this.getResamplingAlgorithm().name());
+		}
+		if (this.getLevels() != null) {
+			a.add("-levels");
+			a.add(String.valueOf(this.getLevels()));
+		}
 		if (this.useDirectoryForEachRow())
-			this.getSB().append("-useDirForEachRow ");
+			a.add("-useDirForEachRow");
 		if (this.getTargetDirectory() != null && !this.getTargetDirectory().isEmpty()) {
-			this.getSB().append(this.getTargetDirectory()).append(" ");
+			a.add("-targetDir");
+			a.add(this.getTargetDirectory());
 		} else {
 			throw new Exception("Target directory has not been defined.");
 		}
 		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add(this.getInputFilepath());
 		} else if (this.getInputFilepaths() != null && !this.getInputFilepaths().isEmpty()) {
-			for (String i : this.getInputFilepaths())
-				this.getSB().append(i).append(" ");
+			a.addAll(this.getInputFilepaths());
 		} else {
 			throw new Exception("Input files have not been defined.");
 		}
-		
+
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
@@ -21,12 +21,11 @@
 package org.geobricks.gdal.translate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
 import org.geobricks.gdal.constant.EXPAND;
 import org.geobricks.gdal.constant.FORMAT;
 import org.geobricks.gdal.general.GroundControlPoint;
@@ -314,7 +313,7 @@ public class GDALTranslate extends GDAL {
 
 	public void setMetadataOutput(String key, String value) {
 		if (this.metadataOutput == null)
-			this.metadataOutput = new HashMap<String, String>();
+			this.metadataOutput = new LinkedHashMap<String, String>();
 		this.metadataOutput.put(key, value);
 	}
 
@@ -324,7 +323,7 @@ public class GDALTranslate extends GDAL {
 
 	public void setCreationOption(String key, String value) {
 		if (this.creationOption == null)
-			this.creationOption = new HashMap<String, String>();
+			this.creationOption = new LinkedHashMap<String, String>();
 		this.creationOption.put(key, value);
 	}
 
@@ -365,86 +364,117 @@ public class GDALTranslate extends GDAL {
 	}
 
 	@Override
-	public String convert() throws Exception {
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
+	@Override
+	public List<String> getArguments() throws Exception {
 
-		this.getSB().append("gdal_translate ");
-		if (this.getOutputType() != null)
-			this.getSB().append("-ot ").append(this.getOutputType().name()).append(" ");
+		// generic section
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdal_translate");
+		if (this.getOutputType() != null) {
+			a.add("-ot");
+			a.add(this.getOutputType().name());
+		}
 		if (this.isStrict())
-			this.getSB().append("-strict ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getBands() != null && this.getBands().size() > 0)
-			for (Integer b : this.getBands())
-				this.getSB().append("-b ").append(b).append(" ");
-		if (this.getMask() != null)
-			this.getSB().append("-mask ").append(this.getMask()).append(" ");
-		if (this.getExpand() != null)
-			this.getSB().append("-expand ").append(this.getExpand().name()).append(" ");
-		if (this.getOutputSize() != null)
-			this.getSB().append("-outsize ").append(this.getOutputSize().getWidth()).append(" ").append(this.getOutputSize().getHeight()).append(" ");
+			a.add("-strict");
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		if (this.getBands() != null && this.getBands().size() > 0) {
+			for (Integer b : this.getBands()) {
+				a.add("-b");
+				a.add(String.valueOf(b));
+			}
+		}
+		if (this.getMask() != null) {
+			a.add("-mask");
+			a.add(String.valueOf(this.getMask()));
+		}
+		if (this.getExpand() != null) {
+			a.add("-expand");
+			a.add(this.getExpand().name());
+		}
+		if (this.getOutputSize() != null) {
+			a.add("-outsize");
+			a.add(this.getOutputSize().getWidth());
+			a.add(this.getOutputSize().getHeight());
+		}
 		if (this.getScale() != null) {
-			this.getSB().append("-scale ").append(this.getScale().getInputMin()).append(" ").append(this.getScale().getInputMax()).append(" ");
-			this.getSB().append(this.getScale().getOutputMin()).append(" ").append(this.getScale().getOutputMax()).append(" ");
+			a.add("-scale");
+			a.add(this.getScale().getInputMin());
+			a.add(this.getScale().getInputMax());
+			a.add(this.getScale().getOutputMin());
+			a.add(this.getScale().getOutputMax());
 		}
 		if (this.unscale())
-			this.getSB().append("-unscale ");
+			a.add("-unscale");
 		if (this.getSubWindowPixels() != null) {
-			this.getSB().append("-srcwin ").append(this.getSubWindowPixels().getxOffset()).append(" ").append(this.getSubWindowPixels().getyOffset()).append(" ");
-			this.getSB().append(this.getSubWindowPixels().getxSize()).append(" ").append(this.getSubWindowPixels().getySize()).append(" ");
+			a.add("-srcwin");
+			a.add(this.getSubWindowPixels().getxOffset());
+			a.add(this.getSubWindowPixels().getyOffset());
+			a.add(this.getSubWindowPixels().getxSize());
+			a.add(this.getSubWindowPixels().getySize());
 		}
 		if (this.getSubWindowCorners() != null) {
-			this.getSB().append("-projwin ").append(this.getSubWindowCorners().getUpperLeftX()).append(" ").append(this.getSubWindowCorners().getUpperLeftY()).append(" ");
-			this.getSB().append(this.getSubWindowCorners().getLowerRightX()).append(" ").append(this.getSubWindowCorners().getLowerRightY()).append(" ");
+			a.add("-projwin");
+			a.add(this.getSubWindowCorners().getUpperLeftX());
+			a.add(this.getSubWindowCorners().getUpperLeftY());
+			a.add(this.getSubWindowCorners().getLowerRightX());
+			a.add(this.getSubWindowCorners().getLowerRightY());
+		}
+		if (this.getOutputProjection() != null && !this.getOutputProjection().isEmpty()) {
+			a.add("-a_srs");
+			a.add(this.getOutputProjection());
 		}
-		if (this.getOutputProjection() != null && !this.getOutputProjection().isEmpty())
-			this.getSB().append("-a_srs ").append(this.getOutputProjection()).append(" ");
 		if (this.getOutputBounds() != null) {
-			this.getSB().append("-a_ullr ").append(this.getOutputBounds().getUpperLeftX()).append(" ").append(this.getOutputBounds().getUpperLeftY()).append(" ");
-			this.getSB().append(this.getOutputBounds().getLowerRightX()).append(" ").append(this.getOutputBounds().getLowerRightY()).append(" ");
+			a.add("-a_ullr");
+			a.add(this.getOutputBounds().getUpperLeftX());
+			a.add(this.getOutputBounds().getUpperLeftY());
+			a.add(this.getOutputBounds().getLowerRightX());
+			a.add(this.getOutputBounds().getLowerRightY());
+		}
+		if (this.getNoDataValue() != null && !this.getNoDataValue().isEmpty()) {
+			a.add("-a_nodata");
+			a.add(this.getNoDataValue());
 		}
-		if (this.getNoDataValue() != null && !this.getNoDataValue().isEmpty())
-			this.getSB().append("-a_nodata ").append(this.getNoDataValue()).append(" ");
-		if (this.getMetadataOutput() != null && !this.getMetadataOutput().isEmpty() && this.getMetadataOutput().size() < 2)
-			for (String key : this.getMetadataOutput().keySet())
-				this.getSB().append("-mo \"").append(key).append("=").append(this.getMetadataOutput().get(key)).append("\" ");
-		if (this.getCreationOption() != null && !this.getCreationOption().isEmpty())
-			for (String key : this.getCreationOption().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOption().get(key)).append("\" ");
+		addOptionArguments(a, "-mo", this.getMetadataOutput());
+		addOptionArguments(a, "-co", this.getCreationOption());
 		if (this.getGroundControlPoint() != null) {
-			this.getSB().append("-gcp ").append(this.getGroundControlPoint().getPixel()).append(" ").append(this.getGroundControlPoint().getLine()).append(" ");
-			this.getSB().append(this.getGroundControlPoint().getEasting()).append(" ").append(this.getGroundControlPoint().getNorthing()).append(" ");
-			this.getSB().append(this.getGroundControlPoint().getElevation()).append(" ");
+			a.add("-gcp");
+			a.add(this.getGroundControlPoint().getPixel());
+			a.add(this.getGroundControlPoint().getLine());
+			a.add(this.getGroundControlPoint().getEasting());
+			a.add(this.getGroundControlPoint().getNorthing());
+			if (this.getGroundControlPoint().getElevation() != null && !this.getGroundControlPoint().getElevation().isEmpty())
+				a.add(this.getGroundControlPoint().getElevation());
 		}
 		if (this.suppressProgressMonitor())
-			this.getSB().append("-q ");
+			a.add("-q");
 		if (this.subDatasets2IndividualOutputs())
-			this.getSB().append("-sds ");
+			a.add("-sds");
 		if (this.statistics())
-			this.getSB().append("-stats ");
+			a.add("-stats");
 		if (this.getInputFilepath() != null && !this.getInputFilepath().isEmpty()) {
-			this.getSB().append(this.getInputFilepath()).append(" ");
+			a.add(this.getInputFilepath());
 		} else {
 			throw new Exception("Input filepath is null or empty.");
 		}
 		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
+			a.add(this.getOutputFilepath());
 		} else {
 			throw new Exception("Output filepath is null or empty.");
 		}
+		this.addConfigArguments(a);
 
-		// generic section
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
-		}
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
-
-		return this.getSB().toString();
+		return a;
 	}
 
 }
\ No newline at end of file
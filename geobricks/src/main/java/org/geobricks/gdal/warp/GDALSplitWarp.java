@@ -0,0 +1,171 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.warp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALResult;
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.buildvrt.GDALBuildVRT;
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.gdal.translate.GDALTranslate;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Runs a gdalwarp on several cores: the output is split in bands of
+ *         rows by <code>GDALWarp.split</code>, the bands are warped by
+ *         concurrent processes of a <code>GDALExecutor</code> and stitched
+ *         with gdalbuildvrt. If the output format is VRT the mosaic of the
+ *         bands is the output, otherwise gdal_translate copies it to the
+ *         output with the format and creation options of the bean, and the
+ *         bands are deleted. The bands are written in a new directory,
+ *         unique to the run, which is kept with the bands of a VRT mosaic
+ *         and deleted otherwise.
+ * 
+ */
+public class GDALSplitWarp {
+
+	private GDALExecutor executor;
+
+	private int chunks;
+
+	private String workingDirectory;
+
+	private boolean keepChunks = false;
+
+	/**
+	 * @param executor
+	 *            Executor of the processes, the output is split in as many
+	 *            bands as the processes it runs concurrently
+	 */
+	public GDALSplitWarp(GDALExecutor executor) {
+		this.executor = executor;
+		this.chunks = executor.getMaxProcesses();
+	}
+
+	/**
+	 * @param g
+	 *            gdalwarp bean, with extent and resolution or size
+	 * @return Outcome of every process: the bands, gdalbuildvrt and
+	 *         gdal_translate
+	 * @throws Exception
+	 *             If a process fails; the bands already written are deleted
+	 */
+	public List<GDALResult> execute(GDALWarp g) throws Exception {
+		if (g.getOutputFilepath() == null || g.getOutputFilepath().isEmpty())
+			throw new Exception("No output file has been defined.");
+		File output = new File(g.getOutputFilepath());
+		boolean mosaic = g.getOutputFormat() == FORMAT.VRT;
+		File directory = this.createWorkingDirectory(output);
+		List<String> files = new ArrayList<String>();
+		List<Future<GDALResult>> futures = new ArrayList<Future<GDALResult>>();
+		List<GDALResult> results = new ArrayList<GDALResult>();
+		boolean done = false;
+		try {
+			for (GDALWarp part : g.split(this.getChunks(), directory.getPath())) {
+				files.add(part.getOutputFilepath());
+				futures.add(this.executor.execute(part));
+			}
+			for (Future<GDALResult> f : futures)
+				results.add(GDALUtils.check(f));
+			File vrt = mosaic ? output : new File(directory, output.getName() + ".vrt");
+			GDALBuildVRT b = new GDALBuildVRT(files, vrt.getPath());
+			b.quiet(true);
+			b.overwrite(true);
+			results.add(GDALUtils.check(this.executor.execute(b)));
+			if (!mosaic) {
+				GDALTranslate t = new GDALTranslate(vrt.getPath(), output.getPath());
+				t.setOutputFormat(g.getOutputFormat() == null ? FORMAT.GTiff : g.getOutputFormat());
+				t.setCreationOption(g.getCreationOption());
+				t.setConfig(g.getConfig());
+				results.add(GDALUtils.check(this.executor.execute(t)));
+			}
+			done = true;
+		} finally {
+			for (Future<GDALResult> f : futures)
+				f.cancel(true);
+			if (!done || (!mosaic && !this.keepChunks()))
+				GDALUtils.delete(directory);
+		}
+		return results;
+	}
+
+	/**
+	 * @return A new directory, unique to this run, inside the working
+	 *         directory or, by default, next to the output. Nothing else is
+	 *         written or deleted by the run, so existing files can't clash
+	 *         with the names of the bands.
+	 */
+	private File createWorkingDirectory(File output) throws IOException {
+		File parent = this.getWorkingDirectory() != null ? new File(this.getWorkingDirectory()) : output.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs())
+			throw new IOException("Can't create " + parent + ".");
+		File directory = File.createTempFile(output.getName() + ".chunks", "", parent);
+		if (!directory.delete() || !directory.mkdir())
+			throw new IOException("Can't create " + directory + ".");
+		return directory;
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @param chunks
+	 *            Number of bands the output is split in
+	 */
+	public void setChunks(int chunks) {
+		this.chunks = chunks;
+	}
+
+	public String getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	/**
+	 * @param workingDirectory
+	 *            Directory where every run creates its own subdirectory for
+	 *            the bands, the directory of the output by default
+	 */
+	public void setWorkingDirectory(String workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	public boolean keepChunks() {
+		return keepChunks;
+	}
+
+	/**
+	 * @param keepChunks
+	 *            keep the bands and their VRT after the final copy
+	 */
+	public void keepChunks(boolean keepChunks) {
+		this.keepChunks = keepChunks;
+	}
+
+}
\ No newline at end of file
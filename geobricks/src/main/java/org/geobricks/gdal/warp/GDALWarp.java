@@ -20,13 +20,14 @@
  */
 package org.geobricks.gdal.warp;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.geobricks.gdal.GDAL;
-import org.geobricks.gdal.constant.CONFIG;
+import org.geobricks.gdal.GDALUtils;
 import org.geobricks.gdal.constant.FORMAT;
 import org.geobricks.gdal.constant.RESAMPLING;
 import org.geobricks.gdal.constant.WARPOPTION;
@@ -118,6 +119,12 @@ public class GDALWarp extends GDAL {
 	 */
 	private GeoreferencedExtents georeferencedExtents;
 
+	/**
+	 * (available from GDAL 2.0) SRS in which to interpret the coordinates
+	 * given with -te, instead of the target SRS.
+	 */
+	private String georeferencedExtentsSpatialReference;
+
 	/**
 	 * set output file resolution (in target georeferenced units)
 	 */
@@ -303,7 +310,7 @@ public class GDALWarp extends GDAL {
 	
 	public void addTransformerOption(String option, String value) {
 		if (this.transformerOptions == null)
-			this.transformerOptions = new HashMap<String, String>();
+			this.transformerOptions = new LinkedHashMap<String, String>();
 		this.transformerOptions.put(option, value);
 	}
 
@@ -363,6 +370,19 @@ public class GDALWarp extends GDAL {
 		this.georeferencedExtents = georeferencedExtents;
 	}
 
+	public String getGeoreferencedExtentsSpatialReference() {
+		return georeferencedExtentsSpatialReference;
+	}
+
+	/**
+	 * @param georeferencedExtentsSpatialReference
+	 *            (available from GDAL 2.0) SRS in which to interpret the
+	 *            coordinates given with -te, instead of the target SRS.
+	 */
+	public void setGeoreferencedExtentsSpatialReference(String georeferencedExtentsSpatialReference) {
+		this.georeferencedExtentsSpatialReference = georeferencedExtentsSpatialReference;
+	}
+
 	public FileResolution getOutputFileResolution() {
 		return outputFileResolution;
 	}
@@ -397,7 +417,7 @@ public class GDALWarp extends GDAL {
 	
 	public void addWarpOption(WARPOPTION option, String value) {
 		if (this.warpOptions == null)
-			this.warpOptions = new HashMap<WARPOPTION, String>();
+			this.warpOptions = new LinkedHashMap<WARPOPTION, String>();
 		this.warpOptions.put(option, value);
 	}
 
@@ -435,7 +455,7 @@ public class GDALWarp extends GDAL {
 	
 	public void addInputNoData(String key, List<String> values) {
 		if (this.inputNoData == null)
-			this.inputNoData = new HashMap<String, List<String>>();
+			this.inputNoData = new LinkedHashMap<String, List<String>>();
 		this.inputNoData.put(key, values);
 	}
 
@@ -449,7 +469,7 @@ public class GDALWarp extends GDAL {
 	
 	public void addOutputNoData(String key, List<String> values) {
 		if (this.outputNoData == null)
-			this.outputNoData = new HashMap<String, List<String>>();
+			this.outputNoData = new LinkedHashMap<String, List<String>>();
 		this.outputNoData.put(key, values);
 	}
 
@@ -503,7 +523,7 @@ public class GDALWarp extends GDAL {
 	
 	public void addCreationOption(String option, String value) {
 		if (this.creationOption == null)
-			this.creationOption = new HashMap<String, String>();
+			this.creationOption = new LinkedHashMap<String, String>();
 		this.creationOption.put(option, value);
 	}
 
@@ -563,118 +583,267 @@ public class GDALWarp extends GDAL {
 		this.overwrite = overwrite;
 	}
 
+	/**
+	 * A copy of this bean reading a single input file. Options are copied
+	 * from this bean.
+	 */
+	@Override
+	public GDALWarp copy(String inputFilepath, String outputFilepath) {
+		GDALWarp g = (GDALWarp) super.copy(null, outputFilepath);
+		g.setInputFilepaths(null);
+		g.addInputFilepath(inputFilepath);
+		return g;
+	}
+
+	/**
+	 * A copy of this bean reading different input files. Options are copied
+	 * from this bean.
+	 */
+	public GDALWarp copy(List<String> inputFilepaths, String outputFilepath) {
+		GDALWarp g = (GDALWarp) super.copy(null, outputFilepath);
+		g.setInputFilepaths(inputFilepaths);
+		return g;
+	}
+
+	/**
+	 * Split the output in horizontal bands of rows, to be warped by
+	 * concurrent gdalwarp processes and then stitched together, as done by
+	 * <code>GDALSplitWarp</code>. The bands share the grid of the whole
+	 * output: the extent is aligned first if <code>-tap</code> is set, and
+	 * every band covers an integer number of rows.
+	 * 
+	 * @param chunks
+	 *            Number of bands, reduced if the output has fewer rows
+	 * @param directory
+	 *            Directory of the GeoTIFF files written by the bands
+	 * @return One copy of this bean per band, with its own extent and output
+	 * @throws Exception
+	 *             If the output grid can't be computed without running
+	 *             gdalwarp: the extent (-te) and either the resolution (-tr)
+	 *             or the size (-ts) are needed
+	 */
+	public List<GDALWarp> split(int chunks, String directory) throws Exception {
+		GeoreferencedExtents te = this.getGeoreferencedExtents();
+		if (te == null)
+			throw new Exception("Split warp needs the target extent (-te).");
+		if (this.getGeoreferencedExtentsSpatialReference() != null)
+			throw new Exception("Split warp needs the target extent in the target SRS, without -te_srs.");
+		if (this.cropToCutline())
+			throw new Exception("Split warp can't be used with -crop_to_cutline.");
+		double xMin = Double.parseDouble(te.getxMin());
+		double yMin = Double.parseDouble(te.getyMin());
+		double xMax = Double.parseDouble(te.getxMax());
+		double yMax = Double.parseDouble(te.getyMax());
+		double xRes;
+		double yRes;
+		if (this.getOutputFileResolution() != null) {
+			xRes = Math.abs(Double.parseDouble(this.getOutputFileResolution().getxResolution()));
+			yRes = Math.abs(Double.parseDouble(this.getOutputFileResolution().getyResolution()));
+			if (this.targetAlignedPixels()) {
+				xMin = Math.floor(xMin / xRes) * xRes;
+				yMin = Math.floor(yMin / yRes) * yRes;
+				xMax = Math.ceil(xMax / xRes) * xRes;
+				yMax = Math.ceil(yMax / yRes) * yRes;
+			}
+		} else if (this.getOutputFileSize() != null) {
+			int w = Integer.parseInt(this.getOutputFileSize().getWidth());
+			int h = Integer.parseInt(this.getOutputFileSize().getHeight());
+			if (w <= 0 && h <= 0)
+				throw new Exception("Split warp needs a width or a height (-ts).");
+			xRes = w > 0 ? (xMax - xMin) / w : (yMax - yMin) / h;
+			yRes = h > 0 ? (yMax - yMin) / h : xRes;
+		} else {
+			throw new Exception("Split warp needs the target resolution (-tr) or size (-ts).");
+		}
+		int width = (int) ((xMax - xMin) / xRes + 0.5);
+		int height = (int) ((yMax - yMin) / yRes + 0.5);
+		if (width <= 0 || height <= 0)
+			throw new Exception("The target extent is empty.");
+		int n = Math.max(1, Math.min(chunks, height));
+		int rows = (height + n - 1) / n;
+		String name = new File(this.getOutputFilepath()).getName();
+		if (name.lastIndexOf('.') > 0)
+			name = name.substring(0, name.lastIndexOf('.'));
+		List<GDALWarp> l = new ArrayList<GDALWarp>();
+		for (int i = 0; i * rows < height; i++) {
+			double top = yMax - i * rows * yRes;
+			double bottom = yMax - Math.min(height, (i + 1) * rows) * yRes;
+			GDALWarp g = this.copy(this.getInputFilepaths(), new File(directory, name + "_" + i + ".tif").getPath());
+			g.setGeoreferencedExtents(new GeoreferencedExtents(GDALUtils.format(xMin), GDALUtils.format(bottom), GDALUtils.format(xMin + width * xRes), GDALUtils.format(top)));
+			g.setOutputFileResolution(new FileResolution(GDALUtils.format(xRes), GDALUtils.format(yRes)));
+			g.setOutputFileSize(null);
+			g.targetAlignedPixels(false);
+			if (this.getOutputFormat() != null && this.getOutputFormat() != FORMAT.GTiff)
+				g.setCreationOption(null);
+			g.setOutputFormat(FORMAT.GTiff);
+			g.overwrite(true);
+			l.add(g);
+		}
+		return l;
+	}
+
+	@Override
+	protected FORMAT getRasterOutputFormat() {
+		return this.getOutputFormat();
+	}
+
+	@Override
+	protected boolean requiresCreate() {
+		return true;
+	}
+
 	@Override
-	public String convert() throws Exception {
+	public List<String> getArguments() throws Exception {
 
 		// generic help
-		if (this.getScript() != null && !this.getScript().isEmpty()) {
-			return this.getScript();
-		} else if (this.showHelp()) {
-			this.getSB().append("gdalinfo --help");
-			return this.getSB().toString();
+		List<String> a = this.getGenericArguments();
+		if (a != null)
+			return a;
+
+		a = new ArrayList<String>();
+		a.add("gdalwarp");
+		if (this.getInputSpatialReference() != null && !this.getInputSpatialReference().isEmpty()) {
+			a.add("-s_srs");
+			a.add(this.getInputSpatialReference());
 		}
-		
-		this.getSB().append("gdalwarp ");
-		if (this.getInputSpatialReference() != null && !this.getInputSpatialReference().isEmpty())
-			this.getSB().append("-s_srs \"").append(this.getInputSpatialReference()).append("\" ");
-		if (this.getOutputSpatialReference() != null && !this.getOutputSpatialReference().isEmpty())
-			this.getSB().append("-t_srs \"").append(this.getOutputSpatialReference()).append("\" ");
-		if (this.getTransformerOptions() != null && !this.getTransformerOptions().isEmpty())
-			for (String key : this.getTransformerOptions().keySet())
-				this.getSB().append("-to \"").append(key).append("=").append(this.getTransformerOptions().get(key)).append("\" ");
+		if (this.getOutputSpatialReference() != null && !this.getOutputSpatialReference().isEmpty()) {
+			a.add("-t_srs");
+			a.add(this.getOutputSpatialReference());
+		}
+		addOptionArguments(a, "-to", this.getTransformerOptions());
 		if (this.getOrder() != null) {
 			if (this.getOrder() > 0 && this.getOrder() < 4) {
-				this.getSB().append("-order ").append(this.getOrder()).append(" ");
+				a.add("-order");
+				a.add(String.valueOf(this.getOrder()));
 			} else {
 				throw new Exception("Order of polynomial used for warping must be between 1 and 3.");
 			}
 		}
 		if (this.forceThinPlateSplineTransformer)
-			this.getSB().append("-tps ");
+			a.add("-tps");
 		if (this.forceRPCs)
-			this.getSB().append("-rpc ");
+			a.add("-rpc");
 		if (this.forceGeolocationArrays)
-			this.getSB().append("-geoloc ");
-		if (this.getErrorTreshold() != null)
-			this.getSB().append("-ec ").append(this.getErrorTreshold()).append(" ");
-		if (this.getToleranceMinimumGCPs() != null)
-			this.getSB().append("-refine_gcps ").append(this.getToleranceMinimumGCPs()).append(" ");
-		if (this.getGeoreferencedExtents() != null)
-			this.getSB().append("-te ").append(this.getGeoreferencedExtents()).append(" ");
-		if (this.getOutputFileResolution() != null)
-			this.getSB().append("-tr ").append(this.getOutputFileResolution()).append(" ");
-		if (this.targetAlignedPixels)
-			this.getSB().append("-tap ");
-		if (this.getOutputFileSize() != null)
-			this.getSB().append("-tr ").append(this.getOutputFileSize()).append(" ");
-		if (this.getWarpOptions() != null && !this.getWarpOptions().isEmpty())
-			for (WARPOPTION key : this.getWarpOptions().keySet())
-				this.getSB().append("-wo \"").append(key.name()).append("=").append(this.getWarpOptions().get(key)).append("\" ");
-		if (this.getOutputBandsType() != null && !this.getOutputBandsType().isEmpty())
-			this.getSB().append("-ot ").append(this.getOutputBandsType()).append(" ");
-		if (this.getWorkingPixelDataType() != null && !this.getWorkingPixelDataType().isEmpty())
-			this.getSB().append("-wt ").append(this.getWorkingPixelDataType()).append(" ");
-		if (this.getResampling() != null)
-			this.getSB().append("-r ").append(this.getResampling().name()).append(" ");
-		if (this.getInputNoData() != null && this.getInputNoData().isEmpty()) {
-			for (String key : this.getInputNoData().keySet()) {
-				this.getSB().append("-srcnodata ");
-				for (String value : this.getInputNoData().get(key))
-					this.getSB().append(value).append(" ");
-			}
+			a.add("-geoloc");
+		if (this.getErrorTreshold() != null) {
+			a.add("-et");
+			a.add(String.valueOf(this.getErrorTreshold()));
 		}
-		if (this.getOutputNoData() != null && this.getOutputNoData().isEmpty()) {
-			for (String key : this.getOutputNoData().keySet()) {
-				this.getSB().append("-dstnodata ");
-				for (String value : this.getOutputNoData().get(key))
-					this.getSB().append(value).append(" ");
+		if (this.getToleranceMinimumGCPs() != null) {
+			a.add("-refine_gcps");
+			a.add(String.valueOf(this.getToleranceMinimumGCPs()));
+		}
+		if (this.getGeoreferencedExtents() != null) {
+			a.add("-te");
+			a.add(this.getGeoreferencedExtents().getxMin());
+			a.add(this.getGeoreferencedExtents().getyMin());
+			a.add(this.getGeoreferencedExtents().getxMax());
+			a.add(this.getGeoreferencedExtents().getyMax());
+			if (this.getGeoreferencedExtentsSpatialReference() != null) {
+				a.add("-te_srs");
+				a.add(this.getGeoreferencedExtentsSpatialReference());
 			}
 		}
+		if (this.getOutputFileResolution() != null) {
+			a.add("-tr");
+			a.add(this.getOutputFileResolution().getxResolution());
+			a.add(this.getOutputFileResolution().getyResolution());
+		}
+		if (this.targetAlignedPixels)
+			a.add("-tap");
+		if (this.getOutputFileSize() != null) {
+			a.add("-ts");
+			a.add(this.getOutputFileSize().getWidth());
+			a.add(this.getOutputFileSize().getHeight());
+		}
+		addOptionArguments(a, "-wo", this.getWarpOptions());
+		if (this.getOutputBandsType() != null && !this.getOutputBandsType().isEmpty()) {
+			a.add("-ot");
+			a.add(this.getOutputBandsType());
+		}
+		if (this.getWorkingPixelDataType() != null && !this.getWorkingPixelDataType().isEmpty()) {
+			a.add("-wt");
+			a.add(this.getWorkingPixelDataType());
+		}
+		if (this.getResampling() != null) {
+			a.add("-r");
+			a.add(this.getResampling().name());
+		}
+		addNoDataArguments(a, "-srcnodata", this.getInputNoData());
+		addNoDataArguments(a, "-dstnodata", this.getOutputNoData());
 		if (this.outputAlphaBand())
-			this.getSB().append("-dstalpha ");
-		if (this.getCacheMemory() != null)
-			this.getSB().append("-wm ").append(this.getCacheMemory()).append(" ");
+			a.add("-dstalpha");
+		if (this.getCacheMemory() != null) {
+			a.add("-wm");
+			a.add(String.valueOf(this.getCacheMemory()));
+		}
 		if (this.multithread())
-			this.getSB().append("-multi ");
+			a.add("-multi");
 		if (this.quiet())
-			this.getSB().append("-q ");
-		if (this.getOutputFormat() != null)
-			this.getSB().append("-of ").append(this.getOutputFormat().name()).append(" ");
-		if (this.getCreationOption() != null && !this.getCreationOption().isEmpty())
-			for (String key : this.getCreationOption().keySet())
-				this.getSB().append("-co \"").append(key).append("=").append(this.getCreationOption().get(key)).append("\" ");
-		if (this.getCutlineDatasource() != null && !this.getCutlineDatasource().isEmpty())
-			this.getSB().append("-cutline ").append(this.getCutlineDatasource()).append(" ");
-		if (this.getCutlineLayer() != null && !this.getCutlineLayer().isEmpty())
-			this.getSB().append("-cl ").append(this.getCutlineLayer()).append(" ");
-		if (this.getCutlineWhere() != null && !this.getCutlineWhere().isEmpty())
-			this.getSB().append("-cwhere ").append(this.getCutlineWhere()).append(" ");
-		if (this.getCutlineSQL() != null && !this.getCutlineSQL().isEmpty())
-			this.getSB().append("-csql ").append(this.getCutlineSQL()).append(" ");
-		if (this.getCutlineBlendDistance() != null && !this.getCutlineBlendDistance().isEmpty())
-			this.getSB().append("-cblend ").append(this.getCutlineBlendDistance()).append(" ");
+			a.add("-q");
+		if (this.getOutputFormat() != null) {
+			a.add("-of");
+			a.add(this.getOutputFormat().name());
+		}
+		addOptionArguments(a, "-co", this.getCreationOption());
+		if (this.getCutlineDatasource() != null && !this.getCutlineDatasource().isEmpty()) {
+			a.add("-cutline");
+			a.add(this.getCutlineDatasource());
+		}
+		if (this.getCutlineLayer() != null && !this.getCutlineLayer().isEmpty()) {
+			a.add("-cl");
+			a.add(this.getCutlineLayer());
+		}
+		if (this.getCutlineWhere() != null && !this.getCutlineWhere().isEmpty()) {
+			a.add("-cwhere");
+			a.add(this.getCutlineWhere());
+		}
+		if (this.getCutlineSQL() != null && !this.getCutlineSQL().isEmpty()) {
+			a.add("-csql");
+			a.add(this.getCutlineSQL());
+		}
+		if (this.getCutlineBlendDistance() != null && !this.getCutlineBlendDistance().isEmpty()) {
+			a.add("-cblend");
+			a.add(this.getCutlineBlendDistance());
+		}
 		if (this.cropToCutline())
-			this.getSB().append("-crop_to_cutline ");
+			a.add("-crop_to_cutline");
 		if (this.overwrite())
-			this.getSB().append("-overwrite ");
-		if (this.getInputFilepaths().isEmpty()) {
+			a.add("-overwrite");
+		if (this.getInputFilepaths() == null || this.getInputFilepaths().isEmpty()) {
 			throw new Exception("No input data sources have been defined.");
 		} else {
-			for (String i : this.getInputFilepaths())
-				this.getSB().append(i).append(" ");
+			a.addAll(this.getInputFilepaths());
 		}
 		if (this.getOutputFilepath() != null && !this.getOutputFilepath().isEmpty()) {
-			this.getSB().append(this.getOutputFilepath()).append(" ");
+			a.add(this.getOutputFilepath());
 		} else {
 			throw new Exception("No output file has been defined.");
 		}
-		
+
 		// configuration options
-		if (this.getConfig() != null && !this.getConfig().isEmpty())
-			for (CONFIG key : this.getConfig().keySet())
-				this.getSB().append("--config ").append(key.name()).append(" ").append(this.getConfig().get(key)).append(" ");
+		this.addConfigArguments(a);
 
-		return this.getSB().toString();
+		return a;
+	}
+
+	/**
+	 * Multiple nodata values are joined in a single argument, as gdalwarp
+	 * expects them.
+	 */
+	private static void addNoDataArguments(List<String> a, String flag, Map<String, List<String>> noData) {
+		if (noData != null && !noData.isEmpty()) {
+			for (List<String> values : noData.values()) {
+				StringBuilder sb = new StringBuilder();
+				for (String value : values) {
+					if (sb.length() > 0)
+						sb.append(" ");
+					sb.append(value);
+				}
+				a.add(flag);
+				a.add(sb.toString());
+			}
+		}
 	}
 
 }
\ No newline at end of file
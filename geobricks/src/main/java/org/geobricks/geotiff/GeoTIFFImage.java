@@ -0,0 +1,512 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.gdal.dem.engine.DEMRaster;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         One image (IFD) of a GeoTIFF file: the full resolution raster, an
+ *         overview or a mask. Pixels are organized in segments, tiles or
+ *         strips, numbered as in the TIFF offsets: row by row and, for planar
+ *         images, band after band. Bands are numbered from 1, as in GDAL.
+ * 
+ *         Uncompressed segments are served as views of the mapped file,
+ *         without copying; compressed segments are decoded on every call.
+ *         Buffers use the byte order of the file, so they can be viewed as
+ *         <code>ShortBuffer</code>, <code>FloatBuffer</code> and so on.
+ * 
+ */
+public class GeoTIFFImage {
+
+	private GeoTIFFReader reader;
+
+	private Map<Integer, Object> tags;
+
+	private Map<Integer, Object> geoKeys = new HashMap<Integer, Object>();
+
+	private int width;
+
+	private int height;
+
+	private int samplesPerPixel;
+
+	private int bitsPerSample;
+
+	private int sampleFormat;
+
+	private int compression;
+
+	private int predictor;
+
+	private int planarConfiguration;
+
+	private boolean tiled;
+
+	private int tileWidth;
+
+	private int tileHeight;
+
+	private long[] offsets;
+
+	private long[] byteCounts;
+
+	GeoTIFFImage(GeoTIFFReader reader, Map<Integer, Object> tags) throws IOException {
+		this.reader = reader;
+		this.tags = tags;
+		this.width = (int) this.getLong(TIFFTag.IMAGE_WIDTH, -1);
+		this.height = (int) this.getLong(TIFFTag.IMAGE_LENGTH, -1);
+		if (this.width <= 0 || this.height <= 0)
+			throw new IOException("The image has no size.");
+		this.samplesPerPixel = (int) this.getLong(TIFFTag.SAMPLES_PER_PIXEL, 1);
+		this.bitsPerSample = (int) this.getLong(TIFFTag.BITS_PER_SAMPLE, 1);
+		this.sampleFormat = (int) this.getLong(TIFFTag.SAMPLE_FORMAT, TIFFTag.SAMPLE_FORMAT_UINT);
+		this.compression = (int) this.getLong(TIFFTag.COMPRESSION, TIFFTag.COMPRESSION_NONE);
+		this.predictor = (int) this.getLong(TIFFTag.PREDICTOR, TIFFTag.PREDICTOR_NONE);
+		this.planarConfiguration = (int) this.getLong(TIFFTag.PLANAR_CONFIGURATION, 1);
+		this.tiled = tags.containsKey(TIFFTag.TILE_OFFSETS);
+		if (this.tiled) {
+			this.tileWidth = (int) this.getLong(TIFFTag.TILE_WIDTH, -1);
+			this.tileHeight = (int) this.getLong(TIFFTag.TILE_LENGTH, -1);
+			this.offsets = (long[]) tags.get(TIFFTag.TILE_OFFSETS);
+			this.byteCounts = (long[]) tags.get(TIFFTag.TILE_BYTE_COUNTS);
+		} else {
+			this.tileWidth = this.width;
+			this.tileHeight = (int) Math.min(this.height, this.getLong(TIFFTag.ROWS_PER_STRIP, this.height));
+			this.offsets = (long[]) tags.get(TIFFTag.STRIP_OFFSETS);
+			this.byteCounts = (long[]) tags.get(TIFFTag.STRIP_BYTE_COUNTS);
+		}
+		if (this.tileWidth <= 0 || this.tileHeight <= 0)
+			throw new IOException("The image has no tile size.");
+		if (this.offsets == null || this.byteCounts == null || this.offsets.length < this.getSegmentCount() || this.byteCounts.length < this.getSegmentCount())
+			throw new IOException("The image has " + (this.offsets == null ? 0 : this.offsets.length) + " segments instead of " + this.getSegmentCount() + ".");
+		this.parseGeoKeys();
+	}
+
+	private long getLong(int tag, long defaultValue) {
+		Object o = this.tags.get(tag);
+		if (o instanceof long[] && ((long[]) o).length > 0)
+			return ((long[]) o)[0];
+		return defaultValue;
+	}
+
+	private void parseGeoKeys() {
+		Object o = this.tags.get(TIFFTag.GEO_KEY_DIRECTORY);
+		if (!(o instanceof long[]))
+			return;
+		long[] d = (long[]) o;
+		Object doubles = this.tags.get(TIFFTag.GEO_DOUBLE_PARAMS);
+		Object ascii = this.tags.get(TIFFTag.GEO_ASCII_PARAMS);
+		int keys = d.length >= 4 ? (int) d[3] : 0;
+		for (int i = 0; i < keys && 4 + 4 * i + 3 < d.length; i++) {
+			int key = (int) d[4 + 4 * i];
+			int location = (int) d[5 + 4 * i];
+			int count = (int) d[6 + 4 * i];
+			int offset = (int) d[7 + 4 * i];
+			if (location == 0) {
+				this.geoKeys.put(key, offset);
+			} else if (location == TIFFTag.GEO_DOUBLE_PARAMS && doubles instanceof double[]) {
+				double[] p = (double[]) doubles;
+				if (offset + count <= p.length) {
+					double[] v = new double[count];
+					System.arraycopy(p, offset, v, 0, count);
+					this.geoKeys.put(key, count == 1 ? (Object) v[0] : v);
+				}
+			} else if (location == TIFFTag.GEO_ASCII_PARAMS && ascii instanceof String) {
+				String s = (String) ascii;
+				if (offset + count <= s.length()) {
+					String v = s.substring(offset, offset + count);
+					if (v.endsWith("|"))
+						v = v.substring(0, v.length() - 1);
+					this.geoKeys.put(key, v);
+				}
+			} else if (location == TIFFTag.GEO_KEY_DIRECTORY && offset + count <= d.length) {
+				double[] v = new double[count];
+				for (int k = 0; k < count; k++)
+					v[k] = d[offset + k];
+				this.geoKeys.put(key, v);
+			}
+		}
+	}
+
+	/**
+	 * @return Raw value of a tag: <code>long[]</code> for integers,
+	 *         <code>double[]</code> for rationals and floating point numbers,
+	 *         <code>String</code> for text, <code>null</code> if missing
+	 */
+	public Object getTag(int tag) {
+		return this.tags.get(tag);
+	}
+
+	/**
+	 * @return GeoKeys by key code: <code>Integer</code>, <code>Double</code>,
+	 *         <code>double[]</code> or <code>String</code>
+	 */
+	public Map<Integer, Object> getGeoKeys() {
+		return Collections.unmodifiableMap(this.geoKeys);
+	}
+
+	/**
+	 * @return Affine transformation from pixel to georeferenced coordinates,
+	 *         as the GDAL geotransform, <code>null</code> if the image is not
+	 *         georeferenced by a transformation or by a tie point and a pixel
+	 *         scale
+	 */
+	public double[] getGeoTransform() {
+		double[] gt = null;
+		Object transformation = this.tags.get(TIFFTag.MODEL_TRANSFORMATION);
+		Object tiepoint = this.tags.get(TIFFTag.MODEL_TIEPOINT);
+		Object scale = this.tags.get(TIFFTag.MODEL_PIXEL_SCALE);
+		if (transformation instanceof double[] && ((double[]) transformation).length >= 16) {
+			double[] m = (double[]) transformation;
+			gt = new double[] { m[3], m[0], m[1], m[7], m[4], m[5] };
+		} else if (tiepoint instanceof double[] && scale instanceof double[] && ((double[]) tiepoint).length >= 6 && ((double[]) scale).length >= 2) {
+			double[] t = (double[]) tiepoint;
+			double[] s = (double[]) scale;
+			gt = new double[] { t[3] - t[0] * s[0], s[0], 0, t[4] + t[1] * s[1], 0, -s[1] };
+		}
+		if (gt != null && Integer.valueOf(TIFFTag.RASTER_PIXEL_IS_POINT).equals(this.geoKeys.get(TIFFTag.GT_RASTER_TYPE_GEO_KEY))) {
+			gt[0] -= 0.5 * gt[1] + 0.5 * gt[2];
+			gt[3] -= 0.5 * gt[4] + 0.5 * gt[5];
+		}
+		return gt;
+	}
+
+	/**
+	 * @return EPSG code of the projected or geographic coordinate system, 0
+	 *         if unknown or user defined
+	 */
+	public int getEPSG() {
+		Object o = this.geoKeys.get(TIFFTag.PROJECTED_CS_TYPE_GEO_KEY);
+		if (!(o instanceof Integer) || (Integer) o == TIFFTag.USER_DEFINED)
+			o = this.geoKeys.get(TIFFTag.GEOGRAPHIC_TYPE_GEO_KEY);
+		if (!(o instanceof Integer) || (Integer) o == TIFFTag.USER_DEFINED)
+			return 0;
+		return (Integer) o;
+	}
+
+	/**
+	 * @return <code>true</code> if the GDAL no data tag is set
+	 */
+	public boolean isNoDataSet() {
+		return this.getNoDataString() != null;
+	}
+
+	/**
+	 * @return Value of the GDAL no data tag, NaN if it is not set
+	 */
+	public double getNoData() {
+		String s = this.getNoDataString();
+		if (s == null)
+			return Double.NaN;
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private String getNoDataString() {
+		Object o = this.tags.get(TIFFTag.GDAL_NODATA);
+		return o instanceof String && ((String) o).trim().length() > 0 ? ((String) o).trim() : null;
+	}
+
+	/**
+	 * @return GDAL metadata XML, <code>null</code> if missing
+	 */
+	public String getMetadata() {
+		Object o = this.tags.get(TIFFTag.GDAL_METADATA);
+		return o instanceof String ? (String) o : null;
+	}
+
+	/**
+	 * @return <code>true</code> if the image is a reduced resolution version of
+	 *         another image, as the overviews written by gdaladdo
+	 */
+	public boolean isOverview() {
+		return (this.getLong(TIFFTag.NEW_SUBFILE_TYPE, 0) & 1) != 0;
+	}
+
+	/**
+	 * @return Data type of the samples, <code>null</code> if GDAL has no
+	 *         matching type
+	 */
+	public BANDSTYPE getBandsType() {
+		switch (this.sampleFormat) {
+		case TIFFTag.SAMPLE_FORMAT_UINT:
+			return this.bitsPerSample == 8 ? BANDSTYPE.Byte : this.bitsPerSample == 16 ? BANDSTYPE.UInt16 : this.bitsPerSample == 32 ? BANDSTYPE.UInt32 : null;
+		case TIFFTag.SAMPLE_FORMAT_INT:
+			return this.bitsPerSample == 16 ? BANDSTYPE.Int16 : this.bitsPerSample == 32 ? BANDSTYPE.Int32 : null;
+		case TIFFTag.SAMPLE_FORMAT_IEEEFP:
+			return this.bitsPerSample == 32 ? BANDSTYPE.Float32 : this.bitsPerSample == 64 ? BANDSTYPE.Float64 : null;
+		case TIFFTag.SAMPLE_FORMAT_COMPLEXINT:
+			return this.bitsPerSample == 32 ? BANDSTYPE.CInt16 : this.bitsPerSample == 64 ? BANDSTYPE.CInt32 : null;
+		case TIFFTag.SAMPLE_FORMAT_COMPLEXIEEEFP:
+			return this.bitsPerSample == 64 ? BANDSTYPE.CFloat32 : this.bitsPerSample == 128 ? BANDSTYPE.CFloat64 : null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return Number of segments across the image
+	 */
+	public int getTilesAcross() {
+		return (this.width + this.tileWidth - 1) / this.tileWidth;
+	}
+
+	/**
+	 * @return Number of segments down the image
+	 */
+	public int getTilesDown() {
+		return (this.height + this.tileHeight - 1) / this.tileHeight;
+	}
+
+	/**
+	 * @return Number of tiles or strips, of all the bands
+	 */
+	public int getSegmentCount() {
+		int n = this.getTilesAcross() * this.getTilesDown();
+		return this.planarConfiguration == 2 ? n * this.samplesPerPixel : n;
+	}
+
+	/**
+	 * @param tileX
+	 *            Column of the tile, 0 for strips
+	 * @param tileY
+	 *            Row of the tile or index of the strip
+	 * @param band
+	 *            Band, from 1; ignored unless the image is planar
+	 * @return Index of the segment in the offsets
+	 */
+	public int getSegmentIndex(int tileX, int tileY, int band) {
+		int i = tileY * this.getTilesAcross() + tileX;
+		if (this.planarConfiguration == 2)
+			i += (band - 1) * this.getTilesAcross() * this.getTilesDown();
+		return i;
+	}
+
+	/**
+	 * @return Rows of a segment: the strips at the bottom of the image may be
+	 *         shorter than the others, tiles never are
+	 */
+	public int getSegmentRows(int index) {
+		if (this.tiled)
+			return this.tileHeight;
+		int row = (index % this.getTilesDown()) * this.tileHeight;
+		return Math.min(this.tileHeight, this.height - row);
+	}
+
+	/**
+	 * @return Size in bytes of the decoded segment
+	 */
+	public int getSegmentSize(int index) {
+		int samples = this.planarConfiguration == 2 ? 1 : this.samplesPerPixel;
+		return this.tileWidth * this.getSegmentRows(index) * samples * (this.bitsPerSample / 8);
+	}
+
+	/**
+	 * @return <code>true</code> if the segment is missing from the file, as in
+	 *         the sparse files written by GDAL
+	 */
+	public boolean isSparse(int index) {
+		return this.offsets[index] == 0 || this.byteCounts[index] == 0;
+	}
+
+	/**
+	 * @return Segment as stored in the file, compressed or not, as a view of
+	 *         the mapped file. Useful to serve the tiles of a compressed file
+	 *         without decoding them.
+	 */
+	public ByteBuffer getRawSegment(int index) throws IOException {
+		if (this.isSparse(index))
+			return ByteBuffer.allocate(0).order(this.reader.getByteOrder());
+		if (this.byteCounts[index] > Integer.MAX_VALUE)
+			throw new IOException("Segment " + index + " is too large.");
+		return this.reader.slice(this.offsets[index], (int) this.byteCounts[index]);
+	}
+
+	/**
+	 * @return Decoded segment, in the byte order of the file. Uncompressed
+	 *         segments are views of the mapped file, the others are decoded
+	 *         in a new buffer.
+	 */
+	public ByteBuffer getSegment(int index) throws IOException {
+		int size = this.getSegmentSize(index);
+		if (this.isSparse(index))
+			return ByteBuffer.allocate(size).order(this.reader.getByteOrder());
+		ByteBuffer raw = this.getRawSegment(index);
+		if (this.compression == TIFFTag.COMPRESSION_NONE && this.predictor == TIFFTag.PREDICTOR_NONE && raw.remaining() >= size) {
+			raw.limit(size);
+			return raw.slice().order(this.reader.getByteOrder());
+		}
+		byte[] data = TIFFCodec.decode(this.compression, raw, size);
+		int samples = this.planarConfiguration == 2 ? 1 : this.samplesPerPixel;
+		TIFFCodec.undoPredictor(this.predictor, data, this.reader.getByteOrder(), this.getSegmentRows(index), this.tileWidth, samples, this.bitsPerSample / 8);
+		return ByteBuffer.wrap(data).order(this.reader.getByteOrder());
+	}
+
+	/**
+	 * @param band
+	 *            Band, from 1
+	 * @param x
+	 *            First column
+	 * @param y
+	 *            First row
+	 * @param width
+	 *            Columns
+	 * @param height
+	 *            Rows
+	 * @return Samples of the window, row by row. Sparse segments are filled
+	 *         with the no data value, or 0.
+	 */
+	public float[] readWindow(int band, int x, int y, int width, int height) throws IOException {
+		if (band < 1 || band > this.samplesPerPixel)
+			throw new IllegalArgumentException("Band " + band + " doesn't exist.");
+		if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height)
+			throw new IllegalArgumentException("The window exceeds the image.");
+		BANDSTYPE type = this.getBandsType();
+		if (type == null || type.name().startsWith("C"))
+			throw new IOException("Samples of " + this.bitsPerSample + " bits in format " + this.sampleFormat + " can't be read.");
+		float[] out = new float[width * height];
+		if (width == 0 || height == 0)
+			return out;
+		int bytes = this.bitsPerSample / 8;
+		int pixel = this.planarConfiguration == 2 ? bytes : bytes * this.samplesPerPixel;
+		int shift = this.planarConfiguration == 2 ? 0 : (band - 1) * bytes;
+		float fill = this.isNoDataSet() ? (float) this.getNoData() : 0;
+		for (int ty = y / this.tileHeight; ty <= (y + height - 1) / this.tileHeight; ty++) {
+			for (int tx = x / this.tileWidth; tx <= (x + width - 1) / this.tileWidth; tx++) {
+				int index = this.getSegmentIndex(tx, ty, band);
+				int x0 = Math.max(x, tx * this.tileWidth);
+				int x1 = Math.min(x + width, (tx + 1) * this.tileWidth);
+				int y0 = Math.max(y, ty * this.tileHeight);
+				int y1 = Math.min(y + height, (ty + 1) * this.tileHeight);
+				if (this.isSparse(index)) {
+					for (int r = y0; r < y1; r++)
+						for (int c = x0; c < x1; c++)
+							out[(r - y) * width + c - x] = fill;
+					continue;
+				}
+				ByteBuffer b = this.getSegment(index);
+				for (int r = y0; r < y1; r++) {
+					int p = ((r - ty * this.tileHeight) * this.tileWidth + x0 - tx * this.tileWidth) * pixel + shift;
+					int o = (r - y) * width + x0 - x;
+					for (int c = x0; c < x1; c++, p += pixel)
+						out[o++] = sample(b, p, type);
+				}
+			}
+		}
+		return out;
+	}
+
+	private static float sample(ByteBuffer b, int p, BANDSTYPE type) {
+		switch (type) {
+		case Byte:
+			return b.get(p) & 0xff;
+		case Int16:
+			return b.getShort(p);
+		case UInt16:
+			return b.getShort(p) & 0xffff;
+		case Int32:
+			return b.getInt(p);
+		case UInt32:
+			return b.getInt(p) & 0xffffffffL;
+		case Float32:
+			return b.getFloat(p);
+		default:
+			return (float) b.getDouble(p);
+		}
+	}
+
+	/**
+	 * @param band
+	 *            Band, from 1
+	 * @return The band, ready for the <code>DEMEngine</code>
+	 */
+	public DEMRaster readRaster(int band) throws IOException {
+		double[] gt = this.getGeoTransform();
+		DEMRaster r = new DEMRaster(this.readWindow(band, 0, 0, this.width, this.height), this.width, this.height, gt == null ? 1 : gt[1], gt == null ? -1 : gt[5]);
+		if (this.isNoDataSet())
+			r.setNoData((float) this.getNoData());
+		return r;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSamplesPerPixel() {
+		return samplesPerPixel;
+	}
+
+	public int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	public int getSampleFormat() {
+		return sampleFormat;
+	}
+
+	public int getCompression() {
+		return compression;
+	}
+
+	public int getPredictor() {
+		return predictor;
+	}
+
+	public int getPlanarConfiguration() {
+		return planarConfiguration;
+	}
+
+	public boolean isTiled() {
+		return tiled;
+	}
+
+	/**
+	 * @return Width of the tiles, or of the image for strips
+	 */
+	public int getTileWidth() {
+		return tileWidth;
+	}
+
+	/**
+	 * @return Height of the tiles, or rows per strip
+	 */
+	public int getTileHeight() {
+		return tileHeight;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,274 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Reads GeoTIFF and BigTIFF files in the JVM, without GDAL. The file
+ *         is mapped in memory with <code>FileChannel.map</code>: headers and
+ *         uncompressed tiles and strips are read straight from the mapping,
+ *         DEFLATE, LZW and PackBits segments are decoded on request. Files
+ *         larger than 2 GB are mapped one segment at a time.
+ * 
+ *         The reader is safe for concurrent use: the mapping is never
+ *         repositioned, every call works on its own view.
+ * 
+ */
+public class GeoTIFFReader implements Closeable {
+
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	private long size;
+
+	private MappedByteBuffer map;
+
+	private ByteOrder byteOrder;
+
+	private boolean bigTIFF;
+
+	private List<GeoTIFFImage> images = new ArrayList<GeoTIFFImage>();
+
+	public GeoTIFFReader(String filepath) throws IOException {
+		this(new File(filepath));
+	}
+
+	public GeoTIFFReader(File f) throws IOException {
+		this.file = new RandomAccessFile(f, "r");
+		try {
+			this.channel = this.file.getChannel();
+			this.size = this.channel.size();
+			if (this.size <= Integer.MAX_VALUE)
+				this.map = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+			this.readHeader();
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	private void readHeader() throws IOException {
+		ByteBuffer h = this.slice(0, (int) Math.min(16, this.size));
+		if (h.remaining() < 8)
+			throw new IOException("Not a TIFF file.");
+		if (h.get(0) == 'I' && h.get(1) == 'I')
+			this.byteOrder = ByteOrder.LITTLE_ENDIAN;
+		else if (h.get(0) == 'M' && h.get(1) == 'M')
+			this.byteOrder = ByteOrder.BIG_ENDIAN;
+		else
+			throw new IOException("Not a TIFF file.");
+		h.order(this.byteOrder);
+		int version = h.getShort(2);
+		long offset;
+		if (version == 42) {
+			offset = h.getInt(4) & 0xffffffffL;
+		} else if (version == 43 && h.remaining() >= 16 && h.getShort(4) == 8) {
+			this.bigTIFF = true;
+			offset = h.getLong(8);
+		} else {
+			throw new IOException("Not a TIFF file.");
+		}
+		Set<Long> visited = new HashSet<Long>();
+		while (offset != 0) {
+			if (!visited.add(offset) || offset < 0 || offset >= this.size)
+				throw new IOException("Invalid IFD offset " + offset + ".");
+			offset = this.readIFD(offset);
+		}
+		if (this.images.isEmpty())
+			throw new IOException("The file contains no image.");
+	}
+
+	/**
+	 * @return Offset of the next IFD
+	 */
+	private long readIFD(long offset) throws IOException {
+		int countSize = this.bigTIFF ? 8 : 2;
+		int entrySize = this.bigTIFF ? 20 : 12;
+		ByteBuffer b = this.slice(offset, countSize);
+		long count = this.bigTIFF ? b.getLong(0) : b.getShort(0) & 0xffff;
+		if (count < 0 || offset + countSize + count * entrySize + (this.bigTIFF ? 8 : 4) > this.size)
+			throw new IOException("Truncated IFD at offset " + offset + ".");
+		b = this.slice(offset + countSize, (int) count * entrySize + (this.bigTIFF ? 8 : 4));
+		Map<Integer, Object> tags = new HashMap<Integer, Object>();
+		for (int i = 0; i < count; i++) {
+			int p = i * entrySize;
+			int tag = b.getShort(p) & 0xffff;
+			int type = b.getShort(p + 2) & 0xffff;
+			long n = this.bigTIFF ? b.getLong(p + 4) : b.getInt(p + 4) & 0xffffffffL;
+			int size = TIFFTag.size(type);
+			if (size == 0 || n < 0 || n > Integer.MAX_VALUE / size)
+				continue;
+			int length = (int) n * size;
+			ByteBuffer values;
+			int position;
+			if (length <= (this.bigTIFF ? 8 : 4)) {
+				values = b;
+				position = p + (this.bigTIFF ? 12 : 8);
+			} else {
+				long o = this.bigTIFF ? b.getLong(p + 12) : b.getInt(p + 8) & 0xffffffffL;
+				if (o < 0 || o + length > this.size)
+					continue;
+				values = this.slice(o, length);
+				position = 0;
+			}
+			tags.put(tag, values(values, position, type, (int) n));
+		}
+		long next = this.bigTIFF ? b.getLong((int) count * entrySize) : b.getInt((int) count * entrySize) & 0xffffffffL;
+		this.images.add(new GeoTIFFImage(this, tags));
+		return next;
+	}
+
+	private static Object values(ByteBuffer b, int p, int type, int n) {
+		switch (type) {
+		case TIFFTag.TYPE_ASCII:
+			byte[] s = new byte[n];
+			for (int i = 0; i < n; i++)
+				s[i] = b.get(p + i);
+			int end = n;
+			while (end > 0 && s[end - 1] == 0)
+				end--;
+			try {
+				return new String(s, 0, end, "ISO-8859-1");
+			} catch (UnsupportedEncodingException e) {
+				return new String(s, 0, end);
+			}
+		case TIFFTag.TYPE_RATIONAL:
+		case TIFFTag.TYPE_SRATIONAL:
+		case TIFFTag.TYPE_FLOAT:
+		case TIFFTag.TYPE_DOUBLE:
+			double[] d = new double[n];
+			for (int i = 0; i < n; i++) {
+				if (type == TIFFTag.TYPE_FLOAT) {
+					d[i] = b.getFloat(p + 4 * i);
+				} else if (type == TIFFTag.TYPE_DOUBLE) {
+					d[i] = b.getDouble(p + 8 * i);
+				} else if (type == TIFFTag.TYPE_RATIONAL) {
+					d[i] = (double) (b.getInt(p + 8 * i) & 0xffffffffL) / (b.getInt(p + 8 * i + 4) & 0xffffffffL);
+				} else {
+					d[i] = (double) b.getInt(p + 8 * i) / b.getInt(p + 8 * i + 4);
+				}
+			}
+			return d;
+		default:
+			long[] l = new long[n];
+			for (int i = 0; i < n; i++) {
+				switch (type) {
+				case TIFFTag.TYPE_BYTE:
+				case TIFFTag.TYPE_UNDEFINED:
+					l[i] = b.get(p + i) & 0xff;
+					break;
+				case TIFFTag.TYPE_SBYTE:
+					l[i] = b.get(p + i);
+					break;
+				case TIFFTag.TYPE_SHORT:
+					l[i] = b.getShort(p + 2 * i) & 0xffff;
+					break;
+				case TIFFTag.TYPE_SSHORT:
+					l[i] = b.getShort(p + 2 * i);
+					break;
+				case TIFFTag.TYPE_LONG:
+				case TIFFTag.TYPE_IFD:
+					l[i] = b.getInt(p + 4 * i) & 0xffffffffL;
+					break;
+				case TIFFTag.TYPE_SLONG:
+					l[i] = b.getInt(p + 4 * i);
+					break;
+				default:
+					l[i] = b.getLong(p + 8 * i);
+				}
+			}
+			return l;
+		}
+	}
+
+	/**
+	 * @return View of a region of the file, in the byte order of the file
+	 */
+	ByteBuffer slice(long offset, int length) throws IOException {
+		if (offset < 0 || offset + length > this.size)
+			throw new IOException("Region " + offset + " - " + (offset + length) + " is outside the file.");
+		ByteBuffer b;
+		if (this.map != null) {
+			b = this.map.duplicate();
+			b.position((int) offset);
+			b.limit((int) offset + length);
+			b = b.slice();
+		} else {
+			b = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		}
+		return b.order(this.byteOrder == null ? ByteOrder.BIG_ENDIAN : this.byteOrder);
+	}
+
+	/**
+	 * @return All the images of the file, in the order of the IFDs
+	 */
+	public List<GeoTIFFImage> getImages() {
+		return Collections.unmodifiableList(this.images);
+	}
+
+	/**
+	 * @return The first image of the file, usually the full resolution one
+	 */
+	public GeoTIFFImage getImage() {
+		return this.images.get(0);
+	}
+
+	public GeoTIFFImage getImage(int index) {
+		return this.images.get(index);
+	}
+
+	public ByteOrder getByteOrder() {
+		return byteOrder;
+	}
+
+	public boolean isBigTIFF() {
+		return bigTIFF;
+	}
+
+	/**
+	 * Release the file. The mapping is released by the garbage collector, the
+	 * buffers obtained from the reader stay readable until then.
+	 */
+	public void close() throws IOException {
+		this.file.close();
+	}
+
+}
\ No newline at end of file
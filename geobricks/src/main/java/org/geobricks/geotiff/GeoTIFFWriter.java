@@ -0,0 +1,800 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Writes a tiled GeoTIFF or BigTIFF file in the JVM, one tile at a
+ *         time, so that large outputs never sit in memory. Tiles are
+ *         compressed in parallel on worker threads and appended to the file in
+ *         the order they were handed to the writer; only a few tiles per
+ *         thread are pending at any time. The IFD is written at the end of the
+ *         file by <code>close</code>.
+ * 
+ *         Tiles not written are left sparse, as GDAL does with SPARSE_OK. The
+ *         options must be set before the first tile. The writer is meant to be
+ *         fed by one thread at a time.
+ * 
+ */
+public class GeoTIFFWriter implements Closeable {
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	/**
+	 * Size beyond which a BigTIFF is written, unless decided otherwise.
+	 */
+	private static final long BIGTIFF_THRESHOLD = 4000000000L;
+
+	private File file;
+
+	private int width;
+
+	private int height;
+
+	private int bands;
+
+	private BANDSTYPE type;
+
+	private int tileWidth = 256;
+
+	private int tileHeight = 256;
+
+	private int compression = TIFFTag.COMPRESSION_NONE;
+
+	private int level = 6;
+
+	private int predictor = TIFFTag.PREDICTOR_NONE;
+
+	private Boolean bigTIFF;
+
+	private double[] geoTransform;
+
+	private int epsg = 0;
+
+	private Double noData;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private ExecutorService executor;
+
+	private boolean shared = false;
+
+	private RandomAccessFile raf;
+
+	private FileChannel channel;
+
+	private long position;
+
+	private long[] offsets;
+
+	private long[] byteCounts;
+
+	private LinkedList<Pending> pending = new LinkedList<Pending>();
+
+	private boolean closed = false;
+
+	/**
+	 * @param file
+	 *            Output file, overwritten
+	 * @param width
+	 *            Columns
+	 * @param height
+	 *            Rows
+	 * @param bands
+	 *            Number of bands
+	 * @param type
+	 *            Data type of the bands
+	 */
+	public GeoTIFFWriter(File file, int width, int height, int bands, BANDSTYPE type) {
+		if (width <= 0 || height <= 0 || bands <= 0)
+			throw new IllegalArgumentException("Invalid size " + width + " x " + height + " x " + bands + ".");
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		this.bands = bands;
+		this.type = type;
+	}
+
+	/**
+	 * Apply the creation options of the GDAL GTiff driver that make sense for
+	 * this writer: BLOCKXSIZE, BLOCKYSIZE, COMPRESS (NONE or DEFLATE),
+	 * PREDICTOR, ZLEVEL, BIGTIFF and NUM_THREADS. The output is always tiled,
+	 * the other options are ignored.
+	 */
+	public void setCreationOptions(Map<String, String> options) throws IOException {
+		for (Map.Entry<String, String> e : options.entrySet()) {
+			String key = e.getKey().toUpperCase();
+			String value = e.getValue().trim().toUpperCase();
+			try {
+				if (key.equals("BLOCKXSIZE")) {
+					this.setTileSize(Integer.parseInt(value), this.tileHeight);
+				} else if (key.equals("BLOCKYSIZE")) {
+					this.setTileSize(this.tileWidth, Integer.parseInt(value));
+				} else if (key.equals("COMPRESS")) {
+					if (value.equals("NONE"))
+						this.setCompression(TIFFTag.COMPRESSION_NONE);
+					else if (value.equals("DEFLATE"))
+						this.setCompression(TIFFTag.COMPRESSION_DEFLATE);
+					else
+						throw new IOException("Compression " + value + " is not supported.");
+				} else if (key.equals("PREDICTOR")) {
+					this.setPredictor(Integer.parseInt(value));
+				} else if (key.equals("ZLEVEL")) {
+					this.setCompressionLevel(Integer.parseInt(value));
+				} else if (key.equals("BIGTIFF")) {
+					this.bigTIFF = value.equals("YES") ? Boolean.TRUE : value.equals("NO") ? Boolean.FALSE : null;
+				} else if (key.equals("NUM_THREADS")) {
+					this.setThreads(value.equals("ALL_CPUS") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(value));
+				}
+			} catch (NumberFormatException ex) {
+				throw new IOException("Invalid value " + e.getValue() + " for " + e.getKey() + ".");
+			}
+		}
+	}
+
+	/**
+	 * @param tileWidth
+	 *            Multiple of 16, 256 by default
+	 * @param tileHeight
+	 *            Multiple of 16, 256 by default
+	 */
+	public void setTileSize(int tileWidth, int tileHeight) {
+		this.checkNotStarted();
+		if (tileWidth <= 0 || tileHeight <= 0 || tileWidth % 16 != 0 || tileHeight % 16 != 0)
+			throw new IllegalArgumentException("Tile size must be a multiple of 16.");
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+	}
+
+	/**
+	 * @param compression
+	 *            <code>TIFFTag.COMPRESSION_NONE</code> or
+	 *            <code>TIFFTag.COMPRESSION_DEFLATE</code>
+	 */
+	public void setCompression(int compression) {
+		this.checkNotStarted();
+		if (compression != TIFFTag.COMPRESSION_NONE && compression != TIFFTag.COMPRESSION_DEFLATE)
+			throw new IllegalArgumentException("Compression " + compression + " is not supported.");
+		this.compression = compression;
+	}
+
+	/**
+	 * @param level
+	 *            DEFLATE level, from 1 to 9
+	 */
+	public void setCompressionLevel(int level) {
+		this.checkNotStarted();
+		if (level < 1 || level > 9)
+			throw new IllegalArgumentException("Compression level must be between 1 and 9.");
+		this.level = level;
+	}
+
+	/**
+	 * @param predictor
+	 *            1 for none, 2 (horizontal) for integer types, 3 (floating
+	 *            point) for floating point types
+	 */
+	public void setPredictor(int predictor) {
+		this.checkNotStarted();
+		boolean real = this.type == BANDSTYPE.Float32 || this.type == BANDSTYPE.Float64;
+		boolean complex = this.type.name().startsWith("C");
+		if (predictor != TIFFTag.PREDICTOR_NONE && (complex || (predictor == TIFFTag.PREDICTOR_HORIZONTAL && real) || (predictor == TIFFTag.PREDICTOR_FLOATING_POINT && !real) || predictor > 3))
+			throw new IllegalArgumentException("Predictor " + predictor + " can't be used with " + this.type + ".");
+		this.predictor = predictor;
+	}
+
+	/**
+	 * @param bigTIFF
+	 *            <code>true</code> to always write a BigTIFF,
+	 *            <code>false</code> to never write one. By default a BigTIFF
+	 *            is written when the uncompressed raster is larger than 4 GB.
+	 */
+	public void setBigTIFF(boolean bigTIFF) {
+		this.checkNotStarted();
+		this.bigTIFF = bigTIFF;
+	}
+
+	/**
+	 * @param geoTransform
+	 *            GDAL geotransform of the raster
+	 */
+	public void setGeoTransform(double[] geoTransform) {
+		this.checkNotStarted();
+		this.geoTransform = geoTransform.clone();
+	}
+
+	/**
+	 * @param epsg
+	 *            EPSG code of the coordinate system. Codes between 4000 and
+	 *            4999 are written as geographic, the others as projected.
+	 */
+	public void setEPSG(int epsg) {
+		this.checkNotStarted();
+		this.epsg = epsg;
+	}
+
+	public void setNoData(double noData) {
+		this.checkNotStarted();
+		this.noData = noData;
+	}
+
+	/**
+	 * @param threads
+	 *            Threads compressing the tiles
+	 */
+	public void setThreads(int threads) {
+		this.checkNotStarted();
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * @param executor
+	 *            Pool shared with other components, not shut down by the
+	 *            writer
+	 * @param parallelism
+	 *            Number of tiles compressed at the same time
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism) {
+		this.checkNotStarted();
+		this.executor = executor;
+		this.threads = Math.max(1, parallelism);
+		this.shared = true;
+	}
+
+	private void checkNotStarted() {
+		if (this.raf != null)
+			throw new IllegalStateException("The options can't be changed once the writing has started.");
+	}
+
+	/**
+	 * @return Number of bytes of a sample, both parts of complex types
+	 */
+	private int getSampleBytes() {
+		switch (this.type) {
+		case Byte:
+			return 1;
+		case Int16:
+		case UInt16:
+			return 2;
+		case Int32:
+		case UInt32:
+		case Float32:
+		case CInt16:
+			return 4;
+		case Float64:
+		case CInt32:
+		case CFloat32:
+			return 8;
+		default:
+			return 16;
+		}
+	}
+
+	private int getSampleFormat() {
+		switch (this.type) {
+		case Byte:
+		case UInt16:
+		case UInt32:
+			return TIFFTag.SAMPLE_FORMAT_UINT;
+		case Int16:
+		case Int32:
+			return TIFFTag.SAMPLE_FORMAT_INT;
+		case Float32:
+		case Float64:
+			return TIFFTag.SAMPLE_FORMAT_IEEEFP;
+		case CInt16:
+		case CInt32:
+			return TIFFTag.SAMPLE_FORMAT_COMPLEXINT;
+		default:
+			return TIFFTag.SAMPLE_FORMAT_COMPLEXIEEEFP;
+		}
+	}
+
+	public int getTilesAcross() {
+		return (this.width + this.tileWidth - 1) / this.tileWidth;
+	}
+
+	public int getTilesDown() {
+		return (this.height + this.tileHeight - 1) / this.tileHeight;
+	}
+
+	private int getTileSize() {
+		return this.tileWidth * this.tileHeight * this.bands * this.getSampleBytes();
+	}
+
+	private void start() throws IOException {
+		if (this.raf != null)
+			return;
+		boolean big = this.bigTIFF != null ? this.bigTIFF : (long) this.width * this.height * this.bands * this.getSampleBytes() > BIGTIFF_THRESHOLD;
+		this.bigTIFF = big;
+		int tiles = this.getTilesAcross() * this.getTilesDown();
+		this.offsets = new long[tiles];
+		this.byteCounts = new long[tiles];
+		this.raf = new RandomAccessFile(this.file, "rw");
+		this.raf.setLength(0);
+		this.channel = this.raf.getChannel();
+		ByteBuffer h = ByteBuffer.allocate(big ? 16 : 8).order(ByteOrder.LITTLE_ENDIAN);
+		h.put((byte) 'I').put((byte) 'I');
+		if (big)
+			h.putShort((short) 43).putShort((short) 8).putShort((short) 0).putLong(0);
+		else
+			h.putShort((short) 42).putInt(0);
+		h.flip();
+		this.write(h);
+		if (this.executor == null && this.compression != TIFFTag.COMPRESSION_NONE && this.threads > 1) {
+			final int pool = POOL_COUNTER.incrementAndGet();
+			this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+
+				private AtomicInteger counter = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "geotiff-writer-" + pool + "-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+
+			});
+		}
+	}
+
+	/**
+	 * @param tileX
+	 *            Column of the tile
+	 * @param tileY
+	 *            Row of the tile
+	 * @param tile
+	 *            Samples of the whole tile, pixel interleaved, in the byte
+	 *            order of the buffer. Pixels outside the raster are written
+	 *            as they are. The buffer can be reused as soon as the method
+	 *            returns.
+	 */
+	public void writeTile(int tileX, int tileY, ByteBuffer tile) throws IOException {
+		int size = this.getTileSize();
+		if (tile.remaining() < size)
+			throw new IllegalArgumentException("The tile has " + tile.remaining() + " bytes instead of " + size + ".");
+		byte[] data = new byte[size];
+		ByteBuffer src = tile.duplicate();
+		src.get(data);
+		int component = this.type.name().startsWith("C") ? this.getSampleBytes() / 2 : this.getSampleBytes();
+		if (tile.order() != ByteOrder.LITTLE_ENDIAN && component > 1) {
+			for (int i = 0; i < size; i += component) {
+				for (int a = i, b = i + component - 1; a < b; a++, b--) {
+					byte t = data[a];
+					data[a] = data[b];
+					data[b] = t;
+				}
+			}
+		}
+		this.submit(tileX, tileY, data);
+	}
+
+	/**
+	 * @param tileX
+	 *            Column of the tile
+	 * @param tileY
+	 *            Row of the tile
+	 * @param samples
+	 *            Samples of the whole tile, pixel interleaved, rounded and
+	 *            clamped to the data type as GDAL does
+	 */
+	public void writeTile(int tileX, int tileY, float[] samples) throws IOException {
+		int n = this.tileWidth * this.tileHeight * this.bands;
+		if (samples.length < n)
+			throw new IllegalArgumentException("The tile has " + samples.length + " samples instead of " + n + ".");
+		ByteBuffer b = ByteBuffer.allocate(this.getTileSize()).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < n; i++) {
+			float v = samples[i];
+			switch (this.type) {
+			case Byte:
+				b.put((byte) clamp(v, 0, 255));
+				break;
+			case Int16:
+				b.putShort((short) clamp(v, Short.MIN_VALUE, Short.MAX_VALUE));
+				break;
+			case UInt16:
+				b.putShort((short) clamp(v, 0, 65535));
+				break;
+			case Int32:
+				b.putInt((int) clamp(v, Integer.MIN_VALUE, Integer.MAX_VALUE));
+				break;
+			case UInt32:
+				b.putInt((int) clamp(v, 0, 4294967295L));
+				break;
+			case Float32:
+				b.putFloat(v);
+				break;
+			case Float64:
+				b.putDouble(v);
+				break;
+			default:
+				throw new IllegalArgumentException("Complex tiles must be written as bytes.");
+			}
+		}
+		this.submit(tileX, tileY, b.array());
+	}
+
+	private static long clamp(float v, long min, long max) {
+		if (v != v)
+			return 0;
+		double r = Math.floor(v + 0.5);
+		return r < min ? min : r > max ? max : (long) r;
+	}
+
+	/**
+	 * Write a whole raster, tile by tile.
+	 * 
+	 * @param samples
+	 *            Samples of the raster, pixel interleaved, row by row
+	 */
+	public void writeRaster(float[] samples) throws IOException {
+		if (samples.length < this.width * this.height * this.bands)
+			throw new IllegalArgumentException("The raster has " + samples.length + " samples instead of " + (this.width * this.height * this.bands) + ".");
+		float[] tile = new float[this.tileWidth * this.tileHeight * this.bands];
+		int row = this.tileWidth * this.bands;
+		for (int ty = 0; ty < this.getTilesDown(); ty++) {
+			for (int tx = 0; tx < this.getTilesAcross(); tx++) {
+				Arrays.fill(tile, this.noData == null ? 0 : this.noData.floatValue());
+				int columns = Math.min(this.tileWidth, this.width - tx * this.tileWidth);
+				int rows = Math.min(this.tileHeight, this.height - ty * this.tileHeight);
+				for (int r = 0; r < rows; r++)
+					System.arraycopy(samples, ((ty * this.tileHeight + r) * this.width + tx * this.tileWidth) * this.bands, tile, r * row, columns * this.bands);
+				this.writeTile(tx, ty, tile);
+			}
+		}
+	}
+
+	private void submit(int tileX, int tileY, final byte[] data) throws IOException {
+		if (this.closed)
+			throw new IOException("The writer has been closed.");
+		if (tileX < 0 || tileY < 0 || tileX >= this.getTilesAcross() || tileY >= this.getTilesDown())
+			throw new IllegalArgumentException("Tile " + tileX + ", " + tileY + " is outside the raster.");
+		this.start();
+		final int index = tileY * this.getTilesAcross() + tileX;
+		if (this.byteCounts[index] != 0 || this.isPending(index))
+			throw new IllegalArgumentException("Tile " + tileX + ", " + tileY + " has already been written.");
+		if (this.executor == null) {
+			this.append(index, this.encode(data));
+			return;
+		}
+		this.pending.add(new Pending(index, this.executor.submit(new Callable<byte[]>() {
+
+			public byte[] call() throws Exception {
+				return encode(data);
+			}
+
+		})));
+		this.drain(2 * this.threads);
+	}
+
+	private boolean isPending(int index) {
+		for (Pending p : this.pending)
+			if (p.index == index)
+				return true;
+		return false;
+	}
+
+	private byte[] encode(byte[] data) throws IOException {
+		if (this.predictor != TIFFTag.PREDICTOR_NONE) {
+			int bytes = this.getSampleBytes();
+			TIFFCodec.applyPredictor(this.predictor, data, ByteOrder.LITTLE_ENDIAN, this.tileHeight, this.tileWidth, this.bands, bytes);
+		}
+		if (this.compression == TIFFTag.COMPRESSION_DEFLATE)
+			return TIFFCodec.deflate(data, this.level);
+		return data;
+	}
+
+	/**
+	 * Append the compressed tiles in order, waiting for them while more than
+	 * <code>max</code> are pending.
+	 */
+	private void drain(int max) throws IOException {
+		while (!this.pending.isEmpty() && (this.pending.size() > max || this.pending.getFirst().future.isDone())) {
+			Pending p = this.pending.removeFirst();
+			try {
+				this.append(p.index, p.future.get());
+			} catch (ExecutionException e) {
+				this.abort();
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new IOException("Tile compression failed: " + e.getCause());
+			} catch (InterruptedException e) {
+				this.abort();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while writing " + this.file + ".");
+			}
+		}
+	}
+
+	private void abort() {
+		for (Pending p : this.pending)
+			p.future.cancel(true);
+		this.pending.clear();
+	}
+
+	private void append(int index, byte[] data) throws IOException {
+		if (this.position % 2 != 0)
+			this.write(ByteBuffer.allocate(1));
+		if (!this.bigTIFF && this.position + data.length > 0xffffffffL)
+			throw new IOException("The file exceeds 4 GB, a BigTIFF is needed.");
+		this.offsets[index] = this.position;
+		this.byteCounts[index] = data.length;
+		this.write(ByteBuffer.wrap(data));
+	}
+
+	private void write(ByteBuffer b) throws IOException {
+		while (b.hasRemaining())
+			this.position += this.channel.write(b, this.position);
+	}
+
+	/**
+	 * Wait for the pending tiles, write the IFD and close the file.
+	 */
+	public void close() throws IOException {
+		if (this.closed)
+			return;
+		this.closed = true;
+		try {
+			this.start();
+			this.drain(0);
+			this.writeIFD();
+		} finally {
+			if (this.executor != null && !this.shared)
+				this.executor.shutdown();
+			this.abort();
+			if (this.raf != null)
+				this.raf.close();
+		}
+	}
+
+	private void writeIFD() throws IOException {
+		boolean big = this.bigTIFF;
+		List<Entry> entries = new ArrayList<Entry>();
+		int sampleBits = this.getSampleBytes() * 8;
+		long[] bits = new long[this.bands];
+		long[] formats = new long[this.bands];
+		for (int i = 0; i < this.bands; i++) {
+			bits[i] = sampleBits;
+			formats[i] = this.getSampleFormat();
+		}
+		boolean rgb = this.type == BANDSTYPE.Byte && (this.bands == 3 || this.bands == 4);
+		entries.add(new Entry(TIFFTag.IMAGE_WIDTH, TIFFTag.TYPE_LONG, this.width));
+		entries.add(new Entry(TIFFTag.IMAGE_LENGTH, TIFFTag.TYPE_LONG, this.height));
+		entries.add(new Entry(TIFFTag.BITS_PER_SAMPLE, TIFFTag.TYPE_SHORT, bits));
+		entries.add(new Entry(TIFFTag.COMPRESSION, TIFFTag.TYPE_SHORT, this.compression));
+		entries.add(new Entry(TIFFTag.PHOTOMETRIC_INTERPRETATION, TIFFTag.TYPE_SHORT, rgb ? 2 : 1));
+		entries.add(new Entry(TIFFTag.SAMPLES_PER_PIXEL, TIFFTag.TYPE_SHORT, this.bands));
+		entries.add(new Entry(TIFFTag.PLANAR_CONFIGURATION, TIFFTag.TYPE_SHORT, 1));
+		if (this.predictor != TIFFTag.PREDICTOR_NONE)
+			entries.add(new Entry(TIFFTag.PREDICTOR, TIFFTag.TYPE_SHORT, this.predictor));
+		entries.add(new Entry(TIFFTag.TILE_WIDTH, TIFFTag.TYPE_LONG, this.tileWidth));
+		entries.add(new Entry(TIFFTag.TILE_LENGTH, TIFFTag.TYPE_LONG, this.tileHeight));
+		entries.add(new Entry(TIFFTag.TILE_OFFSETS, big ? TIFFTag.TYPE_LONG8 : TIFFTag.TYPE_LONG, this.offsets));
+		entries.add(new Entry(TIFFTag.TILE_BYTE_COUNTS, big ? TIFFTag.TYPE_LONG8 : TIFFTag.TYPE_LONG, this.byteCounts));
+		int extraSamples = this.bands - (rgb ? 3 : 1);
+		if (extraSamples > 0) {
+			long[] e = new long[extraSamples];
+			if (rgb)
+				e[0] = 2;
+			entries.add(new Entry(TIFFTag.EXTRA_SAMPLES, TIFFTag.TYPE_SHORT, e));
+		}
+		entries.add(new Entry(TIFFTag.SAMPLE_FORMAT, TIFFTag.TYPE_SHORT, formats));
+		double[] gt = this.geoTransform;
+		if (gt != null) {
+			if (gt[2] == 0 && gt[4] == 0) {
+				entries.add(new Entry(TIFFTag.MODEL_PIXEL_SCALE, new double[] { gt[1], -gt[5], 0 }));
+				entries.add(new Entry(TIFFTag.MODEL_TIEPOINT, new double[] { 0, 0, 0, gt[0], gt[3], 0 }));
+			} else {
+				entries.add(new Entry(TIFFTag.MODEL_TRANSFORMATION, new double[] { gt[1], gt[2], 0, gt[0], gt[4], gt[5], 0, gt[3], 0, 0, 0, 0, 0, 0, 0, 1 }));
+			}
+		}
+		if (gt != null || this.epsg != 0) {
+			boolean geographic = this.epsg >= 4000 && this.epsg < 5000;
+			List<Long> keys = new ArrayList<Long>();
+			keys.add(1L);
+			keys.add(1L);
+			keys.add(0L);
+			keys.add(this.epsg != 0 ? 3L : 1L);
+			if (this.epsg != 0)
+				addKey(keys, 1024, geographic ? 2 : 1);
+			addKey(keys, TIFFTag.GT_RASTER_TYPE_GEO_KEY, 1);
+			if (this.epsg != 0)
+				addKey(keys, geographic ? TIFFTag.GEOGRAPHIC_TYPE_GEO_KEY : TIFFTag.PROJECTED_CS_TYPE_GEO_KEY, this.epsg);
+			long[] directory = new long[keys.size()];
+			for (int i = 0; i < directory.length; i++)
+				directory[i] = keys.get(i);
+			entries.add(new Entry(TIFFTag.GEO_KEY_DIRECTORY, TIFFTag.TYPE_SHORT, directory));
+		}
+		if (this.noData != null) {
+			double v = this.noData;
+			String s = v != v ? "nan" : v == Math.rint(v) && !Double.isInfinite(v) ? Long.toString((long) v) : Double.toString(v);
+			entries.add(new Entry(TIFFTag.GDAL_NODATA, s));
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+
+			public int compare(Entry a, Entry b) {
+				return a.tag - b.tag;
+			}
+
+		});
+
+		// IFD and values that don't fit in the entries
+		if (this.position % 2 != 0)
+			this.write(ByteBuffer.allocate(1));
+		long start = this.position;
+		int entrySize = big ? 20 : 12;
+		int inline = big ? 8 : 4;
+		long values = start + (big ? 8 : 2) + entries.size() * entrySize + (big ? 8 : 4);
+		ByteBuffer ifd = ByteBuffer.allocate((int) (values - start)).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer extra = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+		if (big)
+			ifd.putLong(entries.size());
+		else
+			ifd.putShort((short) entries.size());
+		for (Entry e : entries) {
+			byte[] payload = e.payload;
+			ifd.putShort((short) e.tag).putShort((short) e.type);
+			if (big)
+				ifd.putLong(e.count);
+			else
+				ifd.putInt(e.count);
+			if (payload.length <= inline) {
+				ifd.put(payload);
+				for (int i = payload.length; i < inline; i++)
+					ifd.put((byte) 0);
+			} else {
+				if (extra.position() % 2 != 0)
+					extra.put((byte) 0);
+				if (extra.remaining() < payload.length) {
+					ByteBuffer larger = ByteBuffer.allocate(extra.capacity() * 2 + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+					extra.flip();
+					larger.put(extra);
+					extra = larger;
+				}
+				long offset = values + extra.position();
+				if (big)
+					ifd.putLong(offset);
+				else
+					ifd.putInt((int) offset);
+				extra.put(payload);
+			}
+		}
+		if (big)
+			ifd.putLong(0);
+		else
+			ifd.putInt(0);
+		ifd.flip();
+		extra.flip();
+		if (!big && values + extra.remaining() > 0xffffffffL)
+			throw new IOException("The file exceeds 4 GB, a BigTIFF is needed.");
+		this.write(ifd);
+		this.write(extra);
+
+		// first IFD offset in the header
+		ByteBuffer h = ByteBuffer.allocate(big ? 8 : 4).order(ByteOrder.LITTLE_ENDIAN);
+		if (big)
+			h.putLong(start);
+		else
+			h.putInt((int) start);
+		h.flip();
+		this.channel.write(h, big ? 8 : 4);
+	}
+
+	private static void addKey(List<Long> keys, int key, int value) {
+		keys.add((long) key);
+		keys.add(0L);
+		keys.add(1L);
+		keys.add((long) value);
+	}
+
+	private static class Pending {
+
+		private int index;
+
+		private Future<byte[]> future;
+
+		private Pending(int index, Future<byte[]> future) {
+			this.index = index;
+			this.future = future;
+		}
+
+	}
+
+	/**
+	 * Field of the IFD, with its value already encoded.
+	 */
+	private static class Entry {
+
+		private int tag;
+
+		private int type;
+
+		private int count;
+
+		private byte[] payload;
+
+		private Entry(int tag, int type, long value) {
+			this(tag, type, new long[] { value });
+		}
+
+		private Entry(int tag, int type, long[] values) {
+			this.tag = tag;
+			this.type = type;
+			this.count = values.length;
+			ByteBuffer b = ByteBuffer.allocate(values.length * TIFFTag.size(type)).order(ByteOrder.LITTLE_ENDIAN);
+			for (long v : values) {
+				if (type == TIFFTag.TYPE_SHORT)
+					b.putShort((short) v);
+				else if (type == TIFFTag.TYPE_LONG)
+					b.putInt((int) v);
+				else
+					b.putLong(v);
+			}
+			this.payload = b.array();
+		}
+
+		private Entry(int tag, double[] values) {
+			this.tag = tag;
+			this.type = TIFFTag.TYPE_DOUBLE;
+			this.count = values.length;
+			ByteBuffer b = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+			for (double v : values)
+				b.putDouble(v);
+			this.payload = b.array();
+		}
+
+		private Entry(int tag, String value) {
+			this.tag = tag;
+			this.type = TIFFTag.TYPE_ASCII;
+			byte[] s = value.getBytes();
+			this.payload = new byte[s.length + 1];
+			System.arraycopy(s, 0, this.payload, 0, s.length);
+			this.count = this.payload.length;
+		}
+
+	}
+
+}
\ No newline at end of file
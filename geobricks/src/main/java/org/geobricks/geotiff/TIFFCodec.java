@@ -0,0 +1,336 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Compression schemes and predictors of the TIFF tiles and strips.
+ *         Predictors work on the bytes as stored, in the byte order of the
+ *         file.
+ * 
+ */
+final class TIFFCodec {
+
+	private TIFFCodec() {
+	}
+
+	/**
+	 * @param compression
+	 *            TIFF compression code
+	 * @param src
+	 *            Compressed bytes, from position to limit
+	 * @param size
+	 *            Size of the decoded segment
+	 * @return Decoded segment, <code>size</code> bytes
+	 */
+	static byte[] decode(int compression, ByteBuffer src, int size) throws IOException {
+		switch (compression) {
+		case TIFFTag.COMPRESSION_DEFLATE:
+		case TIFFTag.COMPRESSION_ADOBE_DEFLATE:
+			return inflate(src, size);
+		case TIFFTag.COMPRESSION_LZW:
+			return lzw(src, size);
+		case TIFFTag.COMPRESSION_PACKBITS:
+			return packBits(src, size);
+		case TIFFTag.COMPRESSION_NONE:
+			byte[] out = new byte[size];
+			src.duplicate().get(out, 0, Math.min(size, src.remaining()));
+			return out;
+		default:
+			throw new IOException("Compression " + compression + " is not supported.");
+		}
+	}
+
+	static byte[] inflate(ByteBuffer src, int size) throws IOException {
+		byte[] in = new byte[src.remaining()];
+		src.duplicate().get(in);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(in);
+			byte[] out = new byte[size];
+			int n = 0;
+			while (n < size && !inflater.finished()) {
+				int k = inflater.inflate(out, n, size - n);
+				if (k == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				n += k;
+			}
+			return out;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted DEFLATE segment: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * TIFF flavour of LZW: codes are read most significant bit first and
+	 * their width grows one code early.
+	 */
+	static byte[] lzw(ByteBuffer src, int size) throws IOException {
+		byte[] out = new byte[size];
+		int[] prefix = new int[4096];
+		byte[] suffix = new byte[4096];
+		byte[] first = new byte[4096];
+		int[] length = new int[4096];
+		for (int i = 0; i < 256; i++) {
+			suffix[i] = (byte) i;
+			first[i] = (byte) i;
+			length[i] = 1;
+		}
+		int pos = 0;
+		int bits = 9;
+		int next = 258;
+		int old = -1;
+		int buffer = 0;
+		int available = 0;
+		ByteBuffer in = src.duplicate();
+		while (pos < size) {
+			while (available < bits && in.hasRemaining()) {
+				buffer = (buffer << 8) | (in.get() & 0xff);
+				available += 8;
+			}
+			if (available < bits)
+				break;
+			int code = (buffer >>> (available - bits)) & ((1 << bits) - 1);
+			available -= bits;
+			if (code == 257)
+				break;
+			if (code == 256) {
+				bits = 9;
+				next = 258;
+				old = -1;
+				continue;
+			}
+			if (old == -1) {
+				if (code > 255)
+					throw new IOException("Corrupted LZW segment.");
+				out[pos++] = (byte) code;
+				old = code;
+				continue;
+			}
+			if (code > next || next >= 4096)
+				throw new IOException("Corrupted LZW segment.");
+			if (code < next) {
+				pos = write(code, prefix, suffix, length, out, pos);
+				add(old, first[code], next++, prefix, suffix, first, length);
+			} else {
+				add(old, first[old], next++, prefix, suffix, first, length);
+				pos = write(code, prefix, suffix, length, out, pos);
+			}
+			old = code;
+			if (next + 1 == 1 << bits && bits < 12)
+				bits++;
+		}
+		return out;
+	}
+
+	private static void add(int code, byte b, int next, int[] prefix, byte[] suffix, byte[] first, int[] length) {
+		prefix[next] = code;
+		suffix[next] = b;
+		first[next] = first[code];
+		length[next] = length[code] + 1;
+	}
+
+	private static int write(int code, int[] prefix, byte[] suffix, int[] length, byte[] out, int pos) {
+		int len = length[code];
+		for (int i = len - 1; i >= 0; i--) {
+			if (pos + i < out.length)
+				out[pos + i] = suffix[code];
+			code = prefix[code];
+		}
+		return Math.min(out.length, pos + len);
+	}
+
+	static byte[] packBits(ByteBuffer src, int size) {
+		byte[] out = new byte[size];
+		ByteBuffer in = src.duplicate();
+		int pos = 0;
+		while (pos < size && in.hasRemaining()) {
+			int n = in.get();
+			if (n >= 0) {
+				int k = Math.min(Math.min(n + 1, in.remaining()), size - pos);
+				in.get(out, pos, k);
+				pos += k;
+			} else if (n != -128 && in.hasRemaining()) {
+				byte b = in.get();
+				for (int i = Math.min(1 - n, size - pos); i > 0; i--)
+					out[pos++] = b;
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * @param predictor
+	 *            TIFF predictor code
+	 * @param data
+	 *            Decoded segment, modified in place
+	 * @param order
+	 *            Byte order of the file
+	 * @param rows
+	 *            Rows of the segment
+	 * @param width
+	 *            Pixels of a row
+	 * @param samples
+	 *            Samples of a pixel, 1 for planar images
+	 * @param bytes
+	 *            Bytes of a sample
+	 */
+	static void undoPredictor(int predictor, byte[] data, ByteOrder order, int rows, int width, int samples, int bytes) throws IOException {
+		if (predictor == TIFFTag.PREDICTOR_NONE)
+			return;
+		int row = width * samples * bytes;
+		if (predictor == TIFFTag.PREDICTOR_FLOATING_POINT) {
+			byte[] tmp = new byte[row];
+			int words = width * samples;
+			for (int r = 0; r < rows; r++) {
+				int o = r * row;
+				for (int i = o + samples; i < o + row; i++)
+					data[i] += data[i - samples];
+				System.arraycopy(data, o, tmp, 0, row);
+				for (int w = 0; w < words; w++) {
+					for (int b = 0; b < bytes; b++) {
+						int target = order == ByteOrder.BIG_ENDIAN ? b : bytes - 1 - b;
+						data[o + w * bytes + target] = tmp[b * words + w];
+					}
+				}
+			}
+			return;
+		}
+		if (predictor != TIFFTag.PREDICTOR_HORIZONTAL)
+			throw new IOException("Predictor " + predictor + " is not supported.");
+		ByteBuffer b = ByteBuffer.wrap(data).order(order);
+		int stride = samples * bytes;
+		for (int r = 0; r < rows; r++) {
+			int o = r * row;
+			for (int i = o + stride; i < o + row; i += bytes) {
+				switch (bytes) {
+				case 1:
+					data[i] += data[i - stride];
+					break;
+				case 2:
+					b.putShort(i, (short) (b.getShort(i) + b.getShort(i - stride)));
+					break;
+				case 4:
+					b.putInt(i, b.getInt(i) + b.getInt(i - stride));
+					break;
+				case 8:
+					b.putLong(i, b.getLong(i) + b.getLong(i - stride));
+					break;
+				default:
+					throw new IOException("Predictor " + predictor + " is not supported for " + (bytes * 8) + " bit samples.");
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param data
+	 *            Segment to compress
+	 * @param level
+	 *            zlib compression level, from 1 to 9
+	 * @return zlib stream, as written by GDAL for COMPRESS=DEFLATE
+	 */
+	static byte[] deflate(byte[] data, int level) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] out = new byte[data.length + data.length / 1000 + 64];
+			int n = 0;
+			while (!deflater.finished()) {
+				if (n == out.length) {
+					byte[] larger = new byte[out.length * 2];
+					System.arraycopy(out, 0, larger, 0, n);
+					out = larger;
+				}
+				n += deflater.deflate(out, n, out.length - n);
+			}
+			byte[] result = new byte[n];
+			System.arraycopy(out, 0, result, 0, n);
+			return result;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Inverse of <code>undoPredictor</code>, same parameters.
+	 */
+	static void applyPredictor(int predictor, byte[] data, ByteOrder order, int rows, int width, int samples, int bytes) throws IOException {
+		if (predictor == TIFFTag.PREDICTOR_NONE)
+			return;
+		int row = width * samples * bytes;
+		if (predictor == TIFFTag.PREDICTOR_FLOATING_POINT) {
+			byte[] tmp = new byte[row];
+			int words = width * samples;
+			for (int r = 0; r < rows; r++) {
+				int o = r * row;
+				for (int w = 0; w < words; w++) {
+					for (int b = 0; b < bytes; b++) {
+						int source = order == ByteOrder.BIG_ENDIAN ? b : bytes - 1 - b;
+						tmp[b * words + w] = data[o + w * bytes + source];
+					}
+				}
+				for (int i = row - 1; i >= samples; i--)
+					tmp[i] -= tmp[i - samples];
+				System.arraycopy(tmp, 0, data, o, row);
+			}
+			return;
+		}
+		if (predictor != TIFFTag.PREDICTOR_HORIZONTAL)
+			throw new IOException("Predictor " + predictor + " is not supported.");
+		ByteBuffer b = ByteBuffer.wrap(data).order(order);
+		int stride = samples * bytes;
+		for (int r = 0; r < rows; r++) {
+			int o = r * row;
+			for (int i = o + row - bytes; i >= o + stride; i -= bytes) {
+				switch (bytes) {
+				case 1:
+					data[i] -= data[i - stride];
+					break;
+				case 2:
+					b.putShort(i, (short) (b.getShort(i) - b.getShort(i - stride)));
+					break;
+				case 4:
+					b.putInt(i, b.getInt(i) - b.getInt(i - stride));
+					break;
+				case 8:
+					b.putLong(i, b.getLong(i) - b.getLong(i - stride));
+					break;
+				default:
+					throw new IOException("Predictor " + predictor + " is not supported for " + (bytes * 8) + " bit samples.");
+				}
+			}
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Codes of the TIFF and GeoTIFF tags, field types and values used by
+ *         the GeoTIFF reader and writer.
+ * 
+ */
+public final class TIFFTag {
+
+	public static final int NEW_SUBFILE_TYPE = 254;
+
+	public static final int IMAGE_WIDTH = 256;
+
+	public static final int IMAGE_LENGTH = 257;
+
+	public static final int BITS_PER_SAMPLE = 258;
+
+	public static final int COMPRESSION = 259;
+
+	public static final int PHOTOMETRIC_INTERPRETATION = 262;
+
+	public static final int STRIP_OFFSETS = 273;
+
+	public static final int SAMPLES_PER_PIXEL = 277;
+
+	public static final int ROWS_PER_STRIP = 278;
+
+	public static final int STRIP_BYTE_COUNTS = 279;
+
+	public static final int PLANAR_CONFIGURATION = 284;
+
+	public static final int PREDICTOR = 317;
+
+	public static final int TILE_WIDTH = 322;
+
+	public static final int TILE_LENGTH = 323;
+
+	public static final int TILE_OFFSETS = 324;
+
+	public static final int TILE_BYTE_COUNTS = 325;
+
+	public static final int EXTRA_SAMPLES = 338;
+
+	public static final int SAMPLE_FORMAT = 339;
+
+	public static final int MODEL_PIXEL_SCALE = 33550;
+
+	public static final int MODEL_TIEPOINT = 33922;
+
+	public static final int MODEL_TRANSFORMATION = 34264;
+
+	public static final int GEO_KEY_DIRECTORY = 34735;
+
+	public static final int GEO_DOUBLE_PARAMS = 34736;
+
+	public static final int GEO_ASCII_PARAMS = 34737;
+
+	public static final int GDAL_METADATA = 42112;
+
+	public static final int GDAL_NODATA = 42113;
+
+	public static final int TYPE_BYTE = 1;
+
+	public static final int TYPE_ASCII = 2;
+
+	public static final int TYPE_SHORT = 3;
+
+	public static final int TYPE_LONG = 4;
+
+	public static final int TYPE_RATIONAL = 5;
+
+	public static final int TYPE_SBYTE = 6;
+
+	public static final int TYPE_UNDEFINED = 7;
+
+	public static final int TYPE_SSHORT = 8;
+
+	public static final int TYPE_SLONG = 9;
+
+	public static final int TYPE_SRATIONAL = 10;
+
+	public static final int TYPE_FLOAT = 11;
+
+	public static final int TYPE_DOUBLE = 12;
+
+	public static final int TYPE_IFD = 13;
+
+	public static final int TYPE_LONG8 = 16;
+
+	public static final int TYPE_SLONG8 = 17;
+
+	public static final int TYPE_IFD8 = 18;
+
+	public static final int COMPRESSION_NONE = 1;
+
+	public static final int COMPRESSION_LZW = 5;
+
+	public static final int COMPRESSION_JPEG = 7;
+
+	public static final int COMPRESSION_DEFLATE = 8;
+
+	public static final int COMPRESSION_PACKBITS = 32773;
+
+	public static final int COMPRESSION_ADOBE_DEFLATE = 32946;
+
+	public static final int PREDICTOR_NONE = 1;
+
+	public static final int PREDICTOR_HORIZONTAL = 2;
+
+	public static final int PREDICTOR_FLOATING_POINT = 3;
+
+	public static final int SAMPLE_FORMAT_UINT = 1;
+
+	public static final int SAMPLE_FORMAT_INT = 2;
+
+	public static final int SAMPLE_FORMAT_IEEEFP = 3;
+
+	public static final int SAMPLE_FORMAT_COMPLEXINT = 5;
+
+	public static final int SAMPLE_FORMAT_COMPLEXIEEEFP = 6;
+
+	public static final int GT_RASTER_TYPE_GEO_KEY = 1025;
+
+	public static final int GEOGRAPHIC_TYPE_GEO_KEY = 2048;
+
+	public static final int PROJECTED_CS_TYPE_GEO_KEY = 3072;
+
+	public static final int RASTER_PIXEL_IS_POINT = 2;
+
+	public static final int USER_DEFINED = 32767;
+
+	private TIFFTag() {
+	}
+
+	/**
+	 * @return Size in bytes of a value of the field type, 0 if the type is
+	 *         unknown
+	 */
+	public static int size(int type) {
+		switch (type) {
+		case TYPE_BYTE:
+		case TYPE_ASCII:
+		case TYPE_SBYTE:
+		case TYPE_UNDEFINED:
+			return 1;
+		case TYPE_SHORT:
+		case TYPE_SSHORT:
+			return 2;
+		case TYPE_LONG:
+		case TYPE_SLONG:
+		case TYPE_FLOAT:
+		case TYPE_IFD:
+			return 4;
+		case TYPE_RATIONAL:
+		case TYPE_SRATIONAL:
+		case TYPE_DOUBLE:
+		case TYPE_LONG8:
+		case TYPE_SLONG8:
+		case TYPE_IFD8:
+			return 8;
+		default:
+			return 0;
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,288 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.pipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.GDALCallback;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALUtils;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Runs a chain of GDAL commands, declared as a graph of steps, over
+ *         many scenes, e.g. gdalwarp, then gdal_translate to a COG, then
+ *         gdaladdo on the COG and gdal2tiles.py on the warped file:
+ * 
+ *         <pre>
+ * Pipeline p = new Pipeline(executor);
+ * PipelineStep warp = p.addStep(&quot;warp&quot;, w);
+ * PipelineStep cog = p.addStep(&quot;cog&quot;, t, warp);
+ * cog.setOutputDirectory(&quot;/data/cog&quot;);
+ * p.addStep(&quot;overviews&quot;, o, cog);
+ * p.addStep(&quot;tiles&quot;, g, warp).setOutputDirectory(&quot;/data/tiles&quot;);
+ * p.execute(scenes);
+ * </pre>
+ * 
+ *         Steps can only read steps added before them, so the graph has no
+ *         cycles. The steps of a scene are submitted to the executor as soon
+ *         as their inputs are ready, so independent branches and scenes run
+ *         together within the process limit of the executor. Scenes are
+ *         started in submission order, at most <code>maxScenes</code> at a
+ *         time (by default the process limit): the first scenes get the free
+ *         slots before the next ones write more intermediate files, which are
+ *         deleted as soon as their last consumer is done. A step must not
+ *         write a VRT that references an intermediate file, since the VRT
+ *         would outlive it.
+ * 
+ */
+public class Pipeline {
+
+	private static final AtomicInteger SCENE_COUNTER = new AtomicInteger();
+
+	private GDALExecutor executor;
+
+	private List<PipelineStep> steps = new ArrayList<PipelineStep>();
+
+	private File workingDirectory = new File(System.getProperty("java.io.tmpdir"), "geobricks-pipeline");
+
+	private int maxScenes;
+
+	private GDALCallback<PipelineScene> callback;
+
+	private LinkedList<PipelineScene> queue = new LinkedList<PipelineScene>();
+
+	private int active = 0;
+
+	public Pipeline(GDALExecutor executor) {
+		this.executor = executor;
+		this.maxScenes = executor.getMaxProcesses();
+	}
+
+	/**
+	 * @param name
+	 *            Name of the step, unique in the pipeline
+	 * @param template
+	 *            Bean copied for every scene
+	 * @param inputs
+	 *            Steps whose outputs are read, none to read the scene
+	 * @return The new step
+	 */
+	public synchronized PipelineStep addStep(String name, GDAL template, PipelineStep... inputs) throws Exception {
+		if (this.getStep(name) != null)
+			throw new Exception("Step '" + name + "' already exists.");
+		for (PipelineStep i : inputs)
+			if (i.getIndex() >= this.steps.size() || this.steps.get(i.getIndex()) != i)
+				throw new Exception("Step '" + i.getName() + "' doesn't belong to this pipeline.");
+		PipelineStep s = new PipelineStep(name, template, new ArrayList<PipelineStep>(Arrays.asList(inputs)), this.steps.size());
+		this.steps.add(s);
+		return s;
+	}
+
+	/**
+	 * @return Step with the given name, <code>null</code> if none
+	 */
+	public synchronized PipelineStep getStep(String name) {
+		for (PipelineStep s : this.steps)
+			if (s.getName().equals(name))
+				return s;
+		return null;
+	}
+
+	public synchronized List<PipelineStep> getSteps() {
+		return Collections.unmodifiableList(new ArrayList<PipelineStep>(this.steps));
+	}
+
+	/**
+	 * Check that the steps can be run: every output is either kept or read by
+	 * another step, and steps updating a file in place are its only readers.
+	 */
+	public synchronized void check() throws Exception {
+		if (this.steps.isEmpty())
+			throw new Exception("The pipeline has no steps.");
+		for (PipelineStep s : this.steps)
+			s.check();
+	}
+
+	/**
+	 * @param inputFilepath
+	 *            Scene to process
+	 * @return Run of the pipeline over the scene, started as soon as fewer
+	 *         than <code>maxScenes</code> scenes are running
+	 */
+	public PipelineScene submit(String inputFilepath) throws Exception {
+		return this.submit(Collections.singletonList(inputFilepath)).get(0);
+	}
+
+	/**
+	 * @param inputFilepaths
+	 *            Scenes to process, started in this order
+	 * @return Runs of the pipeline over the scenes
+	 */
+	public List<PipelineScene> submit(Collection<String> inputFilepaths) throws Exception {
+		List<PipelineScene> l = new ArrayList<PipelineScene>();
+		synchronized (this) {
+			this.check();
+			List<PipelineStep> snapshot = new ArrayList<PipelineStep>(this.steps);
+			for (String f : inputFilepaths) {
+				File directory = new File(this.workingDirectory, SCENE_COUNTER.incrementAndGet() + "_" + basename(f));
+				PipelineScene scene = new PipelineScene(this, snapshot, f, directory);
+				this.queue.add(scene);
+				l.add(scene);
+			}
+		}
+		this.startScenes();
+		return l;
+	}
+
+	/**
+	 * @param inputFilepaths
+	 *            Scenes to process
+	 * @return Runs of the pipeline over the scenes, once all are done
+	 * @throws Exception
+	 *             If a scene failed, with the error of the first one
+	 */
+	public List<PipelineScene> execute(Collection<String> inputFilepaths) throws Exception {
+		List<PipelineScene> l = this.submit(inputFilepaths);
+		for (PipelineScene s : l)
+			s.await();
+		int failed = 0;
+		Exception first = null;
+		for (PipelineScene s : l)
+			if (!s.isSuccessful()) {
+				failed++;
+				if (first == null)
+					first = s.getError();
+			}
+		if (failed > 0)
+			throw new Exception(failed + " of " + l.size() + " scenes failed: " + first.getMessage(), first);
+		return l;
+	}
+
+	/**
+	 * @return Number of scenes submitted and not started yet
+	 */
+	public synchronized int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	/**
+	 * @return Number of scenes running right now
+	 */
+	public synchronized int getActiveCount() {
+		return this.active;
+	}
+
+	private void startScenes() {
+		List<PipelineScene> l = new ArrayList<PipelineScene>();
+		synchronized (this) {
+			while (this.active < this.maxScenes && !this.queue.isEmpty()) {
+				l.add(this.queue.removeFirst());
+				this.active++;
+			}
+		}
+		for (PipelineScene s : l)
+			s.start();
+	}
+
+	void finished(PipelineScene scene) {
+		synchronized (this) {
+			this.active--;
+		}
+		if (this.callback != null) {
+			if (scene.isSuccessful())
+				this.callback.completed(scene);
+			else
+				this.callback.failed(scene.getError());
+		}
+		this.startScenes();
+	}
+
+	static String basename(String path) {
+		String name = new File(path).getName();
+		int idx = name.lastIndexOf('.');
+		return idx > 0 ? name.substring(0, idx) : name;
+	}
+
+	static void delete(File f) {
+		GDALUtils.delete(f);
+		new File(f.getPath() + ".ovr").delete();
+		new File(f.getPath() + ".aux.xml").delete();
+	}
+
+	GDALExecutor getExecutor() {
+		return executor;
+	}
+
+	public File getWorkingDirectory() {
+		return workingDirectory;
+	}
+
+	/**
+	 * @param workingDirectory
+	 *            Parent of the directories of intermediate files, one per
+	 *            scene
+	 */
+	public void setWorkingDirectory(File workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	public synchronized int getMaxScenes() {
+		return maxScenes;
+	}
+
+	/**
+	 * @param maxScenes
+	 *            Maximum number of scenes running at the same time
+	 */
+	public void setMaxScenes(int maxScenes) {
+		if (maxScenes < 1)
+			throw new IllegalArgumentException("The maximum number of scenes must be greater than 0.");
+		synchronized (this) {
+			this.maxScenes = maxScenes;
+		}
+		this.startScenes();
+	}
+
+	public GDALCallback<PipelineScene> getCallback() {
+		return callback;
+	}
+
+	/**
+	 * @param callback
+	 *            Notified when a scene is done, on the thread that ran its
+	 *            last step
+	 */
+	public void setCallback(GDALCallback<PipelineScene> callback) {
+		this.callback = callback;
+	}
+
+}
\ No newline at end of file
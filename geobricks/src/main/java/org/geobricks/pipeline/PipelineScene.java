@@ -0,0 +1,256 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.pipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.GDALCallback;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALResult;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         A run of a <code>Pipeline</code> over one scene. A step is submitted
+ *         to the executor as soon as all its inputs are written, so
+ *         independent branches run side by side, and every intermediate file
+ *         counts the steps still to read it and is deleted when the count
+ *         drops to zero. When a step fails no further step of the scene is
+ *         started and, once the running ones are done, the intermediate files
+ *         left are deleted.
+ * 
+ */
+public class PipelineScene {
+
+	private Pipeline pipeline;
+
+	private List<PipelineStep> steps;
+
+	private String inputFilepath;
+
+	private File directory;
+
+	private File[] outputs;
+
+	private GDALResult[] results;
+
+	private int[] waiting;
+
+	private int[] references;
+
+	private int running = 0;
+
+	private Exception error;
+
+	private CountDownLatch done = new CountDownLatch(1);
+
+	PipelineScene(Pipeline pipeline, List<PipelineStep> steps, String inputFilepath, File directory) {
+		this.pipeline = pipeline;
+		this.steps = steps;
+		this.inputFilepath = inputFilepath;
+		this.directory = directory;
+		this.outputs = new File[steps.size()];
+		this.results = new GDALResult[steps.size()];
+		this.waiting = new int[steps.size()];
+		this.references = new int[steps.size()];
+		for (PipelineStep s : steps) {
+			this.waiting[s.getIndex()] = s.getInputs().size();
+			for (PipelineStep i : s.getInputs())
+				this.references[i.getOwner().getIndex()]++;
+		}
+	}
+
+	/**
+	 * Submit the steps reading the scene.
+	 */
+	void start() {
+		boolean finished;
+		synchronized (this) {
+			for (PipelineStep s : this.steps)
+				if (s.getInputs().isEmpty() && this.error == null)
+					this.submit(s);
+			finished = this.running == 0 && this.finish();
+		}
+		if (finished)
+			this.pipeline.finished(this);
+	}
+
+	private void submit(final PipelineStep s) {
+		try {
+			List<String> in = new ArrayList<String>();
+			if (s.getInputs().isEmpty())
+				in.add(this.inputFilepath);
+			for (PipelineStep i : s.getInputs())
+				in.add(this.outputs[i.getIndex()].getPath());
+			File out = s.isInPlace() ? this.outputs[s.getInputs().get(0).getIndex()] : s.getOutput(this.inputFilepath, this.directory);
+			if (out.getParentFile() != null)
+				out.getParentFile().mkdirs();
+			this.outputs[s.getIndex()] = out;
+			GDAL g = s.bean(in, out.getPath());
+			GDALExecutor executor = this.pipeline.getExecutor();
+			this.running++;
+			try {
+				executor.execute(g, new GDALCallback<GDALResult>() {
+
+					public void completed(GDALResult result) {
+						PipelineScene.this.completed(s, result, null);
+					}
+
+					public void failed(Exception e) {
+						PipelineScene.this.completed(s, null, e);
+					}
+
+				});
+			} catch (RuntimeException e) {
+				this.running--;
+				throw e;
+			}
+		} catch (Exception e) {
+			if (this.error == null)
+				this.error = new Exception("Step '" + s.getName() + "' of " + this.inputFilepath + " can't be started: " + e.getMessage(), e);
+		}
+	}
+
+	private void completed(PipelineStep s, GDALResult result, Exception e) {
+		boolean finished;
+		synchronized (this) {
+			this.results[s.getIndex()] = result;
+			if (e != null)
+				e = new Exception("Step '" + s.getName() + "' of " + this.inputFilepath + " failed: " + e.getMessage(), e);
+			else if (!result.isSuccessful())
+				e = new Exception("Step '" + s.getName() + "' of " + this.inputFilepath + " failed: " + result);
+			if (this.error == null)
+				this.error = e;
+			if (this.error == null)
+				for (PipelineStep c : s.getConsumers())
+					if (--this.waiting[c.getIndex()] == 0)
+						this.submit(c);
+			for (PipelineStep i : s.getInputs()) {
+				PipelineStep o = i.getOwner();
+				if (--this.references[o.getIndex()] == 0 && !o.isKept())
+					Pipeline.delete(this.outputs[o.getIndex()]);
+			}
+			this.running--;
+			finished = this.running == 0 && this.finish();
+		}
+		if (finished)
+			this.pipeline.finished(this);
+	}
+
+	private boolean finish() {
+		if (this.done.getCount() == 0)
+			return false;
+		if (this.error != null)
+			for (PipelineStep s : this.steps)
+				if (!s.isKept() && this.outputs[s.getIndex()] != null)
+					Pipeline.delete(this.outputs[s.getIndex()]);
+		Pipeline.delete(this.directory);
+		this.done.countDown();
+		return true;
+	}
+
+	/**
+	 * Wait until all the steps of the scene are done.
+	 */
+	public void await() throws InterruptedException {
+		this.done.await();
+	}
+
+	/**
+	 * @return <code>false</code> if the timeout elapsed before all the steps
+	 *         of the scene were done
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.done.await(timeout, unit);
+	}
+
+	public boolean isDone() {
+		return this.done.getCount() == 0;
+	}
+
+	/**
+	 * @return <code>true</code> if all the steps of the scene ran
+	 *         successfully.
+	 */
+	public synchronized boolean isSuccessful() {
+		return this.isDone() && this.error == null;
+	}
+
+	/**
+	 * @return First error raised by a step of the scene, <code>null</code> if
+	 *         none
+	 */
+	public synchronized Exception getError() {
+		return error;
+	}
+
+	public String getInputFilepath() {
+		return inputFilepath;
+	}
+
+	/**
+	 * @param step
+	 *            Name of the step
+	 * @return File written, or updated in place, by the step for this scene,
+	 *         <code>null</code> if the step hasn't started yet
+	 */
+	public synchronized String getOutputFilepath(String step) {
+		File f = this.outputs[this.indexOf(step)];
+		return f == null ? null : f.getPath();
+	}
+
+	/**
+	 * @param step
+	 *            Name of the step
+	 * @return Outcome of the step for this scene, <code>null</code> if the
+	 *         step hasn't completed
+	 */
+	public synchronized GDALResult getResult(String step) {
+		return this.results[this.indexOf(step)];
+	}
+
+	private int indexOf(String step) {
+		for (PipelineStep s : this.steps)
+			if (s.getName().equals(step))
+				return s.getIndex();
+		throw new IllegalArgumentException("Unknown step '" + step + "'.");
+	}
+
+	/**
+	 * @return Outcome of the completed steps, by step name
+	 */
+	public synchronized Map<String, GDALResult> getResults() {
+		Map<String, GDALResult> m = new LinkedHashMap<String, GDALResult>();
+		for (PipelineStep s : this.steps)
+			if (this.results[s.getIndex()] != null)
+				m.put(s.getName(), this.results[s.getIndex()]);
+		return m;
+	}
+
+}
\ No newline at end of file
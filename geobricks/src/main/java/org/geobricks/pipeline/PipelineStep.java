@@ -0,0 +1,199 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.pipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.addoverviews.GDALAddOverviews;
+import org.geobricks.gdal.buildvrt.GDALBuildVRT;
+import org.geobricks.gdal.gdal2tiles.GDAL2Tiles;
+import org.geobricks.gdal.warp.GDALWarp;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         A step of a <code>Pipeline</code>: a template bean run once per
+ *         scene against the outputs of its input steps, or against the scene
+ *         itself when it has no inputs. Only <code>GDALWarp</code> and
+ *         <code>GDALBuildVRT</code> can read more than one input.
+ * 
+ *         The output of a step with an output directory is kept there as the
+ *         scene name followed by the suffix, the output of the other steps is
+ *         an intermediate file, deleted as soon as all its consumers are done.
+ *         <code>GDALAddOverviews</code> updates the file of its input in
+ *         place, so it must be the only consumer of its input step and its
+ *         own consumers read that same file.
+ * 
+ */
+public class PipelineStep {
+
+	private String name;
+
+	private GDAL template;
+
+	private List<PipelineStep> inputs;
+
+	private List<PipelineStep> consumers = new ArrayList<PipelineStep>();
+
+	private int index;
+
+	private String outputDirectory;
+
+	private String suffix;
+
+	PipelineStep(String name, GDAL template, List<PipelineStep> inputs, int index) {
+		this.name = name;
+		this.template = template;
+		this.inputs = inputs;
+		this.index = index;
+		for (PipelineStep s : inputs)
+			s.consumers.add(this);
+	}
+
+	/**
+	 * @return <code>true</code> if the step updates the file of its input
+	 *         instead of writing a new one.
+	 */
+	public boolean isInPlace() {
+		return this.template instanceof GDALAddOverviews;
+	}
+
+	/**
+	 * @return <code>true</code> if the file written, or updated in place, by
+	 *         this step is kept once the scene is done.
+	 */
+	public boolean isKept() {
+		return this.getOwner().getOutputDirectory() != null;
+	}
+
+	/**
+	 * @return Step that writes the file this step outputs: the step itself,
+	 *         or the first step upstream that doesn't work in place.
+	 */
+	PipelineStep getOwner() {
+		return this.isInPlace() ? this.inputs.get(0).getOwner() : this;
+	}
+
+	/**
+	 * @param scene
+	 *            Path of the scene
+	 * @param directory
+	 *            Directory of the intermediate files of the scene
+	 * @return Output of this step for the scene
+	 */
+	File getOutput(String scene, File directory) {
+		if (this.outputDirectory != null)
+			return new File(this.outputDirectory, Pipeline.basename(scene) + this.getSuffix());
+		return new File(directory, this.name + extension(this.template));
+	}
+
+	/**
+	 * @return Bean to run for a scene
+	 */
+	GDAL bean(List<String> in, String out) throws Exception {
+		if (in.size() == 1)
+			return this.template.copy(in.get(0), out);
+		if (this.template instanceof GDALWarp)
+			return ((GDALWarp) this.template).copy(in, out);
+		if (this.template instanceof GDALBuildVRT)
+			return ((GDALBuildVRT) this.template).copy(in, out);
+		throw new Exception("Step '" + this.name + "' can't read more than one input.");
+	}
+
+	void check() throws Exception {
+		if (this.isInPlace()) {
+			if (this.inputs.size() != 1)
+				throw new Exception("Step '" + this.name + "' updates its input in place and must read exactly one step.");
+			if (this.inputs.get(0).consumers.size() != 1)
+				throw new Exception("Step '" + this.name + "' updates its input in place and must be the only consumer of '" + this.inputs.get(0).getName() + "'.");
+			if (this.outputDirectory != null)
+				throw new Exception("Step '" + this.name + "' updates its input in place and can't have an output directory.");
+		}
+		if (this.consumers.isEmpty() && !this.isKept())
+			throw new Exception("The output of step '" + this.name + "' is neither kept nor consumed.");
+	}
+
+	private static String extension(GDAL g) {
+		String path = g.getOutputFilepath();
+		if (path != null) {
+			String name = new File(path).getName();
+			int idx = name.lastIndexOf('.');
+			if (idx > 0)
+				return name.substring(idx);
+		}
+		return g instanceof GDAL2Tiles ? "" : ".tif";
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public GDAL getTemplate() {
+		return template;
+	}
+
+	public List<PipelineStep> getInputs() {
+		return Collections.unmodifiableList(inputs);
+	}
+
+	public List<PipelineStep> getConsumers() {
+		return Collections.unmodifiableList(consumers);
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	public String getOutputDirectory() {
+		return outputDirectory;
+	}
+
+	/**
+	 * @param outputDirectory
+	 *            Directory where the output of this step is kept,
+	 *            <code>null</code> to make it an intermediate file
+	 */
+	public void setOutputDirectory(String outputDirectory) {
+		this.outputDirectory = outputDirectory;
+	}
+
+	/**
+	 * @return Suffix appended to the scene name to name the kept output, by
+	 *         default an underscore, the step name and the extension of the
+	 *         template output (<code>.tif</code> if it has none, nothing for
+	 *         <code>GDAL2Tiles</code>).
+	 */
+	public String getSuffix() {
+		if (suffix == null)
+			return "_" + this.name + extension(this.template);
+		return suffix;
+	}
+
+	public void setSuffix(String suffix) {
+		this.suffix = suffix;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,407 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.gdal2tiles.GDAL2Tiles;
+import org.geobricks.gdal.retile.GDALRetile;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Packs a pyramid in a single file instead of one file per tile. Tiles
+ *         are appended as they come, identical tiles (empty sea, nodata) are
+ *         stored once by SHA-1 of their content, and the directory is written
+ *         at the end by <code>close()</code>, sorted by zoom, column and row,
+ *         with the bounds of every level. Read it with
+ *         <code>TileArchiveReader</code>.
+ * 
+ *         Layout, little endian: a 32 bytes header (magic "GBTA", version,
+ *         offset of the directory, number of tiles, number of levels), the
+ *         tiles, then the directory: for every level zoom, first column,
+ *         first row, last column, last row, index of its first entry and
+ *         number of entries; then for every tile its key, offset and length.
+ *         Until the archive is closed the header points to no directory, or
+ *         to the directory of the previous session when appending.
+ * 
+ *         The pyramids of gdal2tiles.py and gdal_retile.py are packed after
+ *         the process with <code>add(GDAL2Tiles)</code> and
+ *         <code>add(GDALRetile)</code>, which move the tiles: every tile file
+ *         is deleted as soon as it is written to the archive, and so are the
+ *         directories it leaves empty, so the pyramid ends up as one file.
+ *         The archive must be closed even if a call fails, to keep the tiles
+ *         already moved. <code>TilePyramid</code> writes to the archive
+ *         directly.
+ * 
+ */
+public class TileArchive implements TileSink {
+
+	static final int MAGIC = 0x41544247;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 32;
+
+	static final int LEVEL_SIZE = 36;
+
+	static final int ENTRY_SIZE = 20;
+
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	private long end;
+
+	private long[] keys = new long[1024];
+
+	private long[] offsets = new long[1024];
+
+	private int[] lengths = new int[1024];
+
+	private int count = 0;
+
+	private Map<String, long[]> contents = new HashMap<String, long[]>();
+
+	private long duplicates = 0;
+
+	private boolean closed = false;
+
+	public TileArchive(String filepath) throws IOException {
+		this(new File(filepath), false);
+	}
+
+	/**
+	 * @param append
+	 *            Keep the tiles of an existing archive, new tiles replace the
+	 *            ones with the same key
+	 */
+	public TileArchive(File f, boolean append) throws IOException {
+		if (!append)
+			f.delete();
+		boolean existing = append && f.length() > 0;
+		this.file = new RandomAccessFile(f, "rw");
+		try {
+			this.channel = this.file.getChannel();
+			if (existing) {
+				this.load(f);
+			} else {
+				this.file.setLength(0);
+				this.writeHeader(0, 0, 0);
+			}
+			this.end = this.channel.size();
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the directory of an archive to append to, and the hashes of its
+	 * tiles.
+	 */
+	private void load(File f) throws IOException {
+		TileArchiveReader r = new TileArchiveReader(f);
+		try {
+			for (int i = 0; i < r.getTileCount(); i++) {
+				long key = r.getKey(i);
+				ByteBuffer tile = r.getTile(i);
+				long offset = r.getOffset(i);
+				byte[] b = new byte[tile.remaining()];
+				tile.get(b);
+				this.contents.put(hash(b), new long[] { offset, b.length });
+				this.add(key, offset, b.length);
+			}
+		} finally {
+			r.close();
+		}
+	}
+
+	public void write(int zoom, int x, int y, byte[] tile) throws IOException {
+		String hash = hash(tile);
+		long key = GDALUtils.tileKey(zoom, x, y);
+		synchronized (this) {
+			if (this.closed)
+				throw new IOException("The archive is closed.");
+			long[] stored = this.contents.get(hash);
+			if (stored != null && stored[1] == tile.length) {
+				this.duplicates++;
+				this.add(key, stored[0], tile.length);
+				return;
+			}
+			ByteBuffer b = ByteBuffer.wrap(tile);
+			long offset = this.end;
+			while (b.hasRemaining())
+				this.channel.write(b, offset + b.position());
+			this.end += tile.length;
+			this.contents.put(hash, new long[] { offset, tile.length });
+			this.add(key, offset, tile.length);
+		}
+	}
+
+	/**
+	 * Move the tiles of the output directory of gdal2tiles.py, zoom/x/y.ext
+	 * files, with the rows of the TMS scheme. The KML files are left in
+	 * place.
+	 */
+	public void add(GDAL2Tiles g) throws IOException {
+		File[] levels = new File(g.getOutputDirectory()).listFiles();
+		if (levels == null)
+			throw new IOException("Can't read " + g.getOutputDirectory() + ".");
+		for (File level : levels) {
+			Integer z = number(level.getName());
+			File[] columns = level.listFiles();
+			if (z == null || columns == null)
+				continue;
+			for (File column : columns) {
+				Integer x = number(column.getName());
+				File[] rows = column.listFiles();
+				if (x == null || rows == null)
+					continue;
+				for (File tile : rows) {
+					String name = tile.getName();
+					int dot = name.indexOf('.');
+					Integer y = number(dot < 0 ? name : name.substring(0, dot));
+					if (y != null && tile.isFile() && !name.toLowerCase(Locale.ENGLISH).endsWith(".kml"))
+						this.move(tile, z, x, y);
+				}
+				column.delete();
+			}
+			level.delete();
+		}
+	}
+
+	/**
+	 * Move the tiles of the target directory of gdal_retile.py: the base
+	 * tiles as level 0, the pyramid levels as 1, 2, ..., with the column and
+	 * the row, from 1, of their name_row_col.ext file names.
+	 */
+	public void add(GDALRetile r) throws IOException {
+		File root = new File(r.getTargetDirectory());
+		int levels = r.getLevels() == null ? 0 : r.getLevels();
+		for (int z = r.pyramidsOnly() ? 1 : 0; z <= levels; z++) {
+			File directory = z == 0 ? root : new File(root, String.valueOf(z));
+			this.addRetileLevel(directory, z, r.useDirectoryForEachRow());
+			if (z > 0)
+				directory.delete();
+		}
+	}
+
+	private void addRetileLevel(File directory, int z, boolean rowDirectories) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (File f : files) {
+			if (rowDirectories) {
+				if (f.isDirectory() && number(f.getName()) != null) {
+					this.addRetileLevel(f, z, false);
+					f.delete();
+				}
+				continue;
+			}
+			String name = f.getName();
+			int dot = name.lastIndexOf('.');
+			String[] parts = (dot < 0 ? name : name.substring(0, dot)).split("_");
+			if (!f.isFile() || parts.length < 3)
+				continue;
+			Integer row = number(parts[parts.length - 2]);
+			Integer column = number(parts[parts.length - 1]);
+			if (row != null && column != null)
+				this.move(f, z, column, row);
+		}
+	}
+
+	/**
+	 * Write the tile file to the archive and delete it.
+	 */
+	private void move(File tile, int z, int x, int y) throws IOException {
+		this.write(z, x, y, read(tile));
+		if (!tile.delete())
+			throw new IOException("Can't delete " + tile + ".");
+	}
+
+	private void add(long key, long offset, int length) {
+		if (this.count == this.keys.length) {
+			int n = this.count * 2;
+			this.keys = Arrays.copyOf(this.keys, n);
+			this.offsets = Arrays.copyOf(this.offsets, n);
+			this.lengths = Arrays.copyOf(this.lengths, n);
+		}
+		this.keys[this.count] = key;
+		this.offsets[this.count] = offset;
+		this.lengths[this.count] = length;
+		this.count++;
+	}
+
+	/**
+	 * Write the directory and point the header to it.
+	 */
+	public synchronized void close() throws IOException {
+		if (this.closed)
+			return;
+		this.closed = true;
+		try {
+			Integer[] order = new Integer[this.count];
+			for (int i = 0; i < order.length; i++)
+				order[i] = i;
+			// stable, so the last tile written with a key wins below
+			Arrays.sort(order, new Comparator<Integer>() {
+
+				public int compare(Integer a, Integer b) {
+					long ka = keys[a], kb = keys[b];
+					return ka < kb ? -1 : ka > kb ? 1 : 0;
+				}
+
+			});
+			int unique = 0;
+			for (int i = 0; i < order.length; i++) {
+				if (i + 1 < order.length && this.keys[order[i + 1]] == this.keys[order[i]])
+					continue;
+				order[unique++] = order[i];
+			}
+			int levels = 0;
+			int[][] bounds = new int[64][];
+			long[] first = new long[64];
+			for (int i = 0; i < unique; i++) {
+				long k = this.keys[order[i]];
+				int z = GDALUtils.tileZoom(k), x = GDALUtils.tileColumn(k), y = GDALUtils.tileRow(k);
+				if (bounds[z] == null) {
+					bounds[z] = new int[] { x, y, x, y, 0 };
+					first[z] = i;
+					levels++;
+				}
+				int[] b = bounds[z];
+				b[0] = Math.min(b[0], x);
+				b[1] = Math.min(b[1], y);
+				b[2] = Math.max(b[2], x);
+				b[3] = Math.max(b[3], y);
+				b[4]++;
+			}
+			ByteBuffer d = ByteBuffer.allocate(levels * LEVEL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			for (int z = 0; z < 64; z++) {
+				if (bounds[z] == null)
+					continue;
+				int[] b = bounds[z];
+				d.putInt(z).putInt(b[0]).putInt(b[1]).putInt(b[2]).putInt(b[3]).putLong(first[z]).putLong(b[4]);
+			}
+			long directory = this.end;
+			this.put(d, directory);
+			long position = directory + d.capacity();
+			ByteBuffer e = ByteBuffer.allocate(ENTRY_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+			for (int i = 0; i < unique; i++) {
+				int p = order[i];
+				e.putLong(this.keys[p]).putLong(this.offsets[p]).putInt(this.lengths[p]);
+				if (!e.hasRemaining() || i == unique - 1) {
+					position += this.put(e, position);
+					e.clear();
+				}
+			}
+			this.file.setLength(position);
+			this.channel.force(false);
+			this.writeHeader(directory, unique, levels);
+			this.channel.force(false);
+		} finally {
+			this.file.close();
+		}
+	}
+
+	private int put(ByteBuffer b, long position) throws IOException {
+		b.flip();
+		int n = b.remaining();
+		while (b.hasRemaining())
+			this.channel.write(b, position + b.position());
+		return n;
+	}
+
+	private void writeHeader(long directory, long tiles, int levels) throws IOException {
+		ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		h.putInt(MAGIC).putInt(VERSION).putLong(directory).putLong(tiles).putInt(levels).putInt(0);
+		this.put(h, 0);
+	}
+
+	/**
+	 * @return Tiles not stored because an identical one already was
+	 */
+	public synchronized long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * @return Tiles written so far, replaced ones included
+	 */
+	public synchronized int getTileCount() {
+		return count;
+	}
+
+	private static String hash(byte[] tile) {
+		try {
+			byte[] d = MessageDigest.getInstance("SHA-1").digest(tile);
+			StringBuilder sb = new StringBuilder(d.length * 2);
+			for (byte b : d)
+				sb.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Integer number(String s) {
+		try {
+			return Integer.valueOf(s);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static byte[] read(File f) throws IOException {
+		byte[] b = new byte[(int) f.length()];
+		InputStream in = new FileInputStream(f);
+		try {
+			int n = 0;
+			while (n < b.length) {
+				int r = in.read(b, n, b.length - n);
+				if (r < 0)
+					throw new IOException("Truncated file " + f + ".");
+				n += r;
+			}
+		} finally {
+			in.close();
+		}
+		return b;
+	}
+
+}
\ No newline at end of file
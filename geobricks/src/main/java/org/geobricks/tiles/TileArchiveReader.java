@@ -0,0 +1,249 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.geobricks.gdal.GDALUtils;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Reads the tiles of a <code>TileArchive</code> through a memory
+ *         mapping of its directory. A level with a tile for every column and
+ *         row of its bounds, as gdal2tiles.py writes them, is looked up by
+ *         position in constant time; sparse levels by binary search.
+ * 
+ *         Archives up to 2 GB are mapped whole and tiles are slices of the
+ *         mapping; the tiles of bigger archives are read into heap buffers.
+ *         The reader is thread safe.
+ * 
+ */
+public class TileArchiveReader implements Closeable {
+
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	private long size;
+
+	private MappedByteBuffer map;
+
+	private ByteBuffer directory;
+
+	private int[][] levels = new int[64][];
+
+	private long[] first = new long[64];
+
+	private int count;
+
+	private int minZoom = -1;
+
+	private int maxZoom = -1;
+
+	public TileArchiveReader(String filepath) throws IOException {
+		this(new File(filepath));
+	}
+
+	public TileArchiveReader(File f) throws IOException {
+		this.file = new RandomAccessFile(f, "r");
+		try {
+			this.channel = this.file.getChannel();
+			this.size = this.channel.size();
+			if (this.size <= Integer.MAX_VALUE)
+				this.map = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+			this.readDirectory();
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	private void readDirectory() throws IOException {
+		if (this.size < TileArchive.HEADER_SIZE)
+			throw new IOException("Not a tile archive.");
+		ByteBuffer h = this.slice(0, TileArchive.HEADER_SIZE);
+		if (h.getInt(0) != TileArchive.MAGIC)
+			throw new IOException("Not a tile archive.");
+		if (h.getInt(4) > TileArchive.VERSION)
+			throw new IOException("Unsupported tile archive version " + h.getInt(4) + ".");
+		long offset = h.getLong(8);
+		long tiles = h.getLong(16);
+		int n = h.getInt(24);
+		if (offset == 0)
+			throw new IOException("The archive was not closed.");
+		long length = (long) n * TileArchive.LEVEL_SIZE + tiles * TileArchive.ENTRY_SIZE;
+		if (n < 0 || n > 64 || tiles < 0 || offset < TileArchive.HEADER_SIZE || offset + length > this.size || length > Integer.MAX_VALUE)
+			throw new IOException("Invalid tile archive directory.");
+		ByteBuffer l = this.slice(offset, n * TileArchive.LEVEL_SIZE);
+		for (int i = 0; i < n; i++) {
+			int p = i * TileArchive.LEVEL_SIZE;
+			int z = l.getInt(p);
+			if (z < 0 || z > 63)
+				throw new IOException("Invalid zoom level " + z + ".");
+			this.levels[z] = new int[] { l.getInt(p + 4), l.getInt(p + 8), l.getInt(p + 12), l.getInt(p + 16), (int) l.getLong(p + 28) };
+			this.first[z] = l.getLong(p + 20);
+			this.minZoom = this.minZoom < 0 ? z : Math.min(this.minZoom, z);
+			this.maxZoom = Math.max(this.maxZoom, z);
+		}
+		this.count = (int) tiles;
+		this.directory = this.slice(offset + n * TileArchive.LEVEL_SIZE, (int) tiles * TileArchive.ENTRY_SIZE);
+	}
+
+	private ByteBuffer slice(long offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > this.size)
+			throw new IOException("Region " + offset + " - " + (offset + length) + " is outside the file.");
+		ByteBuffer b;
+		if (this.map != null) {
+			b = this.map.duplicate();
+			b.position((int) offset);
+			b.limit((int) offset + length);
+			b = b.slice();
+		} else if (length > 1 << 20) {
+			b = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		} else {
+			b = ByteBuffer.allocate(length);
+			while (b.hasRemaining())
+				if (this.channel.read(b, offset + b.position()) < 0)
+					throw new IOException("Truncated file.");
+			b.flip();
+		}
+		return b.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return The tile, a read only buffer, <code>null</code> if the archive
+	 *         doesn't contain it
+	 */
+	public ByteBuffer getTile(int zoom, int x, int y) throws IOException {
+		int i = this.indexOf(zoom, x, y);
+		return i < 0 ? null : this.getTile(i);
+	}
+
+	public boolean contains(int zoom, int x, int y) {
+		return this.indexOf(zoom, x, y) >= 0;
+	}
+
+	/**
+	 * @return Position of the tile in the directory, negative if missing
+	 */
+	public int indexOf(int zoom, int x, int y) {
+		if (zoom < 0 || zoom > 63 || this.levels[zoom] == null)
+			return -1;
+		int[] l = this.levels[zoom];
+		if (x < l[0] || x > l[2] || y < l[1] || y > l[3])
+			return -1;
+		long key = GDALUtils.tileKey(zoom, x, y);
+		long rows = l[3] - l[1] + 1;
+		if ((l[2] - l[0] + 1) * rows == l[4]) {
+			int i = (int) (this.first[zoom] + (x - l[0]) * rows + y - l[1]);
+			return this.getKey(i) == key ? i : -1;
+		}
+		int lo = (int) this.first[zoom], hi = lo + l[4] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			long k = this.getKey(mid);
+			if (k < key)
+				lo = mid + 1;
+			else if (k > key)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param index
+	 *            Position in the directory, sorted by zoom, column and row
+	 */
+	public ByteBuffer getTile(int index) throws IOException {
+		return this.slice(this.getOffset(index), this.getLength(index)).asReadOnlyBuffer();
+	}
+
+	public long getKey(int index) {
+		return this.directory.getLong(index * TileArchive.ENTRY_SIZE);
+	}
+
+	public int getZoom(int index) {
+		return GDALUtils.tileZoom(this.getKey(index));
+	}
+
+	public int getColumn(int index) {
+		return GDALUtils.tileColumn(this.getKey(index));
+	}
+
+	public int getRow(int index) {
+		return GDALUtils.tileRow(this.getKey(index));
+	}
+
+	long getOffset(int index) {
+		return this.directory.getLong(index * TileArchive.ENTRY_SIZE + 8);
+	}
+
+	int getLength(int index) {
+		return this.directory.getInt(index * TileArchive.ENTRY_SIZE + 16);
+	}
+
+	public int getTileCount() {
+		return count;
+	}
+
+	/**
+	 * @return First zoom level, -1 if the archive is empty
+	 */
+	public int getMinZoom() {
+		return minZoom;
+	}
+
+	/**
+	 * @return Last zoom level, -1 if the archive is empty
+	 */
+	public int getMaxZoom() {
+		return maxZoom;
+	}
+
+	/**
+	 * @return First column, first row, last column and last row of the tiles
+	 *         of the level, <code>null</code> if it has no tile
+	 */
+	public int[] getBounds(int zoom) {
+		int[] l = zoom < 0 || zoom > 63 ? null : this.levels[zoom];
+		return l == null ? null : new int[] { l[0], l[1], l[2], l[3] };
+	}
+
+	/**
+	 * Release the file. The mapping is released by the garbage collector, the
+	 * tiles obtained from the reader stay readable until then.
+	 */
+	public void close() throws IOException {
+		this.file.close();
+	}
+
+}
\ No newline at end of file
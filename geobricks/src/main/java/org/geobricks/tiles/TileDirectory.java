@@ -0,0 +1,74 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Writes the tiles as <code>zoom/x/y.extension</code> files, the
+ *         layout of gdal2tiles.py.
+ * 
+ */
+public class TileDirectory implements TileSink {
+
+	private File directory;
+
+	private String extension;
+
+	public TileDirectory(String directory) {
+		this(new File(directory), "png");
+	}
+
+	public TileDirectory(File directory, String extension) {
+		this.directory = directory;
+		this.extension = extension;
+	}
+
+	public void write(int zoom, int x, int y, byte[] tile) throws IOException {
+		File column = new File(this.directory, zoom + File.separator + x);
+		if (!column.mkdirs() && !column.isDirectory())
+			throw new IOException("Can't create " + column + ".");
+		OutputStream out = new FileOutputStream(new File(column, y + "." + this.extension));
+		try {
+			out.write(tile);
+		} finally {
+			out.close();
+		}
+	}
+
+	public void close() throws IOException {
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+}
\ No newline at end of file
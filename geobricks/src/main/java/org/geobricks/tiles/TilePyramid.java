@@ -0,0 +1,674 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.constant.RESAMPLING;
+import org.geobricks.gdal.gdal2tiles.GDAL2Tiles;
+import org.geobricks.geotiff.GeoTIFFImage;
+import org.geobricks.geotiff.GeoTIFFReader;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Builds the PNG tiles of gdal2tiles.py in process, from a Byte
+ *         GeoTIFF with 1 (gray), 2 (gray and alpha), 3 (RGB) or 4 (RGBA)
+ *         bands. The deepest level is rendered from the raster, one row of
+ *         tiles at a time, and every other level is built by downsampling the
+ *         four children still in memory, so the source is read once.
+ * 
+ *         Rows are processed level by level as soon as both children rows of
+ *         a parent row are complete: every level keeps at most one row of
+ *         tiles waiting for its sibling, and the tiles of a row are rendered
+ *         on all the threads. Encoded tiles are handed to the sink
+ *         asynchronously, with at most <code>maxTiles</code> tiles in flight.
+ * 
+ *         There is no reprojection: with the mercator and geodetic profiles
+ *         the raster must already be in EPSG:3857 or EPSG:4326, warp it with
+ *         gdalwarp first otherwise. Nearest neighbour and mode resample by
+ *         picking pixels, every other method by bilinear interpolation on the
+ *         deepest level and by averaging the children above it.
+ * 
+ */
+public class TilePyramid {
+
+	public static final int TILE_SIZE = 256;
+
+	private static final double ORIGIN_SHIFT = Math.PI * 6378137;
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	private GeoTIFFImage image;
+
+	private PROFILE profile = PROFILE.mercator;
+
+	private RESAMPLING resampling = RESAMPLING.average;
+
+	private String zoom;
+
+	private boolean xyz = false;
+
+	private Double noData;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private int maxTiles = 0;
+
+	private ExecutorService executor;
+
+	private int minZoom;
+
+	private int maxZoom;
+
+	private double[] geoTransform;
+
+	private int[][] ranges;
+
+	private int[][][] pending;
+
+	private int[] pendingRow;
+
+	private TileSink sink;
+
+	private Semaphore inFlight;
+
+	private AtomicLong written;
+
+	private AtomicReference<Exception> failure;
+
+	private byte[] empty;
+
+	public TilePyramid(GeoTIFFImage image) {
+		this.image = image;
+	}
+
+	/**
+	 * Tiles the input of the bean into its output directory, with its
+	 * profile, resampling, zoom levels and no data value.
+	 * 
+	 * @return Number of tiles written
+	 */
+	public static long generate(GDAL2Tiles g) throws Exception {
+		GeoTIFFReader reader = new GeoTIFFReader(g.getInputFilepath());
+		try {
+			TilePyramid p = new TilePyramid(reader.getImage());
+			if (g.getProfile() != null)
+				p.setProfile(g.getProfile());
+			if (g.getResampling() != null)
+				p.setResampling(g.getResampling());
+			p.setZoom(g.getZoom());
+			if (g.getNoData() != null && !g.getNoData().isEmpty())
+				p.setNoData(Double.parseDouble(g.getNoData()));
+			TileDirectory d = new TileDirectory(g.getOutputDirectory());
+			try {
+				return p.build(d);
+			} finally {
+				d.close();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @param sink
+	 *            Destination of the tiles, not closed
+	 * @return Number of tiles written
+	 */
+	public long build(TileSink sink) throws Exception {
+		if (this.image.getBandsType() != BANDSTYPE.Byte)
+			throw new IOException("Only Byte rasters can be tiled, convert the raster with gdal_translate -ot Byte -scale.");
+		this.geoTransform = this.getSourceGeoTransform();
+		int[] z = this.getZoomLevels();
+		this.minZoom = z[0];
+		this.maxZoom = z[1];
+		this.ranges = new int[this.maxZoom + 1][];
+		this.ranges[this.maxZoom] = this.tileRange(this.maxZoom);
+		for (int l = this.maxZoom - 1; l >= this.minZoom; l--) {
+			int[] c = this.ranges[l + 1];
+			this.ranges[l] = new int[] { c[0] >> 1, c[1] >> 1, c[2] >> 1, c[3] >> 1 };
+		}
+		this.pending = new int[this.maxZoom + 1][][];
+		this.pendingRow = new int[this.maxZoom + 1];
+		this.sink = sink;
+		this.written = new AtomicLong();
+		this.failure = new AtomicReference<Exception>();
+		this.empty = encode(null);
+		int parallelism = this.threads;
+		this.inFlight = new Semaphore(this.maxTiles > 0 ? this.maxTiles : 4 * parallelism);
+		boolean own = this.executor == null;
+		if (own) {
+			final int pool = POOL_COUNTER.incrementAndGet();
+			this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+
+				private AtomicInteger counter = new AtomicInteger();
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "tile-pyramid-" + pool + "-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+
+			});
+		}
+		try {
+			int[] r = this.ranges[this.maxZoom];
+			for (int y = r[1]; y <= r[3]; y++)
+				this.emit(this.maxZoom, y, this.render(y));
+			this.inFlight.acquire(this.maxTiles > 0 ? this.maxTiles : 4 * parallelism);
+			this.checkFailure();
+			return this.written.get();
+		} finally {
+			if (own) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
+			this.pending = null;
+		}
+	}
+
+	/**
+	 * @return Geotransform of the source in the units of the profile, the
+	 *         raster profile counts pixels upwards from the bottom left corner
+	 */
+	private double[] getSourceGeoTransform() throws IOException {
+		if (this.profile == PROFILE.raster)
+			return new double[] { 0, 1, 0, this.image.getHeight(), 0, -1 };
+		double[] gt = this.image.getGeoTransform();
+		if (gt == null)
+			throw new IOException("The raster has no geotransform, use the raster profile.");
+		if (gt[2] != 0 || gt[4] != 0)
+			throw new IOException("Rotated rasters can't be tiled, warp the raster with gdalwarp first.");
+		int epsg = this.image.getEPSG();
+		boolean ok = this.profile == PROFILE.mercator ? epsg == 3857 || epsg == 900913 || epsg == 3785 || epsg == 102100 || epsg == 102113 : epsg == 4326;
+		if (epsg != 0 && !ok)
+			throw new IOException("The raster is in EPSG:" + epsg + ", warp it to " + (this.profile == PROFILE.mercator ? "EPSG:3857" : "EPSG:4326") + " with gdalwarp first.");
+		return gt;
+	}
+
+	/**
+	 * @return First and last level, from the zoom string or as gdal2tiles.py
+	 *         chooses them
+	 */
+	private int[] getZoomLevels() {
+		if (this.zoom != null && !this.zoom.trim().isEmpty()) {
+			String[] s = this.zoom.trim().split("-");
+			int min = Integer.parseInt(s[0].trim());
+			int max = s.length > 1 ? Integer.parseInt(s[1].trim()) : min;
+			if (min < 0 || max < min || max > 30)
+				throw new IllegalArgumentException("Invalid zoom levels " + this.zoom + ".");
+			if (this.profile == PROFILE.raster && max > this.getNativeZoom())
+				throw new IllegalArgumentException("The raster profile has no level deeper than " + this.getNativeZoom() + ".");
+			return new int[] { min, max };
+		}
+		if (this.profile == PROFILE.raster)
+			return new int[] { 0, this.getNativeZoom() };
+		int size = Math.max(this.image.getWidth(), this.image.getHeight());
+		double pixel = Math.abs(this.geoTransform[1]);
+		return new int[] { this.zoomForPixelSize(pixel * size / TILE_SIZE), this.zoomForPixelSize(pixel) };
+	}
+
+	private int getNativeZoom() {
+		int size = Math.max(this.image.getWidth(), this.image.getHeight());
+		return Math.max(0, (int) Math.ceil(Math.log((double) size / TILE_SIZE) / Math.log(2)));
+	}
+
+	private int zoomForPixelSize(double pixel) {
+		for (int z = 0; z < 31; z++)
+			if (pixel > this.tileSize(z) / TILE_SIZE)
+				return Math.max(0, z - 1);
+		return 30;
+	}
+
+	/**
+	 * @return Size of a tile of the level, in the units of the geotransform.
+	 *         As in gdal2tiles.py, the tiles of the raster profile have the
+	 *         pixels of the raster at the native level whatever the deepest
+	 *         level rendered.
+	 */
+	private double tileSize(int z) {
+		switch (this.profile) {
+		case raster:
+			return (double) TILE_SIZE * (1L << (this.getNativeZoom() - z));
+		case geodetic:
+			return 180.0 / (1L << z);
+		default:
+			return 2 * ORIGIN_SHIFT / (1L << z);
+		}
+	}
+
+	private double originX() {
+		return this.profile == PROFILE.raster ? 0 : this.profile == PROFILE.geodetic ? -180 : -ORIGIN_SHIFT;
+	}
+
+	private double originY() {
+		return this.profile == PROFILE.raster ? 0 : this.profile == PROFILE.geodetic ? -90 : -ORIGIN_SHIFT;
+	}
+
+	/**
+	 * @return First column, first row, last column and last row of the TMS
+	 *         tiles of the level covering the raster
+	 */
+	private int[] tileRange(int z) {
+		double[] gt = this.geoTransform;
+		double minX = gt[0], maxX = gt[0] + this.image.getWidth() * gt[1];
+		double maxY = gt[3], minY = gt[3] + this.image.getHeight() * gt[5];
+		double size = this.tileSize(z);
+		int x0 = (int) Math.floor((Math.min(minX, maxX) - this.originX()) / size);
+		int x1 = (int) Math.ceil((Math.max(minX, maxX) - this.originX()) / size) - 1;
+		int y0 = (int) Math.floor((Math.min(minY, maxY) - this.originY()) / size);
+		int y1 = (int) Math.ceil((Math.max(minY, maxY) - this.originY()) / size) - 1;
+		if (this.profile != PROFILE.raster) {
+			long columns = this.profile == PROFILE.geodetic ? 2L << z : 1L << z;
+			x0 = (int) Math.max(0, Math.min(columns - 1, x0));
+			x1 = (int) Math.max(x0, Math.min(columns - 1, x1));
+			y0 = (int) Math.max(0, Math.min((1L << z) - 1, y0));
+			y1 = (int) Math.max(y0, Math.min((1L << z) - 1, y1));
+		}
+		return new int[] { x0, y0, Math.max(x0, x1), Math.max(y0, y1) };
+	}
+
+	/**
+	 * Render a row of tiles of the deepest level from the raster.
+	 */
+	private int[][] render(final int ty) throws Exception {
+		final int[] r = this.ranges[this.maxZoom];
+		final double[] gt = this.geoTransform;
+		final double size = this.tileSize(this.maxZoom);
+		final double res = size / TILE_SIZE;
+		int width = this.image.getWidth(), height = this.image.getHeight();
+		double top = this.originY() + (ty + 1) * size;
+		double bottom = this.originY() + ty * size;
+		double left = this.originX() + r[0] * size;
+		double right = this.originX() + (r[2] + 1) * size;
+		double ra = (top - gt[3]) / gt[5], rb = (bottom - gt[3]) / gt[5];
+		double ca = (left - gt[0]) / gt[1], cb = (right - gt[0]) / gt[1];
+		final int row0 = (int) Math.max(0, Math.floor(Math.min(ra, rb)) - 1);
+		final int row1 = (int) Math.min(height, Math.ceil(Math.max(ra, rb)) + 1);
+		final int col0 = (int) Math.max(0, Math.floor(Math.min(ca, cb)) - 1);
+		final int col1 = (int) Math.min(width, Math.ceil(Math.max(ca, cb)) + 1);
+		final int[][] tiles = new int[r[2] - r[0] + 1][];
+		if (row0 >= row1 || col0 >= col1)
+			return tiles;
+		final int[] window = this.readWindow(col0, row0, col1 - col0, row1 - row0);
+		final boolean nearest = this.isNearest();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int tx = r[0]; tx <= r[2]; tx++) {
+			final int x = tx;
+			tasks.add(new Callable<Void>() {
+
+				public Void call() throws Exception {
+					double[] px = new double[TILE_SIZE];
+					double[] py = new double[TILE_SIZE];
+					double left = originX() + x * size;
+					double top = originY() + (ty + 1) * size;
+					for (int i = 0; i < TILE_SIZE; i++) {
+						px[i] = (left + (i + 0.5) * res - gt[0]) / gt[1] - col0;
+						py[i] = (top - (i + 0.5) * res - gt[3]) / gt[5] - row0;
+					}
+					tiles[x - r[0]] = sample(window, col1 - col0, row1 - row0, col0, row0, px, py, nearest);
+					return null;
+				}
+
+			});
+		}
+		this.invokeAll(tasks);
+		return tiles;
+	}
+
+	/**
+	 * @return The window as ARGB pixels, transparent where there is no data
+	 */
+	private int[] readWindow(int x, int y, int w, int h) throws IOException {
+		int bands = this.image.getSamplesPerPixel();
+		float[][] b = new float[Math.min(bands, 4)][];
+		for (int i = 0; i < b.length; i++)
+			b[i] = this.image.readWindow(i + 1, x, y, w, h);
+		boolean alpha = bands == 2 || bands == 4;
+		int colors = bands >= 3 ? 3 : 1;
+		boolean nodata = this.noData != null || this.image.isNoDataSet();
+		float nd = (float) (this.noData != null ? this.noData.doubleValue() : nodata ? this.image.getNoData() : 0);
+		int[] out = new int[w * h];
+		for (int p = 0; p < out.length; p++) {
+			int red = (int) b[0][p] & 0xff;
+			int green = colors == 3 ? (int) b[1][p] & 0xff : red;
+			int blue = colors == 3 ? (int) b[2][p] & 0xff : red;
+			int a = alpha ? (int) b[b.length - 1][p] & 0xff : 255;
+			if (nodata && b[0][p] == nd && (colors == 1 || b[1][p] == nd && b[2][p] == nd))
+				a = 0;
+			out[p] = a == 0 ? 0 : a << 24 | red << 16 | green << 8 | blue;
+		}
+		return out;
+	}
+
+	/**
+	 * @param px
+	 *            Column in the window of the center of every column of the
+	 *            tile
+	 * @param py
+	 *            Row in the window of the center of every row of the tile
+	 * @return The tile, <code>null</code> if it is transparent
+	 */
+	private int[] sample(int[] window, int w, int h, int col0, int row0, double[] px, double[] py, boolean nearest) {
+		int[] tile = new int[TILE_SIZE * TILE_SIZE];
+		int width = this.image.getWidth(), height = this.image.getHeight();
+		boolean any = false;
+		for (int j = 0; j < TILE_SIZE; j++) {
+			double y = py[j];
+			if (y + row0 < 0 || y + row0 >= height)
+				continue;
+			for (int i = 0; i < TILE_SIZE; i++) {
+				double x = px[i];
+				if (x + col0 < 0 || x + col0 >= width)
+					continue;
+				int v;
+				if (nearest) {
+					v = window[clamp((int) Math.floor(y), h) * w + clamp((int) Math.floor(x), w)];
+				} else {
+					double fx = x - 0.5, fy = y - 0.5;
+					int x0 = (int) Math.floor(fx), y0 = (int) Math.floor(fy);
+					double wx = fx - x0, wy = fy - y0;
+					int xa = clamp(x0, w), xb = clamp(x0 + 1, w), ya = clamp(y0, h), yb = clamp(y0 + 1, h);
+					v = blend(window[ya * w + xa], window[ya * w + xb], window[yb * w + xa], window[yb * w + xb], (1 - wx) * (1 - wy), wx * (1 - wy), (1 - wx) * wy, wx * wy);
+				}
+				tile[j * TILE_SIZE + i] = v;
+				any |= v != 0;
+			}
+		}
+		return any ? tile : null;
+	}
+
+	private static int clamp(int v, int size) {
+		return v < 0 ? 0 : v >= size ? size - 1 : v;
+	}
+
+	/**
+	 * @return Weighted mean of four ARGB pixels, colors weighted by alpha
+	 */
+	private static int blend(int a, int b, int c, int d, double wa, double wb, double wc, double wd) {
+		double alpha = 0, red = 0, green = 0, blue = 0;
+		int[] p = { a, b, c, d };
+		double[] w = { wa, wb, wc, wd };
+		for (int i = 0; i < 4; i++) {
+			double k = w[i] * (p[i] >>> 24);
+			alpha += k;
+			red += k * (p[i] >> 16 & 0xff);
+			green += k * (p[i] >> 8 & 0xff);
+			blue += k * (p[i] & 0xff);
+		}
+		int al = (int) Math.round(alpha);
+		if (al == 0)
+			return 0;
+		return al << 24 | (int) Math.round(red / alpha) << 16 | (int) Math.round(green / alpha) << 8 | (int) Math.round(blue / alpha);
+	}
+
+	/**
+	 * Write a complete row of a level and build the parent row once both of
+	 * its children rows are there.
+	 */
+	private void emit(int z, int y, int[][] tiles) throws Exception {
+		this.checkFailure();
+		int[] r = this.ranges[z];
+		for (int i = 0; i < tiles.length; i++)
+			this.write(z, r[0] + i, y, tiles[i]);
+		if (z == this.minZoom)
+			return;
+		if ((y & 1) == 0 && y < r[3]) {
+			this.pending[z] = tiles;
+			this.pendingRow[z] = y;
+			return;
+		}
+		int[][] lower = (y & 1) == 0 ? tiles : this.pending[z] != null && this.pendingRow[z] == y - 1 ? this.pending[z] : null;
+		int[][] upper = (y & 1) == 1 ? tiles : null;
+		this.pending[z] = null;
+		this.emit(z - 1, y >> 1, this.downsample(z, lower, upper));
+	}
+
+	/**
+	 * @param z
+	 *            Level of the children
+	 * @param lower
+	 *            Southern row of children, <code>null</code> if missing
+	 * @param upper
+	 *            Northern row of children, <code>null</code> if missing
+	 */
+	private int[][] downsample(int z, final int[][] lower, final int[][] upper) throws Exception {
+		final int[] c = this.ranges[z];
+		final int[] p = this.ranges[z - 1];
+		final int[][] tiles = new int[p[2] - p[0] + 1][];
+		final boolean nearest = this.isNearest();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int px = p[0]; px <= p[2]; px++) {
+			final int x = px;
+			tasks.add(new Callable<Void>() {
+
+				public Void call() throws Exception {
+					int[] tile = null;
+					for (int q = 0; q < 4; q++) {
+						int cx = 2 * x + (q & 1);
+						int[][] row = (q & 2) == 0 ? upper : lower;
+						if (row == null || cx < c[0] || cx > c[2] || row[cx - c[0]] == null)
+							continue;
+						if (tile == null)
+							tile = new int[TILE_SIZE * TILE_SIZE];
+						reduce(row[cx - c[0]], tile, (q & 1) * TILE_SIZE / 2, (q >> 1) * TILE_SIZE / 2, nearest);
+					}
+					tiles[x - p[0]] = tile;
+					return null;
+				}
+
+			});
+		}
+		this.invokeAll(tasks);
+		return tiles;
+	}
+
+	/**
+	 * Shrink a child into a quarter of its parent.
+	 */
+	private static void reduce(int[] child, int[] parent, int offsetX, int offsetY, boolean nearest) {
+		int half = TILE_SIZE / 2;
+		for (int j = 0; j < half; j++) {
+			int s = 2 * j * TILE_SIZE;
+			int o = (offsetY + j) * TILE_SIZE + offsetX;
+			for (int i = 0; i < half; i++, s += 2) {
+				if (nearest)
+					parent[o + i] = child[s];
+				else
+					parent[o + i] = blend(child[s], child[s + 1], child[s + TILE_SIZE], child[s + TILE_SIZE + 1], 0.25, 0.25, 0.25, 0.25);
+			}
+		}
+	}
+
+	private boolean isNearest() {
+		return this.resampling == RESAMPLING.near || this.resampling == RESAMPLING.nearest || this.resampling == RESAMPLING.mode;
+	}
+
+	private void write(final int z, final int x, int tmsY, final int[] tile) throws Exception {
+		final int y = this.xyz ? this.rows(z) - 1 - tmsY : tmsY;
+		this.inFlight.acquire();
+		try {
+			this.executor.submit(new Runnable() {
+
+				public void run() {
+					try {
+						if (failure.get() == null) {
+							sink.write(z, x, y, tile == null ? empty : encode(tile));
+							written.incrementAndGet();
+						}
+					} catch (Exception e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						inFlight.release();
+					}
+				}
+
+			});
+		} catch (RuntimeException e) {
+			this.inFlight.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return Rows of the level, for the XYZ scheme
+	 */
+	private int rows(int z) {
+		return this.profile == PROFILE.raster ? this.ranges[z][3] + 1 : 1 << z;
+	}
+
+	private void invokeAll(List<Callable<Void>> tasks) throws Exception {
+		List<Future<Void>> futures = this.executor.invokeAll(tasks);
+		for (Future<Void> f : futures) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+	}
+
+	private void checkFailure() throws Exception {
+		Exception e = this.failure.get();
+		if (e != null)
+			throw e;
+	}
+
+	/**
+	 * @return The ARGB tile as PNG, a transparent tile for <code>null</code>
+	 */
+	static byte[] encode(int[] tile) throws IOException {
+		BufferedImage i = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		if (tile != null)
+			i.setRGB(0, 0, TILE_SIZE, TILE_SIZE, tile, 0, TILE_SIZE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(i, "png", out);
+		return out.toByteArray();
+	}
+
+	public PROFILE getProfile() {
+		return profile;
+	}
+
+	public void setProfile(PROFILE profile) {
+		this.profile = profile;
+	}
+
+	public RESAMPLING getResampling() {
+		return resampling;
+	}
+
+	public void setResampling(RESAMPLING resampling) {
+		this.resampling = resampling;
+	}
+
+	public String getZoom() {
+		return zoom;
+	}
+
+	/**
+	 * @param zoom
+	 *            Levels as in gdal2tiles.py, such as "2-5" or "10"
+	 */
+	public void setZoom(String zoom) {
+		this.zoom = zoom;
+	}
+
+	public boolean xyz() {
+		return xyz;
+	}
+
+	/**
+	 * @param xyz
+	 *            Number the rows from the top, as the XYZ scheme, instead of
+	 *            from the bottom as TMS
+	 */
+	public void xyz(boolean xyz) {
+		this.xyz = xyz;
+	}
+
+	public Double getNoData() {
+		return noData;
+	}
+
+	/**
+	 * @param noData
+	 *            Value made transparent, instead of the one of the raster
+	 */
+	public void setNoData(Double noData) {
+		this.noData = noData;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public int getMaxTiles() {
+		return maxTiles;
+	}
+
+	/**
+	 * @param maxTiles
+	 *            Tiles rendered but not yet written, 4 per thread by default
+	 */
+	public void setMaxTiles(int maxTiles) {
+		this.maxTiles = maxTiles;
+	}
+
+	/**
+	 * @param executor
+	 *            Pool shared with other components, not shut down by the
+	 *            pyramid
+	 * @param parallelism
+	 *            Threads of the pool used by the pyramid
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism) {
+		this.executor = executor;
+		this.threads = Math.max(1, parallelism);
+	}
+
+}
\ No newline at end of file
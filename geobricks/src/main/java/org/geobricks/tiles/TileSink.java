@@ -0,0 +1,48 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         Destination of the tiles of a pyramid. Tiles are written
+ *         concurrently from several threads, in no particular order.
+ * 
+ */
+public interface TileSink extends Closeable {
+
+	/**
+	 * @param zoom
+	 *            Zoom level
+	 * @param x
+	 *            Column
+	 * @param y
+	 *            Row, in the scheme chosen for the pyramid
+	 * @param tile
+	 *            Encoded tile
+	 */
+	void write(int zoom, int x, int y, byte[] tile) throws IOException;
+
+}
\ No newline at end of file
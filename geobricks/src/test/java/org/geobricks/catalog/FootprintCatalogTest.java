@@ -0,0 +1,97 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.geotiff.GeoTIFFWriter;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class FootprintCatalogTest extends GeoBricksTest {
+
+	public void testCatalog() throws Exception {
+		File folder = File.createTempFile("layers", "");
+		folder.delete();
+		folder.mkdirs();
+		File f = new File(folder, "catalog.gbfc");
+		File scene = new File(folder, "scene.tif");
+		try {
+			GeoTIFFWriter w = new GeoTIFFWriter(scene, 20, 10, 1, BANDSTYPE.Byte);
+			w.setGeoTransform(new double[] { 100, 0.5, 0, 50, 0, -0.5 });
+			w.setEPSG(32632);
+			w.writeRaster(new float[200]);
+			w.close();
+			FootprintCatalog c = new FootprintCatalog(f);
+			c.append(Arrays.asList(new Footprint("a.tif", 0, 0, 10, 10, 1, 1, 4326, 3, 1), new Footprint("b.tif", 20, 20, 30, 30, 1, 1, 4326, 3, 1)));
+			c.append(new Footprint("a.tif", 0, 0, 5, 5, 0.5, 0.5, 4326, 4, 2));
+			assertEquals(1, c.update(folder, null));
+			c.close();
+			c = new FootprintCatalog(f);
+			assertEquals(4, c.getRecordCount());
+			assertEquals(c.getPathId(0), c.getPathId(2));
+			assertEquals(5.0, c.getMaxX(2));
+			assertEquals(4, c.getBands(2));
+			assertEquals(scene.getPath(), c.getFilepath(3));
+			assertEquals(32632, c.getEPSG(3));
+			assertEquals(110.0, c.getMaxX(3));
+			assertEquals(0, c.update(folder, null));
+			assertEquals(Arrays.asList("a.tif"), c.getIndex().getInputFilepaths(new GeoreferencedExtents("4", "4", "8", "8"), 4326));
+			assertEquals(Arrays.asList(scene.getPath()), c.getIndex().getInputFilepaths(new GeoreferencedExtents("105", "45", "106", "46"), 32632));
+			assertTrue(c.getIndex().getInputFilepaths(new GeoreferencedExtents("105", "45", "106", "46"), 4326).isEmpty());
+			scene.delete();
+			assertEquals(1, c.update(folder, null));
+			assertTrue(c.isDeleted(4));
+			c.compact();
+			assertEquals(2, c.getRecordCount());
+			assertEquals(2, c.getIndex().size());
+			assertEquals(Arrays.asList("b.tif"), c.getIndex().getInputFilepaths(new GeoreferencedExtents("0", "0", "40", "40"), 0).subList(1, 2));
+			c.close();
+			assertTrue(new File(f.getPath() + ".strings.1").exists());
+			assertFalse(new File(f.getPath() + ".strings").exists());
+			File tmp = new File(f.getPath() + ".tmp");
+			tmp.createNewFile();
+			new File(f.getPath() + ".strings.2").createNewFile();
+			c = new FootprintCatalog(f);
+			assertEquals(2, c.getIndex().size());
+			c.close();
+			assertFalse(tmp.exists());
+			assertFalse(new File(f.getPath() + ".strings.2").exists());
+			assertTrue(f.renameTo(tmp));
+			c = new FootprintCatalog(f);
+			assertEquals(2, c.getIndex().size());
+			assertEquals("b.tif", c.getFilepath(1));
+			c.close();
+		} finally {
+			for (File x : folder.listFiles())
+				x.delete();
+			folder.delete();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class FootprintIndexTest extends GeoBricksTest {
+
+	public void testQuery() throws Exception {
+		Random random = new Random(7);
+		List<Footprint> all = new ArrayList<Footprint>();
+		for (int i = 0; i < 2000; i++)
+			all.add(footprint("scene" + i, random));
+		FootprintIndex index = new FootprintIndex(all.subList(0, 1500));
+		for (Footprint f : all.subList(1500, 2000))
+			index.add(f);
+		for (int i = 0; i < 100; i++) {
+			Footprint f = footprint("scene" + (i * 7), random);
+			all.set(i * 7, f);
+			index.add(f);
+		}
+		for (int i = 1; i < 2000; i += 10) {
+			index.remove("scene" + i);
+			all.set(i, null);
+		}
+		assertEquals(1800, index.size());
+		for (int q = 0; q < 50; q++) {
+			double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+			GeoreferencedExtents e = new GeoreferencedExtents(String.valueOf(x), String.valueOf(y), String.valueOf(x + 40), String.valueOf(y + 25));
+			Set<String> expected = new HashSet<String>();
+			for (Footprint f : all)
+				if (f != null && f.intersects(x, y, x + 40, y + 25))
+					expected.add(f.getFilepath());
+			assertEquals(expected, new HashSet<String>(index.getInputFilepaths(e, 3857)));
+		}
+		index.add(new Footprint("utm.tif", 0, 0, 1000, 1000, 10, 10, 32632, 3, 0));
+		GeoreferencedExtents e = new GeoreferencedExtents("500", "500", "510", "510");
+		assertFalse(index.getInputFilepaths(e, 3857).contains("utm.tif"));
+		assertEquals(Arrays.asList("utm.tif"), index.getInputFilepaths(e, 32632));
+		assertTrue(index.getInputFilepaths(e, 0).contains("utm.tif"));
+		assertEquals(3857, Footprint.epsg("PROJCS[\"WGS 84 / Pseudo-Mercator\",GEOGCS[\"WGS 84\",AUTHORITY[\"EPSG\",\"4326\"]],AUTHORITY[\"EPSG\",\"3857\"]]"));
+	}
+
+	private static Footprint footprint(String path, Random random) {
+		double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+		return new Footprint(path, x, y, x + random.nextDouble() * 20, y + random.nextDouble() * 20, 0.1, 0.1, 3857, 3, 0);
+	}
+
+}
\ No newline at end of file
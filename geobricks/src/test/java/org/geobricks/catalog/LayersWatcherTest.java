@@ -0,0 +1,130 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.catalog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.buildvrt.GDALBuildVRT;
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.geotiff.GeoTIFFWriter;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class LayersWatcherTest extends GeoBricksTest {
+
+	public void testWatcher() throws Exception {
+		File folder = File.createTempFile("layers", "");
+		folder.delete();
+		folder.mkdirs();
+		File f = File.createTempFile("catalog", ".gbfc");
+		try {
+			GeoTIFFWriter w = new GeoTIFFWriter(new File(folder, "scene.tif"), 20, 10, 1, BANDSTYPE.Byte);
+			w.setGeoTransform(new double[] { 100, 0.5, 0, 50, 0, -0.5 });
+			w.writeRaster(new float[200]);
+			w.close();
+			FootprintCatalog c = new FootprintCatalog(f);
+			LayersWatcher watcher = new LayersWatcher(folder, c, null);
+			watcher.setQuietPeriod(3600000);
+			assertTrue(watcher.poll().isEmpty());
+			assertEquals(0, c.getRecordCount());
+			watcher.setQuietPeriod(0);
+			assertEquals(1, watcher.poll().size());
+			assertTrue(watcher.poll().isEmpty());
+			new File(folder, "scene.tif").delete();
+			assertEquals(1, watcher.poll().size());
+			assertEquals(0, c.getIndex().size());
+			c.close();
+		} finally {
+			for (File x : folder.listFiles())
+				x.delete();
+			folder.delete();
+			f.delete();
+			new File(f.getPath() + ".strings").delete();
+		}
+	}
+
+	public void testWatcherRetry() throws Exception {
+		File folder = File.createTempFile("layers", "");
+		folder.delete();
+		folder.mkdirs();
+		File f = File.createTempFile("catalog", ".gbfc");
+		GDALConnector connector = new GDALConnector();
+		connector.validate(false);
+		GDALExecutor executor = new GDALExecutor(connector, 1);
+		try {
+			GeoTIFFWriter w = new GeoTIFFWriter(new File(folder, "scene.tif"), 20, 10, 1, BANDSTYPE.Byte);
+			w.setGeoTransform(new double[] { 100, 0.5, 0, 50, 0, -0.5 });
+			w.writeRaster(new float[200]);
+			w.close();
+			new File(folder, "mosaic.vrt").createNewFile();
+			FootprintCatalog c = new FootprintCatalog(f);
+			LayersWatcher watcher = new LayersWatcher(folder, c, executor);
+			Command vrt = new Command(new File(folder, "mosaic.vrt").getPath());
+			vrt.command = "false";
+			watcher.addProduct(vrt);
+			watcher.setQuietPeriod(0);
+			try {
+				watcher.poll();
+				fail();
+			} catch (Exception e) {
+			}
+			assertEquals(0, c.getRecordCount());
+			vrt.command = "true";
+			List<Footprint> l = watcher.poll();
+			assertEquals(1, l.size());
+			assertEquals(new File(folder, "scene.tif").getPath(), l.get(0).getFilepath());
+			assertTrue(watcher.poll().isEmpty());
+			c.close();
+		} finally {
+			executor.shutdown();
+			for (File x : folder.listFiles())
+				x.delete();
+			folder.delete();
+			f.delete();
+			new File(f.getPath() + ".strings").delete();
+		}
+	}
+
+	private static class Command extends GDALBuildVRT {
+
+		private String command;
+
+		Command(String outputFilepath) {
+			super(outputFilepath);
+		}
+
+		@Override
+		public List<String> getArguments() throws Exception {
+			return new ArrayList<String>(Arrays.asList(this.command));
+		}
+
+	}
+
+}
\ No newline at end of file
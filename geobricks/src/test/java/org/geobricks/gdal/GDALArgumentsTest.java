@@ -0,0 +1,135 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.geobricks.gdal.constant.CONFIG;
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.gdal.dem.hillshade.GDALDEMHillshade;
+import org.geobricks.gdal.general.FileResolution;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.gdal.info.GDALInfo;
+import org.geobricks.gdal.translate.GDALTranslate;
+import org.geobricks.gdal.warp.GDALWarp;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALArgumentsTest extends GeoBricksTest {
+
+	public void testTokenize() {
+		List<String> l = GDAL.tokenize(" gdal_translate  -co \"TILED=YES\" '/tmp/my dir/in.tif' out.tif ");
+		assertEquals(Arrays.asList("gdal_translate", "-co", "TILED=YES", "/tmp/my dir/in.tif", "out.tif"), l);
+	}
+
+	@SuppressWarnings("deprecation")
+	public void testLegacySubclass() throws Exception {
+		GDAL g = new GDAL() {
+
+			@Override
+			public String convert() {
+				this.getSB().append("gdalinfo '/tmp/my dir/in.tif'");
+				return this.getSB().toString();
+			}
+
+		};
+		assertEquals(Arrays.asList("gdalinfo", "/tmp/my dir/in.tif"), g.getArguments());
+		assertEquals(Arrays.asList("gdalinfo", "/tmp/my dir/in.tif"), g.getArguments());
+	}
+
+	public void testTranslate() throws Exception {
+		GDALTranslate g = new GDALTranslate("/tmp/my dir/in.tif", "/tmp/out.tif");
+		g.setCreationOption("TILED", "YES");
+		g.setCreationOption("COMPRESS", "DEFLATE");
+		g.setConfig(CONFIG.GDAL_CACHEMAX, "512");
+		List<String> a = g.getArguments();
+		assertEquals(Arrays.asList("gdal_translate", "-of", "GTiff", "-co", "TILED=YES", "-co", "COMPRESS=DEFLATE", "/tmp/my dir/in.tif", "/tmp/out.tif", "--config", "GDAL_CACHEMAX", "512"), a);
+	}
+
+	public void testWarp() throws Exception {
+		GDALWarp g = new GDALWarp("in.tif", "out.tif");
+		g.setOutputSpatialReference("+proj=utm +zone=11 +datum=WGS84");
+		g.setGeoreferencedExtents(new GeoreferencedExtents("0", "1", "2", "3"));
+		List<String> a = g.getArguments();
+		assertEquals(Arrays.asList("gdalwarp", "-t_srs", "+proj=utm +zone=11 +datum=WGS84", "-te", "0", "1", "2", "3", "in.tif", "out.tif"), a);
+	}
+
+	public void testDEM() throws Exception {
+		GDALDEMHillshade g = new GDALDEMHillshade("dem.tif", "hillshade.tif");
+		g.setScale(111120);
+		g.computeEdges(true);
+		List<String> a = g.getArguments();
+		assertEquals(Arrays.asList("gdaldem", "hillshade", "-s", "111120", "dem.tif", "hillshade.tif", "-compute_edges"), a);
+	}
+
+	public void testScript() throws Exception {
+		GDALInfo g = new GDALInfo("gdalinfo --version");
+		assertEquals(Arrays.asList("gdalinfo", "--version"), g.getArguments());
+	}
+
+	public void testConvertIsIdempotent() throws Exception {
+		GDALTranslate g = new GDALTranslate("/tmp/my dir/in.tif", "/tmp/out.tif");
+		g.setCreationOption("TILED", "YES");
+		String command = g.convert();
+		assertEquals("gdal_translate -of GTiff -co TILED=YES \"/tmp/my dir/in.tif\" /tmp/out.tif", command);
+		assertEquals(command, g.convert());
+		assertEquals(g.getArguments(), GDAL.tokenize(command));
+	}
+
+	public void testCopy() throws Exception {
+		GDALWarp template = new GDALWarp("a.tif", "a-utm.tif");
+		template.setOutputSpatialReference("EPSG:32632");
+		template.multithread(true);
+		GDALWarp g = template.copy("b.tif", "b-utm.tif");
+		assertEquals(Arrays.asList("gdalwarp", "-t_srs", "EPSG:32632", "-multi", "b.tif", "b-utm.tif"), g.getArguments());
+		assertEquals(Arrays.asList("gdalwarp", "-t_srs", "EPSG:32632", "-multi", "a.tif", "a-utm.tif"), template.getArguments());
+		template.setConfig(CONFIG.GDAL_CACHEMAX, "512");
+		template.addCreationOption("COMPRESS", "LZW");
+		GDALWarp c = template.copy("c.tif", "c-utm.tif");
+		c.setConfig(CONFIG.GDAL_CACHEMAX, "1024");
+		c.addCreationOption("TILED", "YES");
+		c.addInputFilepath("d.tif");
+		assertEquals("512", template.getConfig().get(CONFIG.GDAL_CACHEMAX));
+		assertEquals(1, template.getCreationOption().size());
+		assertEquals(2, c.getCreationOption().size());
+		assertEquals(Arrays.asList("a.tif"), template.getInputFilepaths());
+	}
+
+	public void testSplitWarp() throws Exception {
+		GDALWarp g = new GDALWarp("in.tif", "/tmp/out.tif");
+		g.setGeoreferencedExtents(new GeoreferencedExtents("0.3", "0", "100.2", "50"));
+		g.setOutputFileResolution(new FileResolution("1", "1"));
+		g.targetAlignedPixels(true);
+		g.setOutputFormat(FORMAT.HFA);
+		g.addCreationOption("COMPRESSED", "YES");
+		List<GDALWarp> l = g.split(4, "/tmp/work");
+		assertEquals(4, l.size());
+		assertEquals(Arrays.asList("gdalwarp", "-te", "0", "37", "101", "50", "-tr", "1", "1", "-of", "GTiff", "-overwrite", "in.tif", "/tmp/work/out_0.tif"), l.get(0).getArguments());
+		assertEquals("0 0 101 11", l.get(3).getGeoreferencedExtents().toString());
+		assertTrue(g.getArguments().contains("-tap"));
+	}
+
+}
\ No newline at end of file
@@ -224,6 +224,7 @@ public class GDALConnectorTest extends GeoBricksTest {
 		}
 	}
 	
+	@SuppressWarnings("deprecation")
 	public void _testGDALWarpCalifornia() {
 		try {
 			GDALWarp g = new GDALWarp("/home/kalimaha/data/california-dems/california.tif", "/home/kalimaha/Desktop/california-mercator.tif");
@@ -288,6 +289,7 @@ public class GDALConnectorTest extends GeoBricksTest {
 		}
 	}
 	
+	@SuppressWarnings("deprecation")
 	public void _testGDALBuildVRT() {
 		try {
 			GDALBuildVRT g = new GDALBuildVRT("/home/kalimaha/data/california-dems/*.dem", "/home/kalimaha/Desktop/CA.vrt");
@@ -320,6 +322,26 @@ public class GDALConnectorTest extends GeoBricksTest {
 		}
 	}
 	
+	/**
+	 * The command closes its streams and keeps running, so the timeout must
+	 * still kill it.
+	 */
+	public void testTimeout() throws Exception {
+		GDALConnector connector = new GDALConnector();
+		connector.validate(false);
+		connector.setTimeout(300);
+		GDALInfo g = new GDALInfo();
+		g.setScript("sh -c 'exec >&- 2>&-; sleep 10'");
+		long start = System.currentTimeMillis();
+		try {
+			connector.execute(g);
+			fail();
+		} catch (GDALTimeoutException e) {
+			assertTrue(e.getResult().isTimedOut());
+		}
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
 	public void testGDALTransform() {
 		try {
 			GDALTransform g = new GDALTransform();
@@ -0,0 +1,174 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.geobricks.gdal.info.GDALInfo;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         The commands are shell scripts, so no GDAL installation is needed.
+ * 
+ */
+public class GDALExecutorTest extends GeoBricksTest {
+
+	private File folder;
+
+	private GDALExecutor executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		this.folder = File.createTempFile("executor", "");
+		this.folder.delete();
+		this.folder.mkdirs();
+		GDALConnector c = new GDALConnector();
+		c.validate(false);
+		this.executor = new GDALExecutor(c, 1);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.executor.shutdownNow();
+		this.executor.awaitTermination(5, TimeUnit.SECONDS);
+		for (File f : this.folder.listFiles())
+			f.delete();
+		this.folder.delete();
+	}
+
+	/**
+	 * Each command fails if another one holds the lock directory.
+	 */
+	public void testProcessCap() throws Exception {
+		String lock = new File(this.folder, "lock").getPath();
+		List<Future<GDALResult>> l = new ArrayList<Future<GDALResult>>();
+		for (int i = 0; i < 3; i++)
+			l.add(this.executor.execute(script("sh -c 'mkdir " + lock + " || exit 1; sleep 0.3; rmdir " + lock + "'")));
+		assertEquals(2, this.executor.getQueueDepth());
+		assertTrue(this.executor.getActiveCount() <= 1);
+		for (Future<GDALResult> f : l)
+			assertEquals(0, f.get(10, TimeUnit.SECONDS).getExitValue());
+		assertEquals(0, this.executor.getQueueDepth());
+	}
+
+	public void testQueueDepth() throws Exception {
+		Future<GDALResult> running = this.executor.execute(script("sleep 30"));
+		List<Future<GDALResult>> l = new ArrayList<Future<GDALResult>>();
+		for (int i = 0; i < 3; i++)
+			l.add(this.executor.execute(script("true")));
+		assertEquals(3, this.executor.getQueueDepth());
+		l.get(0).cancel(false);
+		l.get(2).cancel(false);
+		assertEquals(1, this.executor.getQueueDepth());
+		running.cancel(true);
+		assertEquals(0, l.get(1).get(10, TimeUnit.SECONDS).getExitValue());
+		assertEquals(0, this.executor.getQueueDepth());
+	}
+
+	public void testCancel() throws Exception {
+		File pid = new File(this.folder, "pid");
+		final Thread[] thread = new Thread[1];
+		final Exception[] error = new Exception[1];
+		Future<GDALResult> f = this.executor.execute(script("sh -c 'sleep 30 & echo $! > " + pid.getPath() + "; wait'"), new GDALCallback<GDALResult>() {
+
+			public void completed(GDALResult result) {
+			}
+
+			public void failed(Exception e) {
+				thread[0] = Thread.currentThread();
+				error[0] = e;
+			}
+
+		});
+		String child = read(pid);
+		assertTrue(alive(child));
+		assertTrue(f.cancel(true));
+		assertSame(Thread.currentThread(), thread[0]);
+		assertTrue(error[0] instanceof CancellationException);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (alive(child) && System.currentTimeMillis() < deadline)
+			Thread.sleep(50);
+		assertFalse(alive(child));
+		// the slot is free again
+		assertEquals(0, this.executor.execute(script("true")).get(10, TimeUnit.SECONDS).getExitValue());
+	}
+
+	public void testCallbacks() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		final List<String> events = new ArrayList<String>();
+		GDALCallback<GDALResult> callback = new GDALCallback<GDALResult>() {
+
+			public void completed(GDALResult result) {
+				record("completed " + result.getExitValue());
+			}
+
+			public void failed(Exception e) {
+				record("failed");
+			}
+
+			private void record(String event) {
+				synchronized (events) {
+					events.add(event + (Thread.currentThread().getName().startsWith("gdal-executor-") ? " on worker" : ""));
+				}
+				latch.countDown();
+			}
+
+		};
+		this.executor.execute(script("sh -c 'exit 3'"), callback);
+		this.executor.execute(script(new File(this.folder, "missing").getPath()), callback);
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals("[completed 3 on worker, failed on worker]", events.toString());
+	}
+
+	private static GDAL script(String script) {
+		GDALInfo g = new GDALInfo();
+		g.setScript(script);
+		return g;
+	}
+
+	private static String read(File f) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (f.length() == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(50);
+		BufferedReader r = new BufferedReader(new FileReader(f));
+		try {
+			return r.readLine().trim();
+		} finally {
+			r.close();
+		}
+	}
+
+	private static boolean alive(String pid) throws Exception {
+		return new ProcessBuilder("kill", "-0", pid).start().waitFor() == 0;
+	}
+
+}
\ No newline at end of file
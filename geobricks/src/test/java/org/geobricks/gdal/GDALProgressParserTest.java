@@ -0,0 +1,59 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALProgressParserTest extends GeoBricksTest {
+
+	public void testMeter() {
+		final List<Double> l = new ArrayList<Double>();
+		GDALProgressParser p = new GDALProgressParser(new GDALProgressListener() {
+
+			public void output(String line) {
+			}
+
+			public void error(String line) {
+			}
+
+			public void progress(GDALProgress progress) {
+				l.add(progress.getPercent());
+			}
+
+		});
+		String s = "Input file size is 10, 10\n0 errors\n0...10...20...30...40...50...60...70...80...90...100 - done.\n";
+		p.feed(s.toCharArray(), 0, s.length());
+		assertEquals(41, l.size());
+		assertEquals(0.0, l.get(0));
+		assertEquals(2.5, l.get(1));
+		assertEquals(10.0, l.get(4));
+		assertEquals(100.0, l.get(40));
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.geobricks.gdal.dem.aspect.GDALDEMAspect;
+import org.geobricks.gdal.dem.roughness.GDALDEMRoughness;
+import org.geobricks.gdal.dem.slope.GDALDEMSlope;
+import org.geobricks.gdal.dem.tpi.GDALDEMTPI;
+import org.geobricks.gdal.dem.tri.GDALDEMTRI;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class DEMEngineTest extends GeoBricksTest {
+
+	private DEMEngine engine = new DEMEngine(4);
+
+	/**
+	 * @return A plane going down to the east with a 30 degrees slope
+	 */
+	private DEMRaster plane(int width, int height) {
+		float[] data = new float[width * height];
+		double dz = 10 * Math.tan(Math.toRadians(30));
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				data[y * width + x] = (float) (1000 - x * dz);
+		return new DEMRaster(data, width, height, 10, -10);
+	}
+
+	public void testSlope() throws Exception {
+		DEMRaster src = plane(300, 200);
+		GDALDEMSlope g = new GDALDEMSlope("dem.tif", "slope.tif");
+		float[] out = engine.compute(src, g);
+		assertEquals(-9999f, out[0]);
+		assertEquals(30, out[150 * 300 + 150], 1e-3);
+		g.computeEdges(true);
+		out = engine.compute(src, g);
+		assertEquals(30, out[150], 1e-3);
+		assertEquals(30, out[100 * 300], 1e-3);
+		assertEquals(30, out[100 * 300 + 299], 1e-3);
+		assertEquals(30, out[out.length - 150], 1e-3);
+	}
+
+	public void testAspect() throws Exception {
+		DEMRaster src = plane(10, 10);
+		src.setNoData(-1);
+		src.getData()[55] = -1;
+		float[] out = engine.compute(src, new GDALDEMAspect("dem.tif", "aspect.tif"));
+		assertEquals(90, out[22], 1e-3);
+		assertEquals(-9999f, out[44]);
+		assertEquals(-9999f, out[55]);
+	}
+
+	public void testHillshade() throws Exception {
+		DEMRaster src = new DEMRaster(new float[16], 4, 4, 10, -10);
+		float[] out = engine.compute(src, 1, 1, 2, 2, new HillshadeKernel());
+		assertEquals(4, out.length);
+		assertEquals(1 + 254 * Math.sin(Math.toRadians(45)), out[0], 1e-3);
+	}
+
+	public void testFusedPass() throws Exception {
+		Random r = new Random(7);
+		float[] data = new float[200 * 150];
+		for (int i = 0; i < data.length; i++)
+			data[i] = r.nextInt(50) == 0 ? -1 : r.nextFloat() * 100;
+		DEMRaster src = new DEMRaster(data, 200, 150, 30, -30);
+		src.setNoData(-1);
+		GDALDEMTRI tri = new GDALDEMTRI("dem.tif", "tri.tif");
+		tri.computeEdges(true);
+		GDALDEMTPI tpi = new GDALDEMTPI("dem.tif", "tpi.tif");
+		GDALDEMRoughness roughness = new GDALDEMRoughness("dem.tif", "roughness.tif");
+		roughness.computeEdges(true);
+		GDALDEMSlope slope = new GDALDEMSlope("dem.tif", "slope.tif");
+		float[][] fused = engine.compute(src, tri, tpi, roughness, slope);
+		assertTrue(Arrays.equals(engine.compute(src, tri), fused[0]));
+		assertTrue(Arrays.equals(engine.compute(src, tpi), fused[1]));
+		assertTrue(Arrays.equals(engine.compute(src, roughness), fused[2]));
+		assertTrue(Arrays.equals(engine.compute(src, slope), fused[3]));
+	}
+
+	public void testColorRelief() throws Exception {
+		ColorPalette palette = ColorPalette.parse("# test\n0 0 0 0\n100,200,100,50\n25% white\nnv:1:2:3:4\n");
+		DEMRaster src = new DEMRaster(new float[] { 0, 50, 100, 200, -1, 25, 75, 150 }, 4, 2, 10, -10);
+		src.setNoData(-1);
+		byte[] out = engine.colorRelief(src, palette, false, false, true);
+		assertEquals(32, out.length);
+		assertColor(out, 0, 0, 0, 0, 255);
+		assertColor(out, 1, 255, 255, 255, 255);
+		assertColor(out, 3, 200, 100, 50, 255);
+		assertColor(out, 4, 1, 2, 3, 4);
+		assertColor(out, 5, 127, 127, 127, 255);
+		assertColor(out, 6, 227, 177, 152, 255);
+		out = engine.colorRelief(src, palette, true, false, true);
+		assertColor(out, 5, 0, 0, 0, 0);
+		out = engine.colorRelief(src, palette, false, true, true);
+		assertColor(out, 5, 0, 0, 0, 255);
+		src.getData()[7] = 12.5f;
+		out = engine.colorRelief(src, palette, false, false, false);
+		assertEquals(24, out.length);
+		assertEquals(64, out[21] & 0xff);
+	}
+
+	private static void assertColor(byte[] rgba, int pixel, int r, int g, int b, int a) {
+		assertEquals(r, rgba[pixel * 4] & 0xff);
+		assertEquals(g, rgba[pixel * 4 + 1] & 0xff);
+		assertEquals(b, rgba[pixel * 4 + 2] & 0xff);
+		assertEquals(a, rgba[pixel * 4 + 3] & 0xff);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.dem.transform;
+
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ *         The sessions run a shell loop instead of gdaltransform, echoing the
+ *         coordinates back with the PID of the shell as Z.
+ * 
+ */
+public class GDALTransformSessionTest extends GeoBricksTest {
+
+	private static final String ECHO = "sh -c 'while read x y z; do echo \"$x $y $$\"; done'";
+
+	public void testKeepAlive() throws Exception {
+		GDALTransformSession s = session(ECHO);
+		try {
+			if (!s.isLineBuffered())
+				return;
+			double[][] a = s.transform(new double[] { 1, 2 }, new double[] { 3, 4 });
+			double[][] b = s.transform(new double[] { 5 }, new double[] { 6 });
+			assertEquals(2.0, a[0][1]);
+			assertEquals(4.0, a[1][1]);
+			assertEquals(5.0, b[0][0]);
+			assertEquals(6.0, b[1][0]);
+			assertEquals(a[2][0], a[2][1]);
+			assertEquals(a[2][0], b[2][0]);
+		} finally {
+			s.close();
+		}
+	}
+
+	public void testRelaunch() throws Exception {
+		GDALTransformSession s = session(ECHO);
+		try {
+			s.lineBuffered(false);
+			assertFalse(s.isLineBuffered());
+			double[][] a = s.transform(new double[] { 1, 2 }, new double[] { 3, 4 });
+			double[][] b = s.transform(new double[] { 5 }, new double[] { 6 });
+			assertEquals(1.0, a[0][0]);
+			assertEquals(3.0, a[1][0]);
+			assertEquals(5.0, b[0][0]);
+			assertEquals(a[2][0], a[2][1]);
+			assertFalse(a[2][0] == b[2][0]);
+		} finally {
+			s.close();
+		}
+	}
+
+	public void testUnexpectedExit() throws Exception {
+		GDALTransformSession s = session("sh -c 'read x y; exit 1'");
+		try {
+			s.transform(new double[] { 1, 2 }, new double[] { 3, 4 });
+			fail();
+		} catch (Exception e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("gdaltransform exited unexpectedly"));
+		} finally {
+			s.close();
+		}
+		s = session(ECHO);
+		try {
+			assertEquals(7.0, s.transform(new double[] { 7 }, new double[] { 8 })[0][0]);
+		} finally {
+			s.close();
+		}
+	}
+
+	private static GDALTransformSession session(String script) {
+		GDALTransform t = new GDALTransform();
+		t.setScript(script);
+		return new GDALTransformSession(t);
+	}
+
+}
\ No newline at end of file
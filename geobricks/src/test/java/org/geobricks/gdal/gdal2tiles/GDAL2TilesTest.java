@@ -0,0 +1,231 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.gdal2tiles;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geobricks.catalog.Footprint;
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.info.RasterInfo;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDAL2TilesTest extends GeoBricksTest {
+
+	public void testShardedTiles() throws Exception {
+		GDALConnector c = new GDALConnector();
+		c.validate(false);
+		GDAL2TilesSharder s = new GDAL2TilesSharder(new GDALExecutor(c, 4));
+		GDAL2Tiles g = new GDAL2Tiles("in.tif", "/tmp/tiles");
+		g.setZoom("0-6");
+		RasterInfo info = new RasterInfo();
+		info.setWidth(1000);
+		info.setHeight(1000);
+		info.setGeoTransform(new double[] { 0, 2000, 0, 2000000, 0, -2000 });
+		List<GDAL2TilesSharder.Shard> l = s.plan(g, 0, 6, info, "/tmp/w/warped.vrt", "/tmp/w");
+		assertEquals(9, l.size());
+		assertEquals(Arrays.asList("gdal2tiles.py", "--zoom", "0-0", "--webviewer", "none", "in.tif", "/tmp/w/z0"), l.get(0).getTiles().getArguments());
+		GDAL2TilesSharder.Shard r = l.get(5);
+		assertEquals(5, r.getMinZoom());
+		assertEquals("/tmp/w/region0.vrt", r.getCut().getOutputFilepath());
+		assertEquals("5-6", r.getTiles().getZoom());
+		assertTrue(r.owns(6, 32, 32));
+		assertTrue(r.owns(6, 0, 0));
+		assertFalse(r.owns(6, 40, 32));
+		int owners = 0;
+		for (GDAL2TilesSharder.Shard x : l)
+			owners += x.owns(5, 17, 17) ? 1 : 0;
+		assertEquals(1, owners);
+		l = s.planRefresh(g, 0, 6, info, new double[] { 100000, 100000, 200000, 200000 }, "/tmp/w/warped.vrt", "/tmp/w");
+		assertEquals(7, l.size());
+		assertTrue(Arrays.equals(new int[] { 32, 32, 32, 32 }, l.get(6).getRange()));
+		assertEquals("6-6", l.get(6).getTiles().getZoom());
+	}
+
+	public void testWorkingDirectory() throws Exception {
+		File parent = File.createTempFile("work", "");
+		parent.delete();
+		parent.mkdirs();
+		try {
+			File data = new File(parent, "mosaic_0.tif");
+			data.createNewFile();
+			GDALConnector c = new GDALConnector();
+			c.validate(false);
+			GDAL2TilesSharder s = new GDAL2TilesSharder(new GDALExecutor(c, 2));
+			s.setWorkingDirectory(parent.getPath());
+			File a = s.createWorkingDirectory(new File("/tmp/tiles"));
+			File b = s.createWorkingDirectory(new File("/tmp/tiles"));
+			assertEquals(parent, a.getParentFile());
+			assertFalse(a.equals(b));
+			GDALUtils.delete(a);
+			GDALUtils.delete(b);
+			assertTrue(data.exists());
+			assertEquals(1, parent.list().length);
+		} finally {
+			GDALUtils.delete(parent);
+		}
+	}
+
+	public void testTileManifest() throws Exception {
+		File output = File.createTempFile("pyramid", "");
+		output.delete();
+		output.mkdirs();
+		try {
+			GDALConnector c = new GDALConnector();
+			c.validate(false);
+			GDAL2Tiles g = new GDAL2Tiles("mosaic.vrt", output.getPath());
+			g.setZoom("0-8");
+			Footprint a = new Footprint("a.tif", 0, 0, 100000, 100000, 10, 10, 3857, 3, 1);
+			Footprint b = new Footprint("b.tif", 8.9, 44, 9.1, 44.2, 0.001, 0.001, 4326, 3, 1);
+			new GDAL2TilesIncremental(new GDALExecutor(c, 2)).index(g, Arrays.asList(a, b));
+			TileManifest m = TileManifest.load(GDAL2TilesIncremental.getManifestFile(g));
+			assertEquals(2, m.getSourceCount());
+			assertEquals(1013007.0, Math.rint(m.getSourceExtent("b.tif")[2]));
+			long key = (long) 8 << 58 | (long) 128 << 29 | 128;
+			assertTrue(m.getTile(key) != 0);
+			assertEquals(m.getTile(0), m.getTile(key) + m.getSourceFingerprint("b.tif"));
+			m.add(key, -m.getTile(key));
+			assertEquals(0, m.getTile(key));
+			assertTrue(m.getTileCount() > 9);
+			assertEquals(Arrays.asList(GDAL2TilesIncremental.MANIFEST), Arrays.asList(output.list()));
+		} finally {
+			for (File f : output.listFiles())
+				f.delete();
+			output.delete();
+		}
+	}
+
+	public void testIncrementalUpdate() throws Exception {
+		File output = File.createTempFile("pyramid", "");
+		output.delete();
+		output.mkdirs();
+		try {
+			GDALConnector c = new GDALConnector();
+			c.validate(false);
+			GDAL2TilesIncremental inc = new GDAL2TilesIncremental(new GDALExecutor(c, 2));
+			GDAL2Tiles g = new GDAL2Tiles("mosaic.vrt", output.getPath());
+			g.setZoom("0-4");
+			int[] zoom = { 0, 4 };
+			Footprint a = new Footprint("a.tif", 0, 0, 100000, 100000, 10, 10, 3857, 3, 1);
+			Footprint b = new Footprint("b.tif", -3000000, -3000000, -2900000, -2900000, 10, 10, 3857, 3, 1);
+			Footprint d = new Footprint("d.tif", 5000000, 5000000, 5100000, 5100000, 10, 10, 3857, 3, 1);
+			inc.index(g, Arrays.asList(a, b, d));
+			File manifest = GDAL2TilesIncremental.getManifestFile(g);
+			int tiles = TileManifest.load(manifest).getTileCount();
+
+			// nothing changed: no process is launched and the manifest is kept
+			assertTrue(inc.update(g, Arrays.asList(a), Arrays.asList("missing.tif")).isEmpty());
+			TileManifest m = TileManifest.load(manifest);
+			assertEquals(3, m.getSourceCount());
+			assertEquals(tiles, m.getTileCount());
+
+			// a modified, b deleted
+			Footprint a2 = new Footprint("a.tif", 0, 0, 100000, 100000, 10, 10, 3857, 3, 2);
+			List<double[]> extents = new ArrayList<double[]>();
+			Set<Long> dirty = inc.plan(m, PROFILE.mercator, zoom, Arrays.asList(a2), Arrays.asList("b.tif", "missing.tif"), extents, output);
+			Set<Long> expected = new HashSet<Long>();
+			for (int z = 0; z <= 4; z++) {
+				for (long key : GDAL2TilesIncremental.tiles(PROFILE.mercator, extent(a), z))
+					expected.add(key);
+				for (long key : GDAL2TilesIncremental.tiles(PROFILE.mercator, extent(b), z))
+					expected.add(key);
+			}
+			assertEquals(expected, dirty);
+			for (long key : GDAL2TilesIncremental.tiles(PROFILE.mercator, extent(d), 4))
+				assertFalse(dirty.contains(key));
+			assertEquals(3, extents.size());
+
+			// the manifest follows the sources
+			assertEquals(2, m.getSourceCount());
+			assertNull(m.getSourceExtent("b.tif"));
+			assertEquals(GDAL2TilesIncremental.fingerprint(a2), m.getSourceFingerprint("a.tif"));
+			long bTile = GDAL2TilesIncremental.tiles(PROFILE.mercator, extent(b), 4)[0];
+			assertEquals(0, m.getTile(bTile));
+			assertEquals(GDAL2TilesIncremental.fingerprint(a2) + GDAL2TilesIncremental.fingerprint(d), m.getTile(0));
+
+			// the same source again changes nothing
+			assertTrue(inc.plan(m, PROFILE.mercator, zoom, Arrays.asList(a2), new ArrayList<String>(), new ArrayList<double[]>(), output).isEmpty());
+
+			// the old and new extents of a are one range, b is another
+			assertEquals(2, GDAL2TilesIncremental.merge(PROFILE.mercator, extents, 4).size());
+			assertEquals(1, GDAL2TilesIncremental.merge(PROFILE.mercator, extents, 0).size());
+			List<double[]> adjacent = Arrays.asList(new double[] { 0, 0, 100, 100 }, new double[] { 2600000, 0, 2600100, 100 });
+			assertEquals(1, GDAL2TilesIncremental.merge(PROFILE.mercator, adjacent, 4).size());
+			assertEquals(Arrays.asList(GDAL2TilesIncremental.MANIFEST), Arrays.asList(output.list()));
+		} finally {
+			GDALUtils.delete(output);
+		}
+	}
+
+	public void testClearShard() throws Exception {
+		File output = File.createTempFile("pyramid", "");
+		output.delete();
+		output.mkdirs();
+		try {
+			GDALConnector c = new GDALConnector();
+			c.validate(false);
+			GDAL2TilesSharder s = new GDAL2TilesSharder(new GDALExecutor(c, 2));
+			GDAL2Tiles g = new GDAL2Tiles("in.tif", output.getPath());
+			RasterInfo info = new RasterInfo();
+			info.setWidth(1000);
+			info.setHeight(1000);
+			info.setGeoTransform(new double[] { 0, 2000, 0, 2000000, 0, -2000 });
+			for (int x = 0; x < 4; x++) {
+				new File(output, "3/" + x).mkdirs();
+				for (int y = 0; y < 4; y++) {
+					new File(output, "3/" + x + "/" + y + ".png").createNewFile();
+					new File(output, "3/" + x + "/" + y + ".kml").createNewFile();
+				}
+			}
+			GDAL2TilesSharder.Shard r = s.levelShard(g, 3, new int[] { 1, 1, 2, 2 }, info, "w.vrt", "/tmp/w", "level3");
+			r.clear(output);
+			assertFalse(new File(output, "3/1/1.png").exists());
+			assertFalse(new File(output, "3/2/2.kml").exists());
+			assertTrue(new File(output, "3/0/1.png").exists());
+			assertTrue(new File(output, "3/3/3.png").exists());
+			assertEquals(8, new File(output, "3/1").list().length + new File(output, "3/2").list().length);
+			r = s.levelShard(g, 3, new int[] { 0, 0, 3, 3 }, info, "w.vrt", "/tmp/w", "level3");
+			r.setOnly(new HashSet<Long>(Arrays.asList(GDALUtils.tileKey(3, 0, 0), GDALUtils.tileKey(4, 0, 0))));
+			r.clear(output);
+			assertFalse(new File(output, "3/0/0.png").exists());
+			assertTrue(new File(output, "3/0/1.png").exists());
+		} finally {
+			GDALUtils.delete(output);
+		}
+	}
+
+	private static double[] extent(Footprint f) {
+		return new double[] { f.getMinX(), f.getMinY(), f.getMaxX(), f.getMaxY() };
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.general;
+
+import java.util.Arrays;
+
+import org.geobricks.gdal.constant.FORMAT;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALDriverTableTest extends GeoBricksTest {
+
+	public void testParse() throws Exception {
+		GDALDriverTable t = GDALDriverTable.parse(Arrays.asList(
+				"Supported Formats:", 
+				"  VRT -raster- (rw+v): Virtual Raster", 
+				"  GTiff -raster- (rw+vs): GeoTIFF", 
+				"  PNG -raster- (rwv): Portable Network Graphics", 
+				"  AIG -raster- (rov): Arc/Info Binary Grid", 
+				"  FooBar (rw): Not in FORMAT"));
+		GDALDriver d = t.get(FORMAT.GTiff);
+		assertEquals("GeoTIFF", d.getLongName());
+		assertTrue(d.canCreate() && d.supportsVirtualIO() && d.supportsSubdatasets());
+		assertFalse(t.get(FORMAT.PNG).canCreate());
+		assertNotNull(t.get("FooBar"));
+		t.validate(FORMAT.PNG, false, "gdal_translate");
+		try {
+			t.validate(FORMAT.PNG, true, "gdalwarp");
+			fail();
+		} catch (Exception e) {
+			// PNG has no Create()
+		}
+		try {
+			t.validate(FORMAT.AIG, false, "gdal_translate");
+			fail();
+		} catch (Exception e) {
+			// read-only
+		}
+		try {
+			t.validate(FORMAT.ECW, false, "gdal_translate");
+			fail();
+		} catch (Exception e) {
+			// not installed
+		}
+	}
+
+}
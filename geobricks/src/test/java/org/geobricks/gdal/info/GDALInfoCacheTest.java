@@ -0,0 +1,76 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+import java.io.File;
+
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALListener;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALInfoCacheTest extends GeoBricksTest {
+
+	/**
+	 * Answers like gdalinfo without launching it.
+	 */
+	private GDALConnector c = new GDALConnector() {
+
+		@Override
+		public int invoke(GDAL g, GDALListener listener) {
+			listener.output("Driver: GTiff/GeoTIFF");
+			listener.output("Size is 10, 20");
+			listener.output("Band 1 Block=10x1 Type=Byte, ColorInterp=Gray");
+			listener.output("  Overviews: 5x10");
+			return 0;
+		}
+
+	};
+
+	public void testCache() throws Exception {
+		String filepath = getFilePath("rapallo.tif");
+		GDALInfoCache cache = new GDALInfoCache(c, 10, 0);
+		RasterInfo info = cache.get(filepath);
+		assertSame(info, cache.get(filepath));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+
+		File f = File.createTempFile("gdalinfo", ".cache");
+		try {
+			cache.save(f);
+			GDALInfoCache loaded = new GDALInfoCache(c, 10, 0);
+			loaded.load(f);
+			RasterInfo copy = loaded.get(filepath);
+			assertEquals(0, loaded.getMisses());
+			assertEquals(20, copy.getHeight());
+			assertEquals("Byte", copy.getBand(1).getType());
+			assertEquals(10, copy.getBand(1).getOverviewHeights()[0]);
+		} finally {
+			f.delete();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.info;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALInfoParserTest extends GeoBricksTest {
+
+	private static final String[] OUTPUT = { 
+		"Driver: GTiff/GeoTIFF", 
+		"Files: rapallo.tif", 
+		"Size is 512, 256", 
+		"Coordinate System is:", 
+		"PROJCS[\"WGS 84 / UTM zone 32N\",", 
+		"    GEOGCS[\"WGS 84\"],", 
+		"    AUTHORITY[\"EPSG\",\"32632\"]]", 
+		"Origin = (440720.000000000000000,3751320.000000000000000)", 
+		"Pixel Size = (60.000000000000000,-60.000000000000000)", 
+		"Metadata:", 
+		"  AREA_OR_POINT=Area", 
+		"Band 1 Block=512x16 Type=Int16, ColorInterp=Gray", 
+		"  Min=-12.000 Max=845.500 ", 
+		"  Minimum=-12.000, Maximum=845.500, Mean=101.25, StdDev=1.5e2", 
+		"  4 buckets from -0.5 to 3.5:", 
+		"  10 0 7 123456789012 ", 
+		"  NoData Value=-9999", 
+		"  Overviews: 256x128, 128x64", 
+		"GCP Projection = GEOGCS[\"WGS 84\"]", 
+		"GCP[  0]: Id=1, Info=", 
+		"          (0.5P,10L) -> (-87.25E,34.125N,0Z)", 
+		"GCP[  1]: Id=2, Info=", 
+		"          (1P,2L) -> (3E,4N,5Z)" };
+
+	public void testParse() {
+		final List<double[]> gcps = new ArrayList<double[]>();
+		GDALInfoParser p = new GDALInfoParser(new GCPListener() {
+
+			public void gcp(int index, double pixel, double line, double x, double y, double z) {
+				gcps.add(new double[] { index, pixel, line, x, y, z });
+			}
+
+		});
+		for (String s : OUTPUT)
+			p.output(s);
+		RasterInfo info = p.getInfo();
+		assertEquals("GTiff", info.getDriver());
+		assertEquals(512, info.getWidth());
+		assertEquals(256, info.getHeight());
+		assertEquals("PROJCS[\"WGS 84 / UTM zone 32N\",GEOGCS[\"WGS 84\"],AUTHORITY[\"EPSG\",\"32632\"]]", info.getSpatialReference());
+		assertTrue(Arrays.equals(new double[] { 440720, 60, 0, 3751320, 0, -60 }, info.getGeoTransform()));
+		assertTrue(Arrays.equals(new double[] { 440720, 3751320 - 256 * 60, 440720 + 512 * 60, 3751320 }, info.getExtent()));
+		assertEquals(1, info.getBandCount());
+		BandInfo b = info.getBand(1);
+		assertEquals(512, b.getBlockWidth());
+		assertEquals(16, b.getBlockHeight());
+		assertEquals("Int16", b.getType());
+		assertEquals("Gray", b.getColorInterpretation());
+		assertEquals(845.5, b.getComputedMax());
+		assertEquals(101.25, b.getMean());
+		assertEquals(150.0, b.getStandardDeviation());
+		assertTrue(Arrays.equals(new long[] { 10, 0, 7, 123456789012L }, b.getHistogram()));
+		assertEquals(-0.5, b.getHistogramMin());
+		assertEquals(-9999.0, b.getNoData());
+		assertTrue(Arrays.equals(new int[] { 256, 128 }, b.getOverviewWidths()));
+		assertTrue(Arrays.equals(new int[] { 128, 64 }, b.getOverviewHeights()));
+		assertEquals("GEOGCS[\"WGS 84\"]", info.getGcpSpatialReference());
+		assertEquals(2, info.getGcpCount());
+		assertTrue(Arrays.equals(new double[] { 0, 0.5, 10, -87.25, 34.125, 0 }, gcps.get(0)));
+		assertTrue(Arrays.equals(new double[] { 1, 1, 2, 3, 4, 5 }, gcps.get(1)));
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.gdal.warp;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.gdal.general.FileResolution;
+import org.geobricks.gdal.general.GeoreferencedExtents;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GDALSplitWarpTest extends GeoBricksTest {
+
+	public void testExistingFiles() throws Exception {
+		File folder = File.createTempFile("split", "");
+		folder.delete();
+		folder.mkdirs();
+		GDALConnector c = new GDALConnector();
+		c.validate(false);
+		GDALExecutor executor = new GDALExecutor(c, 2);
+		try {
+			File band = new File(folder, "mosaic_0.tif");
+			band.createNewFile();
+			GDALWarp g = new GDALWarp(Arrays.asList(new File(folder, "missing.tif").getPath()), new File(folder, "mosaic.tif").getPath());
+			g.setGeoreferencedExtents(new GeoreferencedExtents("0", "0", "10", "10"));
+			g.setOutputFileResolution(new FileResolution("1", "1"));
+			try {
+				new GDALSplitWarp(executor).execute(g);
+				fail();
+			} catch (Exception e) {
+			}
+			assertTrue(band.exists());
+			assertEquals(Arrays.asList("mosaic_0.tif"), Arrays.asList(folder.list()));
+		} finally {
+			executor.shutdown();
+			for (File f : folder.listFiles())
+				f.delete();
+			folder.delete();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.nio.ByteBuffer;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GeoTIFFReaderTest extends GeoBricksTest {
+
+	public void testRead() throws Exception {
+		GeoTIFFReader r = new GeoTIFFReader(this.getFilePath("rapallo.tif"));
+		try {
+			assertFalse(r.isBigTIFF());
+			assertEquals(1, r.getImages().size());
+			GeoTIFFImage image = r.getImage();
+			assertEquals(552, image.getWidth());
+			assertEquals(553, image.getHeight());
+			assertEquals(BANDSTYPE.Byte, image.getBandsType());
+			assertFalse(image.isTiled());
+			assertEquals(1, image.getSegmentCount());
+			assertNull(image.getGeoTransform());
+			assertEquals(0, image.getEPSG());
+			ByteBuffer segment = image.getSegment(0);
+			assertTrue(segment.isDirect());
+			assertEquals(552 * 553, segment.remaining());
+			float[] window = image.readWindow(1, 100, 200, 10, 5);
+			assertEquals(76f, window[0]);
+			for (int y = 0; y < 5; y++)
+				for (int x = 0; x < 10; x++)
+					assertEquals((float) (segment.get((200 + y) * 552 + 100 + x) & 0xff), window[y * 10 + x]);
+		} finally {
+			r.close();
+		}
+	}
+
+}
\ No newline at end of file
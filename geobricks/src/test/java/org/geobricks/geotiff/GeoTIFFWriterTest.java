@@ -0,0 +1,113 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.geotiff;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class GeoTIFFWriterTest extends GeoBricksTest {
+
+	private static float value(int band, int x, int y) {
+		return (x * 3 + y * 7 + band * 100) % 500 - 200;
+	}
+
+	public void testTiles() throws Exception {
+		File f = File.createTempFile("geobricks", ".tif");
+		try {
+			GeoTIFFWriter w = new GeoTIFFWriter(f, 300, 200, 2, BANDSTYPE.Int16);
+			Map<String, String> options = new LinkedHashMap<String, String>();
+			options.put("BLOCKXSIZE", "64");
+			options.put("BLOCKYSIZE", "64");
+			options.put("COMPRESS", "DEFLATE");
+			options.put("PREDICTOR", "2");
+			options.put("NUM_THREADS", "3");
+			w.setCreationOptions(options);
+			w.setGeoTransform(new double[] { 500000, 30, 0, 4900000, 0, -30 });
+			w.setEPSG(32632);
+			w.setNoData(-9999);
+			float[] tile = new float[64 * 64 * 2];
+			for (int ty = w.getTilesDown() - 1; ty >= 0; ty--) {
+				for (int tx = w.getTilesAcross() - 1; tx >= 0; tx--) {
+					for (int y = 0; y < 64; y++)
+						for (int x = 0; x < 64; x++)
+							for (int b = 0; b < 2; b++)
+								tile[(y * 64 + x) * 2 + b] = value(b, tx * 64 + x, ty * 64 + y);
+					w.writeTile(tx, ty, tile);
+				}
+			}
+			w.close();
+
+			GeoTIFFReader r = new GeoTIFFReader(f);
+			try {
+				GeoTIFFImage image = r.getImage();
+				assertEquals(BANDSTYPE.Int16, image.getBandsType());
+				assertEquals(TIFFTag.COMPRESSION_DEFLATE, image.getCompression());
+				assertEquals(32632, image.getEPSG());
+				assertEquals(-9999.0, image.getNoData());
+				assertTrue(Arrays.equals(new double[] { 500000, 30, 0, 4900000, 0, -30 }, image.getGeoTransform()));
+				float[] band = image.readWindow(2, 0, 0, 300, 200);
+				for (int y = 0; y < 200; y++)
+					for (int x = 0; x < 300; x++)
+						assertEquals(value(1, x, y), band[y * 300 + x]);
+			} finally {
+				r.close();
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testBigTIFF() throws Exception {
+		File f = File.createTempFile("geobricks", ".tif");
+		try {
+			float[] raster = new float[70 * 50];
+			for (int i = 0; i < raster.length; i++)
+				raster[i] = value(0, i % 70, i / 70) / 8f;
+			GeoTIFFWriter w = new GeoTIFFWriter(f, 70, 50, 1, BANDSTYPE.Float32);
+			w.setBigTIFF(true);
+			w.setTileSize(32, 32);
+			w.setCompression(TIFFTag.COMPRESSION_DEFLATE);
+			w.setPredictor(TIFFTag.PREDICTOR_FLOATING_POINT);
+			w.writeRaster(raster);
+			w.close();
+			GeoTIFFReader r = new GeoTIFFReader(f);
+			try {
+				assertTrue(r.isBigTIFF());
+				assertTrue(Arrays.equals(raster, r.getImage().readWindow(1, 0, 0, 70, 50)));
+			} finally {
+				r.close();
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.pipeline;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.geobricks.gdal.GDAL;
+import org.geobricks.gdal.GDALConnector;
+import org.geobricks.gdal.GDALExecutor;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class PipelineTest extends GeoBricksTest {
+
+	public void testPipeline() throws Exception {
+		File root = File.createTempFile("pipeline", "");
+		root.delete();
+		File work = new File(root, "work");
+		File out = new File(root, "out");
+		GDALConnector c = new GDALConnector();
+		c.validate(false);
+		GDALExecutor executor = new GDALExecutor(c, 2);
+		try {
+			List<String> scenes = new ArrayList<String>();
+			for (int i = 0; i < 3; i++) {
+				File f = new File(root, "scene" + i + ".tif");
+				root.mkdirs();
+				FileWriter w = new FileWriter(f);
+				w.write("scene" + i);
+				w.close();
+				scenes.add(f.getPath());
+			}
+			Pipeline p = new Pipeline(executor);
+			p.setWorkingDirectory(work);
+			PipelineStep warp = p.addStep("warp", new Copy());
+			PipelineStep cog = p.addStep("cog", new Copy(), warp);
+			cog.setOutputDirectory(out.getPath());
+			p.addStep("tiles", new Copy(), warp);
+			try {
+				p.execute(scenes);
+				fail();
+			} catch (Exception e) {
+				assertTrue(e.getMessage().contains("is neither kept nor consumed"));
+			}
+			p.getStep("tiles").setOutputDirectory(out.getPath());
+			p.getStep("tiles").setSuffix(".png");
+			List<PipelineScene> l = p.execute(scenes);
+			assertEquals(3, l.size());
+			for (int i = 0; i < 3; i++) {
+				assertTrue(l.get(i).isSuccessful());
+				assertEquals(3, l.get(i).getResults().size());
+				assertTrue(new File(out, "scene" + i + "_cog.tif").exists());
+				assertTrue(new File(out, "scene" + i + ".png").exists());
+				assertFalse(new File(l.get(i).getOutputFilepath("warp")).exists());
+			}
+			assertEquals(0, work.list().length);
+			scenes.add(new File(root, "missing.tif").getPath());
+			try {
+				p.execute(scenes);
+				fail();
+			} catch (Exception e) {
+				assertTrue(e.getMessage().startsWith("1 of 4 scenes failed: Step 'warp'"));
+			}
+			assertEquals(0, work.list().length);
+		} finally {
+			executor.shutdown();
+			Pipeline.delete(root);
+		}
+	}
+
+	private static class Copy extends GDAL {
+
+		@Override
+		public List<String> getArguments() throws Exception {
+			return new ArrayList<String>(Arrays.asList("cp", this.getInputFilepath(), this.getOutputFilepath()));
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.geobricks.gdal.GDALUtils;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.gdal2tiles.GDAL2Tiles;
+import org.geobricks.gdal.retile.GDALRetile;
+import org.geobricks.geotiff.GeoTIFFReader;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class TileArchiveTest extends GeoBricksTest {
+
+	public void testArchive() throws Exception {
+		File f = File.createTempFile("pyramid", ".gbta");
+		GeoTIFFReader r = new GeoTIFFReader(this.getFilePath("rapallo.tif"));
+		try {
+			final TileArchive a = new TileArchive(f, false);
+			final Map<String, byte[]> tiles = new ConcurrentHashMap<String, byte[]>();
+			TilePyramid p = new TilePyramid(r.getImage());
+			p.setProfile(PROFILE.raster);
+			p.build(new TileSink() {
+
+				public void write(int zoom, int x, int y, byte[] tile) throws IOException {
+					tiles.put(zoom + "/" + x + "/" + y, tile);
+					a.write(zoom, x, y, tile);
+				}
+
+				public void close() throws IOException {
+				}
+
+			});
+			byte[] sea = TilePyramid.encode(null);
+			a.write(3, 0, 0, sea);
+			a.write(3, 5, 7, sea);
+			assertEquals(1, a.getDuplicates());
+			a.close();
+			TileArchiveReader reader = new TileArchiveReader(f);
+			try {
+				assertEquals(16, reader.getTileCount());
+				assertEquals(0, reader.getMinZoom());
+				assertEquals(3, reader.getMaxZoom());
+				assertTrue(Arrays.equals(new int[] { 0, 0, 2, 2 }, reader.getBounds(2)));
+				for (Map.Entry<String, byte[]> e : tiles.entrySet()) {
+					String[] k = e.getKey().split("/");
+					assertEquals(ByteBuffer.wrap(e.getValue()), reader.getTile(Integer.parseInt(k[0]), Integer.parseInt(k[1]), Integer.parseInt(k[2])));
+				}
+				assertEquals(ByteBuffer.wrap(sea), reader.getTile(3, 5, 7));
+				assertNull(reader.getTile(3, 1, 1));
+				assertNull(reader.getTile(2, 3, 0));
+			} finally {
+				reader.close();
+			}
+			TileArchive b = new TileArchive(f, true);
+			b.write(3, 0, 0, tiles.get("0/0/0"));
+			b.close();
+			reader = new TileArchiveReader(f);
+			try {
+				assertEquals(16, reader.getTileCount());
+				assertEquals(ByteBuffer.wrap(tiles.get("0/0/0")), reader.getTile(3, 0, 0));
+				assertEquals(ByteBuffer.wrap(sea), reader.getTile(3, 5, 7));
+			} finally {
+				reader.close();
+			}
+		} finally {
+			r.close();
+			f.delete();
+		}
+	}
+
+	public void testMoveTiles() throws Exception {
+		File folder = File.createTempFile("tiles", "");
+		folder.delete();
+		folder.mkdirs();
+		File f = new File(folder, "pyramid.gbta");
+		try {
+			File tiles = new File(folder, "gdal2tiles");
+			write(new File(tiles, "0/0/0.png"), 1);
+			write(new File(tiles, "1/0/0.png"), 2);
+			write(new File(tiles, "1/1/0.png"), 3);
+			write(new File(tiles, "1/1/0.kml"), 4);
+			write(new File(tiles, "tilemapresource.xml"), 5);
+			File retile = new File(folder, "retile");
+			write(new File(retile, "mosaic_1_1.tif"), 6);
+			write(new File(retile, "mosaic_1_2.tif"), 7);
+			write(new File(retile, "1/mosaic_1_1.tif"), 8);
+			TileArchive a = new TileArchive(f, false);
+			try {
+				a.add(new GDAL2Tiles("mosaic.vrt", tiles.getPath()));
+				GDALRetile r = new GDALRetile("mosaic.vrt", retile.getPath());
+				r.setLevels(1);
+				a.add(r);
+			} finally {
+				a.close();
+			}
+			TileArchiveReader reader = new TileArchiveReader(f);
+			try {
+				assertEquals(6, reader.getTileCount());
+				assertEquals(ByteBuffer.wrap(new byte[] { 3 }), reader.getTile(1, 1, 0));
+				assertEquals(ByteBuffer.wrap(new byte[] { 7 }), reader.getTile(0, 2, 1));
+				assertEquals(ByteBuffer.wrap(new byte[] { 8 }), reader.getTile(1, 1, 1));
+			} finally {
+				reader.close();
+			}
+			assertFalse(new File(tiles, "0").exists());
+			assertFalse(new File(tiles, "1/0").exists());
+			assertEquals(Arrays.asList("0.kml"), Arrays.asList(new File(tiles, "1/1").list()));
+			assertTrue(new File(tiles, "tilemapresource.xml").exists());
+			assertEquals(0, retile.list().length);
+		} finally {
+			GDALUtils.delete(folder);
+		}
+	}
+
+	private static void write(File f, int content) throws IOException {
+		f.getParentFile().mkdirs();
+		OutputStream out = new FileOutputStream(f);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+/**
+ *
+ * GeoBricks
+ *
+ * Copyright (c) 2011 by Kalimaha
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.geobricks.tiles;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.geobricks.gdal.constant.BANDSTYPE;
+import org.geobricks.gdal.constant.PROFILE;
+import org.geobricks.gdal.constant.RESAMPLING;
+import org.geobricks.geotiff.GeoTIFFImage;
+import org.geobricks.geotiff.GeoTIFFReader;
+import org.geobricks.geotiff.GeoTIFFWriter;
+import org.geobricks.test.GeoBricksTest;
+
+/**
+ * 
+ * @author <a href="mailto:guido.barbaglia@gmail.com">Guido Barbaglia</a>
+ * 
+ */
+public class TilePyramidTest extends GeoBricksTest {
+
+	public void testRasterProfile() throws Exception {
+		GeoTIFFReader r = new GeoTIFFReader(this.getFilePath("rapallo.tif"));
+		try {
+			GeoTIFFImage image = r.getImage();
+			final Map<String, byte[]> tiles = new ConcurrentHashMap<String, byte[]>();
+			TilePyramid p = new TilePyramid(image);
+			p.setProfile(PROFILE.raster);
+			p.setResampling(RESAMPLING.near);
+			p.setThreads(3);
+			p.setMaxTiles(2);
+			long n = p.build(new TileSink() {
+
+				public void write(int zoom, int x, int y, byte[] tile) throws IOException {
+					tiles.put(zoom + "/" + x + "/" + y, tile);
+				}
+
+				public void close() throws IOException {
+				}
+
+			});
+			assertEquals(14, n);
+			assertEquals(14, tiles.size());
+			BufferedImage t = ImageIO.read(new ByteArrayInputStream(tiles.get("2/0/0")));
+			float[] row = image.readWindow(1, 0, 552, 2, 1);
+			assertEquals(0xff000000 | (int) row[0] * 0x10101, t.getRGB(0, 255));
+			assertEquals(0xff000000 | (int) row[1] * 0x10101, t.getRGB(1, 255));
+			BufferedImage top = ImageIO.read(new ByteArrayInputStream(tiles.get("2/0/2")));
+			assertEquals(0, top.getRGB(0, 0) >>> 24);
+			BufferedImage parent = ImageIO.read(new ByteArrayInputStream(tiles.get("1/0/0")));
+			assertEquals(t.getRGB(0, 254), parent.getRGB(0, 255));
+		} finally {
+			r.close();
+		}
+	}
+
+	/**
+	 * A zoom range stopping above the native level renders the same tiles as
+	 * the full pyramid on its levels, as gdal2tiles.py does.
+	 */
+	public void testRasterProfileZoom() throws Exception {
+		GeoTIFFReader r = new GeoTIFFReader(this.getFilePath("rapallo.tif"));
+		try {
+			TilePyramid p = new TilePyramid(r.getImage());
+			p.setProfile(PROFILE.raster);
+			Map<String, byte[]> all = build(p);
+			p = new TilePyramid(r.getImage());
+			p.setProfile(PROFILE.raster);
+			p.setZoom("0-1");
+			Map<String, byte[]> top = build(p);
+			Set<String> expected = new TreeSet<String>();
+			for (String k : all.keySet())
+				if (Integer.parseInt(k.split("/")[0]) <= 1)
+					expected.add(k);
+			assertEquals(expected, new TreeSet<String>(top.keySet()));
+			assertTrue(all.size() > top.size());
+		} finally {
+			r.close();
+		}
+	}
+
+	/**
+	 * The raster covers the north east quarter of the world in EPSG:3857,
+	 * its north half is brighter than the south half.
+	 */
+	public void testMercatorProfile() throws Exception {
+		File f = File.createTempFile("mercator", ".tif");
+		try {
+			GeoTIFFWriter w = new GeoTIFFWriter(f, 512, 512, 1, BANDSTYPE.Byte);
+			double half = Math.PI * 6378137;
+			w.setGeoTransform(new double[] { 0, half / 512, 0, half, 0, -half / 512 });
+			w.setEPSG(3857);
+			float[] samples = new float[512 * 512];
+			for (int i = 0; i < samples.length; i++)
+				samples[i] = i < samples.length / 2 ? 200 : 100;
+			w.writeRaster(samples);
+			w.close();
+			GeoTIFFReader r = new GeoTIFFReader(f.getPath());
+			try {
+				TilePyramid p = new TilePyramid(r.getImage());
+				p.setResampling(RESAMPLING.near);
+				p.setZoom("0-2");
+				Map<String, byte[]> tms = build(p);
+				assertEquals(new TreeSet<String>(Arrays.asList("0/0/0", "1/1/1", "2/2/2", "2/2/3", "2/3/2", "2/3/3")), new TreeSet<String>(tms.keySet()));
+				assertEquals(0xffc8c8c8, ImageIO.read(new ByteArrayInputStream(tms.get("2/2/3"))).getRGB(10, 10));
+				assertEquals(0xff646464, ImageIO.read(new ByteArrayInputStream(tms.get("2/2/2"))).getRGB(10, 10));
+				p = new TilePyramid(r.getImage());
+				p.setResampling(RESAMPLING.near);
+				p.setZoom("0-2");
+				p.xyz(true);
+				Map<String, byte[]> xyz = build(p);
+				assertEquals(new TreeSet<String>(Arrays.asList("0/0/0", "1/1/0", "2/2/0", "2/2/1", "2/3/0", "2/3/1")), new TreeSet<String>(xyz.keySet()));
+				assertTrue(Arrays.equals(tms.get("2/2/3"), xyz.get("2/2/0")));
+				assertTrue(Arrays.equals(tms.get("2/3/2"), xyz.get("2/3/1")));
+			} finally {
+				r.close();
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	private static Map<String, byte[]> build(TilePyramid p) throws Exception {
+		final Map<String, byte[]> tiles = new ConcurrentHashMap<String, byte[]>();
+		p.build(new TileSink() {
+
+			public void write(int zoom, int x, int y, byte[] tile) throws IOException {
+				tiles.put(zoom + "/" + x + "/" + y, tile);
+			}
+
+			public void close() throws IOException {
+			}
+
+		});
+		return tiles;
+	}
+
+}
\ No newline at end of file